@@ -0,0 +1,171 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.benchmarks;
+
+import com.telenav.cactus.maven.model.PomVersion;
+import com.telenav.cactus.maven.model.resolver.versions.VersionComparator;
+import com.telenav.cactus.maven.model.resolver.versions.VersionKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures version comparison - the legacy split-and-regex comparator (kept
+ * in this module as a baseline) against VersionComparator, which now parses
+ * both strings into keys on each call, and against comparing cached
+ * VersionKeys - and sorting the kind of version lists a local repository
+ * resolver sees.
+ * <p>
+ * The sort benchmarks copy one of a fixed set of arrays shuffled up front,
+ * rather than reshuffling per invocation, so every variant sorts the same
+ * inputs and pays the same (small) copying cost.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionComparisonBenchmark
+{
+    private static final List<String> VERSIONS = Arrays.asList(
+            "0.0.1", "1.0-SNAPSHOT", "1.0", "1.0.0-SNAPSHOT", "1.0.0", "1.0.1",
+            "1.2.3-beta", "1.2.3-alpha", "1.2.3", "1.2.03", "1.2.3.4.5",
+            "1.5.0-dev", "1.6.1", "1.9", "1.9.9", "1.10", "2.0.0.0", "3.0.0-M5",
+            "3.0.0-M7", "13.20.141", "2022.06.15");
+    private static final int SHUFFLES = 16;
+    private String[] strings;
+    private VersionKey[] keys;
+    private String[][] shuffledStrings;
+    private PomVersion[][] shuffledVersions;
+    private int index;
+    private int shuffle;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        strings = VERSIONS.toArray(new String[0]);
+        keys = new VersionKey[strings.length];
+        for (int i = 0; i < strings.length; i++)
+        {
+            keys[i] = VersionKey.of(strings[i]);
+        }
+        Random rnd = new Random(1);
+        shuffledStrings = new String[SHUFFLES][];
+        shuffledVersions = new PomVersion[SHUFFLES][];
+        for (int i = 0; i < SHUFFLES; i++)
+        {
+            List<String> shuffled = new ArrayList<>(VERSIONS);
+            Collections.shuffle(shuffled, rnd);
+            shuffledStrings[i] = shuffled.toArray(new String[0]);
+            shuffledVersions[i] = new PomVersion[shuffled.size()];
+            for (int j = 0; j < shuffled.size(); j++)
+            {
+                shuffledVersions[i][j] = PomVersion.of(shuffled.get(j));
+            }
+        }
+    }
+
+    @Benchmark
+    public int compareLegacy()
+    {
+        int a = next();
+        return LegacyVersionComparator.INSTANCE.compare(strings[a],
+                strings[(a + 7) % strings.length]);
+    }
+
+    @Benchmark
+    public int compareStrings()
+    {
+        int a = next();
+        return VersionComparator.INSTANCE.compare(strings[a],
+                strings[(a + 7) % strings.length]);
+    }
+
+    @Benchmark
+    public int compareKeys()
+    {
+        int a = next();
+        return keys[a].compareTo(keys[(a + 7) % keys.length]);
+    }
+
+    @Benchmark
+    public void parseKeys(Blackhole bh)
+    {
+        for (String s : strings)
+        {
+            bh.consume(VersionKey.of(s));
+        }
+    }
+
+    @Benchmark
+    public String[] sortLegacy()
+    {
+        String[] result = shuffledStrings[nextShuffle()].clone();
+        Arrays.sort(result, LegacyVersionComparator.INSTANCE);
+        return result;
+    }
+
+    @Benchmark
+    public String[] sortStrings()
+    {
+        String[] result = shuffledStrings[nextShuffle()].clone();
+        Arrays.sort(result, VersionComparator.INSTANCE);
+        return result;
+    }
+
+    @Benchmark
+    public PomVersion[] sortPomVersions()
+    {
+        PomVersion[] result = shuffledVersions[nextShuffle()].clone();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int next()
+    {
+        int result = index;
+        index = (index + 1) % strings.length;
+        return result;
+    }
+
+    private int nextShuffle()
+    {
+        int result = shuffle;
+        shuffle = (shuffle + 1) % SHUFFLES;
+        return result;
+    }
+}
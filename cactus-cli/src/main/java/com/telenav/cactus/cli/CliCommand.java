@@ -19,6 +19,7 @@ package com.telenav.cactus.cli;
 
 import com.mastfrog.concurrent.future.AwaitableCompletionStage;
 import com.mastfrog.function.optional.ThrowingOptional;
+import com.telenav.cactus.process.OutputHandler;
 import com.telenav.cactus.process.ProcessControl;
 import com.telenav.cactus.process.ProcessResult;
 import com.telenav.cactus.util.PathUtils;
@@ -166,7 +167,12 @@ public abstract class CliCommand<T> implements Supplier<String>
             configureArguments(commandLine);
 
             NuProcessBuilder pb = new NuProcessBuilder(commandLine);
-            ProcessControl<String, String> callback = ProcessControl.create(pb);
+            CountingOutputHandler<String> out = new CountingOutputHandler<>(
+                    resultConverter().newStandardOutputHandler());
+            CountingOutputHandler<String> err = new CountingOutputHandler<>(
+                    OutputHandler.string());
+            ProcessControl<String, String> callback = ProcessControl.create(pb,
+                    out, err);
 
             internalConfigureProcessBuilder(pb, callback);
 
@@ -181,23 +187,29 @@ public abstract class CliCommand<T> implements Supplier<String>
                     // retry
                     Thread.sleep(500);
                     pb = new NuProcessBuilder(commandLine);
-                    callback = ProcessControl.create(pb);
+                    out = new CountingOutputHandler<>(
+                            resultConverter().newStandardOutputHandler());
+                    err = new CountingOutputHandler<>(OutputHandler.string());
+                    callback = ProcessControl.create(pb, out, err);
                     pb.environment().put("GIT_TERMINAL_PROMPT", "0");
                     internalConfigureProcessBuilder(pb, callback);
                     
                     proc = pb.start();
                     if (proc != null)
                     {
+                        recordLaunch(callback, out, err);
                         onLaunch(callback);
                         System.out.println("RETRY " + i + " succeeded.");
                         break;
                     }
                 }
             } else {
+                recordLaunch(callback, out, err);
                 onLaunch(callback);
             }
             if (proc == null)
             {
+                ProcessStatistics.launchFailed(statisticsName());
                 // We once in a while see
                 // java.lang.NullPointerException
                 //	at com.zaxxer.nuprocess@2.0.4/com.zaxxer.nuprocess.internal.BasePosixProcess.callStart(BasePosixProcess.java:587)
@@ -219,6 +231,30 @@ public abstract class CliCommand<T> implements Supplier<String>
         });
     }
 
+    private void recordLaunch(ProcessControl<String, String> proc,
+            CountingOutputHandler<String> out, CountingOutputHandler<String> err)
+    {
+        ProcessStatistics.Launch launch = ProcessStatistics.launched(
+                statisticsName(), workingDirectory().orElse(null));
+        proc.onExit().whenComplete((res, thrown)
+                -> launch.exited(res == null
+                                 ? -1
+                                 : res.exitValue(), out.bytes(), err.bytes()));
+    }
+
+    /**
+     * The name under which launches of this command are aggregated in
+     * {@link ProcessStatistics} - by default, the command name; subclasses
+     * which run many different subcommands of one binary may want to include
+     * the subcommand.
+     *
+     * @return A name
+     */
+    protected String statisticsName()
+    {
+        return name;
+    }
+
     /**
      * Override to log process start or similar.
      *
@@ -0,0 +1,59 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.cli;
+
+import com.telenav.cactus.process.OutputHandler;
+import com.telenav.cactus.process.ProcessControl;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps an output handler, counting the bytes that pass through it for
+ * ProcessStatistics.
+ *
+ * @author Tim Boudreau
+ */
+final class CountingOutputHandler<T> implements OutputHandler<T>
+{
+    private final OutputHandler<T> delegate;
+    private final LongAdder bytes = new LongAdder();
+
+    CountingOutputHandler(OutputHandler<T> delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    long bytes()
+    {
+        return bytes.sum();
+    }
+
+    @Override
+    public void onOutput(ProcessControl<?, ?> process, ByteBuffer output,
+            boolean closed)
+    {
+        bytes.add(output.remaining());
+        delegate.onOutput(process, output, closed);
+    }
+
+    @Override
+    public T result()
+    {
+        return delegate.result();
+    }
+}
@@ -0,0 +1,78 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.cli;
+
+import com.mastfrog.concurrent.future.AwaitableCompletionStage;
+import com.telenav.cactus.process.LineOutputHandler;
+import com.telenav.cactus.process.OutputHandler;
+import com.telenav.cactus.process.ProcessControl;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+import static com.telenav.cactus.cli.CliCommand.completionStageForProcess;
+
+/**
+ * Passes process output to a predicate line-by-line as it arrives; the result
+ * is true if all of the output was consumed, and false if the predicate
+ * stopped it early (in which case the process is killed and its exit code is
+ * not an error).
+ * <p>
+ * Since the predicate is usually stateful, instances of this class should be
+ * used for a single command invocation.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+final class LineStreamingProcessResultConverter implements
+        ProcessResultConverter<Boolean>
+{
+    private final Predicate<String> lineConsumer;
+    private volatile LineOutputHandler handler;
+
+    LineStreamingProcessResultConverter(Predicate<String> lineConsumer)
+    {
+        this.lineConsumer = notNull("lineConsumer", lineConsumer);
+    }
+
+    @Override
+    public OutputHandler<String> newStandardOutputHandler()
+    {
+        return handler = new LineOutputHandler(lineConsumer);
+    }
+
+    @Override
+    public AwaitableCompletionStage<Boolean> onProcessStarted(
+            Supplier<String> description, ProcessControl<String, String> process)
+    {
+        return completionStageForProcess(process).thenApply(result ->
+        {
+            LineOutputHandler h = handler;
+            if (h != null && h.isStopped())
+            {
+                return false;
+            }
+            if (result.exitValue() == 0)
+            {
+                return true;
+            }
+            throw new ProcessFailedException(description, process, "",
+                    result.standardError());
+        });
+    }
+}
@@ -18,11 +18,13 @@
 package com.telenav.cactus.cli;
 
 import com.mastfrog.concurrent.future.AwaitableCompletionStage;
+import com.telenav.cactus.process.OutputHandler;
 import com.telenav.cactus.process.ProcessControl;
 import java.net.URI;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static java.lang.Thread.currentThread;
@@ -38,6 +40,18 @@ public interface ProcessResultConverter<T>
     AwaitableCompletionStage<T> onProcessStarted(Supplier<String> description,
             ProcessControl<String, String> process);
 
+    /**
+     * Create the handler which collects standard output for one launch of a
+     * process. Converters which consume output as it arrives, rather than
+     * once the process has exited, override this.
+     *
+     * @return An output handler
+     */
+    default OutputHandler<String> newStandardOutputHandler()
+    {
+        return OutputHandler.string();
+    }
+
     public static StringProcessResultConverter strings()
     {
         return new StringProcessResultConverterImpl();
@@ -55,6 +69,20 @@ public interface ProcessResultConverter<T>
         });
     }
 
+    /**
+     * Pass each line of output to the passed predicate as it arrives, without
+     * buffering the output; if the predicate returns false, the process is
+     * killed. The result is true if all of the output was consumed.
+     *
+     * @param lineConsumer A predicate
+     * @return A converter, which should only be used for one invocation
+     */
+    public static ProcessResultConverter<Boolean> streamingLines(
+            Predicate<String> lineConsumer)
+    {
+        return new LineStreamingProcessResultConverter(lineConsumer);
+    }
+
     public static ProcessResultConverter<Boolean> exitCodeIsZero()
     {
         return new BooleanProcessResultConverter();
@@ -104,24 +132,37 @@ public interface ProcessResultConverter<T>
     {
         // Get the maven classloader and apply it on the background thread
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        return (description, proc) ->
+        return new ProcessResultConverter<R>()
         {
-            return AwaitableCompletionStage.of(
-                    onProcessStarted(description, proc)
-                            .thenApply(arg ->
-                            {
-                                Thread t = currentThread();
-                                ClassLoader old = t.getContextClassLoader();
-                                try
-                                {
-                                    t.setContextClassLoader(classLoader);
-                                    return converter.apply(arg);
-                                }
-                                finally
+            @Override
+            public AwaitableCompletionStage<R> onProcessStarted(
+                    Supplier<String> description,
+                    ProcessControl<String, String> proc)
+            {
+                return AwaitableCompletionStage.of(
+                        ProcessResultConverter.this.onProcessStarted(
+                                description, proc)
+                                .thenApply(arg ->
                                 {
-                                    t.setContextClassLoader(old);
-                                }
-                            }));
+                                    Thread t = currentThread();
+                                    ClassLoader old = t.getContextClassLoader();
+                                    try
+                                    {
+                                        t.setContextClassLoader(classLoader);
+                                        return converter.apply(arg);
+                                    }
+                                    finally
+                                    {
+                                        t.setContextClassLoader(old);
+                                    }
+                                }));
+            }
+
+            @Override
+            public OutputHandler<String> newStandardOutputHandler()
+            {
+                return ProcessResultConverter.this.newStandardOutputHandler();
+            }
         };
     }
 }
@@ -0,0 +1,204 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.cli;
+
+import com.telenav.cactus.process.ProcessControl;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Runtime.getRuntime;
+
+/**
+ * Process-wide registry of what external processes CliCommand has launched -
+ * how many times each command was run, how long it took, how it exited and how
+ * much output it produced, both per command and per working directory. This is
+ * cheap enough to always collect; {@link #printOnShutdown()} causes a summary
+ * to be written to the console when the JVM exits.
+ *
+ * @author Tim Boudreau
+ */
+public final class ProcessStatistics
+{
+    private static final Map<String, Stats> BY_COMMAND = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> BY_DIRECTORY = new ConcurrentHashMap<>();
+    private static final AtomicBoolean HOOK_ADDED = new AtomicBoolean();
+
+    private ProcessStatistics()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Record that a process was launched, returning a callback which should
+     * be invoked once it exits.
+     *
+     * @param command The command name, e.g. <code>git fetch</code>
+     * @param workingDir The working directory, if any
+     * @return A launch record
+     */
+    static Launch launched(String command, Path workingDir)
+    {
+        Stats cmd = BY_COMMAND.computeIfAbsent(command, c -> new Stats());
+        Stats dir = BY_DIRECTORY.computeIfAbsent(workingDir == null
+                                                 ? "(none)"
+                                                 : workingDir.toString(),
+                d -> new Stats());
+        cmd.launches.increment();
+        dir.launches.increment();
+        return new Launch(cmd, dir, System.nanoTime());
+    }
+
+    /**
+     * Record that a process could not be launched at all.
+     *
+     * @param command The command name
+     */
+    static void launchFailed(String command)
+    {
+        BY_COMMAND.computeIfAbsent(command, c -> new Stats()).launchFailures
+                .increment();
+    }
+
+    /**
+     * Discard all collected statistics.
+     */
+    public static void reset()
+    {
+        BY_COMMAND.clear();
+        BY_DIRECTORY.clear();
+    }
+
+    /**
+     * Print a summary of process launches to the console when the JVM shuts
+     * down; calling this more than once has no further effect.
+     */
+    public static void printOnShutdown()
+    {
+        if (HOOK_ADDED.compareAndSet(false, true))
+        {
+            Thread t = new Thread(() ->
+            {
+                if (!BY_COMMAND.isEmpty())
+                {
+                    System.out.println(report());
+                }
+            }, "process-statistics");
+            getRuntime().addShutdownHook(t);
+        }
+    }
+
+    /**
+     * Get a human-readable summary of all process launches so far.
+     *
+     * @return A report
+     */
+    public static String report()
+    {
+        StringBuilder sb = new StringBuilder(
+                "---------------- External Processes ----------------\n");
+        appendTable("Command", BY_COMMAND, sb);
+        sb.append('\n');
+        appendTable("Working Directory", BY_DIRECTORY, sb);
+        sb.append("\nProcesses still awaiting timeout: ")
+                .append(ProcessControl.processesAwaitingTimeout()).append('\n');
+        return sb.toString();
+    }
+
+    private static void appendTable(String title, Map<String, Stats> map,
+            StringBuilder into)
+    {
+        into.append(title).append(
+                "\tlaunches\tfailed\ttotal-ms\tmean-ms\tmax-ms\tstdout-bytes\tstderr-bytes\texit-codes\n");
+        new TreeMap<>(map).forEach((key, stats) -> stats.appendTo(key, into));
+    }
+
+    /**
+     * Returned when a process is launched, to record its exit.
+     */
+    static final class Launch
+    {
+        private final Stats command;
+        private final Stats directory;
+        private final long started;
+
+        Launch(Stats command, Stats directory, long started)
+        {
+            this.command = command;
+            this.directory = directory;
+            this.started = started;
+        }
+
+        void exited(int exitCode, long stdoutBytes, long stderrBytes)
+        {
+            long elapsed = System.nanoTime() - started;
+            command.exited(exitCode, elapsed, stdoutBytes, stderrBytes);
+            directory.exited(exitCode, elapsed, stdoutBytes, stderrBytes);
+        }
+    }
+
+    private static final class Stats
+    {
+        final LongAdder launches = new LongAdder();
+        final LongAdder launchFailures = new LongAdder();
+        final LongAdder wallNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder exited = new LongAdder();
+        final LongAdder stdoutBytes = new LongAdder();
+        final LongAdder stderrBytes = new LongAdder();
+        final Map<Integer, LongAdder> exitCodes = new ConcurrentHashMap<>();
+
+        void exited(int exitCode, long elapsed, long stdout, long stderr)
+        {
+            exited.increment();
+            wallNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            stdoutBytes.add(stdout);
+            stderrBytes.add(stderr);
+            exitCodes.computeIfAbsent(exitCode, c -> new LongAdder())
+                    .increment();
+        }
+
+        void appendTo(String key, StringBuilder into)
+        {
+            long count = exited.sum();
+            long totalMillis = wallNanos.sum() / 1_000_000L;
+            List<String> codes = new ArrayList<>();
+            new TreeMap<>(exitCodes).forEach((code, n)
+                    -> codes.add(code + "=" + n.sum()));
+            into.append(key)
+                    .append('\t').append(launches.sum())
+                    .append('\t').append(launchFailures.sum())
+                    .append('\t').append(totalMillis)
+                    .append('\t').append(count == 0
+                                         ? 0
+                                         : totalMillis / count)
+                    .append('\t').append(maxNanos.get() / 1_000_000L)
+                    .append('\t').append(stdoutBytes.sum())
+                    .append('\t').append(stderrBytes.sum())
+                    .append('\t').append(String.join(",", codes))
+                    .append('\n');
+        }
+    }
+}
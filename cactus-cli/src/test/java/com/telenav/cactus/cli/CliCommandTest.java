@@ -32,6 +32,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
@@ -136,6 +137,34 @@ public class CliCommandTest
         Thread.sleep(2000);
     }
 
+    @Test
+    public void testStreamingLinesStopsProcessEarly() throws Exception
+    {
+        // yes never exits on its own, so this can only complete if the
+        // process is killed when the predicate is satisfied
+        List<String> lines = new ArrayList<>();
+        CliCommand<Boolean> cli = new Cli<>("yes", ProcessResultConverter
+                .streamingLines(line ->
+                {
+                    lines.add(line);
+                    return lines.size() < 5;
+                }), "hello");
+        Boolean completed = cli.run().await(Duration.ofSeconds(30));
+        assertEquals(Boolean.FALSE, completed);
+        assertEquals(5, lines.size());
+        lines.forEach(line -> assertEquals("hello", line));
+    }
+
+    @Test
+    public void testStreamingLinesDeliversAllOutput() throws Exception
+    {
+        List<String> lines = new ArrayList<>();
+        CliCommand<Boolean> cli = new Cli<>(file.toString(),
+                ProcessResultConverter.streamingLines(lines::add), "The Test");
+        assertEquals(Boolean.TRUE, cli.run().awaitQuietly());
+        assertEquals(asList("hello The Test", "goodbye The Test"), lines);
+    }
+
     @Test
     public void testCliCommand() throws Exception
     {
@@ -147,6 +176,23 @@ public class CliCommandTest
                 + "goodbye The Test\n", output);
     }
 
+    @Test
+    public void testLaunchesAreRecordedInStatistics() throws Exception
+    {
+        CliCommand<String> cli = new Cli<>(file.toString(), strings(),
+                "The Test")
+        {
+            @Override
+            protected String statisticsName()
+            {
+                return "statistics-test";
+            }
+        };
+        cli.run().awaitQuietly();
+        assertTrue(ProcessStatistics.report().contains("statistics-test\t1\t0\t"),
+                ProcessStatistics::report);
+    }
+
     @Test
     public void testKilledExits() throws Exception
     {
@@ -25,6 +25,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -38,13 +39,29 @@ public class Branches
 
     public static Branches from(String output)
     {
-        Set<Branch> result = new TreeSet<>();
-        Branch currentBranch = null;
+        Parser parser = new Parser();
         for (String line : output.split("\n"))
+        {
+            parser.test(line);
+        }
+        return parser.branches();
+    }
+
+    /**
+     * Incremental parser for <code>git branch -a</code> output, which can be
+     * fed lines as a process emits them.
+     */
+    static final class Parser implements Predicate<String>
+    {
+        private final Set<Branch> result = new TreeSet<>();
+        private Branch currentBranch;
+
+        @Override
+        public boolean test(String line)
         {
             if (line.isBlank())
             {
-                continue;
+                return true;
             }
             boolean isCurrentBranch = line.charAt(0) == '*';
             // trim off leading space or * and separating space
@@ -55,7 +72,7 @@ public class Branches
             if (line.contains("->"))
             {
                 // e.g. remotes/origin/HEAD -> origin/master - not a branch
-                continue;
+                return true;
             }
             String remote = null;
             if (line.startsWith("remotes/"))
@@ -79,6 +96,68 @@ public class Branches
                 currentBranch = branch;
             }
             result.add(branch);
+            return true;
+        }
+
+        Branches branches()
+        {
+            return new Branches(currentBranch, result);
+        }
+    }
+
+    /**
+     * Parse the output of
+     * <code>git for-each-ref --format=%(HEAD) %(refname) refs/heads refs/remotes</code>,
+     * which, unlike the output of <code>git branch -a</code>, contains full ref
+     * names and no human-oriented decoration.
+     *
+     * @param output The output
+     * @return A branches
+     */
+    public static Branches fromRefs(String output)
+    {
+        Set<Branch> result = new TreeSet<>();
+        Branch currentBranch = null;
+        for (String line : output.split("\n"))
+        {
+            if (line.length() < 3)
+            {
+                continue;
+            }
+            boolean isCurrentBranch = line.charAt(0) == '*';
+            String ref = line.substring(2).trim();
+            Branch branch;
+            if (ref.startsWith("refs/heads/"))
+            {
+                branch = new Branch(ref.substring(11), null);
+            }
+            else
+                if (ref.startsWith("refs/remotes/"))
+                {
+                    String remoteAndName = ref.substring(13);
+                    int ix = remoteAndName.indexOf('/');
+                    if (ix <= 0 || ix == remoteAndName.length() - 1)
+                    {
+                        continue;
+                    }
+                    String name = remoteAndName.substring(ix + 1);
+                    if ("HEAD".equals(name))
+                    {
+                        // e.g. refs/remotes/origin/HEAD - a symbolic ref, not
+                        // a branch
+                        continue;
+                    }
+                    branch = new Branch(name, remoteAndName.substring(0, ix));
+                }
+                else
+                {
+                    continue;
+                }
+            if (isCurrentBranch)
+            {
+                currentBranch = branch;
+            }
+            result.add(branch);
         }
         return new Branches(currentBranch, result);
     }
@@ -0,0 +1,270 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import com.telenav.cactus.maven.log.BuildLog;
+import com.telenav.cactus.process.InteractiveProcess;
+import com.telenav.cactus.process.InteractiveProcess.ResponseReader;
+import com.telenav.cactus.util.PathUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A long-running <code>git cat-file --batch</code> process per checkout, used
+ * to answer ref-resolution and object queries without launching a process
+ * for each one. Channels that have not been used for a while are closed by a
+ * background thread, and a new one is started on demand.
+ *
+ * @author Tim Boudreau
+ */
+final class CatFileChannel
+{
+    private static final long IDLE_TIMEOUT_MILLIS = 30_000;
+    private static final long RESPONSE_TIMEOUT_SECONDS = 60;
+    private static final Map<Path, InteractiveProcess> CHANNELS
+            = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService EVICTOR
+            = newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread result = new Thread(runnable, "cactus-cat-file-evictor");
+                result.setDaemon(true);
+                return result;
+            });
+    private static final BuildLog LOG = BuildLog.get().child("cat-file");
+
+    static
+    {
+        EVICTOR.scheduleWithFixedDelay(CatFileChannel::evictIdle,
+                IDLE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS / 2, MILLISECONDS);
+    }
+
+    private CatFileChannel()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Look up an object by anything git can resolve to one - a hash, a ref
+     * name, or an expression such as <code>origin/main^{commit}</code>.
+     *
+     * @param checkoutRoot The checkout
+     * @param objectName The object name
+     * @return The object, or empty if it does not exist or the channel could
+     * not be used
+     */
+    static Optional<GitObject> read(Path checkoutRoot, String objectName)
+    {
+        if (objectName.indexOf('\n') >= 0)
+        {
+            return Optional.empty();
+        }
+        InteractiveProcess channel = channel(checkoutRoot);
+        if (channel == null)
+        {
+            return Optional.empty();
+        }
+        try
+        {
+            return channel.request(objectName, GitObject.READER)
+                    .get(RESPONSE_TIMEOUT_SECONDS, SECONDS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | TimeoutException ex)
+        {
+            LOG.debug(() -> "cat-file failed for " + objectName + " in "
+                    + checkoutRoot + ": " + ex);
+            // The stream may be out of step with our requests now; don't
+            // reuse it
+            discard(checkoutRoot, channel);
+        }
+        return Optional.empty();
+    }
+
+    private static InteractiveProcess channel(Path checkoutRoot)
+    {
+        InteractiveProcess existing = CHANNELS.get(checkoutRoot);
+        if (existing != null && existing.isAlive())
+        {
+            return existing;
+        }
+        Optional<Path> git = PathUtils.findExecutable("git");
+        if (!git.isPresent())
+        {
+            return null;
+        }
+        synchronized (CHANNELS)
+        {
+            existing = CHANNELS.get(checkoutRoot);
+            if (existing != null && existing.isAlive())
+            {
+                return existing;
+            }
+            try
+            {
+                InteractiveProcess result = InteractiveProcess.start(
+                        checkoutRoot,
+                        Arrays.asList(git.get().toString(), "--no-pager",
+                                "cat-file", "--batch"),
+                        Map.of("GIT_CONFIG_NOSYSTEM", "1",
+                                "GIT_TERMINAL_PROMPT", "0"));
+                CHANNELS.put(checkoutRoot, result);
+                return result;
+            }
+            catch (IOException ex)
+            {
+                LOG.debug(() -> "Could not start cat-file in " + checkoutRoot
+                        + ": " + ex);
+                return null;
+            }
+        }
+    }
+
+    private static void discard(Path checkoutRoot, InteractiveProcess channel)
+    {
+        if (CHANNELS.remove(checkoutRoot, channel))
+        {
+            channel.close();
+        }
+    }
+
+    private static void evictIdle()
+    {
+        CHANNELS.forEach((root, channel) ->
+        {
+            if (!channel.isAlive() || channel
+                    .idleMillis() > IDLE_TIMEOUT_MILLIS)
+            {
+                discard(root, channel);
+            }
+        });
+    }
+
+    /**
+     * A git object as returned by <code>git cat-file --batch</code>.
+     */
+    static final class GitObject
+    {
+        static final ResponseReader<Optional<GitObject>> READER
+                = GitObject::read;
+        final String hash;
+        final String type;
+        final byte[] content;
+
+        GitObject(String hash, String type, byte[] content)
+        {
+            this.hash = hash;
+            this.type = type;
+            this.content = content;
+        }
+
+        String contentAsString()
+        {
+            return new String(content, UTF_8);
+        }
+
+        /**
+         * Get the subject of a commit or tag the way
+         * <code>--pretty=format:%s</code> would - the first paragraph of its
+         * message, unwrapped onto one line.
+         *
+         * @return The subject
+         */
+        String subject()
+        {
+            String text = contentAsString();
+            int messageStart = text.indexOf("\n\n");
+            if (messageStart < 0)
+            {
+                return "";
+            }
+            StringBuilder result = new StringBuilder();
+            for (String line : text.substring(messageStart + 2).split("\n"))
+            {
+                if (line.isBlank())
+                {
+                    if (result.length() > 0)
+                    {
+                        break;
+                    }
+                    continue;
+                }
+                if (result.length() > 0)
+                {
+                    result.append(' ');
+                }
+                result.append(line.trim());
+            }
+            return result.toString();
+        }
+
+        private static Optional<GitObject> read(ByteBuffer buffer)
+        {
+            int headerEnd = -1;
+            for (int i = buffer.position(); i < buffer.limit(); i++)
+            {
+                if (buffer.get(i) == '\n')
+                {
+                    headerEnd = i;
+                    break;
+                }
+            }
+            if (headerEnd < 0)
+            {
+                return null;
+            }
+            byte[] headerBytes = new byte[headerEnd - buffer.position()];
+            buffer.get(headerBytes);
+            String header = new String(headerBytes, UTF_8);
+            // <name> missing or <name> ambiguous, and nothing else
+            String[] parts = header.split(" ");
+            if (parts.length != 3 || parts[2].isEmpty()
+                    || !parts[2].chars().allMatch(Character::isDigit))
+            {
+                buffer.get(); // newline
+                return Optional.empty();
+            }
+            int size = Integer.parseInt(parts[2]);
+            // content plus a trailing newline
+            if (buffer.limit() - (headerEnd + 1) < size + 1)
+            {
+                return null;
+            }
+            buffer.get(); // newline
+            byte[] content = new byte[size];
+            buffer.get(content);
+            buffer.get(); // trailing newline
+            return Optional.of(new GitObject(parts[0], parts[1], content));
+        }
+    }
+}
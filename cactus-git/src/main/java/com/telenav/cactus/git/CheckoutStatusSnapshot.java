@@ -0,0 +1,196 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.util.Optional;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * An immutable snapshot of the state of a git checkout which would otherwise
+ * require a separate git process per question - whether it is dirty, whether it
+ * is on a branch (and which), its head commit, and the full set of local and
+ * remote branches. Created from the output of exactly two git invocations:
+ * <pre>
+ * git status --porcelain=v2 --branch --ignore-submodules=dirty --untracked-files=no
+ * git for-each-ref --format=%(HEAD) %(refname) refs/heads refs/remotes
+ * </pre>
+ *
+ * @author Tim Boudreau
+ */
+public final class CheckoutStatusSnapshot
+{
+    private static final String BRANCH_HEAD_PREFIX = "# branch.head ";
+    private static final String BRANCH_OID_PREFIX = "# branch.oid ";
+    private static final String DETACHED = "(detached)";
+    private static final String INITIAL = "(initial)";
+
+    private final GitCheckout checkout;
+    private final String branch;
+    private final String head;
+    private final boolean dirty;
+    private final Branches branches;
+
+    CheckoutStatusSnapshot(GitCheckout checkout, String branch, String head,
+            boolean dirty, Branches branches)
+    {
+        this.checkout = notNull("checkout", checkout);
+        this.branch = branch;
+        this.head = head;
+        this.dirty = dirty;
+        this.branches = notNull("branches", branches);
+    }
+
+    /**
+     * Parse the output of the two git commands that make up a snapshot.
+     *
+     * @param checkout The checkout
+     * @param statusOutput The output of
+     * <code>git status --porcelain=v2 --branch</code>
+     * @param refsOutput The output of
+     * <code>git for-each-ref --format=%(HEAD) %(refname)</code>
+     * @return A snapshot
+     */
+    static CheckoutStatusSnapshot from(GitCheckout checkout,
+            String statusOutput, String refsOutput)
+    {
+        String branch = null;
+        String head = null;
+        boolean dirty = false;
+        for (String line : statusOutput.split("\n"))
+        {
+            if (line.isEmpty())
+            {
+                continue;
+            }
+            if (line.startsWith(BRANCH_HEAD_PREFIX))
+            {
+                String name = line.substring(BRANCH_HEAD_PREFIX.length())
+                        .trim();
+                if (!DETACHED.equals(name))
+                {
+                    branch = name;
+                }
+                continue;
+            }
+            if (line.startsWith(BRANCH_OID_PREFIX))
+            {
+                String oid = line.substring(BRANCH_OID_PREFIX.length()).trim();
+                if (!INITIAL.equals(oid))
+                {
+                    head = oid;
+                }
+                continue;
+            }
+            if (!dirty)
+            {
+                dirty = isWorkingTreeChange(line);
+            }
+        }
+        return new CheckoutStatusSnapshot(checkout, branch, head, dirty,
+                Branches.fromRefs(refsOutput));
+    }
+
+    /**
+     * Determine if a porcelain v2 entry line describes a difference between
+     * the working tree and the index - the same thing
+     * <code>git diff --quiet</code> tests for.
+     *
+     * @param line A line
+     * @return true if it represents a working tree change
+     */
+    private static boolean isWorkingTreeChange(String line)
+    {
+        switch (line.charAt(0))
+        {
+            case '1':
+            case '2':
+                // "1 XY ..." - Y is the working tree status, '.' if unmodified
+                return line.length() > 3 && line.charAt(3) != '.';
+            case 'u':
+                // Unmerged paths always show up in git diff
+                return true;
+            default:
+                // Headers, untracked and ignored files
+                return false;
+        }
+    }
+
+    /**
+     * The checkout this snapshot was taken from.
+     *
+     * @return A checkout
+     */
+    public GitCheckout checkout()
+    {
+        return checkout;
+    }
+
+    /**
+     * The branch the checkout was on, if not in detached-head state.
+     *
+     * @return A branch name or empty
+     */
+    public Optional<String> branch()
+    {
+        return Optional.ofNullable(branch);
+    }
+
+    /**
+     * The head commit, if the repository has any commits.
+     *
+     * @return A commit hash or empty
+     */
+    public Optional<String> head()
+    {
+        return Optional.ofNullable(head);
+    }
+
+    public boolean isDetachedHead()
+    {
+        return branch == null;
+    }
+
+    /**
+     * Whether the working tree differs from the index, ignoring submodules
+     * whose only changes are local modifications (but not ones whose head
+     * commit has changed).
+     *
+     * @return true if dirty
+     */
+    public boolean isDirty()
+    {
+        return dirty;
+    }
+
+    public Branches branches()
+    {
+        return branches;
+    }
+
+    @Override
+    public String toString()
+    {
+        return checkout.loggingName() + " " + (branch == null
+                                               ? DETACHED
+                                               : branch)
+                + " " + head + (dirty
+                                ? " dirty"
+                                : "");
+    }
+}
@@ -118,40 +118,65 @@ public class CommitInfo
      */
     static boolean visit(String output, Predicate<CommitInfo> test)
     {
-        boolean result = true;
+        Visitor visitor = new Visitor(test);
+        for (String line : output.split("\n"))
+        {
+            if (!visitor.test(line))
+            {
+                return false;
+            }
+        }
+        return visitor.finish();
+    }
 
-        CommitInfo currentHistory = null;
+    /**
+     * Incremental form of visit(), which can be fed lines of git log output
+     * as the process emits them; returns false from test() once the
+     * predicate has returned false, at which point the caller can stop
+     * reading output.
+     */
+    static final class Visitor implements Predicate<String>
+    {
+        private final Predicate<CommitInfo> test;
+        private CommitInfo currentHistory;
+        private boolean done;
 
-        Predicate<CommitInfo> emitter = hist ->
+        Visitor(Predicate<CommitInfo> test)
+        {
+            this.test = test;
+        }
+
+        private boolean emit(CommitInfo hist)
         {
             if (hist != null && !hist.isEmpty() && !test.test(hist))
             {
+                done = true;
                 return false;
             }
             return true;
-        };
+        }
 
-        for (String line : output.split("\n"))
+        @Override
+        public boolean test(String line)
         {
+            if (done)
+            {
+                return false;
+            }
             if (line.isEmpty())
             {
-                if (!emitter.test(currentHistory))
-                {
-                    currentHistory = null;
-                    result = false;
-                    break;
-                }
+                CommitInfo prev = currentHistory;
                 currentHistory = null;
-                continue;
+                return emit(prev);
             }
             else
                 if (line.startsWith("@^@:"))
                 {
-                    if (!emitter.test(currentHistory))
+                    CommitInfo prev = currentHistory;
+                    currentHistory = null;
+                    if (!emit(prev))
                     {
-                        currentHistory = null;
-                        result = false;
-                        break;
+                        return false;
                     }
                     line = line.substring(4);
                     String[] parts = line.split(":::");
@@ -175,12 +200,24 @@ public class CommitInfo
                     }
                     currentHistory.paths.add(Paths.get(line.trim()));
                 }
+            return true;
         }
-        if (result && currentHistory != null && !currentHistory.isEmpty())
+
+        /**
+         * Call once output has ended, to emit any final commit.
+         *
+         * @return false if the predicate returned false at any point
+         */
+        boolean finish()
         {
-            result = test.test(currentHistory);
+            if (done)
+            {
+                return false;
+            }
+            CommitInfo last = currentHistory;
+            currentHistory = null;
+            return emit(last);
         }
-        return result;
     }
 
     @Override
@@ -17,6 +17,7 @@
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 package com.telenav.cactus.git;
 
+import com.mastfrog.concurrent.future.AwaitableCompletionStage;
 import com.mastfrog.function.optional.ThrowingOptional;
 import com.mastfrog.function.throwing.io.IOSupplier;
 import com.mastfrog.util.preconditions.Exceptions;
@@ -45,7 +46,9 @@ import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -54,7 +57,6 @@ import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 import static com.mastfrog.util.preconditions.Checks.notNull;
 import static com.mastfrog.util.preconditions.Exceptions.chuck;
@@ -124,16 +126,6 @@ public final class GitCheckout implements Comparable<GitCheckout>
                     GitRemotes::from),
                     "remote", "-v");
 
-    private static final GitCommand<Branches> ALL_BRANCHES
-            = new GitCommand<>(ProcessResultConverter.strings().trimmed().map(
-                    Branches::from),
-                    "branch", "--no-color", "-a");
-
-    private static final GitCommand<Heads> REMOTE_HEADS
-            = new GitCommand<>(ProcessResultConverter.strings().trimmed().map(
-                    Heads::from),
-                    "ls-remote");
-
     private static final GitCommand<Boolean> IS_DIRTY
             = new GitCommand<>(ProcessResultConverter
                     .exitCode(code -> code != 0),
@@ -185,6 +177,23 @@ public final class GitCheckout implements Comparable<GitCheckout>
                     text -> text.contains("(detached)")),
                     "status", "--porcelain=2", "--branch");
 
+    private static final GitCommand<String> STATUS_SNAPSHOT
+            = new GitCommand<>(ProcessResultConverter.strings(),
+                    "status", "--porcelain=v2", "--branch",
+                    "--ignore-submodules=dirty", "--untracked-files=no");
+
+    private static final GitCommand<String> LIST_BRANCH_REFS
+            = new GitCommand<>(ProcessResultConverter.strings(),
+                    "for-each-ref", "--format=%(HEAD) %(refname)",
+                    "refs/heads", "refs/remotes");
+
+    /**
+     * The number of checkouts whose status is collected concurrently by
+     * statusSnapshots() - each uses two processes, and launching hundreds at
+     * once risks running into the process ulimit.
+     */
+    private static final int SNAPSHOT_BATCH_SIZE = 8;
+
     private static final ZoneId GMT = ZoneId.of("GMT");
 
     public static Optional<GitCheckout> checkout(Path dirOrFile)
@@ -266,6 +275,44 @@ public final class GitCheckout implements Comparable<GitCheckout>
         return result;
     }
 
+    /**
+     * Collect a status snapshot for each of a collection of checkouts, running
+     * the git processes for several checkouts concurrently, rather than
+     * running one process per question per checkout.
+     *
+     * @param checkouts Some checkouts
+     * @return A map of snapshots, in the iteration order of the passed
+     * collection
+     */
+    public static Map<GitCheckout, CheckoutStatusSnapshot> statusSnapshots(
+            Collection<? extends GitCheckout> checkouts)
+    {
+        Map<GitCheckout, CheckoutStatusSnapshot> result = new LinkedHashMap<>();
+        List<GitCheckout> all = new ArrayList<>(checkouts);
+        for (int start = 0; start < all.size(); start += SNAPSHOT_BATCH_SIZE)
+        {
+            List<GitCheckout> batch = all.subList(start, Math.min(all.size(),
+                    start + SNAPSHOT_BATCH_SIZE));
+            List<AwaitableCompletionStage<String>> statii = new ArrayList<>(
+                    batch.size());
+            List<AwaitableCompletionStage<String>> refs = new ArrayList<>(
+                    batch.size());
+            for (GitCheckout checkout : batch)
+            {
+                statii.add(STATUS_SNAPSHOT.withWorkingDir(checkout.root).run());
+                refs.add(LIST_BRANCH_REFS.withWorkingDir(checkout.root).run());
+            }
+            for (int i = 0; i < batch.size(); i++)
+            {
+                GitCheckout checkout = batch.get(i);
+                result.put(checkout, CheckoutStatusSnapshot.from(checkout,
+                        statii.get(i).awaitQuietly(),
+                        refs.get(i).awaitQuietly()));
+            }
+        }
+        return result;
+    }
+
     public static Optional<GitCheckout> submodulesRoot(Path dirOrFile)
     {
         return PathUtils.findGitCheckoutRoot(dirOrFile, false)
@@ -327,22 +374,20 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public void allPomFilesInSubtree(Consumer<Path> pomConsumer) throws IOException
     {
-        Path pom = Paths.get("pom.xml");
-        try ( Stream<Path> str = Files.walk(root).filter(path -> path
-                .getFileName().equals(pom)))
-        {
-            str.forEach(pomConsumer);
-        }
+        PomDiscovery.pomDiscovery(root).discover().forEach(pomConsumer);
     }
 
+    /**
+     * Find all pom files beneath this checkout, including those in nested
+     * checkouts, using a pruned, parallel traversal (see PomDiscovery); the
+     * consumer may be called concurrently.
+     *
+     * @param pomConsumer A consumer
+     * @throws IOException If something goes wrong
+     */
     public void allPomFilesInSubtreeParallel(Consumer<Path> pomConsumer) throws IOException
     {
-        Path pom = Paths.get("pom.xml");
-        try ( Stream<Path> str = Files.walk(root).parallel().filter(path -> path
-                .getFileName().equals(pom)))
-        {
-            str.forEach(pomConsumer);
-        }
+        PomDiscovery.pomDiscovery(root).discover(pomConsumer);
     }
 
     public Collection<? extends GitRemotes> allRemotes()
@@ -352,6 +397,11 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public Optional<String> branch()
     {
+        Optional<GitMetadataReader.Head> head = metadataHead();
+        if (head.isPresent())
+        {
+            return head.get().branch();
+        }
         String branch = GET_BRANCH.withWorkingDir(root).run().awaitQuietly();
         switch (branch)
         {
@@ -364,12 +414,33 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public Branches branches()
     {
-        return ALL_BRANCHES.withWorkingDir(root).run().awaitQuietly();
+        // Parsed as output arrives, rather than buffering it all
+        Branches.Parser parser = new Branches.Parser();
+        return new GitCommand<>(streamingLines(parser).map(
+                ignored -> parser.branches()), root,
+                "branch", "--no-color", "-a").run().awaitQuietly();
+    }
+
+    /**
+     * Get the branch, head, dirty and detached-head state and the branch list
+     * of this checkout using two git processes rather than one per question.
+     *
+     * @return A snapshot
+     */
+    public CheckoutStatusSnapshot statusSnapshot()
+    {
+        AwaitableCompletionStage<String> status = STATUS_SNAPSHOT
+                .withWorkingDir(root).run();
+        AwaitableCompletionStage<String> refs = LIST_BRANCH_REFS
+                .withWorkingDir(root).run();
+        return CheckoutStatusSnapshot.from(this, status.awaitQuietly(),
+                refs.awaitQuietly());
     }
 
     public List<String> tags()
     {
-        return TAGS.withWorkingDir(root).run().awaitQuietly();
+        return metadata().flatMap(GitMetadataReader::tags)
+                .orElseGet(() -> TAGS.withWorkingDir(root).run().awaitQuietly());
     }
 
     public Branches branchesContainingCommit(String commitHash)
@@ -670,6 +741,63 @@ public final class GitCheckout implements Comparable<GitCheckout>
         return root;
     }
 
+    /**
+     * Get the git metadata directory for this checkout without running git -
+     * for a top-level checkout, that is the .git folder; for a submodule,
+     * .git is a file containing a <code>gitdir:</code> line pointing to the
+     * real directory, usually under the parent's .git/modules.
+     *
+     * @return The metadata directory, if one can be found
+     */
+    public Optional<Path> gitDirectory()
+    {
+        Path dotGit = root.resolve(".git");
+        if (Files.isDirectory(dotGit))
+        {
+            return Optional.of(dotGit);
+        }
+        if (!Files.isRegularFile(dotGit))
+        {
+            return Optional.empty();
+        }
+        try
+        {
+            for (String line : Files.readAllLines(dotGit))
+            {
+                if (line.startsWith("gitdir:"))
+                {
+                    Path dir = root.resolve(line.substring(7).trim())
+                            .normalize();
+                    return Files.isDirectory(dir)
+                           ? Optional.of(dir)
+                           : Optional.empty();
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            log.error("Could not read " + dotGit, ex);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Get a reader for answering simple questions about refs and submodules
+     * from the files in the git directory, without running git.
+     *
+     * @return A reader, if the repository's storage format is one it can
+     * read
+     */
+    private Optional<GitMetadataReader> metadata()
+    {
+        return gitDirectory().flatMap(GitMetadataReader::forGitDirectory);
+    }
+
+    private Optional<GitMetadataReader.Head> metadataHead()
+    {
+        return metadata().flatMap(GitMetadataReader::head);
+    }
+
     public boolean commit(String message)
     {
         String commitOut = new GitCommand<>(ProcessResultConverter.strings(),
@@ -692,6 +820,12 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public String commitMessage(String ref)
     {
+        Optional<CatFileChannel.GitObject> commit = CatFileChannel.read(root,
+                ref + "^{commit}");
+        if (commit.isPresent())
+        {
+            return commit.get().subject();
+        }
         GitCommand<String> cmd = new GitCommand<>(strings().trimmed(),
                 checkoutRoot(),
                 "log",
@@ -705,6 +839,14 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public String headOf(String branchOrOtherRef)
     {
+        // Answered by a long-running git cat-file where possible, since
+        // callers tend to ask this for every branch of every checkout
+        Optional<CatFileChannel.GitObject> commit = CatFileChannel.read(root,
+                branchOrOtherRef + "^{commit}");
+        if (commit.isPresent())
+        {
+            return commit.get().hash;
+        }
         return new GitCommand<>(
                 strings().trimmed(),
                 checkoutRoot(),
@@ -724,14 +866,35 @@ public final class GitCheckout implements Comparable<GitCheckout>
      * --topo-order --simplify-merges --no-abbrev --remove-empty
      * </pre>
      *
-     * @param pageSize The number of log records to fetch from git before
-     * calling the predicate with them - history can be very large, and if
-     * searching for something specific (like the last code change for a
-     * particular project), there is no need to read all of it
-     * @param test A predicate which should return false to finish iterating and
-     * paging
+     * @param pageSize Unused - history is now read from a single git process
+     * as it is generated, which is stopped as soon as the predicate returns
+     * false, so there is no longer any need to page through it
+     * @param test A predicate which should return false to finish iterating
      */
     public void changeHistory(int pageSize, Predicate<CommitInfo> test)
+    {
+        changeHistory(Collections.emptySet(), test);
+    }
+
+    /**
+     * Visit the git change history of this git checkout, restricted to
+     * commits that touch the passed paths, from a single <code>git log</code>
+     * process whose output is parsed as it arrives. Since git does the
+     * filtering, searching for the last change to a few projects in a repo
+     * with a long history only reads as much history as is needed. The
+     * arguments that affect what commits <code>git log</code> finds are
+     * <pre>
+     * --topo-order --simplify-merges --no-abbrev --remove-empty
+     * </pre>
+     *
+     * @param paths Paths within this checkout to restrict history to -
+     * absolute or relative to the checkout root; if empty, all history is
+     * visited
+     * @param test A predicate which should return false to finish iterating;
+     * git is killed once it does
+     */
+    public void changeHistory(Collection<? extends Path> paths,
+            Predicate<CommitInfo> test)
     {
         /*
          Generates git log output that will look like this:
@@ -746,11 +909,7 @@ public final class GitCheckout implements Comparable<GitCheckout>
          */
         List<String> args = new ArrayList<>(Arrays.asList(
                 "log",
-                "--skip",
-                "0",
                 "--no-color",
-                "-n",
-                Integer.toString(pageSize),
                 "--topo-order",
                 "--simplify-merges",
                 "--no-abbrev",
@@ -759,27 +918,28 @@ public final class GitCheckout implements Comparable<GitCheckout>
                 "--dirstat-by-file=cumulative",
                 "--name-only"
         ));
-        GitCommand<String> cmd = new GitCommand<>(strings(), checkoutRoot(),
-                args.toArray(String[]::new));
-
-        int skip = pageSize;
-        String output;
-        do
+        if (!paths.isEmpty())
         {
-            output = cmd.run().awaitQuietly();
-            if (!output.isBlank())
+            args.add("--");
+            for (Path path : paths)
             {
-                if (!CommitInfo.visit(output, test))
-                {
-                    break;
-                }
-                args.set(3, Integer.toString(skip));
-                skip += pageSize;
-                cmd = new GitCommand<>(strings(), checkoutRoot(), args.toArray(
-                        String[]::new));
+                Path rel = path.isAbsolute()
+                           ? root.relativize(path)
+                           : path;
+                // The root itself relativizes to the empty path
+                args.add(rel.toString().isEmpty()
+                         ? "."
+                         : rel.toString());
             }
         }
-        while (!output.isBlank());
+        CommitInfo.Visitor visitor = new CommitInfo.Visitor(test);
+        boolean completed = new GitCommand<>(streamingLines(visitor),
+                checkoutRoot(), args.toArray(String[]::new)).run()
+                .awaitQuietly();
+        if (completed)
+        {
+            visitor.finish();
+        }
     }
 
     /**
@@ -981,7 +1141,9 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public String head()
     {
-        return GET_HEAD.withWorkingDir(root).run().awaitQuietly();
+        return metadataHead().map(GitMetadataReader.Head::commit)
+                .orElseGet(() -> GET_HEAD.withWorkingDir(root).run()
+                .awaitQuietly());
     }
 
     public boolean isBranch(String branch)
@@ -991,7 +1153,9 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public boolean isDetachedHead()
     {
-        return IS_DETACHED_HEAD.withWorkingDir(root).run().awaitQuietly();
+        return metadataHead().map(GitMetadataReader.Head::isDetached)
+                .orElseGet(() -> IS_DETACHED_HEAD.withWorkingDir(root).run()
+                .awaitQuietly());
     }
 
     public boolean isDirty()
@@ -1167,6 +1331,22 @@ public final class GitCheckout implements Comparable<GitCheckout>
     public boolean isAncestor(String proposedParentCommitOrRef,
             String proposedChildCommitOrRef)
     {
+        // A commit is its own ancestor, and resolving both is much cheaper
+        // than a merge-base when a long-running cat-file is available
+        Optional<CatFileChannel.GitObject> parent = CatFileChannel.read(root,
+                notNull("proposedParentCommitOrRef", proposedParentCommitOrRef)
+                + "^{commit}");
+        if (parent.isPresent())
+        {
+            Optional<CatFileChannel.GitObject> child = CatFileChannel.read(
+                    root, notNull("proposedChildCommitOrRef",
+                            proposedChildCommitOrRef) + "^{commit}");
+            if (child.isPresent() && parent.get().hash.equals(
+                    child.get().hash))
+            {
+                return true;
+            }
+        }
         return new GitCommand<>(
                 exitCodeIsZero(),
                 checkoutRoot(),
@@ -1524,7 +1704,10 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public Heads remoteHeads()
     {
-        return REMOTE_HEADS.withWorkingDir(root).run().awaitQuietly();
+        Heads.Parser parser = new Heads.Parser();
+        return new GitCommand<>(streamingLines(parser).map(
+                ignored -> parser.heads()), root, "ls-remote")
+                .run().awaitQuietly();
     }
 
     /**
@@ -1545,28 +1728,14 @@ public final class GitCheckout implements Comparable<GitCheckout>
 
     public void scanForPomFiles(Consumer<Path> pomConsumer)
     {
-        boolean isRoot = isSubmoduleRoot();
-
-        Predicate<Path> isSameRoot = path
-                -> !"target".equals(path.getFileName().toString()) && Files
-                .isDirectory(path)
-                && (isRoot || (root.equals(path) || !Files.exists(path.resolve(
-                ".git"))));
-        if (hasPomInRoot())
+        PomDiscovery discovery = PomDiscovery.pomDiscovery(root);
+        if (!isSubmoduleRoot())
         {
-            pomConsumer.accept(root.resolve("pom.xml"));
+            discovery.withinCheckout();
         }
-        try ( Stream<Path> str = Files.walk(root).filter(isSameRoot))
+        try
         {
-            str.forEach(path ->
-            {
-                Path pom = path.resolve("pom.xml");
-                if (Files.exists(pom) && (path.equals(root) || !Files.exists(
-                        path.resolve(".git"))))
-                {
-                    pomConsumer.accept(pom);
-                }
-            });
+            discovery.discover().forEach(pomConsumer);
         }
         catch (IOException ioe)
         {
@@ -1645,10 +1814,12 @@ public final class GitCheckout implements Comparable<GitCheckout>
     {
         if (isSubmoduleRoot())
         {
-            List<SubmoduleStatus> infos = listSubmodules
+            List<SubmoduleStatus> infos = metadata()
+                    .flatMap(md -> md.submodules(root))
+                    .orElseGet(() -> listSubmodules
                     .withWorkingDir(root)
                     .run()
-                    .awaitQuietly();
+                    .awaitQuietly());
             return infos.isEmpty()
                    ? ThrowingOptional.empty()
                    : ThrowingOptional.of(infos);
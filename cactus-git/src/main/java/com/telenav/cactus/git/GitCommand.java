@@ -64,6 +64,15 @@ public final class GitCommand<T> extends CliCommand<T>
         return Optional.ofNullable(workingDir);
     }
 
+    @Override
+    protected String statisticsName()
+    {
+        // Aggregate by subcommand - "git" alone tells us nothing useful
+        return args.length == 0
+               ? name
+               : name + " " + args[0];
+    }
+
     @Override
     protected void onLaunch(ProcessControl<String, String> proc)
     {
@@ -0,0 +1,609 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads what git keeps in plain files - HEAD, loose and packed refs, the
+ * index's gitlink entries and <code>.gitmodules</code> - directly, so that
+ * simple read-only questions can be answered without launching a git process.
+ * <p>
+ * Every method returns an empty Optional for anything it is not sure it
+ * understands (reftable or sha-256 repositories, split or sparse indexes,
+ * unborn branches, conflicted submodules, unreadable files), in which case
+ * callers should fall back to asking git.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+final class GitMetadataReader
+{
+    private static final int MAX_SYMBOLIC_REF_DEPTH = 5;
+    private static final int INDEX_SIGNATURE = 0x44495243; // DIRC
+    private static final int SPLIT_INDEX_EXTENSION = 0x6C696E6B; // link
+    private static final int SPARSE_INDEX_EXTENSION = 0x73646972; // sdir
+    private static final int HASH_LENGTH = 20;
+    private static final int GITLINK = 0xE000;
+    private static final int DIRECTORY = 0x4000;
+    private static final int MODE_TYPE_MASK = 0xF000;
+
+    private final Path gitDir;
+    private final Path commonDir;
+    private Map<String, String> packedRefs;
+
+    private GitMetadataReader(Path gitDir, Path commonDir)
+    {
+        this.gitDir = gitDir;
+        this.commonDir = commonDir;
+    }
+
+    /**
+     * Create a reader for a git metadata directory, as returned by
+     * GitCheckout.gitDirectory().
+     *
+     * @param gitDir A .git directory, or the directory a .git file points to
+     * @return A reader, if the repository uses a storage format this class
+     * can read
+     */
+    static Optional<GitMetadataReader> forGitDirectory(Path gitDir)
+    {
+        Path commonDir = gitDir;
+        // Linked worktrees keep HEAD and the index in their own directory,
+        // but refs in the main repository's
+        String common = readTrimmed(gitDir.resolve("commondir"));
+        if (common != null)
+        {
+            commonDir = gitDir.resolve(common).normalize();
+        }
+        if (Files.isDirectory(commonDir.resolve("reftable")))
+        {
+            return Optional.empty();
+        }
+        try
+        {
+            Path config = commonDir.resolve("config");
+            if (Files.isRegularFile(config))
+            {
+                String text = Files.readString(config).toLowerCase(Locale.US);
+                if (text.contains("objectformat") && text.contains("sha256"))
+                {
+                    return Optional.empty();
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(new GitMetadataReader(gitDir, commonDir));
+    }
+
+    /**
+     * Read HEAD, resolving it to a commit.
+     *
+     * @return The head, or empty if HEAD is unborn, points somewhere other
+     * than a local branch, or cannot be read
+     */
+    Optional<Head> head()
+    {
+        String content = readTrimmed(gitDir.resolve("HEAD"));
+        if (content == null)
+        {
+            return Optional.empty();
+        }
+        if (content.startsWith("ref:"))
+        {
+            String target = content.substring(4).trim();
+            if (!target.startsWith("refs/heads/"))
+            {
+                return Optional.empty();
+            }
+            return resolve(target).map(commit -> new Head(target.substring(11),
+                    commit));
+        }
+        return isObjectId(content)
+               ? Optional.of(new Head(null, content))
+               : Optional.empty();
+    }
+
+    /**
+     * Resolve a fully qualified ref name such as
+     * <code>refs/heads/main</code> to a commit, following symbolic refs.
+     *
+     * @param refName A ref name
+     * @return A commit id, if the ref exists
+     */
+    Optional<String> resolve(String refName)
+    {
+        return resolve(refName, 0);
+    }
+
+    private Optional<String> resolve(String refName, int depth)
+    {
+        if (depth > MAX_SYMBOLIC_REF_DEPTH || !refName.startsWith("refs/")
+                || refName.contains(".."))
+        {
+            return Optional.empty();
+        }
+        // Loose refs take precedence over packed ones
+        String loose = readTrimmed(commonDir.resolve(refName));
+        if (loose != null)
+        {
+            if (loose.startsWith("ref:"))
+            {
+                return resolve(loose.substring(4).trim(), depth + 1);
+            }
+            return isObjectId(loose)
+                   ? Optional.of(loose)
+                   : Optional.empty();
+        }
+        return packedRefs().map(refs -> refs.get(refName));
+    }
+
+    /**
+     * List tag names, sorted as <code>git tag -l</code> does.
+     *
+     * @return The tags
+     */
+    Optional<List<String>> tags()
+    {
+        Optional<Map<String, String>> packed = packedRefs();
+        if (!packed.isPresent())
+        {
+            return Optional.empty();
+        }
+        Set<String> result = new TreeSet<>();
+        packed.get().keySet().forEach(ref ->
+        {
+            if (ref.startsWith("refs/tags/"))
+            {
+                result.add(ref.substring(10));
+            }
+        });
+        Path tagsDir = commonDir.resolve("refs/tags");
+        if (Files.isDirectory(tagsDir))
+        {
+            try ( Stream<Path> str = Files.walk(tagsDir))
+            {
+                str.filter(Files::isRegularFile).forEach(file ->
+                {
+                    result.add(tagsDir.relativize(file).toString()
+                            .replace(file.getFileSystem().getSeparator(), "/"));
+                });
+            }
+            catch (IOException ex)
+            {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new ArrayList<>(result));
+    }
+
+    /**
+     * Compute the equivalent of <code>git submodule status</code> - one entry
+     * for each initialized submodule, flagged as modified if the commit checked
+     * out in it differs from the one recorded in the index.
+     * <p>
+     * Git fills in the branch-or-tag field using <code>git describe</code>;
+     * here it is <code>heads/</code> plus the branch name, or the abbreviated
+     * commit id for a detached head.
+     * </p>
+     *
+     * @param checkoutRoot The root of the checkout this reader is for
+     * @return A list of submodules
+     */
+    Optional<List<SubmoduleStatus>> submodules(Path checkoutRoot)
+    {
+        Optional<Set<String>> paths = submodulePaths(checkoutRoot.resolve(
+                ".gitmodules"));
+        Optional<Map<String, String>> links = gitlinks();
+        if (!paths.isPresent() || !links.isPresent())
+        {
+            return Optional.empty();
+        }
+        List<SubmoduleStatus> result = new ArrayList<>();
+        for (Map.Entry<String, String> e : links.get().entrySet())
+        {
+            if (!paths.get().contains(e.getKey()))
+            {
+                // git would fail with "no submodule mapping found" - let it
+                return Optional.empty();
+            }
+            Path dir = checkoutRoot.resolve(e.getKey());
+            if (!Files.exists(dir.resolve(".git")))
+            {
+                // Not initialized - git reports these with a leading "-",
+                // which SubmoduleStatus does not include
+                continue;
+            }
+            Optional<Head> subHead = new GitCheckout(dir).gitDirectory()
+                    .flatMap(GitMetadataReader::forGitDirectory)
+                    .flatMap(GitMetadataReader::head);
+            if (!subHead.isPresent())
+            {
+                return Optional.empty();
+            }
+            Head h = subHead.get();
+            String info = h.branch == null
+                          ? h.commit.substring(0, 7)
+                          : "heads/" + h.branch;
+            result.add(new SubmoduleStatus(!h.commit.equals(e.getValue()),
+                    h.commit, e.getKey(), info, dir, true));
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * Read the paths and commit ids of gitlink (submodule) entries in the
+     * index, in index order.
+     *
+     * @return A map of path to commit id
+     */
+    Optional<Map<String, String>> gitlinks()
+    {
+        Path index = gitDir.resolve("index");
+        if (!Files.exists(index))
+        {
+            return Optional.of(Collections.emptyMap());
+        }
+        try
+        {
+            return parseGitlinks(Files.readAllBytes(index));
+        }
+        catch (IOException ex)
+        {
+            return Optional.empty();
+        }
+    }
+
+    static Optional<Map<String, String>> parseGitlinks(byte[] bytes)
+    {
+        try
+        {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            if (buf.getInt() != INDEX_SIGNATURE)
+            {
+                return Optional.empty();
+            }
+            int version = buf.getInt();
+            if (version < 2 || version > 4)
+            {
+                return Optional.empty();
+            }
+            int count = buf.getInt();
+            Map<String, String> result = new LinkedHashMap<>();
+            byte[] previousPath = new byte[0];
+            for (int i = 0; i < count; i++)
+            {
+                int entryStart = buf.position();
+                // ctime, mtime, dev, ino
+                buf.position(entryStart + 24);
+                int mode = buf.getInt();
+                // uid, gid, size
+                buf.position(buf.position() + 12);
+                byte[] hash = new byte[HASH_LENGTH];
+                buf.get(hash);
+                int flags = buf.getShort() & 0xFFFF;
+                if ((flags & 0x4000) != 0)
+                {
+                    if (version < 3)
+                    {
+                        return Optional.empty();
+                    }
+                    // extended flags
+                    buf.getShort();
+                }
+                int stage = (flags >> 12) & 0x3;
+                byte[] path;
+                if (version == 4)
+                {
+                    // Paths are prefix-compressed against the previous entry
+                    int strip = readOffsetVarint(buf);
+                    int nameStart = buf.position();
+                    int nul = indexOfNul(bytes, nameStart);
+                    if (strip > previousPath.length)
+                    {
+                        return Optional.empty();
+                    }
+                    int keep = previousPath.length - strip;
+                    path = Arrays.copyOf(previousPath, keep + nul - nameStart);
+                    System.arraycopy(bytes, nameStart, path, keep, nul
+                            - nameStart);
+                    buf.position(nul + 1);
+                }
+                else
+                {
+                    int nameStart = buf.position();
+                    int nul = indexOfNul(bytes, nameStart);
+                    path = Arrays.copyOfRange(bytes, nameStart, nul);
+                    // Entries are NUL-padded to a multiple of eight bytes
+                    int nameOffset = nameStart - entryStart;
+                    buf.position(entryStart + ((nameOffset + path.length + 8)
+                            & ~7));
+                }
+                previousPath = path;
+                int type = mode & MODE_TYPE_MASK;
+                if (type == DIRECTORY)
+                {
+                    // Sparse index - submodules may be hidden inside
+                    return Optional.empty();
+                }
+                if (type == GITLINK)
+                {
+                    if (stage != 0)
+                    {
+                        // A conflicted submodule
+                        return Optional.empty();
+                    }
+                    result.put(new String(path, UTF_8), toHex(hash));
+                }
+            }
+            while (buf.remaining() > HASH_LENGTH)
+            {
+                int signature = buf.getInt();
+                int size = buf.getInt();
+                if (signature == SPLIT_INDEX_EXTENSION
+                        || signature == SPARSE_INDEX_EXTENSION)
+                {
+                    // Entries live partly in another file
+                    return Optional.empty();
+                }
+                buf.position(buf.position() + size);
+            }
+            return Optional.of(result);
+        }
+        catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException ex)
+        {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Read the submodule paths from a <code>.gitmodules</code> file.
+     *
+     * @param gitmodules The file
+     * @return The set of paths, empty if the file does not exist
+     */
+    static Optional<Set<String>> submodulePaths(Path gitmodules)
+    {
+        if (!Files.exists(gitmodules))
+        {
+            return Optional.of(Collections.emptySet());
+        }
+        try
+        {
+            return Optional.of(submodulePaths(Files.readAllLines(gitmodules)));
+        }
+        catch (IOException ex)
+        {
+            return Optional.empty();
+        }
+    }
+
+    static Set<String> submodulePaths(List<String> lines)
+    {
+        Set<String> result = new HashSet<>();
+        boolean inSubmodule = false;
+        for (String line : lines)
+        {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.charAt(0) == '#' || trimmed
+                    .charAt(0) == ';')
+            {
+                continue;
+            }
+            if (trimmed.charAt(0) == '[')
+            {
+                inSubmodule = trimmed.substring(1).trim().toLowerCase(
+                        Locale.US).startsWith("submodule");
+                continue;
+            }
+            int eq = trimmed.indexOf('=');
+            if (inSubmodule && eq > 0 && trimmed.substring(0, eq).trim()
+                    .equalsIgnoreCase("path"))
+            {
+                result.add(configValue(trimmed.substring(eq + 1)));
+            }
+        }
+        return result;
+    }
+
+    private static String configValue(String raw)
+    {
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < raw.length(); i++)
+        {
+            char c = raw.charAt(i);
+            if (c == '"')
+            {
+                quoted = !quoted;
+            }
+            else
+                if (!quoted && (c == '#' || c == ';'))
+                {
+                    break;
+                }
+                else
+                    if (c == '\\' && i < raw.length() - 1)
+                    {
+                        sb.append(raw.charAt(++i));
+                    }
+                    else
+                    {
+                        sb.append(c);
+                    }
+        }
+        return sb.toString().trim();
+    }
+
+    private Optional<Map<String, String>> packedRefs()
+    {
+        if (packedRefs != null)
+        {
+            return Optional.of(packedRefs);
+        }
+        Path file = commonDir.resolve("packed-refs");
+        Map<String, String> result = new LinkedHashMap<>();
+        if (Files.isRegularFile(file))
+        {
+            try
+            {
+                for (String line : Files.readAllLines(file))
+                {
+                    // Skip the header and peeled tag lines
+                    if (line.isEmpty() || line.charAt(0) == '#' || line
+                            .charAt(0) == '^')
+                    {
+                        continue;
+                    }
+                    int space = line.indexOf(' ');
+                    if (space > 0 && isObjectId(line.substring(0, space)))
+                    {
+                        result.put(line.substring(space + 1).trim(), line
+                                .substring(0, space));
+                    }
+                }
+            }
+            catch (IOException ex)
+            {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(packedRefs = result);
+    }
+
+    private static int readOffsetVarint(ByteBuffer buf)
+    {
+        // The encoding used by git's varint.c, not protobuf-style
+        int c = buf.get() & 0xFF;
+        int value = c & 0x7F;
+        while ((c & 0x80) != 0)
+        {
+            value += 1;
+            c = buf.get() & 0xFF;
+            value = (value << 7) + (c & 0x7F);
+        }
+        return value;
+    }
+
+    private static int indexOfNul(byte[] bytes, int from)
+    {
+        for (int i = from; i < bytes.length; i++)
+        {
+            if (bytes[i] == 0)
+            {
+                return i;
+            }
+        }
+        throw new IndexOutOfBoundsException("Unterminated path at " + from);
+    }
+
+    private static String toHex(byte[] hash)
+    {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash)
+        {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static boolean isObjectId(String what)
+    {
+        if (what.length() != HASH_LENGTH * 2)
+        {
+            return false;
+        }
+        for (int i = 0; i < what.length(); i++)
+        {
+            if (Character.digit(what.charAt(i), 16) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readTrimmed(Path file)
+    {
+        if (!Files.isRegularFile(file))
+        {
+            return null;
+        }
+        try
+        {
+            return Files.readString(file).trim();
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * The state of HEAD in a checkout.
+     */
+    static final class Head
+    {
+        final String branch;
+        final String commit;
+
+        Head(String branch, String commit)
+        {
+            this.branch = branch;
+            this.commit = commit;
+        }
+
+        Optional<String> branch()
+        {
+            return Optional.ofNullable(branch);
+        }
+
+        String commit()
+        {
+            return commit;
+        }
+
+        boolean isDetached()
+        {
+            return branch == null;
+        }
+    }
+}
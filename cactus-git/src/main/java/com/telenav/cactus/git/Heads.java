@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Parsed output of `git ls-remote` to list remote heads and compare them with
@@ -41,19 +42,35 @@ public class Heads implements Iterable<Head>
 {
     public static Heads from(String text)
     {
-        Set<Head> heads = new HashSet<>();
-        Optional<String> remoteUrl = Optional.empty();
+        Parser parser = new Parser();
         for (String line : text.split("\n"))
+        {
+            parser.test(line);
+        }
+        return parser.heads();
+    }
+
+    /**
+     * Incremental parser for <code>git ls-remote</code> output, which can be
+     * fed lines as a process emits them.
+     */
+    static final class Parser implements Predicate<String>
+    {
+        private final Set<Head> heads = new HashSet<>();
+        private Optional<String> remoteUrl = Optional.empty();
+
+        @Override
+        public boolean test(String line)
         {
             line = line.trim();
             if (line.isEmpty() || line.charAt(0) == '#')
             {
-                continue;
+                return true;
             }
             if (line.startsWith("From "))
             {
                 remoteUrl = Optional.of(line.substring(5).trim());
-                continue;
+                return true;
             }
             String[] parts = line.split("\\s+");
             if (parts.length == 2)
@@ -62,8 +79,13 @@ public class Heads implements Iterable<Head>
                 String ref = parts[1];
                 Head.from(ref, hash).ifPresent(heads::add);
             }
+            return true;
+        }
+
+        Heads heads()
+        {
+            return new Heads(remoteUrl, heads);
         }
-        return new Heads(remoteUrl, heads);
     }
 
     public static class Head implements Comparable<Head>
@@ -0,0 +1,330 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+/**
+ * Finds the pom files beneath a folder without visiting every file in it.
+ * Folders named <code>.git</code>, <code>target</code> or
+ * <code>node_modules</code>, folders matching any ignore glob, and nested
+ * git checkouts with no pom in their root (asset repositories, which can
+ * contain hundreds of thousands of files) are not descended into. Each folder
+ * is listed once, and the presence of <code>pom.xml</code> and
+ * <code>.git</code> is determined from the listing rather than by probing
+ * for them; folders are traversed in parallel on the fork-join pool.
+ * <p>
+ * Additional ignore globs can be passed to <code>ignoring()</code>. A glob
+ * containing no <code>/</code> is matched against folder names; others
+ * against the path relative to the folder being searched.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+public final class PomDiscovery
+{
+    private static final String POM = "pom.xml";
+    private static final String DOT_GIT = ".git";
+    private static final Set<String> PRUNED = new HashSet<>(Arrays.asList(
+            DOT_GIT, "target", "node_modules"));
+    private final List<PathMatcher> nameMatchers = new ArrayList<>();
+    private final List<PathMatcher> pathMatchers = new ArrayList<>();
+    private final Path root;
+    private boolean withinCheckout;
+    private Consumer<Path> skippedCheckoutConsumer;
+
+    private PomDiscovery(Path root)
+    {
+        this.root = notNull("root", root).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Create a discovery rooted in the passed folder.
+     *
+     * @param root A folder
+     * @return A discovery
+     */
+    public static PomDiscovery pomDiscovery(Path root)
+    {
+        return new PomDiscovery(root);
+    }
+
+    /**
+     * Do not descend into folders matching any of the passed globs.
+     *
+     * @param globs Some globs
+     * @return this
+     */
+    public PomDiscovery ignoring(String... globs)
+    {
+        FileSystem fs = root.getFileSystem();
+        for (String glob : globs)
+        {
+            String g = glob.trim();
+            if (g.isEmpty())
+            {
+                continue;
+            }
+            if (g.indexOf('/') < 0)
+            {
+                nameMatchers.add(fs.getPathMatcher("glob:" + g));
+            }
+            else
+            {
+                pathMatchers.add(fs.getPathMatcher("glob:" + g));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Do not descend into nested git checkouts at all, only finding poms that
+     * belong to the checkout the root folder is in.
+     *
+     * @return this
+     */
+    public PomDiscovery withinCheckout()
+    {
+        withinCheckout = true;
+        return this;
+    }
+
+    /**
+     * Be told the root of each nested checkout which is not descended into -
+     * non-maven checkouts, or with <code>withinCheckout()</code>, all of
+     * them - which may be called concurrently from multiple threads.
+     *
+     * @param consumer A consumer
+     * @return this
+     */
+    public PomDiscovery onSkippedCheckout(Consumer<Path> consumer)
+    {
+        skippedCheckoutConsumer = consumer;
+        return this;
+    }
+
+    /**
+     * Find poms, passing each to the consumer, which may be called
+     * concurrently from multiple threads.
+     *
+     * @param pomConsumer A consumer
+     * @throws IOException if a folder cannot be listed
+     */
+    public void discover(Consumer<Path> pomConsumer) throws IOException
+    {
+        if (!Files.isDirectory(root))
+        {
+            return;
+        }
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        ForkJoinPool.commonPool().invoke(new FolderTask(root, pomConsumer,
+                failure));
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Find poms, returning them in a set.
+     *
+     * @return A set of pom files
+     * @throws IOException if a folder cannot be listed
+     */
+    public Set<Path> discover() throws IOException
+    {
+        Set<Path> result = Collections.synchronizedSet(new LinkedHashSet<>());
+        discover(result::add);
+        return result;
+    }
+
+    /**
+     * Get the root of a checkout, and the roots of every submodule listed in
+     * its <code>.gitmodules</code> file, recursively.
+     *
+     * @param checkoutRoot The root of a checkout
+     * @return A set of folders, which may not all exist if some submodules
+     * have not been cloned
+     */
+    public static Set<Path> checkoutRoots(Path checkoutRoot)
+    {
+        Set<Path> result = new LinkedHashSet<>();
+        collectCheckoutRoots(checkoutRoot.toAbsolutePath().normalize(),
+                result);
+        return result;
+    }
+
+    private static void collectCheckoutRoots(Path dir, Set<Path> into)
+    {
+        if (!into.add(dir))
+        {
+            return;
+        }
+        GitMetadataReader.submodulePaths(dir.resolve(".gitmodules"))
+                .ifPresent(paths ->
+                {
+                    for (String path : paths)
+                    {
+                        collectCheckoutRoots(dir.resolve(path).normalize(),
+                                into);
+                    }
+                });
+    }
+
+    /**
+     * Determine whether a folder beneath the root would be pruned from
+     * discovery.
+     *
+     * @param folder A folder
+     * @return true if it would not be searched
+     */
+    public boolean ignores(Path folder)
+    {
+        Path name = folder.getFileName();
+        return name != null && isIgnored(folder.toAbsolutePath().normalize(),
+                name);
+    }
+
+    private boolean isIgnored(Path dir, Path name)
+    {
+        if (PRUNED.contains(name.toString()))
+        {
+            return true;
+        }
+        for (PathMatcher m : nameMatchers)
+        {
+            if (m.matches(name))
+            {
+                return true;
+            }
+        }
+        if (!pathMatchers.isEmpty())
+        {
+            Path relative = root.relativize(dir);
+            for (PathMatcher m : pathMatchers)
+            {
+                if (m.matches(relative))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private final class FolderTask extends RecursiveAction
+    {
+        private final Path dir;
+        private final Consumer<Path> pomConsumer;
+        private final AtomicReference<IOException> failure;
+
+        FolderTask(Path dir, Consumer<Path> pomConsumer,
+                AtomicReference<IOException> failure)
+        {
+            this.dir = dir;
+            this.pomConsumer = pomConsumer;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute()
+        {
+            List<Path> children = new ArrayList<>();
+            boolean hasPom = false;
+            boolean hasGit = false;
+            try ( DirectoryStream<Path> entries = Files.newDirectoryStream(dir))
+            {
+                for (Path entry : entries)
+                {
+                    Path name = entry.getFileName();
+                    String nm = name.toString();
+                    if (POM.equals(nm))
+                    {
+                        hasPom = true;
+                    }
+                    else
+                        if (DOT_GIT.equals(nm))
+                        {
+                            hasGit = true;
+                        }
+                        else
+                            if (!isIgnored(entry, name) && Files.isDirectory(
+                                    entry, NOFOLLOW_LINKS))
+                            {
+                                children.add(entry);
+                            }
+                }
+            }
+            catch (IOException | UncheckedIOException ex)
+            {
+                failure.compareAndSet(null, ex instanceof UncheckedIOException
+                                            ? ((UncheckedIOException) ex)
+                                                    .getCause()
+                                            : (IOException) ex);
+                return;
+            }
+            if (hasGit && !dir.equals(root) && (withinCheckout || !hasPom))
+            {
+                // A nested checkout we were told to skip, or a non-maven one
+                if (skippedCheckoutConsumer != null)
+                {
+                    skippedCheckoutConsumer.accept(dir);
+                }
+                return;
+            }
+            if (hasPom)
+            {
+                pomConsumer.accept(dir.resolve(POM));
+            }
+            if (children.size() == 1)
+            {
+                new FolderTask(children.get(0), pomConsumer, failure).compute();
+            }
+            else
+                if (!children.isEmpty())
+                {
+                    List<FolderTask> tasks = new ArrayList<>(children.size());
+                    for (Path child : children)
+                    {
+                        tasks.add(new FolderTask(child, pomConsumer, failure));
+                    }
+                    invokeAll(tasks);
+                }
+        }
+    }
+}
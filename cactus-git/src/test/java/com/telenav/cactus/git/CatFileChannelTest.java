@@ -0,0 +1,70 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class CatFileChannelTest
+{
+    private static final String COMMIT
+            = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n"
+            + "author Joe <joe@example.com> 1660000000 +0000\n"
+            + "committer Joe <joe@example.com> 1660000000 +0000\n"
+            + "\n"
+            + "Fix the thing\n"
+            + "that was broken\n"
+            + "\n"
+            + "Details here.\n";
+
+    @Test
+    public void testReadsObjectsAndMissingEntries()
+    {
+        byte[] body = COMMIT.getBytes(UTF_8);
+        String hash = "0123456789abcdef0123456789abcdef01234567";
+        String all = hash + " commit " + body.length + "\n" + COMMIT + "\n"
+                + "nothing^{commit} missing\n";
+        ByteBuffer buf = ByteBuffer.wrap(all.getBytes(UTF_8));
+
+        // An incomplete response must not be consumed
+        ByteBuffer partial = ByteBuffer.wrap(all.getBytes(UTF_8), 0, 60);
+        assertNull(CatFileChannel.GitObject.READER.read(partial));
+
+        Optional<CatFileChannel.GitObject> obj = CatFileChannel.GitObject.READER
+                .read(buf);
+        assertNotNull(obj);
+        assertTrue(obj.isPresent());
+        assertEquals(hash, obj.get().hash);
+        assertEquals("commit", obj.get().type);
+        assertEquals("Fix the thing that was broken", obj.get().subject());
+
+        Optional<CatFileChannel.GitObject> missing
+                = CatFileChannel.GitObject.READER.read(buf);
+        assertNotNull(missing);
+        assertFalse(missing.isPresent());
+        assertFalse(buf.hasRemaining());
+    }
+}
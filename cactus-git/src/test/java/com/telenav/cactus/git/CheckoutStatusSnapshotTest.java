@@ -0,0 +1,82 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.nio.file.Paths;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class CheckoutStatusSnapshotTest
+{
+    private static final String REFS
+            = "* refs/heads/develop\n"
+            + "  refs/heads/feature/thing\n"
+            + "  refs/remotes/origin/HEAD\n"
+            + "  refs/remotes/origin/develop\n"
+            + "  refs/remotes/origin/release/1.2.0\n";
+
+    @Test
+    public void testOnBranchAndDirty()
+    {
+        String status = "# branch.oid 76a661a2dcd519a45fcb121ea255145f083eb94d\n"
+                + "# branch.head develop\n"
+                + "# branch.upstream origin/develop\n"
+                + "# branch.ab +0 -0\n"
+                + "1 M. N... 100644 100644 100644 fcf6c086e40e2fb9bcbc4fa9c3880e972466187e 6f8cda34fd648e540d6e643bb768a478c874ad64 pom.xml\n"
+                + "1 .M N... 100644 100644 100644 fcf6c086e40e2fb9bcbc4fa9c3880e972466187e fcf6c086e40e2fb9bcbc4fa9c3880e972466187e README.md\n";
+        CheckoutStatusSnapshot snap = CheckoutStatusSnapshot.from(
+                new GitCheckout(Paths.get("/tmp/x")), status, REFS);
+        assertEquals("develop", snap.branch().get());
+        assertEquals("76a661a2dcd519a45fcb121ea255145f083eb94d",
+                snap.head().get());
+        assertFalse(snap.isDetachedHead());
+        assertTrue(snap.isDirty());
+
+        Branches br = snap.branches();
+        assertEquals("develop", br.currentBranch().get().name());
+        assertEquals(2, br.localBranches().size());
+        assertEquals(2, br.remoteBranches().size());
+        assertTrue(br.find("release/1.2.0", false).isPresent());
+        assertEquals("origin/release/1.2.0", br.find("release/1.2.0", false)
+                .get().trackingName());
+        assertTrue(br.find("feature/thing", true).isPresent());
+    }
+
+    @Test
+    public void testDetachedAndStagedOnly()
+    {
+        String status = "# branch.oid 76a661a2dcd519a45fcb121ea255145f083eb94d\n"
+                + "# branch.head (detached)\n"
+                + "1 M. N... 100644 100644 100644 fcf6c086e40e2fb9bcbc4fa9c3880e972466187e 6f8cda34fd648e540d6e643bb768a478c874ad64 pom.xml\n";
+        CheckoutStatusSnapshot snap = CheckoutStatusSnapshot.from(
+                new GitCheckout(Paths.get("/tmp/x")), status,
+                "  refs/heads/develop\n");
+        assertTrue(snap.isDetachedHead());
+        assertFalse(snap.branch().isPresent());
+        // Only changes in the index, as with git diff --quiet
+        assertFalse(snap.isDirty());
+        assertFalse(snap.branches().currentBranch().isPresent());
+    }
+}
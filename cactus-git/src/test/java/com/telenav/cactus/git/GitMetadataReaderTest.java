@@ -0,0 +1,144 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class GitMetadataReaderTest
+{
+    private static final String COMMIT_A = "0123456789abcdef0123456789abcdef01234567";
+    private static final String COMMIT_B = "89abcdef0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReadsRefsFromLooseAndPackedFiles() throws IOException
+    {
+        Path git = Files.createDirectories(dir.resolve(".git"));
+        Files.createDirectories(git.resolve("refs/heads"));
+        Files.createDirectories(git.resolve("refs/tags/release"));
+        Files.writeString(git.resolve("HEAD"), "ref: refs/heads/develop\n");
+        Files.writeString(git.resolve("packed-refs"),
+                "# pack-refs with: peeled fully-peeled sorted\n"
+                + COMMIT_B + " refs/heads/develop\n"
+                + COMMIT_B + " refs/tags/v1\n"
+                + "^" + COMMIT_A + "\n");
+        Files.writeString(git.resolve("refs/tags/release/v2"), COMMIT_A + "\n");
+
+        GitMetadataReader reader = GitMetadataReader.forGitDirectory(git).get();
+        GitMetadataReader.Head head = reader.head().get();
+        assertEquals(Optional.of("develop"), head.branch());
+        assertEquals(COMMIT_B, head.commit());
+        assertEquals(asList("release/v2", "v1"), reader.tags().get());
+
+        // A loose ref overrides a packed one
+        Files.writeString(git.resolve("refs/heads/develop"), COMMIT_A + "\n");
+        assertEquals(COMMIT_A, GitMetadataReader.forGitDirectory(git).get()
+                .head().get().commit());
+
+        Files.writeString(git.resolve("HEAD"), COMMIT_B + "\n");
+        assertTrue(GitMetadataReader.forGitDirectory(git).get().head().get()
+                .isDetached());
+
+        // Unborn branches are left to git
+        Files.writeString(git.resolve("HEAD"), "ref: refs/heads/nothing\n");
+        assertFalse(GitMetadataReader.forGitDirectory(git).get().head()
+                .isPresent());
+    }
+
+    @Test
+    public void testReadsGitlinksFromIndexAndPathsFromGitmodules()
+            throws IOException
+    {
+        byte[] index = index(entry(0100644, COMMIT_A, "README.md"),
+                entry(0160000, COMMIT_B, "libs/sub"));
+        Optional<Map<String, String>> links = GitMetadataReader.parseGitlinks(
+                index);
+        assertTrue(links.isPresent());
+        assertEquals(Map.of("libs/sub", COMMIT_B), links.get());
+
+        assertFalse(GitMetadataReader.parseGitlinks(new byte[]
+        {
+            1, 2, 3
+        }).isPresent());
+
+        Set<String> paths = GitMetadataReader.submodulePaths(asList(
+                "[submodule \"sub\"]",
+                "\tpath = libs/sub",
+                "\turl = git@example.com:sub.git ; a comment",
+                "[core]",
+                "\tpath = not-a-submodule",
+                "[submodule \"quoted\"]",
+                "  Path = \"with space\" # comment"));
+        assertEquals(Set.of("libs/sub", "with space"), paths);
+    }
+
+    private static byte[] index(byte[]... entries) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("DIRC");
+        out.writeInt(2);
+        out.writeInt(entries.length);
+        for (byte[] e : entries)
+        {
+            out.write(e);
+        }
+        // trailing checksum, which is not verified
+        out.write(new byte[20]);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] entry(int mode, String hash, String path)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[24]);
+        out.writeInt(mode);
+        out.write(new byte[12]);
+        for (int i = 0; i < hash.length(); i += 2)
+        {
+            out.write(Integer.parseInt(hash.substring(i, i + 2), 16));
+        }
+        byte[] name = path.getBytes(UTF_8);
+        out.writeShort(name.length);
+        out.write(name);
+        int length = (62 + name.length + 8) & ~7;
+        out.write(new byte[length - 62 - name.length]);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.git;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class PomDiscoveryTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testPrunesBuildOutputAndNonMavenCheckouts() throws IOException
+    {
+        pom("");
+        pom("a");
+        pom("a/b");
+        pom("a/target/classes");
+        pom("node_modules/x");
+        pom("generated/c");
+        Files.createDirectories(dir.resolve("lib/.git"));
+        pom("lib");
+        pom("lib/d");
+        Files.createDirectories(dir.resolve("assets/.git"));
+        pom("assets/deep/e");
+        Files.createDirectories(dir.resolve(".git"));
+        pom(".git/modules/f");
+
+        assertEquals(poms("", "a", "a/b", "generated/c", "lib", "lib/d"),
+                relative(PomDiscovery.pomDiscovery(dir).discover()));
+        assertEquals(poms("", "a", "a/b", "lib", "lib/d"),
+                relative(PomDiscovery.pomDiscovery(dir).ignoring("generated")
+                        .discover()));
+        assertEquals(poms("", "a"),
+                relative(PomDiscovery.pomDiscovery(dir).ignoring("a/b")
+                        .withinCheckout().ignoring("generated").discover()));
+        assertTrue(PomDiscovery.pomDiscovery(dir).ignores(dir.resolve(
+                "a/target")));
+
+        Set<Path> skipped = ConcurrentHashMap.newKeySet();
+        PomDiscovery.pomDiscovery(dir).onSkippedCheckout(skipped::add)
+                .discover();
+        assertEquals(relative(Set.of(dir.resolve("assets"))),
+                relative(skipped));
+        skipped.clear();
+        PomDiscovery.pomDiscovery(dir).withinCheckout()
+                .onSkippedCheckout(skipped::add).discover();
+        assertEquals(relative(Set.of(dir.resolve("assets"), dir.resolve(
+                "lib"))), relative(skipped));
+    }
+
+    @Test
+    public void testCheckoutRootsFollowGitmodules() throws IOException
+    {
+        Files.writeString(dir.resolve(".gitmodules"),
+                "[submodule \"one\"]\n\tpath = one\n\turl = x\n"
+                + "[submodule \"two\"]\n\tpath = nested/two\n\turl = y\n");
+        Files.createDirectories(dir.resolve("nested/two"));
+        Files.writeString(dir.resolve("nested/two/.gitmodules"),
+                "[submodule \"three\"]\n\tpath = three\n\turl = z\n");
+        assertEquals(new TreeSet<>(asList(dir, dir.resolve("one"), dir
+                .resolve("nested/two"), dir.resolve("nested/two/three"))),
+                new TreeSet<>(PomDiscovery.checkoutRoots(dir)));
+    }
+
+    private void pom(String folder) throws IOException
+    {
+        Path f = Files.createDirectories(dir.resolve(folder));
+        Files.writeString(f.resolve("pom.xml"), "<project/>");
+    }
+
+    private Set<String> poms(String... folders)
+    {
+        Set<String> result = new TreeSet<>();
+        for (String f : folders)
+        {
+            result.add(f.isEmpty()
+                       ? "pom.xml"
+                       : f + "/pom.xml");
+        }
+        return result;
+    }
+
+    private Set<String> relative(Set<Path> poms)
+    {
+        Set<String> result = new TreeSet<>();
+        poms.forEach(p -> result.add(dir.toAbsolutePath().relativize(p)
+                .toString()));
+        return result;
+    }
+}
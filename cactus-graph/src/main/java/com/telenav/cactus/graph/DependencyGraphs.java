@@ -62,6 +62,7 @@ public final class DependencyGraphs implements Iterable<Pom>
     private final Map<Pom, DependencySet> sets = new HashMap<>();
     private final List<Pom> targets;
     private final PomResolver resolver;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
 
     public DependencyGraphs(Collection<? extends Pom> poms)
     {
@@ -80,6 +81,19 @@ public final class DependencyGraphs implements Iterable<Pom>
         resolver = poms.withLocalRepository().memoizing();
     }
 
+    /**
+     * Set the number of threads used to resolve dependencies before building a
+     * graph - the default is the number of available processors.
+     *
+     * @param parallelism The number of threads
+     * @return this
+     */
+    public DependencyGraphs parallelism(int parallelism)
+    {
+        this.parallelism = greaterThanZero("parallelism", parallelism);
+        return this;
+    }
+
     public ThrowingOptional<Pom> get(String groupId, String artifactId)
     {
         return poms
@@ -231,6 +245,10 @@ public final class DependencyGraphs implements Iterable<Pom>
         public ObjectGraph<MavenCoordinates> go(
                 Collection<? extends Pom> thePoms)
         {
+            // Resolve everything reachable concurrently up front, so the
+            // (single-threaded) traversal below only reads what is there
+            poms.initializeDependencies(thePoms, scopes,
+                    includeOptionalDependencies, parallelism);
             for (Pom other : thePoms)
             {
                 // We may have already indirectly traversed a pom, in
@@ -37,14 +37,16 @@ public final class ArtifactId extends ResolvablePomElement<ArtifactId>
         super(artifactId);
     }
 
+    private static final Interner<ArtifactId> INTERNED = new Interner<>();
+
     public static ArtifactId of(Node what)
     {
-        return new ArtifactId(what);
+        return of(textOrPlaceholder(what));
     }
 
     public static ArtifactId of(String what)
     {
-        return new ArtifactId(notNull("what", what));
+        return INTERNED.intern(new ArtifactId(notNull("what", what)));
     }
 
     @Override
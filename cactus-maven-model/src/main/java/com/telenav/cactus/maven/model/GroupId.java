@@ -41,14 +41,16 @@ public final class GroupId extends ResolvablePomElement<GroupId>
         super(node);
     }
 
+    private static final Interner<GroupId> INTERNED = new Interner<>();
+
     public static GroupId of(String what)
     {
-        return new GroupId(notNull("what", what));
+        return INTERNED.intern(new GroupId(notNull("what", what)));
     }
 
     public static GroupId of(Node what)
     {
-        return new GroupId(what);
+        return of(textOrPlaceholder(what));
     }
 
     /**
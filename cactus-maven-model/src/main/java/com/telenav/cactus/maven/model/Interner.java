@@ -0,0 +1,116 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * A concurrent intern table which holds its values weakly, so that equal
+ * coordinate objects created anywhere in the process are usually the same
+ * instance - making equality checks mostly reference comparisons and avoiding
+ * thousands of duplicate copies of the same strings - without keeping values
+ * nobody uses anymore alive.
+ *
+ * @author Tim Boudreau
+ */
+final class Interner<T>
+{
+    private final Map<Entry<T>, Entry<T>> table = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+    /**
+     * Get the canonical instance equal to the passed one, making the passed
+     * one canonical if there is none.
+     *
+     * @param value A value
+     * @return An equal value, possibly the passed one
+     */
+    T intern(T value)
+    {
+        expunge();
+        Entry<T> entry = new Entry<>(notNull("value", value), queue);
+        for (;;)
+        {
+            Entry<T> existing = table.putIfAbsent(entry, entry);
+            if (existing == null)
+            {
+                return value;
+            }
+            T result = existing.get();
+            if (result != null)
+            {
+                return result;
+            }
+            // Collected between the lookup and now
+            table.remove(existing, existing);
+        }
+    }
+
+    int size()
+    {
+        expunge();
+        return table.size();
+    }
+
+    private void expunge()
+    {
+        Reference<? extends T> ref;
+        while ((ref = queue.poll()) != null)
+        {
+            table.remove(ref, ref);
+        }
+    }
+
+    private static final class Entry<T> extends WeakReference<T>
+    {
+        private final int hash;
+
+        Entry(T referent, ReferenceQueue<T> queue)
+        {
+            super(referent, queue);
+            this.hash = referent.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof Entry<?>) || ((Entry<?>) o).hash != hash)
+            {
+                return false;
+            }
+            T mine = get();
+            return mine != null && mine.equals(((Entry<?>) o).get());
+        }
+    }
+}
@@ -35,7 +35,9 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
         Comparable<MavenCoordinates>,
         MavenArtifactCoordinates
 {
+    private static final Interner<MavenCoordinates> INTERNED = new Interner<>();
     public final PomVersion version;
+    private final int hash;
 
     public MavenCoordinates(Node groupId, Node artifactId, Node version)
     {
@@ -55,6 +57,33 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
     {
         super(notNull("groupId", groupId), notNull("artifactId", artifactId));
         this.version = notNull("version", version);
+        this.hash = (137 * artifactId.hashCode())
+                + (3 * groupId.hashCode())
+                + (11 * version.hashCode());
+    }
+
+    /**
+     * Get the canonical instance for the passed coordinates, creating it if
+     * necessary; equal coordinates obtained this way are usually the same
+     * object, which makes them cheap map keys.
+     *
+     * @param groupId A group id
+     * @param artifactId An artifact id
+     * @param version A version
+     * @return A maven coordinates
+     */
+    public static MavenCoordinates of(GroupId groupId, ArtifactId artifactId,
+            PomVersion version)
+    {
+        return INTERNED.intern(new MavenCoordinates(groupId, artifactId,
+                version));
+    }
+
+    public static MavenCoordinates of(String groupId, String artifactId,
+            String version)
+    {
+        return of(GroupId.of(groupId), ArtifactId.of(artifactId),
+                PomVersion.of(version));
     }
 
     public static Optional<MavenCoordinates> from(Path pomFile)
@@ -82,8 +111,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
         {
             return this;
         }
-        return new MavenCoordinates(groupId, artifactId, PomVersion.of(
-                newVersion));
+        return of(groupId, artifactId, PomVersion.of(newVersion));
     }
     
     /**
@@ -108,7 +136,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
         {
             return this;
         }
-        return new MavenCoordinates(groupId, artifactId, newVersion);
+        return of(groupId, artifactId, newVersion);
     }
 
     public MavenCoordinates withGroupId(String newGroupId)
@@ -117,8 +145,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
         {
             return this;
         }
-        return new MavenCoordinates(GroupId.of(newGroupId), artifactId,
-                version);
+        return of(GroupId.of(newGroupId), artifactId, version);
     }
 
     public ArtifactIdentifiers toMavenId()
@@ -157,8 +184,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
         PomVersion ver = version.resolve(res);
         if (gid != groupId || aid != artifactId || ver != version)
         {
-            MavenCoordinates nue = new MavenCoordinates(gid, aid, ver);
-            return nue;
+            return of(gid, aid, ver);
         }
         return this;
     }
@@ -176,7 +202,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
         }
         MavenCoordinates nue = ver == version
                                ? this
-                               : new MavenCoordinates(groupId, artifactId, ver);
+                               : of(groupId, artifactId, ver);
         return nue.resolve(res);
     }
 
@@ -207,7 +233,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
                 return false;
             }
         MavenCoordinates other = (MavenCoordinates) o;
-        return version.equals(other.version) && artifactId.equals(
+        return hash == other.hash && version.equals(other.version) && artifactId.equals(
                 other.artifactId)
                 && groupId.equals(other.groupId);
     }
@@ -215,9 +241,7 @@ public class MavenCoordinates extends ArtifactIdentifiers implements
     @Override
     public int hashCode()
     {
-        return (137 * artifactId.hashCode())
-                + (3 * groupId.hashCode())
-                + (11 * version.hashCode());
+        return hash;
     }
 
     public boolean is(MavenCoordinates other)
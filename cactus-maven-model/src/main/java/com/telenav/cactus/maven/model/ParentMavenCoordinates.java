@@ -47,7 +47,7 @@ public final class ParentMavenCoordinates extends MavenCoordinates
     @Override
     public MavenCoordinates toPlainMavenCoordinates()
     {
-        return new MavenCoordinates(groupId(), artifactId(), version);
+        return MavenCoordinates.of(groupId(), artifactId(), version);
     }
 
     @Override
@@ -22,6 +22,7 @@ import com.mastfrog.function.throwing.ThrowingConsumer;
 import com.mastfrog.util.preconditions.Exceptions;
 import com.telenav.cactus.maven.model.dependencies.DependencyScope;
 import com.telenav.cactus.maven.model.internal.PomFile;
+import com.telenav.cactus.maven.model.internal.PomHeader;
 import com.telenav.cactus.maven.model.property.MapPropertyResolver;
 import com.telenav.cactus.maven.model.property.PropertyResolver;
 import com.telenav.cactus.maven.model.resolver.PomResolver;
@@ -77,6 +78,19 @@ public class Pom implements Comparable<Pom>, MavenArtifactCoordinates,
         {
             return ThrowingOptional.empty();
         }
+        // Most callers only need coordinates, packaging and modules, which
+        // can be had from a streaming read of the head of the file; parsing
+        // the whole DOM is deferred until something actually needs it
+        Optional<PomHeader> header = PomHeader.read(pomFile);
+        if (header.isPresent())
+        {
+            PomHeader hdr = header.get();
+            String pkg = hdr.packaging();
+            return ThrowingOptional.of(new Pom(pomFile, hdr.coordinates(), pkg,
+                    "pom".equals(pkg)
+                    ? hdr.modules()
+                    : Collections.emptySet()));
+        }
         PomFile pom = new PomFile(pomFile);
         try
         {
@@ -19,6 +19,7 @@ package com.telenav.cactus.maven.model;
 
 import com.mastfrog.function.optional.ThrowingOptional;
 import com.telenav.cactus.maven.model.resolver.versions.VersionComparator;
+import com.telenav.cactus.maven.model.resolver.versions.VersionKey;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -51,6 +52,10 @@ public final class PomVersion extends ResolvablePomElement<PomVersion>
      * &lt;dependencyManagement&gt; section somewhere else.
      */
     public static final PomVersion UNKNOWN = new PomVersion(PLACEHOLDER);
+    private static final Interner<PomVersion> INTERNED = new Interner<>();
+    // Computed lazily; racing threads compute equal keys, so no
+    // synchronization is needed
+    private VersionKey key;
 
     PomVersion(String version)
     {
@@ -68,7 +73,7 @@ public final class PomVersion extends ResolvablePomElement<PomVersion>
         {
             return UNKNOWN;
         }
-        return new PomVersion(n);
+        return of(textOrPlaceholder(n));
     }
 
     public static PomVersion of(String what)
@@ -77,7 +82,7 @@ public final class PomVersion extends ResolvablePomElement<PomVersion>
         {
             return UNKNOWN;
         }
-        return new PomVersion(notNull("what", what).trim());
+        return INTERNED.intern(new PomVersion(notNull("what", what).trim()));
     }
 
     /**
@@ -109,7 +114,23 @@ public final class PomVersion extends ResolvablePomElement<PomVersion>
         {
             return 0;
         }
-        return VersionComparator.INSTANCE.compare(this.text(), o.text());
+        return comparisonKey().compareTo(o.comparisonKey());
+    }
+
+    /**
+     * Get the parsed form of this version used for comparisons, which is
+     * computed once per instance.
+     *
+     * @return A key
+     */
+    public VersionKey comparisonKey()
+    {
+        VersionKey result = key;
+        if (result == null)
+        {
+            key = result = VersionKey.of(text());
+        }
+        return result;
     }
 
     /**
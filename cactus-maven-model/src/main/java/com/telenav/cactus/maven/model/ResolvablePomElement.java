@@ -39,10 +39,12 @@ public abstract class ResolvablePomElement<E extends ResolvablePomElement<E>>
 
     public static final String PLACEHOLDER = "-**-";
     private final String value;
+    private final int hash;
 
     ResolvablePomElement(String value)
     {
         this.value = notNull("value", value);
+        this.hash = 129 * (getClass().hashCode() + 1) * value.hashCode();
     }
 
     ResolvablePomElement(Node node)
@@ -50,7 +52,7 @@ public abstract class ResolvablePomElement<E extends ResolvablePomElement<E>>
         this(textOrPlaceholder(node));
     }
 
-    private static String textOrPlaceholder(Node node)
+    static String textOrPlaceholder(Node node)
     {
         return node == null || node.getTextContent().isBlank()
                ? PLACEHOLDER
@@ -248,13 +250,13 @@ public abstract class ResolvablePomElement<E extends ResolvablePomElement<E>>
                 return false;
             }
         ResolvablePomElement other = (ResolvablePomElement) o;
-        return other.value.equals(value);
+        return other.hash == hash && other.value.equals(value);
     }
 
     @Override
     public final int hashCode()
     {
-        return 129 * (getClass().hashCode() + 1) * value.hashCode();
+        return hash;
     }
 
     @Override
@@ -32,7 +32,9 @@ import com.telenav.cactus.maven.model.property.ParentsPropertyResolver;
 import com.telenav.cactus.maven.model.property.PropertyResolver;
 import com.telenav.cactus.maven.model.resolver.PomResolver;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -43,9 +45,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiPredicate;
 import java.util.function.Supplier;
 
+import static com.mastfrog.util.preconditions.Checks.greaterThanZero;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.newSetFromMap;
 import static java.util.Collections.unmodifiableList;
@@ -105,6 +110,15 @@ public class DependencySet implements Dependencies
     private final PropertyResolver localProperties;
     private final CoordinatesPropertyResolver coordinatesResolver;
     private final PropertyResolver fromParentsResolver;
+    // The part of a closure traversal that belongs to this set, computed once
+    // per combination of scopes and optionality - closures are then a walk
+    // over these, shared by every pom which (transitively) depends on ours
+    private final Map<Set<DependencyScope>, ClosureStep> closureSteps
+            = new ConcurrentHashMap<>();
+    private final Map<Set<DependencyScope>, ClosureStep> closureStepsWithOptional
+            = new ConcurrentHashMap<>();
+    // Sets whose state was computed from ours, for invalidation
+    private final Set<DependencySet> dependents = ConcurrentHashMap.newKeySet();
 
     private boolean initialized;
 
@@ -280,6 +294,102 @@ public class DependencySet implements Dependencies
                         true, emptySet(), newSetFromMap(new IdentityHashMap<>()));
     }
 
+    /**
+     * Discard the DependencySet for a pom whose file has changed from a
+     * resolution context, along with those of every pom whose dependencies
+     * were computed using it (children, importers and anything with it in its
+     * dependency closure), so they are recomputed on next use.
+     *
+     * @param context A resolution context
+     * @param changed The pom that changed
+     * @return The set of poms whose dependency information was discarded
+     */
+    public static Set<Pom> invalidate(Map<Pom, DependencySet> context,
+            Pom changed)
+    {
+        Set<Pom> result = new LinkedHashSet<>();
+        DependencySet set = context.remove(changed);
+        if (set == null)
+        {
+            return result;
+        }
+        List<DependencySet> queue = new ArrayList<>();
+        queue.add(set);
+        while (!queue.isEmpty())
+        {
+            DependencySet curr = queue.remove(queue.size() - 1);
+            result.add(curr.owner);
+            for (DependencySet dependent : curr.dependents)
+            {
+                if (context.remove(dependent.owner, dependent))
+                {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Initialize the passed sets and every set reachable through their
+     * dependency closures for the given scopes, concurrently, walking the
+     * dependency graph with fork/join tasks - so that subsequent closure
+     * traversals, which are single threaded, find everything already
+     * resolved. Sets which share a resolution context are only initialized
+     * once; parents and imported poms are initialized on demand by whichever
+     * thread first needs them.
+     * <p>
+     * Any ResolutionListener set on the calling thread receives messages from
+     * all worker threads, one at a time.
+     * </p>
+     *
+     * @param roots The sets to start from
+     * @param scopes The scopes closures will be requested for
+     * @param includeOptional Whether closures will include optional
+     * dependencies
+     * @param parallelism The number of threads to use
+     */
+    public static void initializeClosures(
+            Collection<? extends DependencySet> roots,
+            Set<DependencyScope> scopes, boolean includeOptional,
+            int parallelism)
+    {
+        greaterThanZero("parallelism", parallelism);
+        if (roots.isEmpty())
+        {
+            return;
+        }
+        ResolutionListener listener = new SynchronizedResolutionListener(
+                LISTENER.get());
+        Set<Map.Entry<DependencySet, Set<DependencyScope>>> seen
+                = ConcurrentHashMap.newKeySet();
+        List<InitializeClosureTask> tasks = new ArrayList<>();
+        for (DependencySet root : roots)
+        {
+            if (seen.add(Map.entry(root, scopes)))
+            {
+                tasks.add(new InitializeClosureTask(root, scopes,
+                        includeOptional, seen, listener));
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            pool.invoke(new RecursiveAction()
+            {
+                @Override
+                protected void compute()
+                {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
     //
     // Implementation methods
     //
@@ -705,10 +815,12 @@ public class DependencySet implements Dependencies
         {
             return this;
         }
-        return resolutionContext.computeIfAbsent(pom, p
+        DependencySet result = resolutionContext.computeIfAbsent(pom, p
                 -> new DependencySet(pom, resolver,
                         resolutionContext)
         );
+        result.dependents.add(this);
+        return result;
     }
 
     private Set<Dependency> dependencyClosure(Set<DependencyScope> scopes,
@@ -770,27 +882,15 @@ public class DependencySet implements Dependencies
         // Add our owner to the thread-local path, for logging
         return INIT_PATH.pushing(owner, () ->
         {
-            log(false, "Collect dep closure: " + owner.coordinates() + " for " + scopes
-                    + (!includeOptional
-                       ? " excluding optional dependencies"
-                       : ""));
-            // Preinit our direct dependencies
-            checkInit();
-            // And collect them, filtering for the requested scope
-            Set<Dependency> direct = directDependencies(includeOptional, scopes);
+            ClosureStep step = closureStep(scopes, includeOptional);
             // Make sure we don't reenter
             traversed.add(this);
-            // Get the set of transitive scopes we'll need to fetch from each child
-            // dependency
-            Set<DependencyScope> transitiveScopes = DependencyScope
-                    .transitivityOf(
-                            scopes);
 
             // If this is a scope like "import" then direct dependencies are
             // it - it is non-transitive. So just return them and be done with it.
-            if (transitiveScopes.isEmpty())
+            if (step.transitiveScopes.isEmpty())
             {
-                for (Dependency dep : direct)
+                for (Dependency dep : step.direct)
                 {
                     if (!into.test(owner, dep))
                     {
@@ -801,61 +901,120 @@ public class DependencySet implements Dependencies
             }
 
             // Now go through our direct dependencies and pull in all of their dependencies
-            for (Dependency dep : direct)
+            for (int i = 0; i < step.direct.length; i++)
             {
-                // See if this is one we should skip
-                if ((dep.isOptional() && !includeOptional) || !scopes.contains(
-                        dep.scope()))
-                {
-                    continue;
-                }
+                Dependency dep = step.direct[i];
                 if (!into.test(owner, dep))
                 {
                     return false;
                 }
+                // Get the dependencies of this depenedency, if it could be
+                // found
+                DependencySet set = step.children[i];
+                if (set == null)
+                {
+                    continue;
+                }
                 // Generate the superset of the exclusions we were passed any any
                 // applied by this dependency
                 Set<ArtifactIdentifiers> combinedExclusions = combineExcludes(
                         exclude, dep);
+                // Use AutoClosable, as a lambda would not be able to
+                // access mutated variables
+                try ( var _ignored = INIT_PATH.push(set.owner))
+                {
+                    // If we've already seen it, then its closure is already
+                    // incorporated into our result, so don't do it again
+                    if (traversed.contains(set))
+                    {
+                        continue;
+                    }
+                    // Mark this dependency as traversed so we don't traverse it again
+                    traversed.add(set);
+
+                    // Recurse, getting the full dependency set of this dependency
+                    boolean keepGoing = set.visitDependencyClosure(
+                            step.transitiveScopes,
+                            includeOptional,
+                            combinedExclusions,
+                            traversed, into);
+                    if (!keepGoing)
+                    {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Get the direct dependencies and the dependency sets they resolve to for
+     * a closure traversal, computing them on first use.
+     *
+     * @param scopes The set of scopes to collect for
+     * @param includeOptional Whether or dependencies marked optional should be
+     * returned
+     * @return A step
+     */
+    private ClosureStep closureStep(Set<DependencyScope> scopes,
+            boolean includeOptional)
+    {
+        Map<Set<DependencyScope>, ClosureStep> steps = includeOptional
+                                                       ? closureStepsWithOptional
+                                                       : closureSteps;
+        ClosureStep result = steps.get(scopes);
+        if (result == null)
+        {
+            result = computeClosureStep(scopes, includeOptional);
+            // Copy the key, since we do not own the passed set
+            Set<DependencyScope> key = scopes.isEmpty()
+                                       ? EnumSet.noneOf(DependencyScope.class)
+                                       : EnumSet.copyOf(scopes);
+            ClosureStep existing = steps.putIfAbsent(key, result);
+            if (existing != null)
+            {
+                result = existing;
+            }
+        }
+        return result;
+    }
 
+    private ClosureStep computeClosureStep(Set<DependencyScope> scopes,
+            boolean includeOptional)
+    {
+        log(false, "Collect dep closure: " + owner.coordinates() + " for " + scopes
+                + (!includeOptional
+                   ? " excluding optional dependencies"
+                   : ""));
+        // Preinit our direct dependencies
+        checkInit();
+        // And collect them, filtering for the requested scope
+        Set<Dependency> direct = directDependencies(includeOptional, scopes);
+        // Get the set of transitive scopes we'll need to fetch from each child
+        // dependency
+        Set<DependencyScope> transitiveScopes = DependencyScope
+                .transitivityOf(scopes);
+        Dependency[] deps = direct.toArray(new Dependency[direct.size()]);
+        DependencySet[] children = new DependencySet[deps.length];
+        if (!transitiveScopes.isEmpty())
+        {
+            for (int i = 0; i < deps.length; i++)
+            {
+                Dependency dep = deps[i];
                 ThrowingOptional<Pom> depsPom = resolver.get(dep);
                 if (depsPom.isPresent())
                 {
-                    Pom dp = depsPom.get();
-                    // Get the dependencies of this depenedency
-                    DependencySet set = dependenciesOf(dp);
-                    // Use AutoClosable, as a lambda would not be able to
-                    // access mutated variables
-                    try ( var _ignored = INIT_PATH.push(dp))
+                    DependencySet set = dependenciesOf(depsPom.get());
+                    // Means the POMs are badly broken, but we don't want to endlessly
+                    // loop here.
+                    if (set == this)
                     {
-                        // Means the POMs are badly broken, but we don't want to endlessly
-                        // loop here.
-                        if (set == this)
-                        {
-                            log(true, "Encountered self-dependency analyzing "
-                                    + dep + " for " + owner);
-                            continue;
-                        }
-                        // If we've already seen it, then its closure is already
-                        // incorporated into our result, so don't do it again
-                        if (traversed.contains(set))
-                        {
-                            continue;
-                        }
-                        // Mark this dependency as traversed so we don't traverse it again
-                        traversed.add(set);
-
-                        // Recurse, getting the full dependency set of this dependency
-                        boolean keepGoing = set.visitDependencyClosure(
-                                transitiveScopes,
-                                includeOptional,
-                                combinedExclusions,
-                                traversed, into);
-                        if (!keepGoing)
-                        {
-                            return false;
-                        }
+                        log(true, "Encountered self-dependency analyzing "
+                                + dep + " for " + owner);
+                        continue;
                     }
+                    children[i] = set;
                 }
                 else
                 {
@@ -863,8 +1022,77 @@ public class DependencySet implements Dependencies
                     onPomLookupFailure(dep, "fullDeps", dep);
                 }
             }
-            return true;
-        });
+        }
+        return new ClosureStep(transitiveScopes, deps, children);
+    }
+
+    /**
+     * Initializes one set's closure step, and forks tasks for the sets it
+     * leads to that no other task has claimed.
+     */
+    private static final class InitializeClosureTask extends RecursiveAction
+    {
+        private final DependencySet set;
+        private final Set<DependencyScope> scopes;
+        private final boolean includeOptional;
+        private final Set<Map.Entry<DependencySet, Set<DependencyScope>>> seen;
+        private final ResolutionListener listener;
+
+        InitializeClosureTask(DependencySet set, Set<DependencyScope> scopes,
+                boolean includeOptional,
+                Set<Map.Entry<DependencySet, Set<DependencyScope>>> seen,
+                ResolutionListener listener)
+        {
+            this.set = set;
+            this.scopes = scopes;
+            this.includeOptional = includeOptional;
+            this.seen = seen;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute()
+        {
+            LISTENER.withValue(listener, () ->
+            {
+                ClosureStep step = set.closureStep(scopes, includeOptional);
+                List<InitializeClosureTask> next = new ArrayList<>();
+                if (!step.transitiveScopes.isEmpty())
+                {
+                    for (DependencySet child : step.children)
+                    {
+                        if (child != null && seen.add(Map.entry(child,
+                                step.transitiveScopes)))
+                        {
+                            next.add(new InitializeClosureTask(child,
+                                    step.transitiveScopes, includeOptional,
+                                    seen, listener));
+                        }
+                    }
+                }
+                invokeAll(next);
+            });
+        }
+    }
+
+    /**
+     * One set's contribution to a dependency closure for a particular set of
+     * scopes and optionality: its matching direct dependencies, and for each,
+     * the set to recurse into with the transitive scopes, if any.
+     */
+    private static final class ClosureStep
+    {
+        final Set<DependencyScope> transitiveScopes;
+        final Dependency[] direct;
+        final DependencySet[] children;
+
+        ClosureStep(Set<DependencyScope> transitiveScopes, Dependency[] direct,
+                DependencySet[] children)
+        {
+            this.transitiveScopes = transitiveScopes;
+            this.direct = direct;
+            this.children = children;
+        }
     }
 
     /**
@@ -1139,6 +1367,47 @@ public class DependencySet implements Dependencies
         }
     }
 
+    /**
+     * Serializes calls to a listener shared by several threads.
+     */
+    private static final class SynchronizedResolutionListener implements
+            ResolutionListener
+    {
+        private final ResolutionListener delegate;
+
+        SynchronizedResolutionListener(ResolutionListener delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void log(boolean important, ResolutionPath path,
+                String what)
+        {
+            delegate.log(important, path, what);
+        }
+
+        @Override
+        public synchronized void onResolutionFailure(ResolutionPath path,
+                Dependency of, String phase, Dependency raw)
+        {
+            delegate.onResolutionFailure(path, of, phase, raw);
+        }
+
+        @Override
+        public synchronized void onPomLookupFailure(ResolutionPath path,
+                Dependency of, String phase, Dependency raw)
+        {
+            delegate.onPomLookupFailure(path, of, phase, raw);
+        }
+
+        @Override
+        public ResolutionListener nonRepeating()
+        {
+            return this;
+        }
+    }
+
     /**
      * Default listener that just logs to stderr.
      */
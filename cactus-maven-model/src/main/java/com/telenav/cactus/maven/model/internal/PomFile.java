@@ -37,11 +37,9 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -61,8 +59,7 @@ import org.xml.sax.SAXException;
  */
 public final class PomFile extends XMLFile
 {
-    private static final Map<Pom, PomFile> CACHE = Collections.synchronizedMap(
-            new WeakHashMap<>());
+    private static final PomFileCache CACHE = new PomFileCache(2048);
 
     public PomFile(Path path)
     {
@@ -77,12 +74,43 @@ public final class PomFile extends XMLFile
 
     public static PomFile of(Pom pom)
     {
-        return CACHE.computeIfAbsent(pom, p -> new PomFile(p.path()));
+        return CACHE.get(pom.path(), PomFile::new);
     }
 
     public static void note(Pom pom, PomFile pomFile)
     {
-        CACHE.computeIfAbsent(pom, p -> pomFile);
+        CACHE.putIfAbsent(pom.path(), pomFile);
+    }
+
+    /**
+     * Get the number of calls to of() which were answered from the cache.
+     *
+     * @return A count
+     */
+    public static long cacheHits()
+    {
+        return CACHE.hits();
+    }
+
+    /**
+     * Get the number of calls to of() which had to create a new PomFile,
+     * because none was cached, it had been garbage collected or evicted, or
+     * the file had changed.
+     *
+     * @return A count
+     */
+    public static long cacheMisses()
+    {
+        return CACHE.misses();
+    }
+
+    /**
+     * Discard all cached PomFile instances, e.g. between builds in a
+     * long-lived process.
+     */
+    public static void clearCache()
+    {
+        CACHE.clear();
     }
 
     public boolean isPom() throws ParserConfigurationException, SAXException, IOException, XPathExpressionException
@@ -167,7 +195,7 @@ public final class PomFile extends XMLFile
             throw new IllegalStateException("Null aid or gid in " + toStringMap(
                     nodes));
         }
-        MavenCoordinates coords = new MavenCoordinates(gid, aid, ver);
+        MavenCoordinates coords = MavenCoordinates.of(gid, aid, ver);
         boolean optional = "true".equals(nodeText("optional", nodes));
         String scope = nodeText("scope", nodes);
         String type = nodeText("type", nodes);
@@ -224,15 +252,15 @@ public final class PomFile extends XMLFile
                 .or(nodeQuery("/project/parent/groupId"));
         ThrowingOptional<Node> ver = nodeQuery("/project/version")
                 .or(nodeQuery("/project/parent/version"));
-        return new MavenCoordinates(gid.get(), aid.get(), ver.get());
+        return MavenCoordinates.of(GroupId.of(gid.get()), ArtifactId.of(aid
+                .get()), PomVersion.of(ver.get()));
     }
 
     public Set<String> modules() throws ParserConfigurationException, SAXException, IOException, XPathExpressionException
     {
         Set<String> result = new LinkedHashSet<>();
-        XPath xpath = xpath();
         Document doc = document();
-        XPathExpression findModules = xpath.compile("/project/modules/module");
+        XPathExpression findModules = compile("/project/modules/module");
         NodeList moduleNodes = (NodeList) findModules.evaluate(doc,
                 XPathConstants.NODESET);
         if (moduleNodes != null && moduleNodes.getLength() > 0)
@@ -248,9 +276,8 @@ public final class PomFile extends XMLFile
 
     public String packaging() throws ParserConfigurationException, SAXException, IOException, XPathExpressionException
     {
-        XPath xpath = xpath();
         Document doc = document();
-        XPathExpression findPackaging = xpath.compile("/project/packaging");
+        XPathExpression findPackaging = compile("/project/packaging");
         Node packagingNode = (Node) findPackaging.evaluate(doc,
                 XPathConstants.NODE);
         return packagingNode == null
@@ -0,0 +1,179 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.internal;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Concurrent, size-bounded cache of PomFile instances by path, with softly
+ * referenced values, which replaces an entry when the timestamp of its file
+ * changes. Replaces a global synchronized WeakHashMap, which was a lock point
+ * under parallel builds and grew without bound in long-lived processes such
+ * as mvnd.
+ *
+ * @author Tim Boudreau
+ */
+final class PomFileCache
+{
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maxSize;
+
+    PomFileCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+    }
+
+    PomFile get(Path path, Function<Path, PomFile> factory)
+    {
+        long stamp = lastModified(path);
+        Entry entry = entries.get(path);
+        if (entry != null)
+        {
+            PomFile result = entry.get(stamp);
+            if (result != null)
+            {
+                hits.increment();
+                entry.lastUsed = clock.incrementAndGet();
+                return result;
+            }
+        }
+        misses.increment();
+        PomFile result = factory.apply(path);
+        put(path, result, stamp);
+        return result;
+    }
+
+    void putIfAbsent(Path path, PomFile file)
+    {
+        long stamp = lastModified(path);
+        Entry entry = entries.get(path);
+        if (entry == null || entry.get(stamp) == null)
+        {
+            put(path, file, stamp);
+        }
+    }
+
+    private void put(Path path, PomFile file, long stamp)
+    {
+        entries.put(path, new Entry(file, stamp, clock.incrementAndGet()));
+        if (entries.size() > maxSize)
+        {
+            prune();
+        }
+    }
+
+    private synchronized void prune()
+    {
+        if (entries.size() <= maxSize)
+        {
+            return;
+        }
+        entries.values().removeIf(Entry::isCleared);
+        int excess = entries.size() - (maxSize * 3) / 4;
+        if (excess > 0)
+        {
+            // Evict the least recently used entries, leaving some headroom
+            // so we are not pruning on every insertion
+            List<Map.Entry<Path, Entry>> all = new ArrayList<>(entries
+                    .entrySet());
+            all.sort(comparingLong(e -> e.getValue().lastUsed));
+            for (int i = 0; i < excess && i < all.size(); i++)
+            {
+                Map.Entry<Path, Entry> e = all.get(i);
+                entries.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    long hits()
+    {
+        return hits.sum();
+    }
+
+    long misses()
+    {
+        return misses.sum();
+    }
+
+    int size()
+    {
+        return entries.size();
+    }
+
+    void clear()
+    {
+        entries.clear();
+    }
+
+    private static long lastModified(Path path)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(path).to(NANOSECONDS);
+        }
+        catch (IOException ex)
+        {
+            // Deleted or unreadable - never matches a cached entry
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static final class Entry extends SoftReference<PomFile>
+    {
+        private final long lastModified;
+        volatile long lastUsed;
+
+        Entry(PomFile file, long lastModified, long lastUsed)
+        {
+            super(file);
+            this.lastModified = lastModified;
+            this.lastUsed = lastUsed;
+        }
+
+        PomFile get(long currentLastModified)
+        {
+            if (currentLastModified == Long.MIN_VALUE
+                    || currentLastModified != lastModified)
+            {
+                return null;
+            }
+            return get();
+        }
+
+        boolean isCleared()
+        {
+            return get() == null;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.internal;
+
+import com.telenav.cactus.maven.model.ArtifactId;
+import com.telenav.cactus.maven.model.GroupId;
+import com.telenav.cactus.maven.model.MavenCoordinates;
+import com.telenav.cactus.maven.model.PomVersion;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static com.telenav.cactus.maven.model.ResolvablePomElement.PLACEHOLDER;
+import static java.util.Collections.unmodifiableSet;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * The handful of facts needed to construct a Pom - its coordinates, parent
+ * coordinates, packaging and modules - read in a single forward pass with
+ * StAX, without building a DOM or evaluating any XPath expressions.
+ * <p>
+ * Reading stops at the top-level <code>&lt;dependencyManagement&gt;</code> or
+ * <code>&lt;dependencies&gt;</code> element only once the coordinates and an
+ * explicit packaging - and, for <code>pom</code> packaging, the modules - have
+ * been seen; since maven does not require any element order, a pom which
+ * declares them after its dependencies, or does not declare packaging at
+ * all, is read to the end. Anything this reader cannot make sense of results
+ * in an empty optional, and callers fall back to {@link PomFile}, which
+ * remains the path used for anything that edits or deeply queries a pom.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+public final class PomHeader
+{
+    private static final XMLInputFactory INPUT_FACTORY = inputFactory();
+    private String groupId;
+    private String artifactId;
+    private String version;
+    private String packaging;
+    private String parentGroupId;
+    private String parentArtifactId;
+    private String parentVersion;
+    private String parentRelativePath;
+    private boolean parentSeen;
+    private Set<String> modules;
+
+    private PomHeader()
+    {
+        // do nothing
+    }
+
+    private static XMLInputFactory inputFactory()
+    {
+        XMLInputFactory result = XMLInputFactory.newFactory();
+        // Match the non-namespace-aware DocumentBuilder XMLFile uses, so
+        // prefixed elements match (or fail to match) exactly as they do there
+        result.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        result.setProperty(XMLInputFactory.IS_COALESCING, true);
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                false);
+        return result;
+    }
+
+    /**
+     * Read the header of a pom file.
+     *
+     * @param pomFile A pom file
+     * @return The header, if the file has a <code>project</code> root element
+     * from which a group id, artifact id and version can be determined
+     * (directly or from the parent) and no error was encountered
+     */
+    public static Optional<PomHeader> read(Path pomFile)
+    {
+        try ( InputStream in = Files.newInputStream(pomFile))
+        {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+            try
+            {
+                PomHeader result = new PomHeader();
+                if (!result.parse(reader))
+                {
+                    return Optional.empty();
+                }
+                return Optional.of(result);
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (IOException | XMLStreamException | RuntimeException ex)
+        {
+            return Optional.empty();
+        }
+    }
+
+    private boolean parse(XMLStreamReader reader) throws XMLStreamException
+    {
+        // Elements of interest are at most three deep
+        String[] path = new String[3];
+        int depth = 0;
+        int captureDepth = -1;
+        StringBuilder text = new StringBuilder();
+        while (reader.hasNext())
+        {
+            switch (reader.next())
+            {
+                case START_ELEMENT:
+                    String name = reader.getLocalName();
+                    depth++;
+                    if (depth <= path.length)
+                    {
+                        path[depth - 1] = name;
+                    }
+                    if (captureDepth >= 0)
+                    {
+                        // Nested markup inside a captured element contributes
+                        // its text, as Node.getTextContent() would
+                        continue;
+                    }
+                    if (depth == 1 && !"project".equals(name))
+                    {
+                        return false;
+                    }
+                    if (depth == 2 && isDone()
+                            && ("dependencies".equals(name)
+                            || "dependencyManagement".equals(name)))
+                    {
+                        return complete();
+                    }
+                    if (depth == 2 && "parent".equals(name))
+                    {
+                        parentSeen = true;
+                    }
+                    if (isCaptured(depth, path))
+                    {
+                        captureDepth = depth;
+                        text.setLength(0);
+                    }
+                    break;
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                    if (captureDepth >= 0)
+                    {
+                        text.append(reader.getText());
+                    }
+                    break;
+                case END_ELEMENT:
+                    if (depth == captureDepth)
+                    {
+                        store(path, depth, text.toString());
+                        captureDepth = -1;
+                    }
+                    depth--;
+                    break;
+                case END_DOCUMENT:
+                    return complete();
+                default:
+                    break;
+            }
+        }
+        return complete();
+    }
+
+    private static boolean isCaptured(int depth, String[] path)
+    {
+        switch (depth)
+        {
+            case 2:
+                switch (path[1])
+                {
+                    case "groupId":
+                    case "artifactId":
+                    case "version":
+                    case "packaging":
+                        return true;
+                    default:
+                        return false;
+                }
+            case 3:
+                switch (path[1])
+                {
+                    case "parent":
+                        switch (path[2])
+                        {
+                            case "groupId":
+                            case "artifactId":
+                            case "version":
+                            case "relativePath":
+                                return true;
+                            default:
+                                return false;
+                        }
+                    case "modules":
+                        return "module".equals(path[2]);
+                    default:
+                        return false;
+                }
+            default:
+                return false;
+        }
+    }
+
+    private void store(String[] path, int depth, String value)
+    {
+        // As with an XPath NODE query, the first matching element wins
+        if (depth == 2)
+        {
+            switch (path[1])
+            {
+                case "groupId":
+                    groupId = first(groupId, value);
+                    break;
+                case "artifactId":
+                    artifactId = first(artifactId, value);
+                    break;
+                case "version":
+                    version = first(version, value);
+                    break;
+                case "packaging":
+                    packaging = first(packaging, value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        else if ("modules".equals(path[1]))
+        {
+            if (modules == null)
+            {
+                modules = new LinkedHashSet<>();
+            }
+            modules.add(value);
+        }
+        else
+        {
+            switch (path[2])
+            {
+                case "groupId":
+                    parentGroupId = first(parentGroupId, value);
+                    break;
+                case "artifactId":
+                    parentArtifactId = first(parentArtifactId, value);
+                    break;
+                case "version":
+                    parentVersion = first(parentVersion, value);
+                    break;
+                case "relativePath":
+                    parentRelativePath = first(parentRelativePath, value);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static String first(String existing, String value)
+    {
+        return existing == null
+               ? value
+               : existing;
+    }
+
+    private boolean isDone()
+    {
+        // Packaging defaults to jar only if it is absent from the whole
+        // document, so it must actually have been seen
+        if (!complete() || packaging == null)
+        {
+            return false;
+        }
+        return !"pom".equals(packaging) || modules != null;
+    }
+
+    private boolean complete()
+    {
+        return artifactId != null
+                && (groupId != null || parentGroupId != null)
+                && (version != null || parentVersion != null);
+    }
+
+    private static String textOrPlaceholder(String text)
+    {
+        return text.isBlank()
+               ? PLACEHOLDER
+               : text.trim();
+    }
+
+    /**
+     * Get the coordinates of the project, inheriting the group id and version
+     * from the parent if they are not specified.
+     *
+     * @return The coordinates
+     */
+    public MavenCoordinates coordinates()
+    {
+        return MavenCoordinates.of(
+                GroupId.of(textOrPlaceholder(groupId == null
+                                             ? parentGroupId
+                                             : groupId)),
+                ArtifactId.of(textOrPlaceholder(artifactId)),
+                PomVersion.of(textOrPlaceholder(version == null
+                                                ? parentVersion
+                                                : version)));
+    }
+
+    /**
+     * Get the packaging exactly as it appears in the pom, or
+     * <code>jar</code> if unspecified.
+     *
+     * @return The packaging
+     */
+    public String packaging()
+    {
+        return packaging == null
+               ? "jar"
+               : packaging;
+    }
+
+    /**
+     * Get the modules exactly as they appear in the pom.
+     *
+     * @return The modules, in document order
+     */
+    public Set<String> modules()
+    {
+        return modules == null
+               ? Collections.emptySet()
+               : unmodifiableSet(modules);
+    }
+
+    /**
+     * Determine if the pom has a <code>&lt;parent&gt;</code> element.
+     *
+     * @return true if a parent was declared
+     */
+    public boolean hasParent()
+    {
+        return parentSeen;
+    }
+
+    /**
+     * Get the parent coordinates, if the parent declaration is complete.
+     *
+     * @return The parent's coordinates, if present
+     */
+    public Optional<MavenCoordinates> parentCoordinates()
+    {
+        if (parentGroupId == null || parentArtifactId == null
+                || parentVersion == null)
+        {
+            return Optional.empty();
+        }
+        return Optional.of(MavenCoordinates.of(
+                GroupId.of(textOrPlaceholder(parentGroupId)),
+                ArtifactId.of(textOrPlaceholder(parentArtifactId)),
+                PomVersion.of(textOrPlaceholder(parentVersion))));
+    }
+
+    /**
+     * Get the parent's relative path exactly as it appears in the pom.
+     *
+     * @return The relative path, if one was specified
+     */
+    public Optional<String> parentRelativePath()
+    {
+        return Optional.ofNullable(parentRelativePath);
+    }
+
+    @Override
+    public String toString()
+    {
+        return coordinates() + ":" + packaging() + (modules == null
+                                                    ? ""
+                                                    : " " + modules);
+    }
+}
@@ -57,7 +57,7 @@ public final class ParentsPropertyResolver extends AbstractPropertyResolver
     }
 
     @Override
-    public Iterator<String> iterator()
+    public synchronized Iterator<String> iterator()
     {
         Set<String> result = new TreeSet<>();
         for (Pom p : allPoms)
@@ -81,7 +81,7 @@ public final class ParentsPropertyResolver extends AbstractPropertyResolver
         return null;
     }
 
-    public MapPropertyResolver resolverFor(Pom pom)
+    public synchronized MapPropertyResolver resolverFor(Pom pom)
     {
         return resolverForPom.computeIfAbsent(pom, p ->
         {
@@ -19,12 +19,12 @@ package com.telenav.cactus.maven.model.property;
 
 import com.telenav.cactus.maven.model.Pom;
 import com.telenav.cactus.maven.model.resolver.PomResolver;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -193,7 +193,7 @@ public interface PropertyResolver extends Iterable<String>,
     {
         return new PropertyResolver()
         {
-            private final Map<String, Optional<String>> cache = new HashMap<>();
+            private final Map<String, Optional<String>> cache = new ConcurrentHashMap<>();
 
             @Override
             public String resolve(String what)
@@ -20,14 +20,12 @@ package com.telenav.cactus.maven.model.resolver;
 import com.mastfrog.function.optional.ThrowingOptional;
 import com.mastfrog.function.threadlocal.ThreadLocalValue;
 import com.telenav.cactus.maven.model.Pom;
-import com.telenav.cactus.maven.model.resolver.versions.VersionComparator;
+import com.telenav.cactus.maven.model.resolver.versions.VersionKey;
 import com.telenav.cactus.maven.model.resolver.versions.VersionMatchers;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -188,7 +186,9 @@ final class LocalRepoResolver implements PomResolver
         {
             return ThrowingOptional.empty();
         }
-        LinkedList<String> result = new LinkedList<>();
+        // We only want the newest, so parse each candidate once and keep
+        // the greatest rather than sorting the whole list
+        VersionKey newest = null;
         String[] names = par.toFile().list();
         for (String n : names)
         {
@@ -197,17 +197,19 @@ final class LocalRepoResolver implements PomResolver
                 Path p = par.resolve(n).resolve(pomName(artifactId, n));
                 if (Files.exists(p))
                 {
-                    result.add(n);
+                    VersionKey key = VersionKey.of(n);
+                    if (newest == null || key.compareTo(newest) > 0)
+                    {
+                        newest = key;
+                    }
                 }
             }
         }
-        if (result.isEmpty())
+        if (newest == null)
         {
             return ThrowingOptional.empty();
         }
-        Collections.sort(result, VersionComparator.INSTANCE);
-        String ver = result.getLast();
-        return inLocalRepository(groupId, artifactId, ver);
+        return inLocalRepository(groupId, artifactId, newest.text());
     }
 
     private static Path localRepositoryParent(String groupId,
@@ -19,7 +19,12 @@ package com.telenav.cactus.maven.model.resolver;
 
 import com.mastfrog.function.optional.ThrowingOptional;
 import com.mastfrog.function.throwing.ThrowingFunction;
+import com.telenav.cactus.maven.model.ArtifactId;
+import com.telenav.cactus.maven.model.ArtifactIdentifiers;
+import com.telenav.cactus.maven.model.GroupId;
+import com.telenav.cactus.maven.model.MavenCoordinates;
 import com.telenav.cactus.maven.model.Pom;
+import com.telenav.cactus.maven.model.PomVersion;
 import com.telenav.cactus.maven.model.property.PropertyResolver;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -33,8 +38,8 @@ final class MemoizingPomResolver implements PomResolver
 {
 
     private final PomResolver delegate;
-    private final Map<String, ThrowingOptional<Pom>> sansVersion = new ConcurrentHashMap<>();
-    private final Map<String, ThrowingOptional<Pom>> withVersion = new ConcurrentHashMap<>();
+    private final Map<ArtifactIdentifiers, ThrowingOptional<Pom>> sansVersion = new ConcurrentHashMap<>();
+    private final Map<MavenCoordinates, ThrowingOptional<Pom>> withVersion = new ConcurrentHashMap<>();
     private final Map<Pom, PropertyResolver> resolvers = new ConcurrentHashMap<>();
 
     MemoizingPomResolver(PomResolver delegate)
@@ -58,17 +63,23 @@ final class MemoizingPomResolver implements PomResolver
     @Override
     public ThrowingOptional<Pom> get(String groupId, String artifactId)
     {
-        String key = groupId + ":" + artifactId;
+        return get(GroupId.of(groupId), ArtifactId.of(artifactId));
+    }
 
+    @Override
+    public ThrowingOptional<Pom> get(GroupId groupId, ArtifactId artifactId)
+    {
+        ArtifactIdentifiers key = new ArtifactIdentifiers(groupId, artifactId);
         return sansVersion.computeIfAbsent(key, k ->
         {
-            ThrowingOptional<Pom> result = delegate.get(groupId, artifactId);
+            ThrowingOptional<Pom> result = delegate.get(groupId.text(),
+                    artifactId.text());
             result.ifPresent(pom ->
             {
                 pom.coordinates().resolvedVersion().ifPresent(ver ->
                 {
-                    String vk = k + ":" + ver;
-                    withVersion.put(vk, ThrowingOptional.of(pom));
+                    withVersion.put(MavenCoordinates.of(groupId, artifactId,
+                            PomVersion.of(ver)), ThrowingOptional.of(pom));
                 });
             });
             return result;
@@ -79,10 +90,23 @@ final class MemoizingPomResolver implements PomResolver
     public ThrowingOptional<Pom> get(String groupId, String artifactId,
             String version)
     {
-        String key = groupId + ":" + artifactId + ":" + version;
-        return withVersion.computeIfAbsent(key, k ->
+        return get(GroupId.of(groupId), ArtifactId.of(artifactId),
+                PomVersion.of(version));
+    }
+
+    @Override
+    public ThrowingOptional<Pom> get(GroupId groupId, ArtifactId artifactId,
+            PomVersion version)
+    {
+        if (version.isPlaceholder())
+        {
+            return get(groupId, artifactId);
+        }
+        return withVersion.computeIfAbsent(MavenCoordinates.of(groupId,
+                artifactId, version), k ->
         {
-            return delegate.get(groupId, artifactId, version);
+            return delegate.get(groupId.text(), artifactId.text(), version
+                    .text());
         });
     }
 
@@ -21,6 +21,7 @@ import com.mastfrog.function.optional.ThrowingOptional;
 import com.telenav.cactus.maven.model.ArtifactId;
 import com.telenav.cactus.maven.model.Pom;
 import com.telenav.cactus.maven.model.dependencies.Dependencies;
+import com.telenav.cactus.maven.model.dependencies.DependencyScope;
 import com.telenav.cactus.maven.model.dependencies.DependencySet;
 import com.telenav.cactus.maven.model.property.CoordinatesPropertyResolver;
 import com.telenav.cactus.maven.model.property.PropertyResolver;
@@ -103,8 +104,64 @@ public final class Poms implements PomResolver, Iterable<Pom>
 
     public Dependencies dependencies(Pom pom)
     {
-        return new DependencySet(pom, this.withLocalRepository(),
-                dependenciesContext);
+        return dependencySet(pom);
+    }
+
+    /**
+     * Resolve the dependencies of the passed poms, and everything in their
+     * dependency closures for the passed scopes, using multiple threads, so
+     * that later calls to dependencies() for them find everything already
+     * resolved.
+     *
+     * @param roots Some poms
+     * @param scopes The scopes closures will be requested for
+     * @param includeOptional Whether closures will include optional
+     * dependencies
+     * @param parallelism The number of threads to use
+     * @return this
+     */
+    public Poms initializeDependencies(Collection<? extends Pom> roots,
+            Set<DependencyScope> scopes, boolean includeOptional,
+            int parallelism)
+    {
+        List<DependencySet> sets = new ArrayList<>(roots.size());
+        for (Pom pom : roots)
+        {
+            sets.add(dependencySet(pom));
+        }
+        DependencySet.initializeClosures(sets, scopes, includeOptional,
+                parallelism);
+        return this;
+    }
+
+    private DependencySet dependencySet(Pom pom)
+    {
+        // Share the set - and the closures it has computed - with any other
+        // pom that has it as a dependency or parent
+        DependencySet result = dependenciesContext.get(pom);
+        if (result == null)
+        {
+            result = new DependencySet(pom, this.withLocalRepository(),
+                    dependenciesContext);
+            DependencySet existing = dependenciesContext.putIfAbsent(pom, result);
+            if (existing != null)
+            {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discard cached dependency information for a pom whose file has been
+     * modified, and for every pom whose dependencies were computed from it.
+     *
+     * @param changed A pom
+     * @return The set of poms whose dependency information was discarded
+     */
+    public Set<Pom> invalidate(Pom changed)
+    {
+        return DependencySet.invalidate(dependenciesContext, changed);
     }
 
     public List<Pom> poms()
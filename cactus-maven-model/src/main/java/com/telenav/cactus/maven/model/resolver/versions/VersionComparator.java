@@ -20,11 +20,12 @@ package com.telenav.cactus.maven.model.resolver.versions;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * Does a best effort fuzzy dewey decimal comparison. Old code.
+ * Does a best effort fuzzy dewey decimal comparison. Old code. Comparisons
+ * are performed by parsing both strings into VersionKeys; callers which
+ * compare the same versions repeatedly should hold onto the keys, as
+ * PomVersion does.
  */
 public final class VersionComparator implements Comparator<String>
 {
@@ -37,69 +38,24 @@ public final class VersionComparator implements Comparator<String>
     @Override
     public int compare(String a, String b)
     {
-        return performComparison(a, b);
-    }
-
-    private static int compare(List<Long> as, List<Long> bs)
-    {
-        for (int i = 0; i < Integer.min(as.size(), bs.size()); i++)
+        if (a.equals(b))
         {
-            long a = as.get(i);
-            long b = bs.get(i);
-            int res = Long.compare(a, b);
-            if (res != 0)
-            {
-                return res;
-            }
+            return 0;
         }
-        return 0;
+        return VersionKey.of(a).compareTo(VersionKey.of(b));
     }
-    private static final Pattern NUMBER_PATTERN = Pattern.compile("^(\\d+)$");
 
     public static List<Long> extractNumerics(String[] parts)
     {
         // Takes a version split by section delimiter, e.g. 1.5.1, SNAPSHOT
-        List<Long> result = new ArrayList<>();
+        List<Long> result = new ArrayList<>(parts.length);
         for (String s : parts)
         {
-            Matcher m = NUMBER_PATTERN.matcher(s);
-            if (m.find())
-            {
-                String nums = m.group(1);
-                result.add(Long.parseLong(nums));
-            }
-        }
-        return result;
-    }
-
-    private static int performComparison(String a, String b)
-    {
-        String[] aSplit = a.split("\\.");
-        String[] bSplit = b.split("\\.");
-        if (aSplit.length == 1 && bSplit.length == 1)
-        {
-            return aSplit[0].compareTo(bSplit[0]);
-        }
-        List<Long> aNumerics = extractNumerics(aSplit);
-        List<Long> bNumerics = extractNumerics(bSplit);
-        int result = 0;
-        if (!aNumerics.isEmpty() && !bNumerics.isEmpty())
-        {
-            result = compare(aNumerics, bNumerics);
-            if (result == 0)
+            if (VersionKey.isDigits(s, 0, s.length()))
             {
-                result = Integer.compare(aNumerics.size(), bNumerics.size());
-            }
-            if (result == 0)
-            {
-                result = Integer.compare(a.length(), b.length());
+                result.add(Long.parseLong(s));
             }
         }
-        if (result == 0)
-        {
-            result = a.compareTo(b);
-        }
         return result;
     }
-
 }
@@ -0,0 +1,211 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.resolver.versions;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * A version string parsed once into the form VersionComparator needs - its
+ * purely numeric dot-delimited segments as primitive longs, and whether it has
+ * only one non-trailing segment - so that comparing two keys is a loop over
+ * two arrays that allocates nothing, instead of splitting and regex-matching
+ * both strings on every comparison.
+ *
+ * @author Tim Boudreau
+ */
+public final class VersionKey implements Comparable<VersionKey>
+{
+    private static final long[] NO_NUMERICS = new long[0];
+    private final String text;
+    private final long[] numerics;
+    private final boolean singleSegment;
+    private final int headLength;
+
+    private VersionKey(String text)
+    {
+        this.text = text;
+        this.singleSegment = isSingleSegment(text);
+        this.headLength = segmentEnd(text, 0);
+        this.numerics = numerics(text);
+    }
+
+    public static VersionKey of(String version)
+    {
+        return new VersionKey(notNull("version", version));
+    }
+
+    /**
+     * Get the version text this key was parsed from.
+     *
+     * @return The text
+     */
+    public String text()
+    {
+        return text;
+    }
+
+    @Override
+    public int compareTo(VersionKey o)
+    {
+        if (o == this)
+        {
+            return 0;
+        }
+        if (singleSegment && o.singleSegment)
+        {
+            return compareHeads(o);
+        }
+        int result = 0;
+        if (numerics.length > 0 && o.numerics.length > 0)
+        {
+            int max = Math.min(numerics.length, o.numerics.length);
+            for (int i = 0; i < max && result == 0; i++)
+            {
+                result = Long.compare(numerics[i], o.numerics[i]);
+            }
+            if (result == 0)
+            {
+                result = Integer.compare(numerics.length, o.numerics.length);
+            }
+            if (result == 0)
+            {
+                result = Integer.compare(text.length(), o.text.length());
+            }
+        }
+        if (result == 0)
+        {
+            result = text.compareTo(o.text);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o == this || (o instanceof VersionKey
+                && ((VersionKey) o).text.equals(text));
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+
+    private int compareHeads(VersionKey o)
+    {
+        // Equivalent to comparing the first elements of the split strings,
+        // without creating them
+        int max = Math.min(headLength, o.headLength);
+        for (int i = 0; i < max; i++)
+        {
+            char a = text.charAt(i);
+            char b = o.text.charAt(i);
+            if (a != b)
+            {
+                return a - b;
+            }
+        }
+        return headLength - o.headLength;
+    }
+
+    private static boolean isSingleSegment(String text)
+    {
+        // Mirrors String.split("\\.").length == 1 - trailing empty
+        // segments are discarded by split(), so "1." and "1.." count, and
+        // a string with no dot at all (even an empty one) always does
+        int firstDot = text.indexOf('.');
+        if (firstDot < 0)
+        {
+            return true;
+        }
+        if (firstDot == 0)
+        {
+            return false;
+        }
+        for (int i = firstDot + 1; i < text.length(); i++)
+        {
+            if (text.charAt(i) != '.')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] numerics(String text)
+    {
+        int count = 0;
+        for (int start = 0; start <= text.length();)
+        {
+            int end = segmentEnd(text, start);
+            if (isDigits(text, start, end))
+            {
+                count++;
+            }
+            start = end + 1;
+        }
+        if (count == 0)
+        {
+            return NO_NUMERICS;
+        }
+        long[] result = new long[count];
+        int ix = 0;
+        for (int start = 0; start <= text.length();)
+        {
+            int end = segmentEnd(text, start);
+            if (isDigits(text, start, end))
+            {
+                result[ix++] = Long.parseLong(text, start, end, 10);
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private static int segmentEnd(String text, int start)
+    {
+        int end = text.indexOf('.', start);
+        return end < 0
+               ? text.length()
+               : end;
+    }
+
+    static boolean isDigits(CharSequence text, int start, int end)
+    {
+        if (start >= end)
+        {
+            return false;
+        }
+        for (int i = start; i < end; i++)
+        {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -20,6 +20,8 @@ package com.telenav.cactus.maven.model.resolver.versions;
 import com.mastfrog.function.state.Bool;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import static com.mastfrog.util.preconditions.Checks.notNull;
@@ -38,6 +40,12 @@ import static java.lang.Math.max;
  */
 public final class VersionMatchers
 {
+    // Ranges are parsed once; the handful a build uses are requested over and
+    // over during dependency resolution.  Cleared wholesale if something
+    // generates an unreasonable number of distinct specs.
+    private static final int MAX_CACHED_RANGES = 1024;
+    private static final Map<String, VersionPredicate<String>> RANGES
+            = new ConcurrentHashMap<>();
 
     private static int visitGroups(String spec, Bool valid,
             Consumer<String> groupConsumer)
@@ -112,15 +120,68 @@ public final class VersionMatchers
      */
     public static VersionPredicate<String> matcher(String spec)
     {
-        VersionPredicate<String> result = matcherInternal(spec);
-        if (!result.isValid())
+        VersionPredicate<String> result = plainVersionMatcher(notNull("spec",
+                spec));
+        if (result != null)
         {
-            System.err.println("Invalid range spec: '" + spec + "'");
-            result = new ExactMatcher(spec);
+            return result;
+        }
+        result = RANGES.get(spec);
+        if (result == null)
+        {
+            result = matcherInternal(spec);
+            if (!result.isValid())
+            {
+                System.err.println("Invalid range spec: '" + spec + "'");
+                result = new ExactMatcher(spec);
+            }
+            if (RANGES.size() >= MAX_CACHED_RANGES)
+            {
+                RANGES.clear();
+            }
+            VersionPredicate<String> existing = RANGES.putIfAbsent(spec, result);
+            if (existing != null)
+            {
+                result = existing;
+            }
         }
         return result;
     }
 
+    /**
+     * The common case of a plain version with no range syntax or whitespace,
+     * which is cheaper to match directly than to look up.
+     *
+     * @param spec A version spec
+     * @return A matcher or null if the spec needs to be parsed
+     */
+    private static VersionPredicate<String> plainVersionMatcher(String spec)
+    {
+        if (spec.isEmpty())
+        {
+            return null;
+        }
+        switch (spec.charAt(0))
+        {
+            case '[':
+            case '(':
+                return null;
+            default:
+                for (int i = 0; i < spec.length(); i++)
+                {
+                    if (Character.isWhitespace(spec.charAt(i)))
+                    {
+                        return null;
+                    }
+                }
+        }
+        if (spec.endsWith("-SNAPSHOT") || spec.indexOf('.') < 0)
+        {
+            return new ExactMatcher(spec);
+        }
+        return new PrefixMatcher(spec);
+    }
+
     static VersionPredicate<String> matcherInternal(String spec)
     {
         String stripped = stripWhitespace(notNull("spec", spec));
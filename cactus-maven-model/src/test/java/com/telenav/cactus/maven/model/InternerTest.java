@@ -0,0 +1,61 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Tim Boudreau
+ */
+public class InternerTest
+{
+    @Test
+    public void testFactoriesReturnCanonicalInstances()
+    {
+        assertSame(GroupId.of("com.telenav.cactus"),
+                GroupId.of(new String("com.telenav.cactus")));
+        assertSame(ArtifactId.of("cactus-maven-model"),
+                ArtifactId.of(new String("cactus-maven-model")));
+        assertSame(PomVersion.of("1.5.0"), PomVersion.of(" 1.5.0 "));
+        assertSame(PomVersion.UNKNOWN, PomVersion.of(
+                ResolvablePomElement.PLACEHOLDER));
+
+        MavenCoordinates a = MavenCoordinates.of("com.telenav.cactus",
+                "cactus-maven-model", "1.5.0");
+        MavenCoordinates b = MavenCoordinates.of("com.telenav.cactus",
+                "cactus-maven-model", "1.5.0");
+        assertSame(a, b);
+        assertSame(a, a.withVersion("1.5.1").withVersion("1.5.0"));
+        assertEquals(a, new MavenCoordinates("com.telenav.cactus",
+                "cactus-maven-model", "1.5.0"));
+    }
+
+    @Test
+    public void testDistinctValuesAreNotConflated()
+    {
+        Interner<String> interner = new Interner<>();
+        String one = interner.intern(new String("x"));
+        assertSame(one, interner.intern(new String("x")));
+        assertNotSame(one, interner.intern("y"));
+        assertEquals(2, interner.size());
+        // Same class, equal text, different element kinds
+        assertNotEquals(GroupId.of("x"), ArtifactId.of("x"));
+    }
+}
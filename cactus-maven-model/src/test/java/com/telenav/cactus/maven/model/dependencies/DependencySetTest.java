@@ -0,0 +1,134 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.dependencies;
+
+import com.telenav.cactus.maven.model.Dependency;
+import com.telenav.cactus.maven.model.Pom;
+import com.telenav.cactus.maven.model.resolver.Poms;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.telenav.cactus.maven.model.dependencies.DependencyScope.Compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Tim Boudreau
+ */
+public class DependencySetTest
+{
+    @Test
+    public void testClosuresAreSharedAndInvalidated(@TempDir Path dir) throws Exception
+    {
+        Pom a = pom(dir, "a", "b");
+        Pom b = pom(dir, "b", "c");
+        Pom c = pom(dir, "c");
+        Pom d = pom(dir, "d", "c");
+        Poms poms = new Poms(Arrays.asList(a, b, c, d));
+
+        assertEquals(Set.of("b", "c"), artifactIds(poms.dependencies(a)
+                .dependencyClosure(Compile)));
+        assertEquals(Set.of("c"), artifactIds(poms.dependencies(d)
+                .dependencyClosure(Compile)));
+        assertSame(poms.dependencies(a), poms.dependencies(a));
+
+        // A second walk over the memoized closure visits the same edges
+        // in the same order
+        List<String> first = edges(poms.dependencies(a));
+        assertEquals(Arrays.asList("a->b", "b->c"), first);
+        assertEquals(first, edges(poms.dependencies(a)));
+
+        Dependencies before = poms.dependencies(a);
+        assertEquals(Set.of(a, b, c, d), poms.invalidate(c));
+        assertNotSame(before, poms.dependencies(a));
+        assertEquals(first, edges(poms.dependencies(a)));
+        assertTrue(poms.invalidate(a).contains(a));
+    }
+
+    @Test
+    public void testParallelInitializationMatchesSequential(@TempDir Path dir)
+            throws Exception
+    {
+        List<Pom> all = Arrays.asList(
+                pom(dir, "a", "b", "c"),
+                pom(dir, "b", "d"),
+                pom(dir, "c", "d", "e"),
+                pom(dir, "d", "e"),
+                pom(dir, "e"));
+        Poms sequential = new Poms(all);
+        Poms parallel = new Poms(all);
+        parallel.initializeDependencies(all, DependencyScope.setOf(Compile),
+                false, 4);
+        for (Pom pom : all)
+        {
+            assertEquals(edges(sequential.dependencies(pom)),
+                    edges(parallel.dependencies(pom)), pom.toString());
+        }
+        assertEquals(Arrays.asList("a->b", "b->d", "d->e", "a->c", "c->d",
+                "c->e"), edges(parallel.dependencies(all.get(0))));
+    }
+
+    private static List<String> edges(Dependencies deps)
+    {
+        List<String> result = new ArrayList<>();
+        deps.visitDependencyClosure(DependencyScope.setOf(Compile), false,
+                (pom, dep) ->
+        {
+            result.add(pom.coordinates().artifactId.text() + "->"
+                    + dep.coordinates().artifactId.text());
+            return true;
+        });
+        return result;
+    }
+
+    private static Set<String> artifactIds(Set<Dependency> deps)
+    {
+        Set<String> result = new HashSet<>();
+        deps.forEach(dep -> result.add(dep.coordinates().artifactId.text()));
+        return result;
+    }
+
+    private static Pom pom(Path dir, String artifactId, String... deps) throws Exception
+    {
+        StringBuilder sb = new StringBuilder("<project>\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "  <groupId>com.foo</groupId>\n"
+                + "  <artifactId>").append(artifactId).append("</artifactId>\n"
+                + "  <version>1.0</version>\n"
+                + "  <dependencies>\n");
+        for (String dep : deps)
+        {
+            sb.append("    <dependency>\n"
+                    + "      <groupId>com.foo</groupId>\n"
+                    + "      <artifactId>").append(dep).append("</artifactId>\n"
+                    + "      <version>1.0</version>\n"
+                    + "    </dependency>\n");
+        }
+        sb.append("  </dependencies>\n</project>\n");
+        Path file = Files.createDirectories(dir.resolve(artifactId)).resolve(
+                "pom.xml");
+        Files.writeString(file, sb);
+        return Pom.from(file).get();
+    }
+}
@@ -0,0 +1,60 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.internal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Tim Boudreau
+ */
+public class PomFileCacheTest
+{
+    @Test
+    public void testCacheIsInvalidatedAndBounded(@TempDir Path dir) throws Exception
+    {
+        PomFileCache cache = new PomFileCache(8);
+        Path pom = dir.resolve("pom.xml");
+        Files.writeString(pom, "<project/>");
+        Files.setLastModifiedTime(pom, FileTime.fromMillis(100_000));
+
+        PomFile first = cache.get(pom, PomFile::new);
+        assertSame(first, cache.get(pom, PomFile::new));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        Files.setLastModifiedTime(pom, FileTime.fromMillis(200_000));
+        PomFile second = cache.get(pom, PomFile::new);
+        assertNotSame(first, second, "Change in timestamp not noticed");
+        assertEquals(2, cache.misses());
+
+        for (int i = 0; i < 20; i++)
+        {
+            Path other = dir.resolve("pom-" + i + ".xml");
+            Files.writeString(other, "<project/>");
+            cache.get(other, PomFile::new);
+            assertTrue(cache.size() <= 8, "Cache exceeded its bound: "
+                    + cache.size());
+        }
+    }
+}
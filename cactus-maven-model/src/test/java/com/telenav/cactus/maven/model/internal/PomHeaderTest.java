@@ -0,0 +1,135 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.internal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Tim Boudreau
+ */
+public class PomHeaderTest
+{
+    private static final String CHILD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <parent>\n"
+            + "    <groupId>com.foo</groupId>\n"
+            + "    <artifactId>foo-parent</artifactId>\n"
+            + "    <version> 1.2.3 </version>\n"
+            + "    <relativePath>../parent</relativePath>\n"
+            + "  </parent>\n"
+            + "  <!-- a <groupId>comment</groupId> -->\n"
+            + "  <artifactId>foo-child</artifactId>\n"
+            + "  <dependencies>\n"
+            + "    <dependency>\n"
+            + "      <groupId>com.bar</groupId>\n"
+            + "      <artifactId>bar</artifactId>\n"
+            + "      <version>2.0</version>\n"
+            + "    </dependency>\n"
+            + "  </dependencies>\n"
+            + "</project>\n";
+
+    private static final String AGGREGATOR = "<project>\n"
+            + "  <groupId>com.foo</groupId>\n"
+            + "  <artifactId>foo-aggregator</artifactId>\n"
+            + "  <version>1.0-SNAPSHOT</version>\n"
+            + "  <packaging>pom</packaging>\n"
+            + "  <dependencies/>\n"
+            + "  <modules>\n"
+            + "    <module>a</module>\n"
+            + "    <module><![CDATA[b]]></module>\n"
+            + "  </modules>\n"
+            + "</project>\n";
+
+    // Legal, if unconventional: everything of interest after dependencies
+    private static final String OUT_OF_ORDER = "<project>\n"
+            + "  <dependencies>\n"
+            + "    <dependency>\n"
+            + "      <groupId>com.bar</groupId>\n"
+            + "      <artifactId>bar</artifactId>\n"
+            + "      <version>2.0</version>\n"
+            + "    </dependency>\n"
+            + "  </dependencies>\n"
+            + "  <groupId>com.foo</groupId>\n"
+            + "  <artifactId>foo-late</artifactId>\n"
+            + "  <version>1.0</version>\n"
+            + "  <dependencyManagement/>\n"
+            + "  <packaging>pom</packaging>\n"
+            + "  <modules>\n"
+            + "    <module>c</module>\n"
+            + "  </modules>\n"
+            + "</project>\n";
+
+    @Test
+    public void testHeaderMatchesDom(@TempDir Path dir) throws Exception
+    {
+        for (String xml : new String[]
+        {
+            CHILD, AGGREGATOR, OUT_OF_ORDER
+        })
+        {
+            Path file = dir.resolve("pom.xml");
+            Files.writeString(file, xml);
+            PomFile dom = new PomFile(file);
+            PomHeader header = PomHeader.read(file).get();
+            assertEquals(dom.coordinates(), header.coordinates(), xml);
+            assertEquals(dom.packaging(), header.packaging(), xml);
+            Set<String> expectedModules = "pom".equals(dom.packaging())
+                                          ? dom.modules()
+                                          : Collections.emptySet();
+            assertEquals(expectedModules, header.modules(), xml);
+        }
+    }
+
+    @Test
+    public void testPackagingAndModulesAfterDependencies(@TempDir Path dir)
+            throws Exception
+    {
+        Path file = dir.resolve("pom.xml");
+        Files.writeString(file, OUT_OF_ORDER);
+        PomHeader header = PomHeader.read(file).get();
+        assertEquals("pom", header.packaging());
+        assertEquals(Collections.singleton("c"), header.modules());
+    }
+
+    @Test
+    public void testParentAndFallback(@TempDir Path dir) throws Exception
+    {
+        Path file = dir.resolve("pom.xml");
+        Files.writeString(file, CHILD);
+        PomHeader header = PomHeader.read(file).get();
+        assertTrue(header.hasParent());
+        assertEquals("foo-parent", header.parentCoordinates().get()
+                .artifactId().text());
+        assertEquals(Optional.of("../parent"), header.parentRelativePath());
+        assertEquals("1.2.3", header.coordinates().version().text());
+
+        Files.writeString(file, "<project><artifactId>x</artifactId></project>");
+        assertFalse(PomHeader.read(file).isPresent());
+        Files.writeString(file, "<settings/>");
+        assertFalse(PomHeader.read(file).isPresent());
+    }
+}
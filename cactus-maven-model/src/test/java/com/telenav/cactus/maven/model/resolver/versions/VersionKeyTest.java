@@ -0,0 +1,85 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.model.resolver.versions;
+
+import com.telenav.cactus.maven.model.PomVersion;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Tim Boudreau
+ */
+public class VersionKeyTest
+{
+    // The order the original split-and-regex comparator produced
+    private static final List<String> EXPECTED_ORDER = Arrays.asList(
+            "0.0.1", "1.0-SNAPSHOT", "1.0", "1.0.0-SNAPSHOT", "1.0.0", "1.0.1",
+            "1.2.3-beta", "1.2.3-alpha", "1.2.3", "1.2.03", "1.2.3.4.5",
+            "1.5.0-dev", "1.6.1", "1.9", "1.9.9", "1.10", "2.0.0.0", "3.0.0-M5",
+            "3.0.0-M7", "13.20.141", "2022.06.15");
+
+    @Test
+    public void testOrderingIsUnchanged()
+    {
+        List<String> reversed = new ArrayList<>(EXPECTED_ORDER);
+        Collections.reverse(reversed);
+        reversed.sort(VersionComparator.INSTANCE);
+        assertEquals(EXPECTED_ORDER, reversed);
+
+        List<PomVersion> versions = new ArrayList<>();
+        for (int i = EXPECTED_ORDER.size() - 1; i >= 0; i--)
+        {
+            versions.add(PomVersion.of(EXPECTED_ORDER.get(i)));
+        }
+        Collections.sort(versions);
+        for (int i = 0; i < versions.size(); i++)
+        {
+            assertEquals(EXPECTED_ORDER.get(i), versions.get(i).text());
+        }
+    }
+
+    @Test
+    public void testEdgeCases()
+    {
+        // Single-segment versions compare as strings, ignoring trailing dots
+        assertRelation("10", "2", -1);
+        assertRelation("1", "1.", 0);
+        assertRelation("1..", "1", 0);
+        assertRelation("", ".", -1);
+        assertRelation("1.", "1-2-3", -1);
+        // Versions without numeric segments compare as strings
+        assertRelation("a.b", "b", -1);
+        assertRelation("a.b", "1.0", 1);
+        assertRelation(".5", "5.", -1);
+        assertEquals(Arrays.asList(1L, 5L, 0L), VersionComparator
+                .extractNumerics("1.5.0-SNAPSHOT".split("[\\.-]+")));
+    }
+
+    private static void assertRelation(String a, String b, int expected)
+    {
+        assertEquals(expected, Integer.signum(VersionKey.of(a).compareTo(
+                VersionKey.of(b))), "'" + a + "' vs '" + b + "'");
+        assertEquals(-expected, Integer.signum(VersionComparator.INSTANCE
+                .compare(b, a)), "'" + b + "' vs '" + a + "'");
+    }
+}
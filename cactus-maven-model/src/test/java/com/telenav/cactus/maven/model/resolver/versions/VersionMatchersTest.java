@@ -21,6 +21,7 @@ import java.util.function.Predicate;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -74,6 +75,21 @@ public class VersionMatchersTest
                 VersionMatchers.matcherInternal("42.23.7-SNAPSHOT") instanceof ExactMatcher);
     }
 
+    @Test
+    public void testRangesAreParsedOnce()
+    {
+        VersionPredicate<String> range = VersionMatchers.matcher("[1.0,2.0)");
+        assertSame(range, VersionMatchers.matcher("[1.0,2.0)"));
+        assertTrue(range instanceof RangeBoundsSet);
+        assertAccepts(range, "1.5");
+
+        VersionPredicate<String> plain = VersionMatchers.matcher("1.5.2");
+        assertTrue(plain instanceof PrefixMatcher);
+        assertAccepts(plain, "1.5.2");
+        assertTrue(VersionMatchers.matcher("1.5-SNAPSHOT") instanceof ExactMatcher);
+        assertTrue(VersionMatchers.matcher("[1.0,,2.0)") instanceof ExactMatcher);
+    }
+
     @Test
     public void testRangeExclusiveUpperBound()
     {
@@ -228,7 +228,7 @@ public class BranchCleanupMojo extends ScopedCheckoutsMojo
         else
         {
             // The tree is shared, so clear its branch cache
-            tree.invalidateCache();
+            checkouts.forEach(tree::invalidateBranches);
         }
     }
 
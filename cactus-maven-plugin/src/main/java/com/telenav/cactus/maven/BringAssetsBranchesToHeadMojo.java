@@ -125,7 +125,8 @@ public class BringAssetsBranchesToHeadMojo extends BaseMojo
                     checkout.pull();
                 });
             }
-            tree.invalidateCache();
+            toUse.forEach(tree::invalidate);
+            tree.invalidate(tree.root());
             if (!relativePaths.isEmpty() && commit && tree.root()
                     .hasUncommitedChanges())
             {
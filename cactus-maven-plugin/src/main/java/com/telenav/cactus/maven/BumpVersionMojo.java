@@ -17,7 +17,7 @@
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 package com.telenav.cactus.maven;
 
-import com.mastfrog.function.optional.ThrowingOptional;
+import com.mastfrog.function.throwing.ThrowingSupplier;
 import com.telenav.cactus.git.Branches;
 import com.telenav.cactus.git.GitCheckout;
 import com.telenav.cactus.maven.commit.CommitMessage;
@@ -43,7 +43,6 @@ import com.telenav.cactus.scope.ProjectFamily;
 import com.telenav.cactus.util.EnumMatcher;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -59,8 +58,8 @@ import org.apache.maven.project.MavenProject;
 
 import static com.mastfrog.function.throwing.ThrowingRunnable.composable;
 import static com.telenav.cactus.git.GitCheckout.depthFirstSort;
-import static com.telenav.cactus.git.GitCheckout.ownersOf;
 import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.COMMIT_CHANGES;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.XML_PARALLELISM;
 import static com.telenav.cactus.maven.model.VersionChangeMagnitude.DOT;
 import static com.telenav.cactus.maven.model.VersionChangeMagnitude.MAJOR;
 import static com.telenav.cactus.maven.model.VersionChangeMagnitude.MINOR;
@@ -336,6 +335,12 @@ public class BumpVersionMojo extends ReplaceMojo
     @Parameter(property = "cactus.bump.published", defaultValue = "false")
     boolean bumpPublished;
 
+    /**
+     * The number of pom files to rewrite concurrently.
+     */
+    @Parameter(property = XML_PARALLELISM, defaultValue = "4")
+    int xmlParallelism;
+
     public BumpVersionMojo()
     {
         super(LAST_IN_SESSION_PROJECTS);
@@ -498,13 +503,20 @@ public class BumpVersionMojo extends ReplaceMojo
                     log.info("NOT including root");
                 }
         }
-        replacer.pretend(isPretend());
+        replacer.pretend(isPretend()).parallelism(Math.max(1, xmlParallelism));
         log.info("Applying changes");
         log.info(replacer.toString());
-        Set<Path> rewritten = replacer.go(log::info);
 
         Rollback rollback = new Rollback();
-        addFileModifications(rollback, rewritten, log);
+        // Restores the original content of each pom written, even if
+        // writing some other pom fails partway through
+        Set<Path> rewritten = rollback.executeWithRollback(
+                (ThrowingSupplier<Set<Path>>) () -> replacer.go(log::info, restore -> rollback.addRollbackTask(
+                        () ->
+                {
+                    log.error("Roll back: " + restore);
+                    restore.run();
+                })));
 
         rollback.executeWithRollback(composable(false)
                 .andAlways(() ->
@@ -516,7 +528,7 @@ public class BumpVersionMojo extends ReplaceMojo
                     // Use the set of checkouts that contain files that were actually modified,
                     // so we don't generate substitution changes in checkouts we did not
                     // make changes in
-                    Set<GitCheckout> owners = ownersOf(rewritten);
+                    Set<GitCheckout> owners = tree.ownersOf(rewritten);
 
                     if (isVerbose())
                     {
@@ -568,30 +580,31 @@ public class BumpVersionMojo extends ReplaceMojo
                         generateCommit(owners, replacer, releaseBranchNames,
                                 rollback, tree);
                     }
-                    // Ensures the tree's cache is cleared at the tail even if this
+                    // Ensures the tree's cache is updated at the tail even if this
                     // throws
-                }).andAlwaysRun(tree::invalidateCache));
-    }
-
-    private void addFileModifications(Rollback rollback,
-            Collection<? extends Path> files, BuildLog log)
-    {
-        files.forEach(file -> addRollbackTask(rollback, file, log));
+                }).andAlwaysRun(() -> invalidateRewritten(tree, rewritten)));
     }
 
-    private void addRollbackTask(Rollback rollback, Path path, BuildLog log)
+    private static void invalidateRewritten(ProjectTree tree,
+            Set<Path> rewritten)
     {
-        rollback.addRollbackTask(() ->
+        // Only the poms we wrote can have changed the tree's poms, and only
+        // the checkouts they (and substituted docs) live in, plus the root
+        // we may have committed to, can have changed git state
+        List<Path> poms = new ArrayList<>();
+        for (Path path : rewritten)
         {
-            ThrowingOptional.from(GitCheckout.checkout(path))
-                    .ifPresent(repo ->
-                    {
-                        log.error("Roll back changes in " + path);
-                        repo.checkoutOneFile(path);
-                    });
-        });
+            if ("pom.xml".equals(path.getFileName().toString()))
+            {
+                poms.add(path);
+            }
+        }
+        tree.invalidatePoms(poms);
+        Set<GitCheckout> touched = tree.ownersOf(rewritten);
+        touched.add(tree.root());
+        touched.forEach(tree::invalidateBranches);
     }
-    
+
     private void ensureAllProjectsPreloaded() {
         // Maven can - sometimes - lazy-load POMs, which means that
         // the cbump script can fail *after* bumping the versions of
@@ -179,7 +179,8 @@ public class CheckMojo extends FamilyAwareMojo
         }
         ConsistencyChecker2 c = new ConsistencyChecker2()
                 .activityLogger(log::info)
-                .withTargetBranch(expectedBranch);
+                .withTargetBranch(expectedBranch)
+                .checkoutOperations(checkoutOperations(log));
         if (checkRelativePaths)
         {
             c.checkRelativePaths();
@@ -1148,11 +1148,11 @@ public class CheckoutMojo extends ScopedCheckoutsMojo
 
     private void fetchAll(List<GitCheckout> checkouts)
     {
-        for (GitCheckout co : checkouts)
+        checkoutOperations().runOrThrow("fetch-all", checkouts, (co, log) ->
         {
-            log().info("Fetch all in " + co.loggingName());
-            co.fetchAll();
-        }
+            log.accept("Fetch all in " + co.loggingName());
+            return co.fetchAll();
+        });
     }
 
     private void includeOrRemoveRoot(List<GitCheckout> checkouts,
@@ -131,7 +131,7 @@ public class CommitAssetsMojo extends SharedProjectTreeMojo
                         log.info("Push " + co.loggingName());
                         ifNotPretending(co::push);
                     }
-                    ifNotPretending(tree::invalidateCache);
+                    ifNotPretending(() -> tree.invalidate(co));
                 }
             }
         });
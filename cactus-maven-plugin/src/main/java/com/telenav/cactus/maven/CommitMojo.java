@@ -21,7 +21,6 @@ import com.telenav.cactus.git.Branches;
 import com.telenav.cactus.git.Conflicts;
 import com.telenav.cactus.git.Conflicts.Conflict;
 import com.telenav.cactus.git.GitCheckout;
-import com.telenav.cactus.git.NeedPushResult;
 import com.telenav.cactus.maven.commit.CommitMessage;
 import com.telenav.cactus.maven.log.BuildLog;
 import com.telenav.cactus.maven.mojobase.BaseMojoGoal;
@@ -186,25 +185,34 @@ public class CommitMojo extends ScopedCheckoutsMojo
                     : null);
             performPulls(needingPull, log);
 
+            // Emit messages after the fact, in checkout order, rather than
+            // from the worker threads as each push completes
+            Map<GitCheckout, String> pushed = checkoutOperations(log)
+                    .runOrThrow("push", toCommit, (co, coLog) ->
+                    {
+                        switch (co.needsPush())
+                        {
+                            case YES:
+                                coLog.accept("Push: " + co.loggingName());
+                                ifNotPretending(co::push);
+                                return "Pushed " + co.loggingName();
+                            case REMOTE_BRANCH_DOES_NOT_EXIST:
+                                coLog.accept("Push creating branch: " + co
+                                        .loggingName());
+                                ifNotPretending(co::pushCreatingBranch);
+                                return "Pushed " + co.loggingName()
+                                        + " creating remote branch "
+                                        + co.branch().get();
+                            default:
+                                return "";
+                        }
+                    });
             for (GitCheckout co : toCommit)
             {
-                NeedPushResult np = co.needsPush();
-                switch (np)
+                String message = pushed.get(co);
+                if (message != null && !message.isEmpty())
                 {
-                    case YES:
-                        log.info("Push: " + co.loggingName());
-                        ifNotPretending(co::push);
-                        emitMessage("Pushed " + co.loggingName());
-                        break;
-                    case REMOTE_BRANCH_DOES_NOT_EXIST:
-                        log.info("Push creating branch: " + co.loggingName());
-                        ifNotPretending(co::pushCreatingBranch);
-                        emitMessage(
-                                "Pushed " + co.loggingName() + " creating remote branch "
-                                + co.branch().get());
-                        break;
-                    default:
-                        break;
+                    emitMessage(message);
                 }
             }
             String tag = automergeTag().toString();
@@ -240,19 +248,21 @@ public class CommitMojo extends ScopedCheckoutsMojo
 
     public void performPulls(Set<GitCheckout> needingPull, BuildLog log1)
     {
-        for (GitCheckout co : needingPull)
+        checkoutOperations(log1).runOrThrow("pull", needingPull,
+                (co, coLog) ->
         {
             if (safeToPullWithRebase(co))
             {
-                log1.info("Pull with rebase: " + co.loggingName());
+                coLog.accept("Pull with rebase: " + co.loggingName());
                 ifNotPretending(co::pullWithRebase);
             }
             else
             {
-                log1.info("Pull " + co.loggingName());
+                coLog.accept("Pull " + co.loggingName());
                 ifNotPretending(co::pull);
             }
-        }
+            return true;
+        });
         needingPull.clear();
     }
 
@@ -292,21 +302,26 @@ public class CommitMojo extends ScopedCheckoutsMojo
         if (push)
         {
             Set<GitCheckout> notUpToDate = new LinkedHashSet<>();
-            for (GitCheckout checkout : checkouts)
+            checkoutOperations(log1).runOrThrow("fetch-all", checkouts,
+                    (checkout, coLog) ->
             {
-                log1.info("Fetch all in " + checkout);
+                coLog.accept("Fetch all in " + checkout);
                 ifNotPretending(checkout::fetchAll);
-                if (checkout.needsPull())
+                boolean result = checkout.needsPull();
+                if (result)
                 {
-                    log1.info(
+                    coLog.accept(
                             "Needs pull - will check for conflicts: "
                             + checkout.loggingName());
-                    if (!checkout.equals(rootCheckoutOrNull))
-                    {
-                        notUpToDate.add(checkout);
-                    }
                 }
-            }
+                return result;
+            }).forEach((checkout, needsPull) ->
+            {
+                if (needsPull && !checkout.equals(rootCheckoutOrNull))
+                {
+                    notUpToDate.add(checkout);
+                }
+            });
             Map<GitCheckout, Conflicts> cfs = checkForConflicts(notUpToDate,
                     useWorkingTree);
             cfs.forEach((checkout, cflict) ->
@@ -249,13 +249,11 @@ public class ForkBuildMojo extends ScopedCheckoutsMojo
 
     private void fetchAll(List<GitCheckout> checkouts, BuildLog log)
     {
-        for (GitCheckout checkout : checkouts)
+        checkoutOperations(log).runOrThrow("fetch-all", checkouts,
+                (checkout, coLog) ->
         {
-            log.info("Fetch all in " + checkout.loggingName());
-            if (!isPretend())
-            {
-                checkout.fetchAll();
-            }
-        }
+            coLog.accept("Fetch all in " + checkout.loggingName());
+            return isPretend() || checkout.fetchAll();
+        });
     }
 }
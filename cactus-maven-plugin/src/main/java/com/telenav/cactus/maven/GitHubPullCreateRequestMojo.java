@@ -189,6 +189,9 @@ public class GitHubPullCreateRequestMojo extends AbstractGithubMojo
             log.error("Nothing to do.");
             return;
         }
+        // Creating pull requests may remove entries, so copy them first
+        Set<GitCheckout> touched = new LinkedHashSet<>(sourceBranchForCheckout
+                .keySet());
         try
         {
             // So we don't scare people in pretend mode
@@ -200,7 +203,10 @@ public class GitHubPullCreateRequestMojo extends AbstractGithubMojo
         }
         finally
         {
-            tree.invalidateCache();
+            // Commits and pushes change branch and dirty state, but not poms;
+            // committing a submodule also dirties the root
+            touched.forEach(tree::invalidateBranches);
+            tree.invalidateBranches(tree.root());
             clearPRCache();
             fetched.clear();
             synchronized (this)
@@ -102,6 +102,8 @@ public class HomogenizeVersionsMojo extends SharedProjectTreeMojo
             }
             Set<Path> updated = new HashSet<>(ph.go(log::info));
             fixParentVersions(tree, log, updated);
+            // Only the poms we rewrote need re-reading
+            updated.forEach(tree::invalidatePom);
             if (updated.isEmpty())
             {
                 log.info("No inconsistent properties found.");
@@ -114,7 +116,6 @@ public class HomogenizeVersionsMojo extends SharedProjectTreeMojo
                     commit(tree, updated, log);
                 }
             }
-            tree.invalidateCache();
         });
     }
 
@@ -123,7 +124,7 @@ public class HomogenizeVersionsMojo extends SharedProjectTreeMojo
         Set<GitCheckout> modifiedCheckouts = new HashSet<>();
         for (Path p : updated)
         {
-            GitCheckout.checkout(p).ifPresent(checkout ->
+            tree.ownerOf(p).ifPresent(checkout ->
             {
                 boolean dirty = tree.isSubmoduleRoot(checkout)
                                 ? tree.isDirtyIgnoringSubmoduleCommits(checkout)
@@ -167,7 +168,9 @@ public class HomogenizeVersionsMojo extends SharedProjectTreeMojo
                 });
                 log.info("Committed " + co.loggingName());
                 emitMessage("Committed " + co.loggingName());
+                tree.invalidateBranches(co);
             }
+            tree.invalidateBranches(tree.root());
         }
     }
 
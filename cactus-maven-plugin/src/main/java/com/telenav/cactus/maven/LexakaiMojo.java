@@ -390,7 +390,9 @@ public class LexakaiMojo extends BaseMojo
 
     private Set<GitCheckout> collectModifiedCheckouts(ProjectTree tree)
     {
-        tree.invalidateCache();
+        // Lexakai writes documentation, not poms, so only the root's cached
+        // dirty state can be stale - other checkouts are asked directly
+        tree.invalidateBranches(tree.root());
         Set<GitCheckout> needingCommit = new HashSet<>();
         if (tree.isDirty(tree.root()))
         {
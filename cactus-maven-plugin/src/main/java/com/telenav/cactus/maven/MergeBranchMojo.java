@@ -299,7 +299,9 @@ public class MergeBranchMojo extends ScopedCheckoutsMojo
         }
         finally
         {
-            tree.invalidateCache();
+            // Merging can change poms as well as branches, but only within
+            // the checkouts merged, so there is no need to rescan the rest
+            checkouts.forEach(tree::invalidate);
         }
     }
 
@@ -51,8 +51,6 @@ import static org.apache.maven.plugins.annotations.ResolutionScope.NONE;
 @BaseMojoGoal("last-change")
 public class PrintHistoryMojo extends ScopedCheckoutsMojo
 {
-    private static final int PAGE_SIZE = 5;
-
     @Parameter(property = "cactus.file.extension")
     String fileExtension;
 
@@ -79,7 +77,12 @@ public class PrintHistoryMojo extends ScopedCheckoutsMojo
             }
             emitCheckoutStart(checkout);
 
-            checkout.changeHistory(PAGE_SIZE, historyRecord ->
+            // Let git restrict history to the folders we are looking for
+            // changes in
+            Set<Path> folders = nonPomProjects.stream()
+                    .map(Pom::projectFolder)
+                    .collect(toCollection(HashSet::new));
+            checkout.changeHistory(folders, historyRecord ->
             {
                 if (fileExtension != null)
                 {
@@ -103,11 +103,19 @@ public class PullMojo extends ScopedCheckoutsMojo
                 root = null;
             }
             Map<GitCheckout, Conflicts> allConflicts = new TreeMap<>();
-            for (GitCheckout checkout : needingPull)
+            Map<GitCheckout, Conflicts> conflictsForCheckout
+                    = checkoutOperations().runOrThrow("fetch", needingPull,
+                            (checkout, coLog) ->
+                    {
+                        coLog.accept("Fetch to determine if merge can succeed.");
+                        ifNotPretending(checkout::fetch);
+                        return checkout.checkForConflicts();
+                    });
+            for (Map.Entry<GitCheckout, Conflicts> e : conflictsForCheckout
+                    .entrySet())
             {
-                log.info("Fetch to determine if merge can succeed.");
-                ifNotPretending(checkout::fetch);
-                Conflicts conflicts = checkout.checkForConflicts();
+                GitCheckout checkout = e.getKey();
+                Conflicts conflicts = e.getValue();
 
                 if (!conflicts.isEmpty() && conflicts.hasHardConflicts())
                 {
@@ -153,21 +161,15 @@ public class PullMojo extends ScopedCheckoutsMojo
                 }
             }
 
-            needingPull.stream()
-                    .map(checkout ->
-            {
-                log.info(pfx + "Pull " + checkout.loggingName());
-                return checkout;
-            })
-                    .map(checkout ->
+            needingPull.forEach(checkout ->
             {
                 emitMessage("Pull " + pfx + checkout.loggingName());
-                return checkout;
-            })
-                    .filter(checkout -> (!isPretend()))
-                    .forEachOrdered(checkout ->
+            });
+            checkoutOperations().runOrThrow("pull", needingPull,
+                    (checkout, coLog) ->
             {
-                checkout.pull();
+                coLog.accept(pfx + "Pull " + checkout.loggingName());
+                return isPretend() || checkout.pull();
             });
         }
     }
@@ -180,12 +182,21 @@ public class PullMojo extends ScopedCheckoutsMojo
 
     private List<GitCheckout> needingPull(Collection<? extends GitCheckout> cos)
     {
-        return cos.stream()
-                .filter(co -> isPretend()
-                              ? co.needsPull()
-                              : co.updateRemoteHeads().needsPull()
-                || co.remoteHead().map(h -> !h.equals(co.head())).orElse(
-                        false))
+        // Updating remote heads is network-bound, so do it concurrently
+        Map<GitCheckout, Boolean> needsPull = checkoutOperations().runOrThrow(
+                "update-remote-heads", cos, (co, coLog) ->
+        {
+            if (isPretend())
+            {
+                return co.needsPull();
+            }
+            return co.updateRemoteHeads().needsPull()
+                    || co.remoteHead().map(h -> !h.equals(co.head())).orElse(
+                            false);
+        });
+        return needsPull.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
                 .collect(toCollection(() -> new ArrayList<>(cos
                 .size())));
     }
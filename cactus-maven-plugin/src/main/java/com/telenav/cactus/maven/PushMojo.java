@@ -29,6 +29,7 @@ import com.telenav.cactus.maven.tree.ProjectTree;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -178,21 +179,30 @@ public class PushMojo extends ScopedCheckoutsMojo
             List<Map.Entry<GitCheckout, NeedPushResult>> needingPush,
             BuildLog log)
     {
+        Map<GitCheckout, NeedPushResult> pushKinds = new LinkedHashMap<>();
+        needingPush.forEach(e -> pushKinds.put(e.getKey(), e.getValue()));
         Set<GitCheckout> needingPull = new LinkedHashSet<>();
-        for (Map.Entry<GitCheckout, NeedPushResult> co : needingPush)
+        checkoutOperations(log).runOrThrow("update-remote-heads",
+                pushKinds.keySet(), (checkout, coLog) ->
         {
-            GitCheckout checkout = co.getKey();
-            log.debug("Update remote heads: " + checkout.name());
             if (!isPretend())
             {
                 checkout.updateRemoteHeads();
             }
-            if (!co.getValue().needCreateBranch() && checkout.needsPull())
+            boolean result = !pushKinds.get(checkout).needCreateBranch()
+                    && checkout.needsPull();
+            if (result)
+            {
+                coLog.accept("Needs pull: " + checkout.name());
+            }
+            return result;
+        }).forEach((checkout, needsPull) ->
+        {
+            if (needsPull)
             {
-                log.debug("Needs pull: " + checkout.name());
                 needingPull.add(checkout);
             }
-        }
+        });
         return needingPull;
     }
 
@@ -244,21 +254,20 @@ public class PushMojo extends ScopedCheckoutsMojo
                 }
             }
 
-            for (GitCheckout checkout : needingPull)
+            checkoutOperations(log).runOrThrow("pull", needingPull,
+                    (checkout, coLog) ->
             {
-                log.info("Pull " + checkout);
-                if (!isPretend())
+                coLog.accept("Pull " + checkout);
+                if (isPretend())
                 {
-                    if (checkout.equals(submoduleRoot) && rootIsRoot)
-                    {
-                        checkout.pullWithRebase();
-                    }
-                    else
-                    {
-                        checkout.pull();
-                    }
+                    return true;
                 }
-            }
+                if (checkout.equals(submoduleRoot) && rootIsRoot)
+                {
+                    return checkout.pullWithRebase();
+                }
+                return checkout.pull();
+            });
         }
         return new HashSet<>(allConflicts.keySet());
     }
@@ -310,40 +319,33 @@ public class PushMojo extends ScopedCheckoutsMojo
             BuildLog log)
     {
         log.warn("Begin push.");
-        for (Map.Entry<GitCheckout, NeedPushResult> co : needingPush)
+        Map<GitCheckout, NeedPushResult> pushKinds = new LinkedHashMap<>();
+        needingPush.forEach(e -> pushKinds.put(e.getKey(), e.getValue()));
+        pushKinds.forEach((checkout, kind) ->
         {
-            GitCheckout checkout = co.getKey();
-            if (co.getValue().needCreateBranch())
+            if (!kind.needCreateBranch())
             {
-                log.info("Push creating branch: " + checkout);
-                if (!isPretend())
-                {
-                    if (pushAll)
-                    {
-                        checkout.pushAll();
-                    }
-                    else
-                    {
-                        checkout.pushCreatingBranch();
-                    }
-                }
+                emitMessage(checkout);
             }
-            else
+        });
+        checkoutOperations(log).runOrThrow("push", pushKinds.keySet(),
+                (checkout, coLog) ->
+        {
+            boolean createBranch = pushKinds.get(checkout).needCreateBranch();
+            coLog.accept((createBranch
+                          ? "Push creating branch: "
+                          : "Push: ") + checkout);
+            if (isPretend())
             {
-                log.info("Push: " + checkout);
-                emitMessage(checkout);
-                if (!isPretend())
-                {
-                    if (pushAll)
-                    {
-                        checkout.pushAll();
-                    }
-                    else
-                    {
-                        checkout.push();
-                    }
-                }
+                return true;
             }
-        }
+            if (pushAll)
+            {
+                return checkout.pushAll();
+            }
+            return createBranch
+                   ? checkout.pushCreatingBranch()
+                   : checkout.push();
+        });
     }
 }
@@ -109,6 +109,63 @@ public final class CactusCommonPropertyNames
 
     public static final String PROPERTIES = PREFIX + "properties";
 
+    /**
+     * The maximum number of checkouts mojos should run network-bound git
+     * operations such as fetch, pull and push against concurrently.
+     */
+    public static final String GIT_PARALLELISM = PREFIX + "git.parallelism";
+
+    /**
+     * If true (the default), stop starting concurrent git operations against
+     * further checkouts as soon as one fails; if false, run against all
+     * checkouts and report all failures.
+     */
+    public static final String GIT_FAIL_FAST = PREFIX + "git.fail-fast";
+
+    /**
+     * If true, print a summary of the external processes (git and friends)
+     * launched during the build - counts, wall time, exit codes and output
+     * volume, per command and per working directory - when the build exits.
+     */
+    public static final String PROCESS_STATS = PREFIX + "process.stats";
+
+    /**
+     * The maximum number of pom files mojos which rewrite poms, such as
+     * version bumps, should modify concurrently.
+     */
+    public static final String XML_PARALLELISM = PREFIX + "xml.parallelism";
+
+    /**
+     * If true (the default), persist the poms and checkout state found in a
+     * tree under the user cache directory, so the next build need not rescan
+     * and re-parse files which have not changed.
+     */
+    public static final String TREE_INDEX = PREFIX + "tree-index";
+
+    /**
+     * If true, share the project tree between every build run in the same
+     * JVM, such as a maven daemon (mvnd), keeping it current by watching the
+     * file system, so the tree is only scanned cold once per process.
+     */
+    public static final String RESIDENT_TREE = PREFIX + "resident-tree";
+
+    /**
+     * How to find the poms in a tree: <code>walk</code> (the default) walks
+     * its folders; <code>modules</code> follows the modules of the root pom
+     * and of each submodule's root pom instead, finding only poms reachable
+     * that way.
+     */
+    public static final String POM_DISCOVERY = PREFIX + "pom-discovery";
+
+    /**
+     * A comma-delimited list of globs matching folders which should not be
+     * searched for poms, in addition to build output and <code>.git</code>.
+     * A glob containing no <code>/</code> matches folder names; others match
+     * paths relative to the root of the tree.
+     */
+    public static final String POM_DISCOVERY_IGNORE = PREFIX
+            + "pom-discovery.ignore";
+
     private CactusCommonPropertyNames()
     {
         throw new AssertionError();
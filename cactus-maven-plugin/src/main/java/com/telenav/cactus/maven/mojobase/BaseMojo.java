@@ -24,6 +24,7 @@ import com.mastfrog.function.throwing.ThrowingFunction;
 import com.mastfrog.function.throwing.ThrowingRunnable;
 import com.mastfrog.function.throwing.ThrowingSupplier;
 import com.mastfrog.util.preconditions.Exceptions;
+import com.telenav.cactus.cli.ProcessStatistics;
 import com.telenav.cactus.maven.log.BuildLog;
 import com.telenav.cactus.maven.model.MavenCoordinates;
 import com.telenav.cactus.maven.model.Pom;
@@ -31,6 +32,8 @@ import com.telenav.cactus.maven.model.resolver.ArtifactFinder;
 import com.telenav.cactus.maven.shared.SharedData;
 import com.telenav.cactus.maven.shared.SharedDataKey;
 import com.telenav.cactus.maven.tree.ProjectTree;
+import com.telenav.cactus.maven.tree.PomDiscoveryMode;
+import com.telenav.cactus.maven.tree.ProjectTreeOptions;
 import com.telenav.cactus.maven.trigger.RunPolicies;
 import com.telenav.cactus.maven.trigger.RunPolicy;
 import java.io.IOException;
@@ -59,7 +62,12 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
 
 import static com.mastfrog.util.preconditions.Checks.notNull;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.POM_DISCOVERY;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.POM_DISCOVERY_IGNORE;
 import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.PRETEND;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.PROCESS_STATS;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.RESIDENT_TREE;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.TREE_INDEX;
 import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.VERBOSE;
 import static java.awt.Desktop.getDesktop;
 import static java.awt.Desktop.isDesktopSupported;
@@ -275,6 +283,41 @@ public abstract class BaseMojo extends AbstractMojo
     @Parameter(property = PRETEND, defaultValue = "false", alias = "pretend")
     private boolean pretend;
 
+    /**
+     * If true, print a summary of the external processes launched during the
+     * build when it exits.
+     */
+    @Parameter(property = PROCESS_STATS, defaultValue = "false")
+    private boolean processStats;
+
+    /**
+     * If true, persist the poms and checkout state found in the project tree
+     * between builds, so unchanged files need not be rescanned.
+     */
+    @Parameter(property = TREE_INDEX, defaultValue = "true")
+    private boolean treeIndex;
+
+    /**
+     * If true, share the project tree between builds run in the same JVM,
+     * such as under mvnd, keeping it current by watching the file system.
+     */
+    @Parameter(property = RESIDENT_TREE, defaultValue = "false")
+    private boolean residentTree;
+
+    /**
+     * How to find the poms in the project tree - <code>walk</code> to walk
+     * its folders, or <code>modules</code> to follow the modules of the root
+     * pom and of each submodule's root pom.
+     */
+    @Parameter(property = POM_DISCOVERY, defaultValue = "walk")
+    private String pomDiscovery;
+
+    /**
+     * Comma-delimited globs matching folders not to search for poms.
+     */
+    @Parameter(property = POM_DISCOVERY_IGNORE)
+    private String pomDiscoveryIgnore;
+
     protected BuildLog log;
 
     ThrowingOptional<ProjectTree> tree;
@@ -351,6 +394,10 @@ public abstract class BaseMojo extends AbstractMojo
         AtomicBoolean run = sharedData().computeIfAbsent(thisMojoWasRunKey,
                 AtomicBoolean::new);
         boolean old = running.get();
+        if (processStats)
+        {
+            ProcessStatistics.printOnShutdown();
+        }
         try
         {
             running.set(true);
@@ -616,7 +663,8 @@ public abstract class BaseMojo extends AbstractMojo
     {
         if (tree == null)
         {
-            tree = ProjectTree.from(project());
+            tree = ProjectTree.resident(project().getBasedir().toPath(),
+                    projectTreeOptions());
         }
         else
         {
@@ -628,6 +676,14 @@ public abstract class BaseMojo extends AbstractMojo
         return tree;
     }
 
+    private ProjectTreeOptions projectTreeOptions()
+    {
+        return ProjectTreeOptions.DEFAULT.withTreeIndex(treeIndex)
+                .withResidentTree(residentTree)
+                .withPomDiscovery(PomDiscoveryMode.find(pomDiscovery))
+                .withIgnoreGlobs(pomDiscoveryIgnore);
+    }
+
     private void internalValidateParameters(BuildLog log, MavenProject project)
             throws Exception
     {
@@ -643,6 +699,8 @@ public abstract class BaseMojo extends AbstractMojo
         {
             fail("SharedData was not injected");
         }
+        // Fail fast on a bad value, rather than when the tree is first used
+        PomDiscoveryMode.find(pomDiscovery);
         internalSubclassValidateParameters(log, project);
         validateParameters(log, project);
     }
@@ -767,7 +825,7 @@ public abstract class BaseMojo extends AbstractMojo
 
     protected final MavenCoordinates coordinatesOf(MavenProject project)
     {
-        return new MavenCoordinates(notNull("project", project).getGroupId(),
+        return MavenCoordinates.of(notNull("project", project).getGroupId(),
                 project.getArtifactId(), project.getVersion());
     }
 
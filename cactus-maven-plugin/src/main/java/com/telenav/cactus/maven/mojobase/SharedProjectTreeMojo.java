@@ -19,12 +19,19 @@ package com.telenav.cactus.maven.mojobase;
 
 import com.mastfrog.function.optional.ThrowingOptional;
 import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.log.BuildLog;
 import com.telenav.cactus.maven.shared.SharedDataKey;
+import com.telenav.cactus.maven.tree.CheckoutOperations;
+import com.telenav.cactus.maven.tree.CheckoutOperations.FailureMode;
 import com.telenav.cactus.maven.tree.ProjectTree;
 import com.telenav.cactus.maven.trigger.RunPolicy;
 import java.util.Optional;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.GIT_FAIL_FAST;
+import static com.telenav.cactus.maven.common.CactusCommonPropertyNames.GIT_PARALLELISM;
+
 /**
  * Subtype of SharedDataMojo which shares a single (expensive to create)
  * ProjectTree instance all other subtypes of it within a build.
@@ -33,6 +40,20 @@ import org.apache.maven.project.MavenProject;
  */
 public abstract class SharedProjectTreeMojo extends BaseMojo
 {
+    /**
+     * The number of checkouts to run network-bound git operations (fetch,
+     * pull, push) against concurrently; 1 runs them serially.
+     */
+    @Parameter(property = GIT_PARALLELISM, defaultValue = "4")
+    private int gitParallelism;
+
+    /**
+     * If true, stop starting git operations against further checkouts as soon
+     * as one fails; if false, attempt all of them and report every failure.
+     */
+    @Parameter(property = GIT_FAIL_FAST, defaultValue = "true")
+    private boolean gitFailFast;
+
     protected SharedProjectTreeMojo(RunPolicy policy)
     {
         super(policy);
@@ -47,6 +68,34 @@ public abstract class SharedProjectTreeMojo extends BaseMojo
         super(oncePerSession);
     }
 
+    /**
+     * Get an executor for running network-bound git operations against
+     * multiple checkouts concurrently, configured from the
+     * <code>cactus.git.parallelism</code> and <code>cactus.git.fail-fast</code>
+     * properties.
+     *
+     * @return An executor
+     */
+    protected final CheckoutOperations checkoutOperations()
+    {
+        return checkoutOperations(log());
+    }
+
+    /**
+     * Get an executor for running network-bound git operations against
+     * multiple checkouts concurrently, which logs to the passed log.
+     *
+     * @param log A log
+     * @return An executor
+     */
+    protected final CheckoutOperations checkoutOperations(BuildLog log)
+    {
+        return new CheckoutOperations(Math.max(1, gitParallelism),
+                gitFailFast
+                ? FailureMode.FAIL_FAST
+                : FailureMode.COLLECT_ALL, log);
+    }
+
     private SharedDataKey<TreeHolder> key()
     {
         // It is possible for this mojo to be run either against no git checkout
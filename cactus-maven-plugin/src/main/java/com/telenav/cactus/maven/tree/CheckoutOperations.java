@@ -0,0 +1,422 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.mastfrog.util.preconditions.Exceptions;
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.log.BuildLog;
+import com.telenav.cactus.util.DaemonThreadFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import static com.mastfrog.util.preconditions.Checks.greaterThanZero;
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * Runs a git operation - typically a network-bound one such as fetch, pull or
+ * push - against a set of checkouts using a bounded number of concurrent
+ * threads, collecting per-checkout results and failures.
+ * <p>
+ * Log output from each operation is buffered and emitted in the order the
+ * checkouts were passed in, regardless of the order the operations complete
+ * in, so the build log reads the same as it would if the operations were run
+ * serially. A checkout whose directory contains another checkout in the set
+ * (i.e. a submodule root) is only run once everything nested beneath it has
+ * completed, preserving the depth-first ordering mojos rely on.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+public final class CheckoutOperations
+{
+    private static final ThreadFactory THREADS = new DaemonThreadFactory(
+            "cactus-git");
+    private final int parallelism;
+    private final FailureMode failureMode;
+    private final BuildLog log;
+
+    public CheckoutOperations(int parallelism, FailureMode failureMode,
+            BuildLog log)
+    {
+        this.parallelism = greaterThanZero("parallelism", parallelism);
+        this.failureMode = notNull("failureMode", failureMode);
+        this.log = notNull("log", log);
+    }
+
+    /**
+     * The maximum number of operations this instance runs concurrently.
+     *
+     * @return The parallelism
+     */
+    public int parallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * How this instance handles a failed operation.
+     *
+     * @return The failure mode
+     */
+    public FailureMode failureMode()
+    {
+        return failureMode;
+    }
+
+    /**
+     * How to handle a failed operation.
+     */
+    public enum FailureMode
+    {
+        /**
+         * Do not start operations on any further checkouts once one has
+         * failed.
+         */
+        FAIL_FAST,
+        /**
+         * Run the operation against every checkout, and report all failures
+         * at the end.
+         */
+        COLLECT_ALL
+    }
+
+    /**
+     * An operation to run against a single checkout.
+     *
+     * @param <T> The result type
+     */
+    @FunctionalInterface
+    public interface CheckoutOperation<T>
+    {
+        /**
+         * Run the operation.
+         *
+         * @param checkout The checkout
+         * @param log A consumer for log messages, which will be emitted along
+         * with the rest of the messages for this checkout, in checkout order
+         * @return A result
+         * @throws Exception if something goes wrong
+         */
+        T run(GitCheckout checkout, Consumer<String> log) throws Exception;
+    }
+
+    /**
+     * Run an operation against the passed checkouts and throw the first
+     * failure (with any others attached as suppressed exceptions) if any
+     * failed.
+     *
+     * @param <T> The result type
+     * @param name The name of the operation, for logging
+     * @param checkouts The checkouts
+     * @param operation The operation
+     * @return A map of results, in the iteration order of the passed checkouts
+     */
+    public <T> Map<GitCheckout, T> runOrThrow(String name,
+            Collection<? extends GitCheckout> checkouts,
+            CheckoutOperation<T> operation)
+    {
+        return run(name, checkouts, operation).rethrowIfFailed();
+    }
+
+    /**
+     * Run an operation against the passed checkouts.
+     *
+     * @param <T> The result type
+     * @param name The name of the operation, for logging
+     * @param checkouts The checkouts
+     * @param operation The operation
+     * @return The results
+     */
+    public <T> Results<T> run(String name,
+            Collection<? extends GitCheckout> checkouts,
+            CheckoutOperation<T> operation)
+    {
+        notNull("operation", operation);
+        List<GitCheckout> all = new ArrayList<>(notNull("checkouts", checkouts));
+        Results<T> results = new Results<>(name);
+        if (all.isEmpty())
+        {
+            return results;
+        }
+        if (parallelism == 1 || all.size() == 1)
+        {
+            for (GitCheckout checkout : all)
+            {
+                Outcome<T> outcome = runOne(checkout, operation);
+                outcome.emit(log);
+                results.add(outcome);
+                if (outcome.failure != null && failureMode == FailureMode.FAIL_FAST)
+                {
+                    break;
+                }
+            }
+            return results;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(parallelism, all.size()), THREADS);
+        try
+        {
+            for (List<GitCheckout> wave : innermostFirst(all))
+            {
+                List<Future<Outcome<T>>> futures = new ArrayList<>(wave.size());
+                for (GitCheckout checkout : wave)
+                {
+                    futures.add(pool.submit(() -> runOne(checkout, operation)));
+                }
+                boolean failed = false;
+                for (int i = 0; i < futures.size(); i++)
+                {
+                    Outcome<T> outcome = await(wave.get(i), futures.get(i));
+                    if (outcome == null)
+                    {
+                        // cancelled after an earlier failure
+                        continue;
+                    }
+                    outcome.emit(log);
+                    results.add(outcome);
+                    if (outcome.failure != null && failureMode == FailureMode.FAIL_FAST
+                            && !failed)
+                    {
+                        failed = true;
+                        for (Future<?> f : futures)
+                        {
+                            f.cancel(false);
+                        }
+                    }
+                }
+                if (failed)
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private static <T> Outcome<T> await(GitCheckout checkout,
+            Future<Outcome<T>> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (CancellationException ex)
+        {
+            return null;
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return new Outcome<>(checkout, null, ex, Collections.emptyList());
+        }
+        catch (ExecutionException ex)
+        {
+            return new Outcome<>(checkout, null, ex.getCause(), Collections
+                    .emptyList());
+        }
+    }
+
+    private static <T> Outcome<T> runOne(GitCheckout checkout,
+            CheckoutOperation<T> operation)
+    {
+        List<String> messages = new ArrayList<>(4);
+        try
+        {
+            T result = operation.run(checkout, messages::add);
+            return new Outcome<>(checkout, result, null, messages);
+        }
+        catch (Exception | Error e)
+        {
+            return new Outcome<>(checkout, null, e, messages);
+        }
+    }
+
+    /**
+     * Partition checkouts into waves, such that any checkout which contains
+     * another one in the set on disk only runs in a wave after the one it
+     * contains, preserving the original order within each wave.
+     *
+     * @param all The checkouts
+     * @return A list of waves
+     */
+    static List<List<GitCheckout>> innermostFirst(List<GitCheckout> all)
+    {
+        List<List<GitCheckout>> result = new ArrayList<>();
+        List<GitCheckout> remaining = new ArrayList<>(all);
+        while (!remaining.isEmpty())
+        {
+            List<GitCheckout> wave = new ArrayList<>(remaining.size());
+            for (GitCheckout candidate : remaining)
+            {
+                if (!containsAnyOf(candidate, remaining))
+                {
+                    wave.add(candidate);
+                }
+            }
+            remaining.removeAll(wave);
+            result.add(wave);
+        }
+        return result;
+    }
+
+    private static boolean containsAnyOf(GitCheckout candidate,
+            List<GitCheckout> others)
+    {
+        for (GitCheckout other : others)
+        {
+            if (other != candidate && !other.equals(candidate)
+                    && other.checkoutRoot().startsWith(candidate.checkoutRoot()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Outcome<T>
+    {
+        final GitCheckout checkout;
+        final T result;
+        final Throwable failure;
+        final List<String> messages;
+
+        Outcome(GitCheckout checkout, T result, Throwable failure,
+                List<String> messages)
+        {
+            this.checkout = checkout;
+            this.result = result;
+            this.failure = failure;
+            this.messages = messages;
+        }
+
+        void emit(BuildLog log)
+        {
+            BuildLog child = log.child(checkout.loggingName());
+            messages.forEach(child::info);
+            if (failure != null)
+            {
+                child.error("Failed: " + failure, failure);
+            }
+        }
+    }
+
+    /**
+     * The aggregated outcome of running an operation against a set of
+     * checkouts.
+     *
+     * @param <T> The result type
+     */
+    public static final class Results<T>
+    {
+        private final Map<GitCheckout, T> results = new LinkedHashMap<>();
+        private final Map<GitCheckout, Throwable> failures = new LinkedHashMap<>();
+        private final String name;
+
+        Results(String name)
+        {
+            this.name = name;
+        }
+
+        void add(Outcome<T> outcome)
+        {
+            if (outcome.failure != null)
+            {
+                failures.put(outcome.checkout, outcome.failure);
+            }
+            else
+            {
+                results.put(outcome.checkout, outcome.result);
+            }
+        }
+
+        /**
+         * Get the results of operations that succeeded, in checkout order.
+         *
+         * @return A map
+         */
+        public Map<GitCheckout, T> results()
+        {
+            return Collections.unmodifiableMap(results);
+        }
+
+        /**
+         * Get the failures of any operations that failed, in checkout order.
+         *
+         * @return A map
+         */
+        public Map<GitCheckout, Throwable> failures()
+        {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        public boolean isFailed()
+        {
+            return !failures.isEmpty();
+        }
+
+        /**
+         * Rethrow the first failure, if any, with subsequent ones attached as
+         * suppressed exceptions.
+         *
+         * @return The successful results, if there were no failures
+         */
+        public Map<GitCheckout, T> rethrowIfFailed()
+        {
+            if (failures.isEmpty())
+            {
+                return results();
+            }
+            Throwable first = null;
+            for (Map.Entry<GitCheckout, Throwable> e : failures.entrySet())
+            {
+                if (first == null)
+                {
+                    first = e.getValue();
+                }
+                else
+                    if (first != e.getValue())
+                    {
+                        first.addSuppressed(e.getValue());
+                    }
+            }
+            return Exceptions.chuck(first);
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + ": " + results.size() + " succeeded, "
+                    + failures.size() + " failed";
+        }
+    }
+}
@@ -19,24 +19,36 @@ package com.telenav.cactus.maven.tree;
 
 import com.telenav.cactus.git.Branches.Branch;
 import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.log.BuildLog;
 import com.telenav.cactus.maven.model.Pom;
 import com.telenav.cactus.maven.model.PomVersion;
 import com.telenav.cactus.maven.model.VersionFlavor;
 import com.telenav.cactus.maven.model.resolver.Poms;
 import com.telenav.cactus.maven.refactoring.PomCategorizer;
 import com.telenav.cactus.maven.refactoring.PomRole;
+import com.telenav.cactus.maven.tree.CheckoutOperations.FailureMode;
 import com.telenav.cactus.maven.tree.Problem.Severity;
 import com.telenav.cactus.scope.ProjectFamily;
+import com.telenav.cactus.util.DaemonThreadFactory;
+import com.mastfrog.util.preconditions.Exceptions;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -51,6 +63,8 @@ import static java.util.stream.Collectors.toCollection;
  */
 public final class ConsistencyChecker2
 {
+    private static final ThreadFactory CHECK_THREADS = new DaemonThreadFactory(
+            "cactus-check");
     private boolean checkRemoteModifications;
     private boolean checkFamilies;
     private boolean checkRoles;
@@ -65,6 +79,7 @@ public final class ConsistencyChecker2
     private Consumer<String> activityLogger = System.out::println;
     private final Set<ProjectFamily> tolerateVersionInconsistenciesIn = new HashSet<>();
     private String targetBranch;
+    private CheckoutOperations checkoutOperations;
 
     public ConsistencyChecker2 allChecks()
     {
@@ -100,6 +115,24 @@ public final class ConsistencyChecker2
         return this;
     }
 
+    /**
+     * Use the passed executor's parallelism and failure policy to run the
+     * checks concurrently, and to run checks which contact the remote for each
+     * checkout, so they behave like other network-bound git operations. If
+     * unset, everything runs serially. Problems and log output are reported in
+     * the same order regardless.
+     *
+     * @param checkoutOperations An executor
+     * @return this
+     */
+    public ConsistencyChecker2 checkoutOperations(
+            CheckoutOperations checkoutOperations)
+    {
+        this.checkoutOperations = notNull("checkoutOperations",
+                checkoutOperations);
+        return this;
+    }
+
     public ConsistencyChecker2 quiet()
     {
         activityLogger = s ->
@@ -196,7 +229,12 @@ public final class ConsistencyChecker2
                 checkLocalModifications, checkRemoteModifications,
                 familiesToCheck,
                 checkoutsFilter, tree, activityLogger, targetBranch,
-                tolerateVersionInconsistenciesIn, versionFlavor).check();
+                tolerateVersionInconsistenciesIn, versionFlavor,
+                checkoutOperations == null
+                ? new CheckoutOperations(1, FailureMode.FAIL_FAST,
+                        BuildLog.get())
+                : checkoutOperations)
+                .check();
     }
 
     private Predicate<? super Pom> familyFilter()
@@ -232,6 +270,49 @@ public final class ConsistencyChecker2
         return this;
     }
 
+    /**
+     * One check, run against the pre-computed state of a Checker.
+     */
+    @FunctionalInterface
+    private interface Check
+    {
+        void run(Problems into, Consumer<String> log);
+    }
+
+    /**
+     * Runs a check, capturing its problems and log output so they can be
+     * reported in the order the checks were defined.
+     */
+    private static final class CheckTask implements Runnable
+    {
+        private final Check check;
+        final Problems problems = new Problems();
+        final List<String> messages = new ArrayList<>(2);
+        Throwable failure;
+
+        CheckTask(String title, Check check)
+        {
+            this.check = check;
+            if (title != null)
+            {
+                messages.add(title);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                check.run(problems, messages::add);
+            }
+            catch (Exception | Error e)
+            {
+                failure = e;
+            }
+        }
+    }
+
     private static final class Checker
     {
         private final boolean checkFamilies;
@@ -254,6 +335,7 @@ public final class ConsistencyChecker2
         private final String targetBranch;
         private final Set<ProjectFamily> includeFamilies;
         private final VersionFlavor versionFlavor;
+        private final CheckoutOperations checkoutOperations;
 
         public Checker(boolean checkFamilies, boolean checkRoles,
                 boolean checkVersions, boolean checkDetached,
@@ -266,7 +348,8 @@ public final class ConsistencyChecker2
                 Consumer<String> log,
                 String targetBranch,
                 Set<ProjectFamily> tolerateVersionInconsistenciesIn,
-                VersionFlavor versionFlavor)
+                VersionFlavor versionFlavor,
+                CheckoutOperations checkoutOperations)
         {
             this.checkFamilies = checkFamilies;
             this.checkRoles = checkRoles;
@@ -286,6 +369,7 @@ public final class ConsistencyChecker2
                     tolerateVersionInconsistenciesIn);
             this.familiesToCheck = filter();
             this.versionFlavor = versionFlavor;
+            this.checkoutOperations = checkoutOperations;
         }
 
         private Predicate<ProjectFamily> filter()
@@ -338,59 +422,156 @@ public final class ConsistencyChecker2
 
         public Problems check()
         {
-            Problems result = new Problems();
+            // Compute everything the checks share up front, on this thread,
+            // so that the checks themselves only read it and can run in
+            // any order
+            poms();
+            if (checkRoles || checkVersions)
+            {
+                categorizer();
+            }
+            if (checkVersions)
+            {
+                versionsForFamilies();
+            }
+            if (checkFamilies || checkBranches)
+            {
+                checkoutsContainingSuperpoms();
+            }
+            List<CheckTask> tasks = new ArrayList<>();
             if (checkRoles)
             {
-                log("Checking roles");
-                checkRoles(result);
+                tasks.add(new CheckTask("Checking roles",
+                        (into, log) -> checkRoles(into)));
             }
             if (checkVersions)
             {
-                log("Checking versions");
-                checkVersions(result);
+                tasks.add(new CheckTask("Checking versions",
+                        this::checkVersions));
             }
             if (checkRelativePaths)
             {
-                log("Checking relative paths");
-                ParentRelativePathChecker checker = new ParentRelativePathChecker();
-                for (Pom pom : poms().poms())
-                {
-                    checker.check(pom).ifPresent(result::add);
-                }
+                tasks.add(new CheckTask("Checking relative paths",
+                        (into, log) -> checkRelativePaths(into)));
             }
             if (checkFamilies)
             {
-                log("Checking families within checkouts");
-                checkFamilies(result);
+                tasks.add(new CheckTask("Checking families within checkouts",
+                        (into, log) -> checkFamilies(into)));
             }
             if (checkLocalModifications)
             {
-                log("Checking local modifications");
-                checkLocalModifications(result);
+                tasks.add(new CheckTask("Checking local modifications",
+                        (into, log) -> checkLocalModifications(into)));
             }
             if (checkDetached)
             {
-                log("Checking detached head");
-                checkDetachedHead(result);
+                tasks.add(new CheckTask("Checking detached head",
+                        (into, log) -> checkDetachedHead(into)));
             }
             if (checkBranches)
             {
-                log("Checking branch consistency");
-                checkBranches(result);
+                tasks.add(new CheckTask("Checking branch consistency",
+                        this::checkBranches));
             }
             if (checkRemoteModifications)
             {
-                log("Checking for un-pulled remote changes");
-                checkRemoteModifications(result);
+                // This is the expensive one, since it contacts the remote
+                // for every checkout, so run it across checkouts concurrently
+                tasks.add(new CheckTask("Checking for un-pulled remote changes",
+                        (into, log) -> checkRemoteModifications(into)));
             }
             if (versionFlavor != null)
             {
-                log("Checking that version flavor is " + versionFlavor);
-                checkVersionFlavor(result);
+                tasks.add(new CheckTask("Checking that version flavor is "
+                        + versionFlavor, (into, log) -> checkVersionFlavor(into)));
+            }
+            runAll(tasks);
+
+            Problems result = new Problems();
+            Throwable failure = null;
+            for (CheckTask task : tasks)
+            {
+                task.messages.forEach(this::log);
+                result.addAll(task.problems);
+                if (task.failure != null)
+                {
+                    if (failure == null)
+                    {
+                        failure = task.failure;
+                    }
+                    else
+                    {
+                        failure.addSuppressed(task.failure);
+                    }
+                }
+            }
+            if (failure != null)
+            {
+                return Exceptions.chuck(failure);
             }
             return result;
         }
 
+        private void runAll(List<CheckTask> tasks)
+        {
+            // The checks only read state computed above (or go through the
+            // tree's synchronized cache), and each collects its own problems
+            // and messages, so they can run concurrently; results are merged
+            // in definition order afterwards
+            int threads = Math.min(tasks.size(),
+                    checkoutOperations.parallelism());
+            boolean failFast
+                    = checkoutOperations.failureMode() == FailureMode.FAIL_FAST;
+            AtomicBoolean failed = new AtomicBoolean();
+            if (threads <= 1)
+            {
+                for (CheckTask task : tasks)
+                {
+                    task.run();
+                    if (task.failure != null && failFast)
+                    {
+                        break;
+                    }
+                }
+                return;
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads,
+                    CHECK_THREADS);
+            try
+            {
+                List<Future<?>> futures = new ArrayList<>(tasks.size());
+                for (CheckTask task : tasks)
+                {
+                    futures.add(pool.submit(() ->
+                    {
+                        // Do not start further checks once one has failed
+                        if (failFast && failed.get())
+                        {
+                            return;
+                        }
+                        task.run();
+                        if (task.failure != null)
+                        {
+                            failed.set(true);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures)
+                {
+                    future.get();
+                }
+            }
+            catch (InterruptedException | ExecutionException ex)
+            {
+                Exceptions.chuck(ex);
+            }
+            finally
+            {
+                pool.shutdownNow();
+            }
+        }
+
         private Set<GitCheckout> checkoutsContainingSuperpoms()
         {
             if (checkoutsContainingSuperpoms != null)
@@ -418,10 +599,10 @@ public final class ConsistencyChecker2
             return checkoutsContainingSuperpoms;
         }
 
-        private void checkRemoteModifications(Problems into)
+        private Set<GitCheckout> checkoutsWithPoms()
         {
             Set<GitCheckout> checkouts = new TreeSet<>();
-            for (Pom pom : poms.poms())
+            for (Pom pom : poms().poms())
             {
                 GitCheckout co = tree.checkoutFor(pom);
                 if (co != null)
@@ -429,25 +610,59 @@ public final class ConsistencyChecker2
                     checkouts.add(co);
                 }
             }
+            return checkouts;
+        }
+
+        private void checkRemoteModifications(Problems into)
+        {
+            // Collect problems per checkout and merge them in checkout order,
+            // so the report does not depend on which fetch finishes first
+            Set<GitCheckout> checkouts = checkoutsWithPoms();
+            Map<GitCheckout, Problems> found = checkoutOperations.runOrThrow(
+                    "check-remote", checkouts, (co, log) ->
+            {
+                Problems result = new Problems();
+                checkRemoteModifications(co, result);
+                return result;
+            });
             for (GitCheckout co : checkouts)
             {
-                co.updateRemoteHeads();
-                if (co.needsPull())
+                Problems problems = found.get(co);
+                if (problems != null)
                 {
-                    into.add("Remote changes exist for " + co.loggingName()
-                            + " which have not been pulled into "
-                            + co.checkoutRoot());
+                    into.addAll(problems);
                 }
             }
         }
 
-        private void checkBranches(Problems into)
+        private void checkRemoteModifications(GitCheckout co, Problems into)
+        {
+            co.updateRemoteHeads();
+            if (co.needsPull())
+            {
+                into.add("Remote changes exist for " + co.loggingName()
+                        + " which have not been pulled into "
+                        + co.checkoutRoot());
+            }
+        }
+
+        private void checkRelativePaths(Problems into)
+        {
+            ParentRelativePathChecker checker = new ParentRelativePathChecker();
+            for (Pom pom : poms().poms())
+            {
+                checker.check(pom).ifPresent(into::add);
+            }
+        }
+
+        private void checkBranches(Problems into, Consumer<String> log)
         {
             Set<GitCheckout> seen = new HashSet<>();
 
             Set<GitCheckout> containingSuperpoms = checkoutsContainingSuperpoms();
 
-            Map<ProjectFamily, Set<Branch>> branchForCheckout = new HashMap<>();
+            // Sorted, so problems are reported in a stable order
+            Map<ProjectFamily, Set<Branch>> branchForCheckout = new TreeMap<>();
 
             Map<Branch, Set<GitCheckout>> checkoutsForBranchName = new HashMap<>();
 
@@ -460,7 +675,7 @@ public final class ConsistencyChecker2
                     {
                         ProjectFamily fam = familyOf(pom);
                         Set<Branch> all = branchForCheckout.computeIfAbsent(fam,
-                                f -> new HashSet<>());
+                                f -> new TreeSet<>());
                         all.add(branch);
                         Set<GitCheckout> set = checkoutsForBranchName
                                 .computeIfAbsent(branch, b -> new TreeSet<>());
@@ -471,7 +686,7 @@ public final class ConsistencyChecker2
 
             branchForCheckout.forEach((family, branches) ->
             {
-                log("Branches for family " + family + ": " + branches);
+                log.accept("Branches for family " + family + ": " + branches);
                 if (branches.size() > 1)
                 {
                     StringBuilder sb = new StringBuilder(
@@ -525,7 +740,7 @@ public final class ConsistencyChecker2
 
         private void checkFamilies(Problems into)
         {
-            Map<GitCheckout, Set<ProjectFamily>> familiesIn = new HashMap<>();
+            Map<GitCheckout, Set<ProjectFamily>> familiesIn = new TreeMap<>();
             Set<GitCheckout> containingSuperpoms = checkoutsContainingSuperpoms();
             boolean haveProblems = false;
             for (Pom pom : poms.poms())
@@ -536,7 +751,7 @@ public final class ConsistencyChecker2
                     continue;
                 }
                 Set<ProjectFamily> fams = familiesIn.computeIfAbsent(co,
-                        c -> new HashSet<>());
+                        c -> new TreeSet<>());
                 fams.add(familyOf(pom));
                 haveProblems |= fams.size() > 1;
             }
@@ -593,14 +808,14 @@ public final class ConsistencyChecker2
             }
         }
 
-        private void checkVersions(Problems into)
+        private void checkVersions(Problems into, Consumer<String> log)
         {
             Map<ProjectFamily, PomVersion> versForFamily = versionsForFamilies();
             versForFamily.forEach((f, v) ->
             {
-                log("Version for family " + f + ": " + v);
+                log.accept("Version for family " + f + ": " + v);
             });
-            Map<ProjectFamily, Map<PomVersion, Set<Pom>>> inconsistencies = new HashMap<>();
+            Map<ProjectFamily, Map<PomVersion, Set<Pom>>> inconsistencies = new TreeMap<>();
             for (Pom pom : poms().poms())
             {
                 if (pom.projectFolder().equals(tree.root().checkoutRoot()))
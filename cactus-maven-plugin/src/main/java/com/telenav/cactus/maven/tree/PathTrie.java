@@ -0,0 +1,106 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A trie of absolute folder paths, one node per path element, which finds
+ * the value associated with the nearest enclosing folder of a path in time
+ * proportional to its depth, without touching the file system. Built once and
+ * not modified thereafter, so it is safe to share between threads once
+ * published.
+ *
+ * @author Tim Boudreau
+ */
+final class PathTrie<T>
+{
+    private final Node<T> root = new Node<>();
+
+    /**
+     * Associate a value with a folder.
+     *
+     * @param folder An absolute, normalized folder path
+     * @param value A value
+     */
+    void put(Path folder, T value)
+    {
+        Node<T> node = root.child(String.valueOf(folder.getRoot()), true);
+        for (Path name : folder)
+        {
+            node = node.child(name.toString(), true);
+        }
+        node.value = value;
+    }
+
+    /**
+     * Find the value for the deepest folder that is, or is an ancestor of,
+     * the passed path.
+     *
+     * @param path An absolute, normalized path
+     * @return A value, if some folder containing the path was added
+     */
+    Optional<T> nearest(Path path)
+    {
+        Node<T> node = root.child(String.valueOf(path.getRoot()), false);
+        if (node == null)
+        {
+            return Optional.empty();
+        }
+        T result = node.value;
+        for (Path name : path)
+        {
+            node = node.child(name.toString(), false);
+            if (node == null)
+            {
+                break;
+            }
+            if (node.value != null)
+            {
+                result = node.value;
+            }
+        }
+        return Optional.ofNullable(result);
+    }
+
+    private static final class Node<T>
+    {
+        private Map<String, Node<T>> children;
+        T value;
+
+        Node<T> child(String name, boolean create)
+        {
+            Node<T> result = children == null
+                             ? null
+                             : children.get(name);
+            if (result == null && create)
+            {
+                if (children == null)
+                {
+                    children = new HashMap<>(4);
+                }
+                result = new Node<>();
+                children.put(name, result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.telenav.cactus.util.EnumMatcher.enumMatcher;
+
+/**
+ * How a ProjectTree finds the poms in a tree.
+ *
+ * @author Tim Boudreau
+ */
+public enum PomDiscoveryMode
+{
+    /**
+     * Walk the folders of the tree, pruning build output and non-maven
+     * checkouts.
+     */
+    WALK,
+    /**
+     * Follow the <code>&lt;modules&gt;</code> of the root pom and of each
+     * checkout listed in <code>.gitmodules</code>, without walking the file
+     * tree; poms not reachable as a module are not found.
+     */
+    MODULES;
+
+    public static PomDiscoveryMode find(String prop)
+    {
+        if (prop == null)
+        {
+            return WALK;
+        }
+        Optional<PomDiscoveryMode> result = enumMatcher(PomDiscoveryMode.class)
+                .match(prop);
+        if (result.isEmpty())
+        {
+            throw new IllegalStateException("Unknown pom discovery mode "
+                    + prop + " is not one of " + Arrays.toString(values()));
+        }
+        return result.get();
+    }
+}
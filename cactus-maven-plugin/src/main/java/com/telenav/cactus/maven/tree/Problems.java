@@ -24,14 +24,15 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import static java.util.stream.Collectors.toCollection;
 
 /**
- * The set of problems found by a consistency check.
+ * The set of problems found by a consistency check, which iterates in the
+ * order problems were added. Not thread-safe - concurrent checks each collect
+ * into their own instance, which are merged afterwards.
  *
  * @author Tim Boudreau
  */
@@ -41,7 +42,7 @@ public final class Problems implements Iterable<Problem>
 
     public Problems()
     {
-        problems = ConcurrentHashMap.newKeySet();
+        problems = new LinkedHashSet<>();
     }
 
     private Problems(Set<Problem> problems)
@@ -54,12 +55,12 @@ public final class Problems implements Iterable<Problem>
         return new Problems(problems
                 .stream()
                 .filter(test)
-                .collect(toCollection(ConcurrentHashMap::newKeySet)));
+                .collect(toCollection(LinkedHashSet::new)));
     }
 
     public Problems filter(Function<Problem, Severity> transform)
     {
-        Set<Problem> result = ConcurrentHashMap.newKeySet();
+        Set<Problem> result = new LinkedHashSet<>();
         for (Problem p : problems)
         {
             Severity s = transform.apply(p);
@@ -93,6 +94,12 @@ public final class Problems implements Iterable<Problem>
         return this;
     }
 
+    Problems addAll(Problems other)
+    {
+        problems.addAll(other.problems);
+        return this;
+    }
+
     Problems add(String msg, Severity sev)
     {
         return add(new SimpleProblem(msg, sev));
@@ -22,16 +22,15 @@ import com.telenav.cactus.scope.ProjectFamily;
 import com.telenav.cactus.git.Branches;
 import com.telenav.cactus.git.GitCheckout;
 import com.telenav.cactus.git.Heads;
+import com.telenav.cactus.maven.log.BuildLog;
 import com.telenav.cactus.maven.model.Pom;
 import com.telenav.cactus.scope.Scope;
-import java.nio.file.Files;
+import java.io.IOException;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -40,12 +39,15 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.maven.project.MavenProject;
 
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
 /**
  *
  * @author Tim Boudreau
@@ -53,9 +55,12 @@ import org.apache.maven.project.MavenProject;
 public class ProjectTree
 {
 
+    private static final Map<Path, ProjectTree> RESIDENT = new ConcurrentHashMap<>();
     final GitCheckout root;
+    final ProjectTreeOptions options;
     private final AtomicBoolean upToDate = new AtomicBoolean();
     private final ProjectTreeCache cache = new ProjectTreeCache(this);
+    private ProjectTreeWatcher watcher;
 
     static
     {
@@ -72,8 +77,14 @@ public class ProjectTree
     }
 
     ProjectTree(GitCheckout root)
+    {
+        this(root, ProjectTreeOptions.DEFAULT);
+    }
+
+    ProjectTree(GitCheckout root, ProjectTreeOptions options)
     {
         this.root = root;
+        this.options = notNull("options", options);
     }
     
     public boolean isSubmoduleRoot(GitCheckout co) {
@@ -93,9 +104,79 @@ public class ProjectTree
 
     public static ThrowingOptional<ProjectTree> from(Path fileOrFolder)
     {
+        return from(fileOrFolder, ProjectTreeOptions.DEFAULT);
+    }
+
+    public static ThrowingOptional<ProjectTree> from(Path fileOrFolder,
+            ProjectTreeOptions options)
+    {
+        return ThrowingOptional.from(GitCheckout.checkout(fileOrFolder))
+                .flatMapThrowing(GitCheckout::submoduleRoot)
+                .map(root -> new ProjectTree(root, options));
+    }
+
+    /**
+     * Get a project tree which, if the options' <code>residentTree()</code>
+     * is true, is shared by every build run
+     * in this JVM - such as a maven daemon (mvnd) - and kept current by
+     * watching the file system, so the tree is only scanned cold once per
+     * process. Otherwise equivalent to <code>from()</code>.
+     *
+     * @param fileOrFolder A file or folder within a checkout
+     * @param options Settings for the tree
+     * @return A tree, if the file is in a git checkout
+     */
+    public static ThrowingOptional<ProjectTree> resident(Path fileOrFolder,
+            ProjectTreeOptions options)
+    {
+        if (!options.residentTree())
+        {
+            return from(fileOrFolder, options);
+        }
         return ThrowingOptional.from(GitCheckout.checkout(fileOrFolder))
                 .flatMapThrowing(GitCheckout::submoduleRoot)
-                .map(ProjectTree::new);
+                .map(root -> residentFor(root, options));
+    }
+
+    private static ProjectTree residentFor(GitCheckout root,
+            ProjectTreeOptions options)
+    {
+        Path key = root.checkoutRoot().toAbsolutePath();
+        ProjectTree result = RESIDENT.get(key);
+        if (result != null && !result.options.equals(options))
+        {
+            // Settings changed between builds - start over with the new ones
+            if (RESIDENT.remove(key, result))
+            {
+                result.watcher.close();
+            }
+            result = null;
+        }
+        if (result == null)
+        {
+            ProjectTree created = new ProjectTree(root, options);
+            try
+            {
+                created.watcher = ProjectTreeWatcher.start(created);
+            }
+            catch (IOException ex)
+            {
+                // Without a watcher, sharing the tree would serve stale data
+                BuildLog.get().warn("Could not watch " + key + ": " + ex);
+                return created;
+            }
+            result = RESIDENT.putIfAbsent(key, created);
+            if (result == null)
+            {
+                result = created;
+            }
+            else
+            {
+                created.watcher.close();
+            }
+        }
+        result.watcher.sync();
+        return result;
     }
 
     public void invalidateCache()
@@ -106,6 +187,22 @@ public class ProjectTree
         }
     }
 
+    /**
+     * Get the current pom and checkout indexes without taking the lock
+     * withCache() requires, unless the cache must first be populated.
+     *
+     * @return A snapshot
+     */
+    private ProjectTreeSnapshot snapshot()
+    {
+        ProjectTreeSnapshot result = upToDate.get()
+                                     ? cache.currentSnapshot()
+                                     : null;
+        return result == null
+               ? withCache(ProjectTreeCache::snapshot)
+               : result;
+    }
+
     private synchronized <T> T withCache(Function<ProjectTreeCache, T> func)
     {
         if (upToDate.compareAndSet(false, true))
@@ -117,10 +214,7 @@ public class ProjectTree
 
     public Optional<Pom> findProject(String groupId, String artifactId)
     {
-        return withCache(c ->
-        {
-            return c.project(groupId, artifactId);
-        });
+        return snapshot().project(groupId, artifactId);
     }
 
     public boolean areVersionsConsistent()
@@ -135,7 +229,7 @@ public class ProjectTree
                 // filter to the checkouts we want
                 .filter(pred)
                 // map to the branch, which may not be present
-                .map(co -> co.branch().orElse(""))
+                .map(co -> branchFor(co).orElse(""))
                 // prune those that are not on a branch
                 .filter(s -> !s.isEmpty())
                 .collect(Collectors.toCollection(HashSet::new));
@@ -146,7 +240,7 @@ public class ProjectTree
         Set<String> branches = new HashSet<>();
         this.allCheckouts().forEach(checkout ->
         {
-            checkout.branch().ifPresent(branches::add);
+            branchFor(checkout).ifPresent(branches::add);
         });
         return branches;
     }
@@ -176,7 +270,7 @@ public class ProjectTree
 
     public Set<Pom> allProjects()
     {
-        return withCache(ProjectTreeCache::allPoms);
+        return snapshot().allPoms;
     }
 
     public Set<Pom> projectsForGroupId(String groupId)
@@ -217,11 +311,12 @@ public class ProjectTree
                 {
                     Set<String> branches = result.computeIfAbsent(
                             pom.groupId().text(), g -> new TreeSet<>());
-                    checkout.branches().localBranches().forEach(br ->
+                    Branches all = c.branches(checkout);
+                    all.localBranches().forEach(br ->
                     {
                         branches.add(br.trackingName());
                     });
-                    checkout.branches().remoteBranches().forEach(br ->
+                    all.remoteBranches().forEach(br ->
                     {
                         branches.add(br.trackingName());
                     });
@@ -279,12 +374,9 @@ public class ProjectTree
 
     public Set<String> groupIdsIn(GitCheckout checkout)
     {
-        return withCache(c ->
-        {
-            return c.projectsWithin(checkout).stream().map(
-                    info -> info.groupId().toString())
-                    .collect(Collectors.toCollection(HashSet::new));
-        });
+        return snapshot().projectsWithin(checkout).stream().map(
+                info -> info.groupId().toString())
+                .collect(Collectors.toCollection(HashSet::new));
     }
 
     public Map<String, Set<Pom>> projectsByGroupId()
@@ -301,88 +393,76 @@ public class ProjectTree
 
     public Set<Path> allProjectFolders()
     {
-        return withCache(c ->
-        {
-            Set<Path> result = new HashSet<>();
-            c.allPoms().forEach(pom -> result.add(pom.projectFolder()));
-            return result;
-        });
+        Set<Path> result = new HashSet<>();
+        allProjects().forEach(pom -> result.add(pom.projectFolder()));
+        return result;
     }
 
     public Map<String, Set<Pom>> projectsByVersion(Predicate<Pom> filter)
     {
-        return withCache(c ->
+        Map<String, Set<Pom>> result = new TreeMap<>();
+        allProjects().forEach(pom ->
         {
-            Map<String, Set<Pom>> result = new TreeMap<>();
-            c.allPoms().forEach(pom ->
+            if (filter.test(pom))
             {
-                if (filter.test(pom))
-                {
-                    Set<Pom> infos = result.computeIfAbsent(pom.version()
-                            .text(),
-                            v -> new TreeSet<>());
-                    infos.add(pom);
-                }
-            });
-            return result;
+                Set<Pom> infos = result.computeIfAbsent(pom.version()
+                        .text(),
+                        v -> new TreeSet<>());
+                infos.add(pom);
+            }
         });
+        return result;
     }
 
     public Optional<Pom> projectOf(Path file)
     {
-        withCache(c ->
+        return snapshot().projectOf(file);
+    }
+
+    /**
+     * Find the checkout a file belongs to, from the checkouts known to this
+     * tree - including git clones nested in it which are neither submodules
+     * nor contain poms, which pom discovery notes as it passes them - without
+     * consulting the file system; files outside the tree are looked up on
+     * disk. With <code>modules</code> pom discovery, such clones are not seen.
+     *
+     * @param file A file or folder
+     * @return A checkout, if any
+     */
+    public Optional<GitCheckout> ownerOf(Path file)
+    {
+        Optional<GitCheckout> result = snapshot().checkoutOf(file);
+        return result.isPresent()
+               ? result
+               : GitCheckout.checkout(file);
+    }
+
+    /**
+     * Collect the owning checkouts of a collection of paths, as
+     * <code>GitCheckout.ownersOf()</code> does, but from the checkouts known
+     * to this tree.
+     *
+     * @param paths Some paths
+     * @return Some checkouts
+     */
+    public Set<GitCheckout> ownersOf(Collection<? extends Path> paths)
+    {
+        Set<GitCheckout> result = new HashSet<>();
+        for (Path p : paths)
         {
-            Path realFile;
-            if (Files.isDirectory(file) && Files.exists(file.resolve("pom.xml")))
-            {
-                realFile = file.resolve("pom.xml");
-            }
-            else
-            {
-                realFile = file;
-            }
-            if ("pom.xml".equals(realFile.getFileName()))
-            {
-                for (Pom pom : c.allPoms())
-                {
-                    if (pom.path().equals(realFile))
-                    {
-                        return Optional.of(pom);
-                    }
-                }
-            }
-            List<Path> paths = new ArrayList<>();
-            Map<Path, Pom> candidateItems = new HashMap<>();
-            c.projectFolders().forEach((dir, pomInfo) ->
-            {
-                if (realFile.startsWith(dir))
-                {
-                    candidateItems.put(dir, pomInfo);
-                    paths.add(dir);
-                }
-            });
-            if (paths.isEmpty())
-            {
-                return Optional.empty();
-            }
-            Collections.sort(paths, (a, b) ->
-            {
-                // reverse sort
-                return Integer.compare(b.getNameCount(), a.getNameCount());
-            });
-            return Optional.of(candidateItems.get(paths.get(0)));
-        });
-        return Optional.empty();
+            ownerOf(p).ifPresent(result::add);
+        }
+        return result;
     }
 
     public GitCheckout checkoutFor(Pom info)
     {
-        return withCache(c -> c.checkoutForPom.get(info));
+        return snapshot().checkoutForPom.get(info);
     }
 
     public Set<GitCheckout> allCheckouts()
     {
-        return withCache(ProjectTreeCache::allCheckouts);
+        return snapshot().allCheckouts();
     }
 
     public Optional<String> branchFor(GitCheckout checkout)
@@ -403,12 +483,10 @@ public class ProjectTree
 
     public Set<GitCheckout> checkoutsFor(Collection<? extends Pom> infos)
     {
-        return withCache(c ->
-        {
-            Set<GitCheckout> result = new TreeSet<>();
-            infos.forEach(pom -> c.checkoutFor(pom).ifPresent(result::add));
-            return result;
-        });
+        ProjectTreeSnapshot snapshot = snapshot();
+        Set<GitCheckout> result = new TreeSet<>();
+        infos.forEach(pom -> snapshot.checkoutFor(pom).ifPresent(result::add));
+        return result;
     }
 
     public Branches branches(GitCheckout checkout)
@@ -428,34 +506,33 @@ public class ProjectTree
 
     public Set<Pom> projectsWithin(GitCheckout checkout)
     {
-        return withCache(c -> c.projectsWithin(checkout));
+        return snapshot().projectsWithin(checkout);
     }
 
     public Set<GitCheckout> nonMavenCheckouts()
     {
-        return withCache(ProjectTreeCache::nonMavenCheckouts);
+        return snapshot().nonMavenCheckouts;
     }
 
     public Set<GitCheckout> checkoutsContainingGroupId(String groupId)
     {
-        return withCache(c -> c.checkoutsContainingGroupId(groupId));
+        return snapshot().checkoutsContainingGroupId(groupId);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamily(Set<ProjectFamily> family)
     {
-        return withCache(c -> c.checkoutsInProjectFamily(family));
+        return snapshot().checkoutsInProjectFamily(family);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamilyOrChildProjectFamily(
             String gid, Set<ProjectFamily> family)
     {
-        return withCache(c -> c.checkoutsInProjectFamilyOrChildProjectFamily(
-                gid));
+        return snapshot().checkoutsInProjectFamilyOrChildProjectFamily(gid);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamily(ProjectFamily family)
     {
-        return withCache(c -> c.checkoutsInProjectFamily(family));
+        return snapshot().checkoutsInProjectFamily(family);
     }
 
     public Heads remoteHeads(GitCheckout checkout)
@@ -464,11 +541,74 @@ public class ProjectTree
     }
     
     public Set<ProjectFamily> allProjectFamilies() {
-        return withCache(ProjectTreeCache::allProjectFamilies);
+        return snapshot().allProjectFamilies();
     }
     
-    public void invalidateBranches(GitCheckout co) {
-        withCache(cache -> cache.invalidateBranches(co));
+    /**
+     * Discard the cached dirty and status state of every checkout, which
+     * depends on files no watcher observes.
+     */
+    synchronized void invalidateStatus()
+    {
+        if (upToDate.get())
+        {
+            cache.invalidateStatus();
+        }
+    }
+
+    public synchronized void invalidateBranches(GitCheckout co) {
+        if (upToDate.get())
+        {
+            cache.invalidateBranches(co);
+        }
+    }
+
+    /**
+     * Discard cached git state and poms for a single checkout, re-reading
+     * only that checkout's poms, for use after an operation that touched one
+     * or a few repositories, rather than rescanning the entire tree as
+     * <code>invalidateCache()</code> does.
+     *
+     * @param co A checkout
+     */
+    public synchronized void invalidate(GitCheckout co)
+    {
+        if (upToDate.get())
+        {
+            cache.invalidateCheckout(co);
+        }
+    }
+
+    /**
+     * Re-read a single pom file which has been modified, created or deleted,
+     * and discard the cached dirty state of its checkout.
+     *
+     * @param pomFile A pom file
+     */
+    public void invalidatePom(Path pomFile)
+    {
+        invalidatePoms(Collections.singleton(pomFile));
+    }
+
+    /**
+     * Re-read a batch of pom files which have been modified, created or
+     * deleted, as <code>invalidatePom()</code> does for one, but saving the
+     * index and publishing a new snapshot only once.
+     *
+     * @param pomFiles Some pom files
+     */
+    public synchronized void invalidatePoms(
+            Collection<? extends Path> pomFiles)
+    {
+        if (upToDate.get() && !pomFiles.isEmpty())
+        {
+            cache.invalidatePoms(pomFiles);
+        }
+    }
+
+    public void invalidate(Pom pom)
+    {
+        invalidatePom(pom.path());
     }
 
     /**
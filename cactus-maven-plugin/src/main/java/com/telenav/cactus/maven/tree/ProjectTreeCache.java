@@ -19,15 +19,19 @@ package com.telenav.cactus.maven.tree;
 
 import com.mastfrog.util.preconditions.Exceptions;
 import com.telenav.cactus.git.Branches;
+import com.telenav.cactus.git.CheckoutStatusSnapshot;
 import com.telenav.cactus.git.GitCheckout;
 import com.telenav.cactus.git.Heads;
+import com.telenav.cactus.git.PomDiscovery;
 import com.telenav.cactus.git.SubmoduleStatus;
-import com.telenav.cactus.maven.model.GroupId;
+import com.telenav.cactus.maven.model.MavenModule;
 import com.telenav.cactus.maven.model.Pom;
 import com.telenav.cactus.scope.ProjectFamily;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,8 +40,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-
-import static com.telenav.cactus.scope.ProjectFamily.familyOf;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Internal cache for the ProjectTree, so we don't re-execute expensive git
@@ -57,11 +62,17 @@ final class ProjectTreeCache
     final Map<String, Optional<String>> branchByGroupId = new HashMap<>();
     final Map<GitCheckout, Boolean> detachedHeads = new ConcurrentHashMap<>();
     final Set<GitCheckout> nonMavenCheckouts = new HashSet<>();
+    // Git checkouts nested in the tree which are neither submodules nor
+    // contain poms - such as a cloned assets repository - which own their
+    // files but are not part of the tree
+    final Map<Path, GitCheckout> foreignCheckouts = new ConcurrentHashMap<>();
     final Map<GitCheckout, Heads> remoteHeads = new HashMap<>();
-    final Map<ProjectFamily, Set<GitCheckout>> checkoutsForProjectFamily = new ConcurrentHashMap<>();
-    final Set<ProjectFamily> families = new HashSet<>();
+    final Map<GitCheckout, CheckoutStatusSnapshot> statusSnapshots = new ConcurrentHashMap<>();
+    private boolean statusSnapshotsCollected;
     Boolean rootIsRoot;
     private final ProjectTree outer;
+    private Optional<ProjectTreeIndex> index;
+    private volatile ProjectTreeSnapshot snapshot;
 
     ProjectTreeCache(final ProjectTree outer)
     {
@@ -77,16 +88,36 @@ final class ProjectTreeCache
         return rootIsRoot;
     }
 
-    public Set<ProjectFamily> allProjectFamilies()
+    /**
+     * Get the current indexes of poms and checkouts, building them if the set
+     * of poms has changed since they were last built.
+     *
+     * @return A snapshot
+     */
+    ProjectTreeSnapshot snapshot()
     {
-        if (families.isEmpty())
+        ProjectTreeSnapshot result = snapshot;
+        if (result == null)
         {
-            allPoms().forEach(pom ->
-            {
-                families.add(ProjectFamily.familyOf(pom));
-            });
+            publishSnapshot();
+            result = snapshot;
         }
-        return families;
+        return result;
+    }
+
+    /**
+     * Get the snapshot if one has been built, without building one.
+     *
+     * @return A snapshot or null
+     */
+    ProjectTreeSnapshot currentSnapshot()
+    {
+        return snapshot;
+    }
+
+    public Set<ProjectFamily> allProjectFamilies()
+    {
+        return snapshot().allProjectFamilies();
     }
 
     public Heads remoteHeads(GitCheckout checkout)
@@ -97,130 +128,46 @@ final class ProjectTreeCache
 
     public Set<GitCheckout> checkoutsContainingGroupId(String groupId)
     {
-        Set<GitCheckout> all = new HashSet<>();
-        projectsByRepository.forEach((repo, projectSet) ->
-        {
-            for (Pom project : projectSet)
-            {
-                if (groupId.equals(project.coordinates().groupId))
-                {
-                    all.add(repo);
-                    break;
-                }
-            }
-        });
-        return all;
+        return snapshot().checkoutsContainingGroupId(groupId);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamily(Set<ProjectFamily> family)
     {
-        switch (family.size())
-        {
-            case 0:
-                return new HashSet<>(allCheckouts());
-            case 1:
-                return checkoutsInProjectFamily(family.iterator().next());
-            default:
-                Set<GitCheckout> result = new HashSet<>();
-                for (ProjectFamily f : family)
-                {
-                    result.addAll(checkoutsInProjectFamily(f));
-                }
-                return result;
-        }
+        return snapshot().checkoutsInProjectFamily(family);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamily(ProjectFamily family)
     {
-        return checkoutsForProjectFamily.computeIfAbsent(family,
-                key ->
-        {
-            Set<GitCheckout> all = new HashSet<>();
-            projectsByRepository.forEach((repo, projectSet) ->
-            {
-                for (Pom project : projectSet)
-                {
-                    if (family.equals(ProjectFamily.fromGroupId(project
-                            .groupId()
-                            .text())))
-                    {
-                        all.add(repo);
-                        break;
-                    }
-                }
-            });
-            return all;
-        });
-    }
-
-    private static boolean containsParentFamilyOf(GroupId groupId,
-            Set<ProjectFamily> s)
-    {
-        for (ProjectFamily p : s)
-        {
-            if (p.isParentFamilyOf(groupId))
-            {
-                return true;
-            }
-        }
-        return false;
+        return snapshot().checkoutsInProjectFamily(family);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamilyOrChildProjectFamily(
             String groupId)
     {
-        ProjectFamily parent = ProjectFamily.fromGroupId(groupId);
-        Set<GitCheckout> all = new HashSet<>();
-        projectsByRepository.forEach((repo, projectSet) ->
-        {
-            for (Pom p : projectSet)
-            {
-                if (familyOf(p).equals(parent)
-                        || parent.isParentFamilyOf(p.groupId()))
-                {
-                    all.add(repo);
-                    break;
-                }
-            }
-        });
-        return all;
+        return snapshot().checkoutsInProjectFamilyOrChildProjectFamily(groupId);
     }
 
     public Set<GitCheckout> checkoutsInProjectFamilyOrChildProjectFamily(
             Set<ProjectFamily> family)
     {
-        Set<GitCheckout> all = new HashSet<>();
-        projectsByRepository.forEach((repo, projectSet) ->
-        {
-            if (family.isEmpty())
-            {
-                all.add(repo);
-                return;
-            }
-            for (Pom project : projectSet)
-            {
-                ProjectFamily pomFamily = ProjectFamily.familyOf(project
-                        .groupId());
-                if (family.contains(pomFamily) || containsParentFamilyOf(project
-                        .groupId(), family))
-                {
-                    all.add(repo);
-                    break;
-                }
-            }
-        });
-        return all;
+        return snapshot().checkoutsInProjectFamilyOrChildProjectFamily(family);
     }
 
     public Set<GitCheckout> nonMavenCheckouts()
     {
-        return Collections.unmodifiableSet(nonMavenCheckouts);
+        return snapshot().nonMavenCheckouts;
     }
 
     public boolean isDetachedHead(GitCheckout checkout)
     {
         return detachedHeads.computeIfAbsent(checkout,
-                GitCheckout::isDetachedHead);
+                co ->
+        {
+            ProjectTreeIndex.CheckoutEntry indexed = indexedCheckout(co);
+            return indexed == null
+                   ? statusSnapshot(co).isDetachedHead()
+                   : indexed.isDetachedHead();
+        });
     }
 
     public Optional<String> mostCommonBranchForGroupId(String groupId)
@@ -280,69 +227,111 @@ final class ProjectTreeCache
 
     public Set<Pom> projectsWithin(GitCheckout checkout)
     {
-        Set<Pom> infos = projectsByRepository.get(checkout);
-        return infos == null
-               ? Collections.emptySet()
-               : infos;
+        return snapshot().projectsWithin(checkout);
     }
 
     public Branches branches(GitCheckout checkout)
     {
         return allBranches.computeIfAbsent(checkout,
-                GitCheckout::branches);
+                co -> statusSnapshot(co).branches());
     }
 
     public Optional<GitCheckout> checkoutFor(Pom info)
     {
-        return Optional.ofNullable(checkoutForPom.get(info));
+        return snapshot().checkoutFor(info);
     }
 
     public boolean isDirty(GitCheckout checkout)
     {
         return dirty.computeIfAbsent(checkout,
-                GitCheckout::isDirty);
+                co -> statusSnapshot(co).isDirty());
     }
 
     public boolean isDirtyIgnoringSubmoduleCommits(GitCheckout checkout)
     {
         return dirtyIgnoring.computeIfAbsent(checkout,
-                GitCheckout::isDirtyIgnoringModifiedSubmodules);
+                co -> statusSnapshot(co).isDirty());
     }
 
     public Set<GitCheckout> allCheckouts()
     {
-        return Collections.unmodifiableSet(projectsByRepository.keySet());
+        return snapshot().allCheckouts();
     }
 
     public Optional<String> branchFor(GitCheckout checkout)
     {
         return branches.computeIfAbsent(checkout,
-                GitCheckout::branch);
+                co ->
+        {
+            ProjectTreeIndex.CheckoutEntry indexed = indexedCheckout(co);
+            return indexed == null
+                   ? statusSnapshot(co).branch()
+                   : indexed.branch();
+        });
     }
 
-    public Map<Path, Pom> projectFolders()
+    private ProjectTreeIndex.CheckoutEntry indexedCheckout(GitCheckout checkout)
     {
-        Map<Path, Pom> infos = new HashMap<>();
-        allPoms()
-                .forEach(pom -> infos.put(pom.path().getParent(), pom));
-        return infos;
+        return index().map(idx -> idx.checkout(checkout)).orElse(null);
     }
 
-    public Set<Pom> allPoms()
+    private Optional<ProjectTreeIndex> index()
     {
-        Set<Pom> set = new HashSet<>();
-        projectsByRepository.forEach((repo, infos) -> set.addAll(infos));
-        return set;
+        if (index == null)
+        {
+            index = outer.options.treeIndex()
+                    ? Optional.of(ProjectTreeIndex.forRoot(outer.root))
+                    : Optional.empty();
+        }
+        return index;
     }
 
-    Optional<Pom> project(String groupId, String artifactId)
+    /**
+     * Get the status snapshot for a checkout. The first time this is called,
+     * snapshots are collected for every checkout in the tree at once, since
+     * callers that ask about one checkout nearly always go on to ask about all
+     * of them, and a process per question per checkout is the dominant cost of
+     * the mojos that check tree state.
+     *
+     * @param checkout A checkout
+     * @return A snapshot
+     */
+    CheckoutStatusSnapshot statusSnapshot(GitCheckout checkout)
     {
-        Map<String, Pom> map = infoForGroupAndArtifact.get(groupId);
-        if (map == null)
+        CheckoutStatusSnapshot result = statusSnapshots.get(checkout);
+        if (result == null)
         {
-            return Optional.empty();
+            if (!statusSnapshotsCollected)
+            {
+                statusSnapshotsCollected = true;
+                Set<GitCheckout> all = new HashSet<>(projectsByRepository
+                        .keySet());
+                all.addAll(nonMavenCheckouts);
+                all.add(checkout);
+                all.removeAll(statusSnapshots.keySet());
+                Map<GitCheckout, CheckoutStatusSnapshot> collected
+                        = GitCheckout.statusSnapshots(all);
+                statusSnapshots.putAll(collected);
+                index().ifPresent(idx ->
+                {
+                    collected.values().forEach(idx::noteCheckout);
+                    idx.save();
+                });
+            }
+            result = statusSnapshots.computeIfAbsent(checkout,
+                    GitCheckout::statusSnapshot);
         }
-        return Optional.ofNullable(map.get(artifactId));
+        return result;
+    }
+
+    public Set<Pom> allPoms()
+    {
+        return snapshot().allPoms;
+    }
+
+    Optional<Pom> project(String groupId, String artifactId)
+    {
+        return snapshot().project(groupId, artifactId);
     }
 
     void clear()
@@ -356,10 +345,12 @@ final class ProjectTreeCache
         allBranches.clear();
         branchByGroupId.clear();
         nonMavenCheckouts.clear();
+        foreignCheckouts.clear();
         detachedHeads.clear();
-        checkoutsForProjectFamily.clear();
         remoteHeads.clear();
-        families.clear();
+        snapshot = null;
+        statusSnapshots.clear();
+        statusSnapshotsCollected = false;
         rootIsRoot = null;
     }
 
@@ -367,22 +358,101 @@ final class ProjectTreeCache
     {
         try
         {
-            outer.root.allPomFilesInSubtreeParallel(this::cacheOnePomFile);
-            outer.root.submodules().ifPresent(statii ->
+            Optional<ProjectTreeIndex> idx = index();
+            Set<Path> seen = ConcurrentHashMap.newKeySet();
+            if (outer.options.pomDiscovery() == PomDiscoveryMode.MODULES)
+            {
+                followModules(seen, idx);
+            }
+            else
             {
-                for (SubmoduleStatus stat : statii)
+                PomDiscovery discovery = outer.options.pomDiscovery(
+                        outer.root.checkoutRoot())
+                        .onSkippedCheckout(this::noteSkippedCheckout);
+                discovery.discover(path ->
                 {
-                    stat.checkout()
-                            .filter(GitCheckout::noPomInRoot)
-                            .ifPresent(nonMavenCheckouts::add);
+                    seen.add(path);
+                    cacheOnePomFile(path, idx);
+                });
+            }
+            Optional<Set<Path>> indexedNonMaven = idx.flatMap(
+                    ProjectTreeIndex::nonMavenCheckouts);
+            if (indexedNonMaven.isPresent())
+            {
+                for (Path p : indexedNonMaven.get())
+                {
+                    GitCheckout.checkout(p).ifPresent(nonMavenCheckouts::add);
                 }
+            }
+            else
+            {
+                outer.root.submodules().ifPresent(statii ->
+                {
+                    for (SubmoduleStatus stat : statii)
+                    {
+                        stat.checkout()
+                                .filter(GitCheckout::noPomInRoot)
+                                .ifPresent(nonMavenCheckouts::add);
+                    }
+                });
+                idx.ifPresent(ix -> ix.noteNonMavenCheckouts(
+                        nonMavenCheckouts));
+            }
+            idx.ifPresent(ix ->
+            {
+                ix.retainPoms(seen);
+                ix.save();
             });
+            publishSnapshot();
         }
         catch (IOException ex)
         {
             Exceptions.chuck(ex);
         }
     }
+
+    /**
+     * Discover poms by following the <code>&lt;modules&gt;</code> of the root
+     * pom of the tree and of each checkout listed in
+     * <code>.gitmodules</code>, rather than by walking the file tree. Poms
+     * not reachable as a module of one of those are not found.
+     */
+    private void followModules(Set<Path> seen, Optional<ProjectTreeIndex> idx)
+    {
+        List<Path> level = new ArrayList<>();
+        for (Path checkoutRoot : PomDiscovery.checkoutRoots(outer.root
+                .checkoutRoot()))
+        {
+            Path pomFile = checkoutRoot.resolve("pom.xml");
+            if (Files.isRegularFile(pomFile) && seen.add(pomFile))
+            {
+                level.add(pomFile);
+            }
+        }
+        while (!level.isEmpty())
+        {
+            level = level.parallelStream().flatMap(pomFile ->
+            {
+                Pom pom = cacheOnePomFile(pomFile, idx);
+                return pom == null
+                       ? Stream.empty()
+                       : pom.modules().stream();
+            }).map(ProjectTreeCache::modulePom)
+                    .filter(pomFile -> Files.isRegularFile(pomFile) && seen
+                    .add(pomFile))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path modulePom(MavenModule module)
+    {
+        // A module may name a pom file rather than a folder
+        Path path = module.path().normalize();
+        return Files.isRegularFile(path)
+               ? path
+               : path.resolve("pom.xml");
+    }
+
     private final Map<GitCheckout, GitCheckout> repoInternTable = new ConcurrentHashMap<>();
 
     private GitCheckout intern(GitCheckout co)
@@ -395,30 +465,48 @@ final class ProjectTreeCache
         return result;
     }
 
-    private void cacheOnePomFile(Path path)
+    private Pom cacheOnePomFile(Path path, Optional<ProjectTreeIndex> idx)
     {
         //            System.out.println(
         //                    "C1 " + Thread.currentThread().getName() + "\t" + path
         //                    .getParent().getFileName());
-        Pom.from(path)
-                .ifPresent(info ->
-                {
-                    Map<String, Pom> subcache = infoForGroupAndArtifact
-                            .computeIfAbsent(info.groupId()
-                                    .text(),
-                                    id -> new ConcurrentHashMap<>());
-                    subcache.put(info.coordinates().artifactId.text(), info);
-                    GitCheckout.checkout(info.path())
-                            .ifPresent(co ->
-                            {
-                                co = intern(co);
-                                Set<Pom> poms = projectsByRepository
-                                        .computeIfAbsent(co,
-                                                c -> new HashSet<>());
-                                poms.add(info);
-                                checkoutForPom.put(info, co);
-                            });
-                });
+        ProjectTreeIndex.IndexedPom indexed = idx.map(ix -> ix.pom(path))
+                .orElse(null);
+        if (indexed != null)
+        {
+            cacheOnePom(indexed.pom, indexed.checkoutRoot == null
+                                     ? Optional.empty()
+                                     : GitCheckout.checkout(
+                                             indexed.checkoutRoot));
+            return indexed.pom;
+        }
+        Optional<Pom> pom = Pom.from(path).toOptional();
+        pom.ifPresent(info ->
+        {
+            Optional<GitCheckout> checkout = GitCheckout.checkout(info
+                    .path());
+            cacheOnePom(info, checkout);
+            idx.ifPresent(ix -> ix.notePom(info, checkout.orElse(null)));
+        });
+        return pom.orElse(null);
+    }
+
+    private void cacheOnePom(Pom info, Optional<GitCheckout> checkout)
+    {
+        Map<String, Pom> subcache = infoForGroupAndArtifact
+                .computeIfAbsent(info.groupId()
+                        .text(),
+                        id -> new ConcurrentHashMap<>());
+        subcache.put(info.coordinates().artifactId.text(), info);
+        checkout.ifPresent(co ->
+        {
+            co = intern(co);
+            Set<Pom> poms = projectsByRepository
+                    .computeIfAbsent(co,
+                            c -> ConcurrentHashMap.newKeySet());
+            poms.add(info);
+            checkoutForPom.put(info, co);
+        });
     }
 
     Void invalidateBranches(GitCheckout co)
@@ -428,6 +516,188 @@ final class ProjectTreeCache
         this.dirty.remove(co);
         this.detachedHeads.remove(co);
         this.branches.remove(co);
+        this.statusSnapshots.remove(co);
+        this.remoteHeads.remove(co);
+        // Derived from the branches of every checkout
+        this.branchByGroupId.clear();
         return null;
     }
+
+    void invalidateStatus()
+    {
+        dirty.clear();
+        dirtyIgnoring.clear();
+        statusSnapshots.clear();
+        statusSnapshotsCollected = false;
+    }
+
+    /**
+     * Drop everything known about one checkout - its git state and the poms
+     * it contains - and re-read its poms, without touching any other
+     * checkout's entries. Nested submodules are not descended into, so
+     * invalidating the submodule root does not rescan the whole tree.
+     *
+     * @param co A checkout
+     */
+    void invalidateCheckout(GitCheckout co)
+    {
+        invalidateBranches(co);
+        Set<Pom> old = projectsByRepository.remove(co);
+        if (old != null)
+        {
+            old.forEach(this::uncacheOnePom);
+        }
+        forgetForeignCheckoutsIn(co);
+        Optional<ProjectTreeIndex> idx = index();
+        try
+        {
+            pomFilesIn(co, path -> cacheOnePomFile(path, idx));
+        }
+        catch (IOException ex)
+        {
+            Exceptions.chuck(ex);
+        }
+        if (!co.equals(outer.root))
+        {
+            if (projectsByRepository.containsKey(co) || !co.noPomInRoot())
+            {
+                nonMavenCheckouts.remove(co);
+            }
+            else
+            {
+                nonMavenCheckouts.add(co);
+            }
+        }
+        derivedStateChanged();
+        idx.ifPresent(ProjectTreeIndex::save);
+    }
+
+    /**
+     * Re-read some pom files, which may have been modified, created or
+     * deleted, and drop the cached dirty state of the checkouts they live in,
+     * with a single pass over the cached poms, a single save of the index and
+     * a single new snapshot however many there are.
+     *
+     * @param pomFiles Some pom files
+     */
+    void invalidatePoms(Collection<? extends Path> pomFiles)
+    {
+        Set<Path> paths = new HashSet<>(pomFiles);
+        Set<Path> folders = new HashSet<>();
+        for (Path pomFile : paths)
+        {
+            Path folder = pomFile.getParent();
+            if (folders.add(folder))
+            {
+                // Poms in one folder share a checkout
+                GitCheckout.checkout(pomFile).ifPresent(co ->
+                {
+                    co = intern(co);
+                    dirty.remove(co);
+                    dirtyIgnoring.remove(co);
+                    statusSnapshots.remove(co);
+                });
+            }
+        }
+        for (Pom pom : new ArrayList<>(checkoutForPom.keySet()))
+        {
+            if (paths.contains(pom.path()))
+            {
+                uncacheOnePom(pom);
+            }
+        }
+        Optional<ProjectTreeIndex> idx = index();
+        for (Path pomFile : paths)
+        {
+            if (Files.exists(pomFile))
+            {
+                cacheOnePomFile(pomFile, idx);
+            }
+        }
+        idx.ifPresent(ProjectTreeIndex::save);
+        derivedStateChanged();
+    }
+
+    private void derivedStateChanged()
+    {
+        branchByGroupId.clear();
+        publishSnapshot();
+    }
+
+    private void publishSnapshot()
+    {
+        // Readers of the old indexes are unaffected
+        snapshot = ProjectTreeSnapshot.snapshot(outer.root,
+                infoForGroupAndArtifact, checkoutForPom, nonMavenCheckouts,
+                foreignCheckouts.values());
+    }
+
+    private void pomFilesIn(GitCheckout co, Consumer<Path> pomConsumer)
+            throws IOException
+    {
+        outer.options.pomDiscovery(co.checkoutRoot()).withinCheckout()
+                .onSkippedCheckout(this::noteSkippedCheckout)
+                .discover(pomConsumer);
+    }
+
+    private void noteSkippedCheckout(Path dir)
+    {
+        // Called for submodules too, which the snapshot's own entries for
+        // them supersede
+        Path key = dir.toAbsolutePath().normalize();
+        GitCheckout.checkout(key).ifPresent(co -> foreignCheckouts.put(key,
+                co));
+    }
+
+    private void forgetForeignCheckoutsIn(GitCheckout co)
+    {
+        // Only those directly within the checkout, which rediscovering its
+        // poms will find again if they still exist, not those within the
+        // submodules of it
+        Path coRoot = co.checkoutRoot().toAbsolutePath().normalize();
+        Set<Path> known = new HashSet<>();
+        projectsByRepository.keySet().forEach(c -> known.add(c.checkoutRoot()
+                .toAbsolutePath().normalize()));
+        nonMavenCheckouts.forEach(c -> known.add(c.checkoutRoot()
+                .toAbsolutePath().normalize()));
+        known.remove(coRoot);
+        foreignCheckouts.keySet().removeIf(path ->
+        {
+            if (!path.startsWith(coRoot) || path.equals(coRoot))
+            {
+                return false;
+            }
+            for (Path k : known)
+            {
+                if (k.startsWith(coRoot) && path.startsWith(k))
+                {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private void uncacheOnePom(Pom info)
+    {
+        Map<String, Pom> subcache = infoForGroupAndArtifact.get(info.groupId()
+                .text());
+        if (subcache != null)
+        {
+            subcache.remove(info.artifactId().text(), info);
+        }
+        GitCheckout co = checkoutForPom.remove(info);
+        if (co != null)
+        {
+            Set<Pom> poms = projectsByRepository.get(co);
+            if (poms != null)
+            {
+                poms.remove(info);
+                if (poms.isEmpty())
+                {
+                    projectsByRepository.remove(co);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,552 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.CheckoutStatusSnapshot;
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.log.BuildLog;
+import com.telenav.cactus.maven.model.MavenCoordinates;
+import com.telenav.cactus.maven.model.MavenModule;
+import com.telenav.cactus.maven.model.Pom;
+import com.telenav.cactus.util.PathUtils;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Persistent index of the things ProjectTreeCache learns the expensive way -
+ * parsed pom coordinates, packaging and modules, which checkout each pom
+ * belongs to, the set of non-maven submodules, and the branch and head of
+ * each checkout - so that a warm run does not need to re-parse every pom in
+ * the tree or ask git about every checkout.
+ * <p>
+ * Pom entries are keyed by the pom's last-modified time and size; checkout
+ * entries by the modification times of the checkout's HEAD, index and
+ * current branch ref. As git does, an entry recorded within a couple of
+ * seconds of the file it describes being modified is not trusted, since a
+ * second modification within the file system's timestamp granularity would
+ * be invisible.
+ * </p><p>
+ * The index lives under <code>~/.cache/cactus/tree-index</code>, one file per
+ * submodule root, and can be disabled by setting the property
+ * <code>cactus.tree-index</code> to false.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+final class ProjectTreeIndex
+{
+    private static final String HEADER = "# cactus project tree index 1";
+    private static final long RACY_WINDOW_MILLIS = 2_000;
+    private static final String NONE = "-";
+    private final Map<Path, PomEntry> poms = new ConcurrentHashMap<>();
+    private final Map<Path, CheckoutEntry> checkouts = new ConcurrentHashMap<>();
+    private final Set<Path> nonMavenCheckouts = new LinkedHashSet<>();
+    private final BuildLog log = BuildLog.get().child("tree-index");
+    private final Path root;
+    private final Path file;
+    private String submodulesStamp;
+    private volatile boolean modified;
+
+    private ProjectTreeIndex(Path root, Path file)
+    {
+        this.root = root;
+        this.file = file;
+    }
+
+    static ProjectTreeIndex forRoot(GitCheckout root)
+    {
+        Path rootDir = root.checkoutRoot().toAbsolutePath();
+        return open(rootDir, PathUtils.userCacheRoot().resolve("cactus")
+                .resolve("tree-index")
+                .resolve(hash(rootDir.toString()) + ".idx"));
+    }
+
+    static ProjectTreeIndex open(Path rootDir, Path file)
+    {
+        ProjectTreeIndex result = new ProjectTreeIndex(rootDir, file);
+        result.load();
+        return result;
+    }
+
+    /**
+     * Get a pom from the index, if the file is unchanged since it was
+     * recorded.
+     *
+     * @param pomFile A pom file
+     * @return A pom, or null if it must be parsed
+     */
+    IndexedPom pom(Path pomFile)
+    {
+        PomEntry entry = poms.get(pomFile);
+        if (entry == null || !entry.stamp.equals(stamp(pomFile)))
+        {
+            return null;
+        }
+        return entry.toIndexedPom();
+    }
+
+    void notePom(Pom pom, GitCheckout checkout)
+    {
+        String stamp = stamp(pom.path());
+        if (stamp != null)
+        {
+            poms.put(pom.path(), new PomEntry(pom, checkout, stamp));
+            modified = true;
+        }
+    }
+
+    /**
+     * Drop any pom entries for files which no longer exist.
+     *
+     * @param seen The set of pom files found in the tree
+     */
+    void retainPoms(Collection<? extends Path> seen)
+    {
+        if (poms.keySet().retainAll(seen))
+        {
+            modified = true;
+        }
+    }
+
+    Optional<Set<Path>> nonMavenCheckouts()
+    {
+        if (submodulesStamp == null || !submodulesStamp.equals(
+                submodulesStamp()))
+        {
+            return Optional.empty();
+        }
+        for (Path p : nonMavenCheckouts)
+        {
+            if (!Files.exists(p.resolve(".git")) || Files.exists(p.resolve(
+                    "pom.xml")))
+            {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(nonMavenCheckouts);
+    }
+
+    void noteNonMavenCheckouts(Collection<? extends GitCheckout> all)
+    {
+        nonMavenCheckouts.clear();
+        all.forEach(co -> nonMavenCheckouts.add(co.checkoutRoot()));
+        submodulesStamp = submodulesStamp();
+        modified = true;
+    }
+
+    /**
+     * Get the branch and head of a checkout, if neither its HEAD, index nor
+     * branch ref have been touched since they were recorded.
+     *
+     * @param checkout A checkout
+     * @return An entry or null
+     */
+    CheckoutEntry checkout(GitCheckout checkout)
+    {
+        CheckoutEntry entry = checkouts.get(checkout.checkoutRoot());
+        if (entry == null || !entry.stamp.equals(gitStamp(checkout)))
+        {
+            return null;
+        }
+        return entry;
+    }
+
+    void noteCheckout(CheckoutStatusSnapshot snapshot)
+    {
+        GitCheckout checkout = snapshot.checkout();
+        String stamp = gitStamp(checkout);
+        if (stamp != null)
+        {
+            checkouts.put(checkout.checkoutRoot(), new CheckoutEntry(stamp,
+                    snapshot.branch().orElse(null),
+                    snapshot.head().orElse(null)));
+            modified = true;
+        }
+    }
+
+    synchronized void save()
+    {
+        if (!modified)
+        {
+            return;
+        }
+        modified = false;
+        try
+        {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + "."
+                    + ProcessHandle.current().pid());
+            try ( BufferedWriter out = Files.newBufferedWriter(temp,
+                    StandardCharsets.UTF_8))
+            {
+                out.write(HEADER);
+                out.write('\n');
+                write(out, "root", root.toString());
+                if (submodulesStamp != null)
+                {
+                    List<String> fields = new ArrayList<>();
+                    fields.add("submodules");
+                    fields.add(submodulesStamp);
+                    nonMavenCheckouts.forEach(p -> fields.add(p.toString()));
+                    write(out, fields.toArray(String[]::new));
+                }
+                for (Map.Entry<Path, CheckoutEntry> e : new TreeMap<>(
+                        checkouts).entrySet())
+                {
+                    CheckoutEntry ce = e.getValue();
+                    write(out, "checkout", e.getKey().toString(), ce.stamp,
+                            orNone(ce.branch), orNone(ce.head));
+                }
+                for (Map.Entry<Path, PomEntry> e : new TreeMap<>(poms)
+                        .entrySet())
+                {
+                    PomEntry pe = e.getValue();
+                    List<String> fields = new ArrayList<>();
+                    fields.add("pom");
+                    fields.add(e.getKey().toString());
+                    fields.add(pe.stamp);
+                    fields.add(pe.groupId);
+                    fields.add(pe.artifactId);
+                    fields.add(pe.version);
+                    fields.add(pe.packaging);
+                    fields.add(orNone(pe.checkoutRoot == null
+                                      ? null
+                                      : pe.checkoutRoot.toString()));
+                    fields.addAll(pe.modules);
+                    write(out, fields.toArray(String[]::new));
+                }
+            }
+            Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (IOException ex)
+        {
+            // The index is an optimization; never fail a build over it
+            log.warn("Could not write " + file + ": " + ex);
+        }
+    }
+
+    private void load()
+    {
+        List<String> lines;
+        try
+        {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        }
+        catch (NoSuchFileException ex)
+        {
+            return;
+        }
+        catch (IOException ex)
+        {
+            log.warn("Could not read " + file + ": " + ex);
+            return;
+        }
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0)))
+        {
+            return;
+        }
+        try
+        {
+            for (String line : lines.subList(1, lines.size()))
+            {
+                String[] fields = line.split("\t");
+                switch (fields[0])
+                {
+                    case "root":
+                        if (!root.toString().equals(fields[1]))
+                        {
+                            // Hash collision - start over
+                            clear();
+                            return;
+                        }
+                        break;
+                    case "submodules":
+                        submodulesStamp = fields[1];
+                        for (int i = 2; i < fields.length; i++)
+                        {
+                            nonMavenCheckouts.add(Paths.get(fields[i]));
+                        }
+                        break;
+                    case "checkout":
+                        checkouts.put(Paths.get(fields[1]),
+                                new CheckoutEntry(fields[2],
+                                        noneToNull(fields[3]),
+                                        noneToNull(fields[4])));
+                        break;
+                    case "pom":
+                        Set<String> modules = new LinkedHashSet<>();
+                        for (int i = 8; i < fields.length; i++)
+                        {
+                            modules.add(fields[i]);
+                        }
+                        String co = noneToNull(fields[7]);
+                        Path pomFile = Paths.get(fields[1]);
+                        poms.put(pomFile, new PomEntry(pomFile, fields[2],
+                                fields[3], fields[4], fields[5], fields[6],
+                                co == null
+                                ? null
+                                : Paths.get(co), modules));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            // Truncated or otherwise corrupted
+            log.warn("Ignoring unreadable index " + file + ": " + ex);
+            clear();
+        }
+    }
+
+    private void clear()
+    {
+        poms.clear();
+        checkouts.clear();
+        nonMavenCheckouts.clear();
+        submodulesStamp = null;
+    }
+
+    private static void write(BufferedWriter out, String... fields)
+            throws IOException
+    {
+        for (String f : fields)
+        {
+            if (f.indexOf('\t') >= 0 || f.indexOf('\n') >= 0)
+            {
+                // Not representable; it will simply be recomputed next time
+                return;
+            }
+        }
+        out.write(String.join("\t", fields));
+        out.write('\n');
+    }
+
+    private static String orNone(String what)
+    {
+        return what == null
+               ? NONE
+               : what;
+    }
+
+    private static String noneToNull(String what)
+    {
+        return NONE.equals(what)
+               ? null
+               : what;
+    }
+
+    private String submodulesStamp()
+    {
+        Path gitmodules = root.resolve(".gitmodules");
+        return Files.exists(gitmodules)
+               ? stamp(gitmodules)
+               : NONE;
+    }
+
+    /**
+     * Compute a stamp for a file from its modification time and size, or null
+     * if the file does not exist or was modified too recently for its
+     * timestamp to be trusted.
+     */
+    private static String stamp(Path file)
+    {
+        try
+        {
+            BasicFileAttributes attrs = Files.readAttributes(file,
+                    BasicFileAttributes.class);
+            long modified = attrs.lastModifiedTime().toMillis();
+            if (System.currentTimeMillis() - modified < RACY_WINDOW_MILLIS)
+            {
+                return null;
+            }
+            return modified + ":" + attrs.size();
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    private static String gitStamp(GitCheckout checkout)
+    {
+        return checkout.gitDirectory().map(dir ->
+        {
+            Path head = dir.resolve("HEAD");
+            String headStamp = stamp(head);
+            String indexStamp = stamp(dir.resolve("index"));
+            if (headStamp == null || indexStamp == null)
+            {
+                return null;
+            }
+            // A commit or fast-forward moves the branch ref without touching
+            // HEAD, so include whichever file the current branch lives in
+            String refStamp = NONE;
+            try
+            {
+                String headContent = Files.readString(head).trim();
+                if (headContent.startsWith("ref: "))
+                {
+                    Path ref = dir.resolve(headContent.substring(5));
+                    refStamp = Files.exists(ref)
+                               ? stamp(ref)
+                               : stamp(dir.resolve("packed-refs"));
+                    if (refStamp == null)
+                    {
+                        return null;
+                    }
+                }
+            }
+            catch (IOException ex)
+            {
+                return null;
+            }
+            return headStamp + "," + indexStamp + "," + refStamp;
+        }).orElse(null);
+    }
+
+    private static String hash(String what)
+    {
+        try
+        {
+            byte[] bytes = MessageDigest.getInstance("SHA-1").digest(what
+                    .getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes)
+            {
+                sb.append(String.format("%02x", b & 0xFF));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A pom reconstituted from the index, with the root of the checkout it
+     * was found in.
+     */
+    static final class IndexedPom
+    {
+        final Pom pom;
+        final Path checkoutRoot;
+
+        IndexedPom(Pom pom, Path checkoutRoot)
+        {
+            this.pom = pom;
+            this.checkoutRoot = checkoutRoot;
+        }
+    }
+
+    static final class CheckoutEntry
+    {
+        final String stamp;
+        final String branch;
+        final String head;
+
+        CheckoutEntry(String stamp, String branch, String head)
+        {
+            this.stamp = stamp;
+            this.branch = branch;
+            this.head = head;
+        }
+
+        Optional<String> branch()
+        {
+            return Optional.ofNullable(branch);
+        }
+
+        boolean isDetachedHead()
+        {
+            return branch == null;
+        }
+    }
+
+    private static final class PomEntry
+    {
+        final Path path;
+        final String stamp;
+        final String groupId;
+        final String artifactId;
+        final String version;
+        final String packaging;
+        final Path checkoutRoot;
+        final Set<String> modules;
+
+        PomEntry(Path path, String stamp, String groupId, String artifactId,
+                String version, String packaging, Path checkoutRoot,
+                Set<String> modules)
+        {
+            this.path = path;
+            this.stamp = stamp;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.packaging = packaging;
+            this.checkoutRoot = checkoutRoot;
+            this.modules = modules;
+        }
+
+        PomEntry(Pom pom, GitCheckout checkout, String stamp)
+        {
+            this.path = pom.path();
+            this.stamp = stamp;
+            this.groupId = pom.groupId().text();
+            this.artifactId = pom.artifactId().text();
+            this.version = pom.version().text();
+            this.packaging = pom.packaging().kind();
+            this.checkoutRoot = checkout == null
+                                ? null
+                                : checkout.checkoutRoot();
+            this.modules = new LinkedHashSet<>();
+            for (MavenModule mod : pom.modules())
+            {
+                modules.add(mod.name());
+            }
+        }
+
+        IndexedPom toIndexedPom()
+        {
+            return new IndexedPom(new Pom(path, MavenCoordinates.of(groupId,
+                    artifactId, version), packaging, modules), checkoutRoot);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.PomDiscovery;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * Settings which affect how a ProjectTree discovers and caches the poms and
+ * checkouts in a tree, passed in from mojo parameters.
+ *
+ * @author Tim Boudreau
+ */
+public final class ProjectTreeOptions
+{
+    /**
+     * The defaults: use the persistent tree index, do not keep the tree
+     * resident between builds, and find poms by walking the tree with no
+     * extra ignore globs.
+     */
+    public static final ProjectTreeOptions DEFAULT = new ProjectTreeOptions(
+            true, false, PomDiscoveryMode.WALK, Collections.emptyList());
+    private final boolean treeIndex;
+    private final boolean residentTree;
+    private final PomDiscoveryMode pomDiscovery;
+    private final List<String> ignoreGlobs;
+
+    private ProjectTreeOptions(boolean treeIndex, boolean residentTree,
+            PomDiscoveryMode pomDiscovery, List<String> ignoreGlobs)
+    {
+        this.treeIndex = treeIndex;
+        this.residentTree = residentTree;
+        this.pomDiscovery = pomDiscovery;
+        this.ignoreGlobs = ignoreGlobs;
+    }
+
+    /**
+     * Whether to persist pom and checkout metadata between builds so a tree
+     * need not be rescanned cold each time.
+     *
+     * @param treeIndex Whether to use the index
+     * @return A new options, or this one if unchanged
+     */
+    public ProjectTreeOptions withTreeIndex(boolean treeIndex)
+    {
+        return treeIndex == this.treeIndex
+               ? this
+               : new ProjectTreeOptions(treeIndex, residentTree,
+                       pomDiscovery, ignoreGlobs);
+    }
+
+    /**
+     * Whether to share one tree, kept current by watching the file system,
+     * between every build run in this JVM, such as a maven daemon (mvnd).
+     *
+     * @param residentTree Whether to keep the tree resident
+     * @return A new options, or this one if unchanged
+     */
+    public ProjectTreeOptions withResidentTree(boolean residentTree)
+    {
+        return residentTree == this.residentTree
+               ? this
+               : new ProjectTreeOptions(treeIndex, residentTree,
+                       pomDiscovery, ignoreGlobs);
+    }
+
+    /**
+     * How poms in the tree are found.
+     *
+     * @param pomDiscovery A mode
+     * @return A new options, or this one if unchanged
+     */
+    public ProjectTreeOptions withPomDiscovery(PomDiscoveryMode pomDiscovery)
+    {
+        return notNull("pomDiscovery", pomDiscovery) == this.pomDiscovery
+               ? this
+               : new ProjectTreeOptions(treeIndex, residentTree,
+                       pomDiscovery, ignoreGlobs);
+    }
+
+    /**
+     * Folders, beyond build output and <code>.git</code>, not to search for
+     * poms, as a comma-delimited list of globs. A glob containing no
+     * <code>/</code> is matched against folder names; others against the
+     * path relative to the folder being searched.
+     *
+     * @param globs Comma-delimited globs, or null for none
+     * @return A new options, or this one if unchanged
+     */
+    public ProjectTreeOptions withIgnoreGlobs(String globs)
+    {
+        List<String> parsed = new ArrayList<>();
+        if (globs != null)
+        {
+            for (String glob : globs.split(","))
+            {
+                if (!glob.trim().isEmpty())
+                {
+                    parsed.add(glob.trim());
+                }
+            }
+        }
+        return parsed.equals(ignoreGlobs)
+               ? this
+               : new ProjectTreeOptions(treeIndex, residentTree,
+                       pomDiscovery, Collections.unmodifiableList(parsed));
+    }
+
+    /**
+     * Create a pom discovery over the passed folder which applies these
+     * options' ignore globs.
+     *
+     * @param root A folder
+     * @return A discovery
+     */
+    public PomDiscovery pomDiscovery(Path root)
+    {
+        return PomDiscovery.pomDiscovery(root).ignoring(ignoreGlobs.toArray(
+                new String[ignoreGlobs.size()]));
+    }
+
+    public PomDiscoveryMode pomDiscovery()
+    {
+        return pomDiscovery;
+    }
+
+    public List<String> ignoreGlobs()
+    {
+        return ignoreGlobs;
+    }
+
+    public boolean treeIndex()
+    {
+        return treeIndex;
+    }
+
+    public boolean residentTree()
+    {
+        return residentTree;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this)
+        {
+            return true;
+        }
+        else if (o == null || o.getClass() != ProjectTreeOptions.class)
+        {
+            return false;
+        }
+        ProjectTreeOptions other = (ProjectTreeOptions) o;
+        return treeIndex == other.treeIndex
+                && residentTree == other.residentTree
+                && pomDiscovery == other.pomDiscovery
+                && ignoreGlobs.equals(other.ignoreGlobs);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(treeIndex, residentTree, pomDiscovery,
+                ignoreGlobs);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ProjectTreeOptions(treeIndex=" + treeIndex
+                + ", residentTree=" + residentTree
+                + ", pomDiscovery=" + pomDiscovery
+                + ", ignoreGlobs=" + ignoreGlobs + ")";
+    }
+}
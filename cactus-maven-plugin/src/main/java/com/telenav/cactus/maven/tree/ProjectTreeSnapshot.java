@@ -0,0 +1,267 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.model.Pom;
+import com.telenav.cactus.scope.ProjectFamily;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Immutable indexes over the poms and checkouts in a ProjectTree, built once
+ * each time the tree's poms change and published to readers, which need no
+ * lock to query them.
+ *
+ * @author Tim Boudreau
+ */
+final class ProjectTreeSnapshot
+{
+    final Set<Pom> allPoms;
+    final Map<Pom, GitCheckout> checkoutForPom;
+    final Map<GitCheckout, Set<Pom>> projectsByRepository;
+    final Map<String, Map<String, Pom>> pomsByGroupAndArtifact;
+    final Map<String, Set<GitCheckout>> checkoutsByGroupId;
+    final Map<ProjectFamily, Set<GitCheckout>> checkoutsByFamily;
+    final Map<ProjectFamily, Set<GitCheckout>> checkoutsByFamilyOrParentFamily;
+    final Set<GitCheckout> nonMavenCheckouts;
+    private final PathTrie<Pom> projectFolders = new PathTrie<>();
+    private final PathTrie<GitCheckout> checkoutRoots = new PathTrie<>();
+
+    private ProjectTreeSnapshot(GitCheckout root,
+            Map<String, Map<String, Pom>> byGroupAndArtifact,
+            Map<Pom, GitCheckout> checkoutForPom,
+            Collection<? extends GitCheckout> nonMavenCheckouts,
+            Collection<? extends GitCheckout> foreignCheckouts)
+    {
+        Set<Pom> poms = new HashSet<>();
+        Map<String, Map<String, Pom>> byGroup = new HashMap<>();
+        byGroupAndArtifact.forEach((gid, byArtifact) ->
+        {
+            if (!byArtifact.isEmpty())
+            {
+                byGroup.put(gid, unmodifiableMap(new HashMap<>(byArtifact)));
+            }
+        });
+        Map<GitCheckout, Set<Pom>> byRepository = new HashMap<>();
+        Map<String, Set<GitCheckout>> byGroupId = new HashMap<>();
+        Map<ProjectFamily, Set<GitCheckout>> byFamily = new HashMap<>();
+        Map<ProjectFamily, Set<GitCheckout>> byFamilyOrParent = new HashMap<>();
+        checkoutForPom.forEach((pom, checkout) ->
+        {
+            poms.add(pom);
+            projectFolders.put(absolute(pom.path().getParent()), pom);
+            byRepository.computeIfAbsent(checkout, co -> new HashSet<>())
+                    .add(pom);
+            String gid = pom.groupId().text();
+            byGroupId.computeIfAbsent(gid, g -> new HashSet<>()).add(checkout);
+            ProjectFamily family = familyOf(gid);
+            if (family != null)
+            {
+                byFamily.computeIfAbsent(family, f -> new HashSet<>())
+                        .add(checkout);
+                byFamilyOrParent.computeIfAbsent(family, f -> new HashSet<>())
+                        .add(checkout);
+            }
+            ProjectFamily parent = parentFamilyOf(gid);
+            if (parent != null)
+            {
+                byFamilyOrParent.computeIfAbsent(parent, f -> new HashSet<>())
+                        .add(checkout);
+            }
+        });
+        this.allPoms = unmodifiableSet(poms);
+        this.checkoutForPom = unmodifiableMap(new HashMap<>(checkoutForPom));
+        this.projectsByRepository = frozen(byRepository);
+        this.pomsByGroupAndArtifact = unmodifiableMap(byGroup);
+        this.checkoutsByGroupId = frozen(byGroupId);
+        this.checkoutsByFamily = frozen(byFamily);
+        this.checkoutsByFamilyOrParentFamily = frozen(byFamilyOrParent);
+        this.nonMavenCheckouts = unmodifiableSet(new HashSet<>(
+                nonMavenCheckouts));
+        // Not part of the tree, but their files are not the tree's either;
+        // added first, so the tree's own entries for the same folder win
+        for (GitCheckout checkout : foreignCheckouts)
+        {
+            checkoutRoots.put(absolute(checkout.checkoutRoot()), checkout);
+        }
+        checkoutRoots.put(absolute(root.checkoutRoot()), root);
+        for (GitCheckout checkout : byRepository.keySet())
+        {
+            checkoutRoots.put(absolute(checkout.checkoutRoot()), checkout);
+        }
+        for (GitCheckout checkout : nonMavenCheckouts)
+        {
+            checkoutRoots.put(absolute(checkout.checkoutRoot()), checkout);
+        }
+    }
+
+    static ProjectTreeSnapshot snapshot(GitCheckout root,
+            Map<String, Map<String, Pom>> byGroupAndArtifact,
+            Map<Pom, GitCheckout> checkoutForPom,
+            Collection<? extends GitCheckout> nonMavenCheckouts,
+            Collection<? extends GitCheckout> foreignCheckouts)
+    {
+        return new ProjectTreeSnapshot(root, byGroupAndArtifact,
+                checkoutForPom, nonMavenCheckouts, foreignCheckouts);
+    }
+
+    private static Path absolute(Path path)
+    {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static <K, V> Map<K, Set<V>> frozen(Map<K, Set<V>> map)
+    {
+        map.replaceAll((k, v) -> unmodifiableSet(v));
+        return unmodifiableMap(map);
+    }
+
+    private static ProjectFamily familyOf(String groupId)
+    {
+        try
+        {
+            return ProjectFamily.fromGroupId(groupId);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Malformed group id; it simply will not match any family
+            return null;
+        }
+    }
+
+    /**
+     * The family a group id's family is a child of, per
+     * ProjectFamily.isParentFamilyOf().
+     */
+    private static ProjectFamily parentFamilyOf(String groupId)
+    {
+        int ix = groupId.lastIndexOf('.');
+        return familyOf(ix > 0
+                        ? groupId.substring(0, ix)
+                        : groupId);
+    }
+
+    Optional<Pom> project(String groupId, String artifactId)
+    {
+        Map<String, Pom> map = pomsByGroupAndArtifact.get(groupId);
+        return map == null
+               ? Optional.empty()
+               : Optional.ofNullable(map.get(artifactId));
+    }
+
+    Set<GitCheckout> allCheckouts()
+    {
+        return projectsByRepository.keySet();
+    }
+
+    Set<Pom> projectsWithin(GitCheckout checkout)
+    {
+        return projectsByRepository.getOrDefault(checkout, emptySet());
+    }
+
+    Optional<GitCheckout> checkoutFor(Pom pom)
+    {
+        return Optional.ofNullable(checkoutForPom.get(pom));
+    }
+
+    Set<ProjectFamily> allProjectFamilies()
+    {
+        return checkoutsByFamily.keySet();
+    }
+
+    Set<GitCheckout> checkoutsContainingGroupId(String groupId)
+    {
+        return new HashSet<>(checkoutsByGroupId.getOrDefault(groupId,
+                emptySet()));
+    }
+
+    Set<GitCheckout> checkoutsInProjectFamily(ProjectFamily family)
+    {
+        return new HashSet<>(checkoutsByFamily.getOrDefault(family,
+                emptySet()));
+    }
+
+    Set<GitCheckout> checkoutsInProjectFamily(Set<ProjectFamily> families)
+    {
+        return union(families, checkoutsByFamily);
+    }
+
+    Set<GitCheckout> checkoutsInProjectFamilyOrChildProjectFamily(
+            String groupId)
+    {
+        ProjectFamily family = familyOf(groupId);
+        return family == null
+               ? new HashSet<>()
+               : new HashSet<>(checkoutsByFamilyOrParentFamily.getOrDefault(
+                       family, emptySet()));
+    }
+
+    Set<GitCheckout> checkoutsInProjectFamilyOrChildProjectFamily(
+            Set<ProjectFamily> families)
+    {
+        return union(families, checkoutsByFamilyOrParentFamily);
+    }
+
+    private Set<GitCheckout> union(Set<ProjectFamily> families,
+            Map<ProjectFamily, Set<GitCheckout>> index)
+    {
+        if (families.isEmpty())
+        {
+            return new HashSet<>(allCheckouts());
+        }
+        Set<GitCheckout> result = new HashSet<>();
+        for (ProjectFamily family : families)
+        {
+            result.addAll(index.getOrDefault(family, emptySet()));
+        }
+        return result;
+    }
+
+    /**
+     * Find the project whose folder most closely encloses a file.
+     *
+     * @param file A file or folder
+     * @return A project, if any
+     */
+    Optional<Pom> projectOf(Path file)
+    {
+        return projectFolders.nearest(absolute(file));
+    }
+
+    /**
+     * Find the checkout whose root most closely encloses a file, among the
+     * checkouts in the tree and the non-maven clones found nested in it.
+     *
+     * @param file A file or folder
+     * @return A checkout, if the file is within the tree
+     */
+    Optional<GitCheckout> checkoutOf(Path file)
+    {
+        return checkoutRoots.nearest(absolute(file));
+    }
+}
@@ -0,0 +1,373 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.git.PomDiscovery;
+import com.telenav.cactus.maven.log.BuildLog;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps a resident ProjectTree current by watching every folder containing a
+ * pom, and the HEAD, index and refs of every checkout's git directory,
+ * applying the same per-pom and per-checkout invalidation a mojo would after
+ * modifying them.
+ * <p>
+ * Events are applied on a daemon thread as they arrive, and any already
+ * delivered are applied synchronously by <code>sync()</code> before a tree is
+ * handed to a new session. Whether a checkout is dirty depends on every file
+ * in it, not just the ones watched here, so <code>sync()</code> also discards
+ * the cached dirty and status state of all checkouts. Note that on platforms where the JDK's
+ * WatchService is implemented by polling (Mac OS), changes may take some
+ * seconds to be noticed.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+final class ProjectTreeWatcher implements Runnable
+{
+    private static final String POM = "pom.xml";
+    private static final String DOT_GIT = ".git";
+    private final Map<WatchKey, Path> pomFolders = new ConcurrentHashMap<>();
+    private final Map<WatchKey, GitCheckout> gitFolders = new ConcurrentHashMap<>();
+    private final BuildLog log = BuildLog.get().child("tree-watcher");
+    private final ProjectTree tree;
+    private final WatchService watchService;
+    private final PomDiscovery discovery;
+    private boolean checkoutsChanged;
+
+    private ProjectTreeWatcher(ProjectTree tree, WatchService watchService)
+    {
+        this.tree = tree;
+        this.watchService = watchService;
+        this.discovery = tree.options.pomDiscovery(tree.root()
+                .checkoutRoot());
+    }
+
+    static ProjectTreeWatcher start(ProjectTree tree) throws IOException
+    {
+        Path root = tree.root().checkoutRoot();
+        ProjectTreeWatcher result = new ProjectTreeWatcher(tree, root
+                .getFileSystem().newWatchService());
+        try
+        {
+            result.registerSubtree(root);
+        }
+        catch (IOException ex)
+        {
+            result.close();
+            throw ex;
+        }
+        Thread thread = new Thread(result, "cactus-tree-watcher-" + root
+                .getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    void close()
+    {
+        try
+        {
+            watchService.close();
+        }
+        catch (IOException ex)
+        {
+            log.warn("Could not close watch service: " + ex);
+        }
+    }
+
+    /**
+     * Apply any events which have already been delivered, and drop git status
+     * which may have changed unobserved, so the caller sees a tree which
+     * reflects them.
+     */
+    synchronized void sync()
+    {
+        try
+        {
+            processPending(new LinkedHashSet<>());
+        }
+        catch (ClosedWatchServiceException ex)
+        {
+            // closed
+        }
+        tree.invalidateStatus();
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            for (;;)
+            {
+                WatchKey key = watchService.take();
+                synchronized (this)
+                {
+                    // A bulk edit such as a version bump touches many
+                    // folders at once - apply everything delivered so far
+                    // as one batch
+                    Set<Path> poms = new LinkedHashSet<>();
+                    process(key, poms);
+                    processPending(poms);
+                }
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException ex)
+        {
+            // done
+        }
+    }
+
+    private void processPending(Set<Path> poms)
+    {
+        WatchKey key;
+        while ((key = watchService.poll()) != null)
+        {
+            process(key, poms);
+        }
+        if (checkoutsChanged)
+        {
+            // Rare enough that rescanning is simpler than working out
+            // which poms and checkouts moved between checkouts
+            checkoutsChanged = false;
+            onOverflow();
+        }
+        else if (!poms.isEmpty())
+        {
+            tree.invalidatePoms(poms);
+        }
+    }
+
+    private void process(WatchKey key, Set<Path> poms)
+    {
+        Path pomFolder = pomFolders.get(key);
+        GitCheckout checkout = gitFolders.get(key);
+        boolean gitChanged = false;
+        for (WatchEvent<?> evt : key.pollEvents())
+        {
+            if (evt.kind() == OVERFLOW)
+            {
+                onOverflow();
+                continue;
+            }
+            Path name = (Path) evt.context();
+            if (pomFolder != null)
+            {
+                onPomFolderEvent(pomFolder, name, evt.kind(), poms);
+            }
+            else
+                if (checkout != null && !name.toString().endsWith(".lock"))
+                {
+                    if (evt.kind() == ENTRY_CREATE)
+                    {
+                        registerRefsIfFolder(checkout, ((Path) key.watchable())
+                                .resolve(name));
+                    }
+                    gitChanged = true;
+                }
+        }
+        if (gitChanged)
+        {
+            tree.invalidateBranches(checkout);
+        }
+        if (!key.reset())
+        {
+            pomFolders.remove(key);
+            gitFolders.remove(key);
+        }
+    }
+
+    /**
+     * Events were dropped, so we cannot know what we missed - rescan
+     * everything and watch any folders created in the meantime.
+     */
+    synchronized void onOverflow()
+    {
+        tree.invalidateCache();
+        try
+        {
+            registerSubtree(tree.root().checkoutRoot());
+        }
+        catch (IOException ex)
+        {
+            log.warn("Could not re-register watches: " + ex);
+        }
+    }
+
+    private void onPomFolderEvent(Path folder, Path name,
+            WatchEvent.Kind<?> kind, Set<Path> poms)
+    {
+        Path child = folder.resolve(name);
+        if (POM.equals(name.toString()))
+        {
+            poms.add(child);
+        }
+        else
+            if (DOT_GIT.equals(name.toString()) && kind != ENTRY_MODIFY)
+            {
+                // A checkout was cloned or deleted within the tree
+                checkoutsChanged = true;
+            }
+            else
+                if (kind == ENTRY_CREATE && Files.isDirectory(child)
+                        && !discovery.ignores(child))
+                {
+                    // Possibly a new module; a pom may have been written into
+                    // it before we could start watching, or may be written
+                    // after, so watch every folder in it, not just ones with
+                    // poms
+                    try
+                    {
+                        registerNewFolders(child);
+                        poms.addAll(registerSubtree(child));
+                    }
+                    catch (IOException ex)
+                    {
+                        log.warn("Could not watch " + child + ": " + ex);
+                    }
+                }
+                else
+                    if (kind == ENTRY_DELETE)
+                    {
+                        for (Path watched : new ArrayList<>(pomFolders
+                                .values()))
+                        {
+                            if (watched.startsWith(child))
+                            {
+                                poms.add(watched.resolve(POM));
+                            }
+                        }
+                    }
+    }
+
+    private List<Path> registerSubtree(Path dir) throws IOException
+    {
+        // Watch the same folders pom discovery would find poms in, and the
+        // git state of their checkouts and of every submodule
+        List<Path> poms = new ArrayList<>(tree.options.pomDiscovery(dir)
+                .discover());
+        Set<GitCheckout> checkouts = new HashSet<>();
+        for (Path checkoutRoot : PomDiscovery.checkoutRoots(dir))
+        {
+            GitCheckout.checkout(checkoutRoot).ifPresent(checkouts::add);
+        }
+        for (Path pom : poms)
+        {
+            Path folder = pom.getParent();
+            pomFolders.put(folder.register(watchService, ENTRY_CREATE,
+                    ENTRY_MODIFY, ENTRY_DELETE), folder);
+            GitCheckout.checkout(folder).ifPresent(checkouts::add);
+        }
+        for (GitCheckout checkout : checkouts)
+        {
+            registerCheckout(checkout);
+        }
+        return poms;
+    }
+
+    private void registerNewFolders(Path dir) throws IOException
+    {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d,
+                    BasicFileAttributes attrs) throws IOException
+            {
+                if (!d.equals(dir) && discovery.ignores(d))
+                {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                pomFolders.put(d.register(watchService, ENTRY_CREATE,
+                        ENTRY_MODIFY, ENTRY_DELETE), d);
+                if (Files.exists(d.resolve(DOT_GIT)))
+                {
+                    // Cloned before we could see its .git appear
+                    checkoutsChanged = true;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void registerCheckout(GitCheckout checkout) throws IOException
+    {
+        Optional<Path> gitDir = checkout.gitDirectory();
+        if (!gitDir.isPresent())
+        {
+            return;
+        }
+        // HEAD, index and packed-refs
+        gitFolders.put(gitDir.get().register(watchService, ENTRY_CREATE,
+                ENTRY_MODIFY, ENTRY_DELETE), checkout);
+        registerRefsIfFolder(checkout, gitDir.get().resolve("refs"));
+    }
+
+    private void registerRefsIfFolder(GitCheckout checkout, Path refs)
+    {
+        // Only ref folders, not objects, logs, etc.
+        boolean isRefs = checkout.gitDirectory()
+                .map(dir -> refs.startsWith(dir.resolve("refs")))
+                .orElse(false);
+        if (!isRefs || !Files.isDirectory(refs))
+        {
+            return;
+        }
+        try
+        {
+            Files.walkFileTree(refs, new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d,
+                        BasicFileAttributes attrs) throws IOException
+                {
+                    gitFolders.put(d.register(watchService, ENTRY_CREATE,
+                            ENTRY_MODIFY, ENTRY_DELETE), checkout);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException ex)
+        {
+            log.warn("Could not watch " + refs + ": " + ex);
+        }
+    }
+}
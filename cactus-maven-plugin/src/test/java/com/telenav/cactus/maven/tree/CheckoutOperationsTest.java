@@ -0,0 +1,135 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.log.BuildLog;
+import com.telenav.cactus.maven.tree.CheckoutOperations.FailureMode;
+import com.telenav.cactus.maven.tree.CheckoutOperations.Results;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class CheckoutOperationsTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testNestedCheckoutsRunInnermostFirst() throws IOException
+    {
+        GitCheckout root = checkout("");
+        GitCheckout a = checkout("a");
+        GitCheckout ax = checkout("a/x");
+        GitCheckout b = checkout("b");
+        assertEquals(asList(asList(ax, b), asList(a), asList(root)),
+                CheckoutOperations.innermostFirst(asList(root, a, ax, b)));
+        // Unrelated checkouts keep their order in a single wave
+        assertEquals(asList(asList(b, ax)),
+                CheckoutOperations.innermostFirst(asList(b, ax)));
+    }
+
+    @Test
+    public void testResultsAreInCheckoutOrder() throws IOException
+    {
+        List<GitCheckout> all = new ArrayList<>();
+        for (String name : asList("d", "c", "b", "a"))
+        {
+            all.add(checkout(name));
+        }
+        Results<String> results = operations(4, FailureMode.FAIL_FAST)
+                .run("test", all, (co, log) ->
+                {
+                    log.accept("hello " + co.name());
+                    return co.name();
+                });
+        assertFalse(results.isFailed());
+        assertEquals(all, new ArrayList<>(results.results().keySet()));
+    }
+
+    @Test
+    public void testFailFastDoesNotStartLaterWaves() throws IOException
+    {
+        GitCheckout root = checkout("");
+        GitCheckout a = checkout("a");
+        GitCheckout b = checkout("b");
+        Set<GitCheckout> ran = ConcurrentHashMap.newKeySet();
+        IllegalStateException failure = new IllegalStateException("a failed");
+
+        Results<Boolean> results = operations(2, FailureMode.FAIL_FAST)
+                .run("test", asList(a, b, root), (co, log) ->
+                {
+                    ran.add(co);
+                    if (co.equals(a))
+                    {
+                        throw failure;
+                    }
+                    return true;
+                });
+        assertTrue(results.isFailed());
+        assertSame(failure, results.failures().get(a));
+        assertFalse(ran.contains(root), "Submodule root should not run "
+                + "after a nested checkout failed");
+        assertSame(failure, assertThrows(IllegalStateException.class,
+                results::rethrowIfFailed));
+
+        ran.clear();
+        results = operations(2, FailureMode.COLLECT_ALL)
+                .run("test", asList(a, b, root), (co, log) ->
+                {
+                    ran.add(co);
+                    if (co.equals(a))
+                    {
+                        throw failure;
+                    }
+                    return true;
+                });
+        assertEquals(Set.of(a, b, root), ran);
+        assertEquals(asList(b, root), new ArrayList<>(results.results()
+                .keySet()));
+    }
+
+    private CheckoutOperations operations(int parallelism, FailureMode mode)
+    {
+        return new CheckoutOperations(parallelism, mode, BuildLog.get());
+    }
+
+    private GitCheckout checkout(String name) throws IOException
+    {
+        Path folder = dir.resolve(name);
+        Files.createDirectories(folder.resolve(".git"));
+        return GitCheckout.checkout(folder).get();
+    }
+}
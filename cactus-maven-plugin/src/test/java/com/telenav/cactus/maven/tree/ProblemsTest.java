@@ -0,0 +1,57 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.maven.tree.Problem.Severity;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ProblemsTest
+{
+    @Test
+    public void testProblemsIterateInTheOrderAdded()
+    {
+        Problems a = new Problems().add("zebra").add("apple", Severity.NOTE);
+        Problems b = new Problems().add("mango").add("zebra").add("banana");
+        Problems all = new Problems().addAll(a).addAll(b);
+        assertEquals(asList("zebra", "apple", "mango", "banana"),
+                messages(all));
+        assertTrue(all.hasFatal());
+        Problems notes = all.filter((Predicate<Problem>) p -> !p.isFatal());
+        assertEquals(asList("apple"), messages(notes));
+        assertFalse(notes.hasFatal());
+    }
+
+    private static List<String> messages(Problems problems)
+    {
+        List<String> result = new ArrayList<>();
+        problems.forEach(p -> result.add(p.message()));
+        return result;
+    }
+}
@@ -0,0 +1,132 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.maven.model.Pom;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks the pom discovery settings passed in ProjectTreeOptions.
+ *
+ * @author Tim Boudreau
+ */
+public class ProjectTreeDiscoveryTest
+{
+    private static final ProjectTreeOptions OPTIONS = ProjectTreeOptions.DEFAULT
+            .withTreeIndex(false);
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        Files.createDirectories(dir.resolve(".git"));
+        pom(dir, "root", "a");
+        pom(dir.resolve("a"), "a", "child");
+        pom(dir.resolve("a").resolve("child"), "a-child");
+        // Not a module of anything
+        pom(dir.resolve("a").resolve("orphan"), "orphan");
+        pom(dir.resolve("generated").resolve("stuff"), "generated");
+        // A submodule, found through .gitmodules rather than as a module
+        Files.write(dir.resolve(".gitmodules"), ("[submodule \"sub\"]\n"
+                + "\tpath = sub\n\turl = ../sub.git\n").getBytes(UTF_8));
+        Files.createDirectories(dir.resolve("sub").resolve(".git"));
+        pom(dir.resolve("sub"), "sub", "module");
+        pom(dir.resolve("sub").resolve("module"), "sub-module");
+    }
+
+    @Test
+    public void testWalk()
+    {
+        assertEquals(set("a", "a-child", "generated", "orphan", "root", "sub",
+                "sub-module"), artifactIds(OPTIONS));
+    }
+
+    @Test
+    public void testModules()
+    {
+        assertEquals(set("a", "a-child", "root", "sub", "sub-module"),
+                artifactIds(OPTIONS.withPomDiscovery(PomDiscoveryMode.MODULES)));
+    }
+
+    @Test
+    public void testIgnoreGlobs()
+    {
+        assertEquals(set("a", "a-child", "root", "sub", "sub-module"),
+                artifactIds(OPTIONS.withIgnoreGlobs("orphan, generated/*")));
+    }
+
+    @Test
+    public void testFindMode()
+    {
+        assertEquals(PomDiscoveryMode.WALK, PomDiscoveryMode.find(null));
+        assertEquals(PomDiscoveryMode.MODULES, PomDiscoveryMode.find("modules"));
+        assertThrows(IllegalStateException.class,
+                () -> PomDiscoveryMode.find("wander"));
+    }
+
+    private Set<String> artifactIds(ProjectTreeOptions options)
+    {
+        Set<String> result = new TreeSet<>();
+        for (Pom pom : ProjectTree.from(dir, options).get().allProjects())
+        {
+            result.add(pom.coordinates().artifactId().text());
+        }
+        return result;
+    }
+
+    private static Set<String> set(String... items)
+    {
+        return new TreeSet<>(Arrays.asList(items));
+    }
+
+    private static void pom(Path folder, String artifactId, String... modules)
+            throws IOException
+    {
+        StringBuilder sb = new StringBuilder("<project>\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <groupId>com.discovery</groupId>\n")
+                .append("    <artifactId>").append(artifactId)
+                .append("</artifactId>\n")
+                .append("    <version>1.0</version>\n");
+        if (modules.length > 0)
+        {
+            sb.append("    <packaging>pom</packaging>\n    <modules>\n");
+            for (String mod : modules)
+            {
+                sb.append("        <module>").append(mod).append("</module>\n");
+            }
+            sb.append("    </modules>\n");
+        }
+        sb.append("</project>\n");
+        Files.createDirectories(folder);
+        Files.write(folder.resolve("pom.xml"), sb.toString().getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,152 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.model.MavenCoordinates;
+import com.telenav.cactus.maven.model.Pom;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ProjectTreeIndexTest
+{
+    @TempDir
+    Path dir;
+    private Path root;
+    private Path indexFile;
+    private GitCheckout checkout;
+    private Pom pom;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        root = dir.resolve("root");
+        Files.createDirectories(root.resolve(".git"));
+        indexFile = dir.resolve("cache").resolve("root.idx");
+        checkout = GitCheckout.checkout(root).get();
+        Path pomFile = root.resolve("pom.xml");
+        Files.write(pomFile, "<project/>".getBytes(UTF_8));
+        // Entries for files modified within the last couple of seconds are
+        // deliberately not trusted, so backdate it
+        age(pomFile, 60);
+        pom = new Pom(pomFile, MavenCoordinates.of("com.foo", "foo", "1.0"),
+                "pom", new LinkedHashSet<>(asList("a", "b")));
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        ProjectTreeIndex index = ProjectTreeIndex.open(root, indexFile);
+        assertNull(index.pom(pom.path()));
+        index.notePom(pom, checkout);
+        index.save();
+        assertTrue(Files.exists(indexFile));
+
+        ProjectTreeIndex.IndexedPom found = ProjectTreeIndex.open(root,
+                indexFile).pom(pom.path());
+        assertNotNull(found, "Pom not restored from " + indexFile);
+        assertEquals(checkout.checkoutRoot(), found.checkoutRoot);
+        assertEquals(pom.path(), found.pom.path());
+        assertEquals(pom.coordinates().toString(), found.pom.coordinates()
+                .toString());
+        assertEquals("pom", found.pom.packaging().kind());
+        assertEquals(2, found.pom.modules().size());
+    }
+
+    @Test
+    public void testStaleStampIsRejected() throws IOException
+    {
+        ProjectTreeIndex index = ProjectTreeIndex.open(root, indexFile);
+        index.notePom(pom, checkout);
+        index.save();
+
+        Files.write(pom.path(), "<project><!-- edited --></project>"
+                .getBytes(UTF_8));
+        age(pom.path(), 30);
+        assertNull(ProjectTreeIndex.open(root, indexFile).pom(pom.path()),
+                "Entry for a modified pom should not be trusted");
+    }
+
+    @Test
+    public void testRecentlyModifiedFileIsNotRecorded() throws IOException
+    {
+        Files.setLastModifiedTime(pom.path(), FileTime.fromMillis(System
+                .currentTimeMillis()));
+        ProjectTreeIndex index = ProjectTreeIndex.open(root, indexFile);
+        index.notePom(pom, checkout);
+        index.save();
+        assertNull(ProjectTreeIndex.open(root, indexFile).pom(pom.path()));
+    }
+
+    @Test
+    public void testCorruptFileFallsBackToScanning() throws IOException
+    {
+        ProjectTreeIndex index = ProjectTreeIndex.open(root, indexFile);
+        index.notePom(pom, checkout);
+        index.save();
+        // Truncate the last line mid-record
+        String content = new String(Files.readAllBytes(indexFile), UTF_8);
+        String truncated = content.substring(0, content.lastIndexOf(
+                "\tcom.foo"));
+        Files.write(indexFile, truncated.getBytes(UTF_8));
+        assertNull(ProjectTreeIndex.open(root, indexFile).pom(pom.path()));
+
+        Files.write(indexFile, Collections.singletonList("garbage"));
+        ProjectTreeIndex reopened = ProjectTreeIndex.open(root, indexFile);
+        assertNull(reopened.pom(pom.path()));
+        // And the index recovers once rewritten
+        reopened.notePom(pom, checkout);
+        reopened.save();
+        assertNotNull(ProjectTreeIndex.open(root, indexFile).pom(pom.path()));
+    }
+
+    @Test
+    public void testIndexForAnotherRootIsIgnored()
+    {
+        ProjectTreeIndex index = ProjectTreeIndex.open(root, indexFile);
+        index.notePom(pom, checkout);
+        index.save();
+        assertNull(ProjectTreeIndex.open(dir.resolve("other"), indexFile)
+                .pom(pom.path()));
+    }
+
+    private static void age(Path file, int seconds) throws IOException
+    {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System
+                .currentTimeMillis() - TimeUnit.SECONDS.toMillis(seconds)));
+    }
+}
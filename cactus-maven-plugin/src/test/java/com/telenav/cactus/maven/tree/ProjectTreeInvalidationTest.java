@@ -0,0 +1,273 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.model.Pom;
+import com.telenav.cactus.scope.ProjectFamily;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that invalidating a single pom or checkout leaves a tree in the same
+ * state as throwing everything away and rescanning.
+ *
+ * @author Tim Boudreau
+ */
+public class ProjectTreeInvalidationTest
+{
+    private static final ProjectTreeOptions OPTIONS = ProjectTreeOptions.DEFAULT
+            .withTreeIndex(false);
+    @TempDir
+    Path dir;
+    private Path root;
+    private ProjectTree tree;
+    private String initialState;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        Path sources = dir.resolve("sources");
+        Path a = repo(sources.resolve("a"));
+        pom(a, "com.a", "a-parent", "child");
+        pom(a.resolve("child"), "com.a", "a-child");
+        commit(a);
+        Path b = repo(sources.resolve("b"));
+        pom(b, "com.b", "b-parent", "child");
+        pom(b.resolve("child"), "com.b", "b-child");
+        commit(b);
+        Path c = repo(sources.resolve("c"));
+        Files.write(c.resolve("README.md"), "Not maven".getBytes(UTF_8));
+        commit(c);
+
+        root = repo(dir.resolve("root"));
+        pom(root, "com.root", "root", "a", "b");
+        for (Path sub : new Path[]
+        {
+            a, b, c
+        })
+        {
+            git(root, "-c", "protocol.file.allow=always", "submodule", "add",
+                    "-q", sub.toString(), sub.getFileName().toString());
+        }
+        commit(root);
+
+        tree = ProjectTree.from(root, OPTIONS).get();
+        initialState = describe(tree);
+        assertTrue(initialState.contains("non-maven c"), initialState);
+        assertEquals(initialState, describe(freshTree()));
+    }
+
+    @Test
+    public void testAddedPom() throws Exception
+    {
+        Path added = pom(root.resolve("a").resolve("added"), "com.a",
+                "a-added");
+        tree.invalidatePom(added);
+        assertMatchesFreshTree();
+    }
+
+    @Test
+    public void testChangedGroupId() throws Exception
+    {
+        Path changed = pom(root.resolve("b").resolve("child"), "com.bee",
+                "b-child");
+        tree.invalidatePom(changed);
+        assertMatchesFreshTree();
+    }
+
+    @Test
+    public void testDeletedPom() throws Exception
+    {
+        Path deleted = root.resolve("a").resolve("child").resolve("pom.xml");
+        Files.delete(deleted);
+        tree.invalidatePom(deleted);
+        assertMatchesFreshTree();
+    }
+
+    @Test
+    public void testBatch() throws Exception
+    {
+        Path added = pom(root.resolve("a").resolve("added"), "com.a",
+                "a-added");
+        Path changed = pom(root.resolve("a").resolve("child"), "com.aye",
+                "a-child");
+        Path deleted = root.resolve("b").resolve("child").resolve("pom.xml");
+        Files.delete(deleted);
+        tree.invalidatePoms(Arrays.asList(added, changed, deleted));
+        assertMatchesFreshTree();
+    }
+
+    @Test
+    public void testCheckoutBecomesNonMaven() throws Exception
+    {
+        Path b = root.resolve("b");
+        Files.delete(b.resolve("child").resolve("pom.xml"));
+        Files.delete(b.resolve("pom.xml"));
+        tree.invalidate(GitCheckout.checkout(b).get());
+        String state = assertMatchesFreshTree();
+        assertTrue(state.contains("non-maven b"), state);
+    }
+
+    private String assertMatchesFreshTree()
+    {
+        String scoped = describe(tree);
+        assertNotEquals(initialState, scoped, "Change not picked up");
+        String full = describe(freshTree());
+        assertEquals(full, scoped);
+        // And the same as invalidating everything
+        tree.invalidateCache();
+        assertEquals(full, describe(tree));
+        return full;
+    }
+
+    private ProjectTree freshTree()
+    {
+        return ProjectTree.from(root, OPTIONS).get();
+    }
+
+    private String describe(ProjectTree tree)
+    {
+        List<String> lines = new ArrayList<>();
+        for (Pom pom : tree.allProjects())
+        {
+            lines.add("pom " + rel(pom.path()) + " " + pom.coordinates()
+                    + " in " + rel(tree.checkoutFor(pom)));
+        }
+        for (GitCheckout co : tree.allCheckouts())
+        {
+            List<String> within = new ArrayList<>();
+            tree.projectsWithin(co).forEach(p -> within.add(rel(p.path())));
+            lines.add("checkout " + rel(co) + " " + new TreeSet<>(tree
+                    .groupIdsIn(co)) + " " + new TreeSet<>(within));
+        }
+        for (GitCheckout co : tree.nonMavenCheckouts())
+        {
+            lines.add("non-maven " + rel(co));
+        }
+        for (String groupId : tree.projectsByGroupId().keySet())
+        {
+            lines.add("group " + groupId + " " + rel(tree
+                    .checkoutsContainingGroupId(groupId)));
+        }
+        for (ProjectFamily fam : tree.allProjectFamilies())
+        {
+            lines.add("family " + fam + " " + rel(tree
+                    .checkoutsInProjectFamily(fam)));
+        }
+        lines.add("folders " + rel(tree.allProjectFolders()));
+        lines.sort(null);
+        return String.join("\n", lines);
+    }
+
+    private String rel(GitCheckout co)
+    {
+        return co == null
+               ? "-none-"
+               : rel(co.checkoutRoot());
+    }
+
+    private String rel(Path path)
+    {
+        String result = root.relativize(path).toString();
+        return result.isEmpty()
+               ? "."
+               : result;
+    }
+
+    private String rel(Collection<?> items)
+    {
+        TreeSet<String> result = new TreeSet<>();
+        for (Object o : items)
+        {
+            result.add(o instanceof GitCheckout
+                       ? rel((GitCheckout) o)
+                       : rel((Path) o));
+        }
+        return result.toString();
+    }
+
+    private static Path pom(Path folder, String groupId, String artifactId,
+            String... modules) throws IOException
+    {
+        StringBuilder sb = new StringBuilder("<project>\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <groupId>").append(groupId).append("</groupId>\n")
+                .append("    <artifactId>").append(artifactId)
+                .append("</artifactId>\n")
+                .append("    <version>1.0</version>\n");
+        if (modules.length > 0)
+        {
+            sb.append("    <packaging>pom</packaging>\n    <modules>\n");
+            for (String mod : modules)
+            {
+                sb.append("        <module>").append(mod).append("</module>\n");
+            }
+            sb.append("    </modules>\n");
+        }
+        sb.append("</project>\n");
+        Files.createDirectories(folder);
+        Path result = folder.resolve("pom.xml");
+        Files.write(result, sb.toString().getBytes(UTF_8));
+        return result;
+    }
+
+    private static Path repo(Path folder) throws Exception
+    {
+        Files.createDirectories(folder);
+        git(folder, "init", "-q", "-b", "main");
+        return folder;
+    }
+
+    private static void commit(Path folder) throws Exception
+    {
+        git(folder, "add", "-A");
+        git(folder, "commit", "-q", "-m", "Initial");
+    }
+
+    static void git(Path folder, String... args) throws Exception
+    {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.add("-c");
+        command.add("user.name=Test");
+        command.add("-c");
+        command.add("user.email=test@example.com");
+        command.add("-c");
+        command.add("commit.gpgsign=false");
+        command.addAll(Arrays.asList(args));
+        Process proc = new ProcessBuilder(command).directory(folder.toFile())
+                .redirectErrorStream(true).start();
+        String output = new String(proc.getInputStream().readAllBytes(), UTF_8);
+        assertEquals(0, proc.waitFor(), () -> command + ": " + output);
+    }
+}
@@ -0,0 +1,92 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that ProjectTree.ownerOf() finds the right checkout for files in
+ * checkouts the tree does and does not know about.
+ *
+ * @author Tim Boudreau
+ */
+public class ProjectTreeOwnershipTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testOwnerOf() throws IOException
+    {
+        Files.createDirectories(dir.resolve(".git"));
+        pom(dir, "root");
+        pom(dir.resolve("lib"), "lib");
+        // A submodule, which the tree knows about
+        Files.write(dir.resolve(".gitmodules"), ("[submodule \"sub\"]\n"
+                + "\tpath = sub\n\turl = ../sub.git\n").getBytes(UTF_8));
+        Files.createDirectories(dir.resolve("sub").resolve(".git"));
+        pom(dir.resolve("sub"), "sub");
+        // A nested clone with no pom which is not a submodule, which it
+        // does not
+        Path nested = dir.resolve("lib").resolve("assets");
+        Files.createDirectories(nested.resolve(".git"));
+        Path image = nested.resolve("images").resolve("logo.png");
+        Files.createDirectories(image.getParent());
+        Files.write(image, new byte[]
+        {
+            1, 2, 3
+        });
+
+        ProjectTree tree = ProjectTree.from(dir, ProjectTreeOptions.DEFAULT
+                .withTreeIndex(false)).get();
+        GitCheckout root = tree.root();
+        GitCheckout sub = GitCheckout.checkout(dir.resolve("sub")).get();
+        GitCheckout assets = GitCheckout.checkout(nested).get();
+
+        assertEquals(Optional.of(root), tree.ownerOf(dir.resolve("lib")
+                .resolve("pom.xml")));
+        assertEquals(Optional.of(sub), tree.ownerOf(dir.resolve("sub")
+                .resolve("src").resolve("Foo.java")));
+        assertEquals(Optional.of(assets), tree.ownerOf(image));
+        assertEquals(Optional.of(assets), tree.ownerOf(nested));
+        assertEquals(new HashSet<>(Arrays.asList(root, assets)), tree.ownersOf(
+                Arrays.asList(dir.resolve("pom.xml"), image)));
+    }
+
+    private static void pom(Path folder, String artifactId) throws IOException
+    {
+        Files.createDirectories(folder);
+        Files.write(folder.resolve("pom.xml"), ("<project>\n"
+                + "    <modelVersion>4.0.0</modelVersion>\n"
+                + "    <groupId>com.owner</groupId>\n"
+                + "    <artifactId>" + artifactId + "</artifactId>\n"
+                + "    <version>1.0</version>\n"
+                + "</project>\n").getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,126 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.git.GitCheckout;
+import com.telenav.cactus.maven.model.MavenCoordinates;
+import com.telenav.cactus.maven.model.Pom;
+import com.telenav.cactus.scope.ProjectFamily;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ProjectTreeSnapshotTest
+{
+    @TempDir
+    Path dir;
+    private final Map<String, Map<String, Pom>> byGroupAndArtifact = new HashMap<>();
+    private final Map<Pom, GitCheckout> checkoutForPom = new HashMap<>();
+
+    @Test
+    public void testIndexesMatchFamilyFolderAndCheckoutQueries() throws IOException
+    {
+        GitCheckout kivakit = checkout("kivakit");
+        GitCheckout extensions = checkout("kivakit-extensions");
+        GitCheckout mesakit = checkout("mesakit");
+        Pom root = pom(kivakit, "", "com.telenav.kivakit", "kivakit");
+        Pom core = pom(kivakit, "core", "com.telenav.kivakit", "kivakit-core");
+        pom(extensions, "", "com.telenav.kivakit.extensions", "ext");
+        pom(mesakit, "", "com.telenav.mesakit", "mesakit");
+
+        GitCheckout assets = checkout("kivakit/assets");
+        GitCheckout vendored = checkout("kivakit/core/vendored");
+        ProjectTreeSnapshot snap = ProjectTreeSnapshot.snapshot(kivakit,
+                byGroupAndArtifact, checkoutForPom, set(assets), set(vendored));
+
+        assertEquals(set(kivakit, extensions, mesakit), snap.allCheckouts());
+        assertEquals(set(kivakit), snap.checkoutsContainingGroupId(
+                "com.telenav.kivakit"));
+        assertEquals(set(kivakit), snap.checkoutsInProjectFamily(ProjectFamily
+                .named("kivakit")));
+        // The extensions family's parent family is kivakit
+        assertEquals(set(kivakit, extensions), snap
+                .checkoutsInProjectFamilyOrChildProjectFamily(
+                        "com.telenav.kivakit"));
+        assertEquals(set(kivakit, extensions, mesakit), snap
+                .checkoutsInProjectFamilyOrChildProjectFamily(
+                        Collections.emptySet()));
+        assertEquals(set(ProjectFamily.named("kivakit"), ProjectFamily.named(
+                "extensions"), ProjectFamily.named("mesakit")),
+                snap.allProjectFamilies());
+        assertEquals(Optional.of(core), snap.project("com.telenav.kivakit",
+                "kivakit-core"));
+
+        assertEquals(Optional.of(core), snap.projectOf(dir.resolve(
+                "kivakit/core/src/main/java/Foo.java")));
+        assertEquals(Optional.of(root), snap.projectOf(dir.resolve(
+                "kivakit/README.md")));
+        assertEquals(Optional.empty(), snap.projectOf(dir.resolve("other")));
+        assertEquals(Optional.of(assets), snap.checkoutOf(dir.resolve(
+                "kivakit/assets/images/x.png")));
+        assertEquals(Optional.of(kivakit), snap.checkoutOf(dir.resolve(
+                "kivakit/core/pom.xml")));
+        assertEquals(Optional.of(extensions), snap.checkoutOf(dir.resolve(
+                "kivakit-extensions")));
+        assertEquals(Optional.empty(), snap.checkoutOf(dir.resolve("other")));
+        // A foreign clone owns its files, but is not one of the tree's
+        assertEquals(Optional.of(vendored), snap.checkoutOf(dir.resolve(
+                "kivakit/core/vendored/lib/x.js")));
+        assertEquals(Optional.of(kivakit), snap.checkoutOf(dir.resolve(
+                "kivakit/core/vendor.txt")));
+    }
+
+    private GitCheckout checkout(String name) throws IOException
+    {
+        Files.createDirectories(dir.resolve(name).resolve(".git"));
+        return GitCheckout.checkout(dir.resolve(name)).get();
+    }
+
+    private Pom pom(GitCheckout checkout, String folder, String groupId,
+            String artifactId)
+    {
+        Path path = checkout.checkoutRoot().resolve(folder).resolve("pom.xml");
+        Pom result = new Pom(path, MavenCoordinates.of(groupId, artifactId,
+                "1.0"), "jar", Collections.emptySet());
+        byGroupAndArtifact.computeIfAbsent(groupId, g -> new HashMap<>()).put(
+                artifactId, result);
+        checkoutForPom.put(result, checkout);
+        return result;
+    }
+
+    @SafeVarargs
+    private static <T> Set<T> set(T... items)
+    {
+        return new HashSet<>(asList(items));
+    }
+}
@@ -0,0 +1,218 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.tree;
+
+import com.telenav.cactus.maven.model.Pom;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that a watched tree picks up poms being modified, created and
+ * deleted, recovers from dropped events, and does not serve stale git status
+ * to a new session.
+ *
+ * @author Tim Boudreau
+ */
+public class ProjectTreeWatcherTest
+{
+    // Generous, since some platforms' watch services poll
+    private static final long TIMEOUT_MILLIS = 30_000;
+    @TempDir
+    Path dir;
+    private ProjectTree tree;
+    private ProjectTreeWatcher watcher;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        pom(dir, "com.root", "root", "child");
+        pom(dir.resolve("child"), "com.root", "child");
+        Files.write(dir.resolve("child").resolve("notes.txt"), "Hello"
+                .getBytes(UTF_8));
+        git("init", "-q", "-b", "main");
+        git("add", "-A");
+        git("commit", "-q", "-m", "Initial");
+        tree = ProjectTree.from(dir, ProjectTreeOptions.DEFAULT
+                .withTreeIndex(false)).get();
+        assertEquals(new TreeSet<>(Arrays.asList("child", "root")),
+                artifactIds());
+        watcher = ProjectTreeWatcher.start(tree);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        if (watcher != null)
+        {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testModifiedPom() throws Exception
+    {
+        pom(dir.resolve("child"), "com.root", "renamed");
+        awaitArtifactIds(ids -> ids.contains("renamed") && !ids.contains(
+                "child"));
+    }
+
+    @Test
+    public void testCreatedPom() throws Exception
+    {
+        pom(dir.resolve("added"), "com.root", "added");
+        awaitArtifactIds(ids -> ids.contains("added"));
+        // And the new folder is now watched
+        pom(dir.resolve("added"), "com.root", "added-again");
+        awaitArtifactIds(ids -> ids.contains("added-again") && !ids.contains(
+                "added"));
+    }
+
+    @Test
+    public void testDeletedPom() throws Exception
+    {
+        Files.delete(dir.resolve("child").resolve("pom.xml"));
+        awaitArtifactIds(ids -> !ids.contains("child"));
+        assertTrue(artifactIds().contains("root"));
+    }
+
+    @Test
+    public void testOverflow() throws Exception
+    {
+        // A real overflow cannot be provoked on demand; apply the handling
+        // for one directly, before any event for the change is processed
+        pom(dir.resolve("child"), "com.root", "renamed");
+        watcher.onOverflow();
+        Set<String> ids = artifactIds();
+        assertTrue(ids.contains("renamed"), ids::toString);
+        assertFalse(ids.contains("child"), ids::toString);
+        // Watches still work afterwards
+        pom(dir.resolve("added"), "com.root", "added");
+        awaitArtifactIds(found -> found.contains("added"));
+    }
+
+    @Test
+    public void testNestedClone() throws Exception
+    {
+        Path clone = dir.resolve("child").resolve("vendored");
+        Path file = clone.resolve("lib").resolve("x.js");
+        assertEquals(tree.root(), tree.ownerOf(file).get());
+        Files.createDirectories(clone.resolve(".git"));
+        Files.createDirectories(file.getParent());
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (tree.root().equals(tree.ownerOf(file).get())
+                && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(50);
+            watcher.sync();
+        }
+        assertEquals(clone, tree.ownerOf(file).get().checkoutRoot());
+    }
+
+    @Test
+    public void testSyncDropsGitStatus() throws Exception
+    {
+        assertFalse(tree.isDirty(tree.root()));
+        // Not a pom, so no watch fires for it
+        Files.write(dir.resolve("child").resolve("notes.txt"), "Goodbye"
+                .getBytes(UTF_8));
+        watcher.sync();
+        assertTrue(tree.isDirty(tree.root()),
+                "Status cached before the change was served after sync()");
+    }
+
+    private void awaitArtifactIds(Predicate<Set<String>> test)
+            throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        Set<String> ids;
+        do
+        {
+            watcher.sync();
+            ids = artifactIds();
+            if (test.test(ids))
+            {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        while (System.currentTimeMillis() < deadline);
+        fail("Watcher did not update the tree: " + ids);
+    }
+
+    private Set<String> artifactIds()
+    {
+        Set<String> result = new TreeSet<>();
+        for (Pom pom : tree.allProjects())
+        {
+            result.add(pom.coordinates().artifactId().text());
+        }
+        return result;
+    }
+
+    private static void pom(Path folder, String groupId, String artifactId,
+            String... modules) throws IOException
+    {
+        StringBuilder sb = new StringBuilder("<project>\n")
+                .append("    <modelVersion>4.0.0</modelVersion>\n")
+                .append("    <groupId>").append(groupId).append("</groupId>\n")
+                .append("    <artifactId>").append(artifactId)
+                .append("</artifactId>\n")
+                .append("    <version>1.0</version>\n");
+        if (modules.length > 0)
+        {
+            sb.append("    <packaging>pom</packaging>\n    <modules>\n");
+            for (String mod : modules)
+            {
+                sb.append("        <module>").append(mod).append("</module>\n");
+            }
+            sb.append("    </modules>\n");
+        }
+        sb.append("</project>\n");
+        Files.createDirectories(folder);
+        Files.write(folder.resolve("pom.xml"), sb.toString().getBytes(UTF_8));
+    }
+
+    private void git(String... args) throws Exception
+    {
+        List<String> command = new ArrayList<>(Arrays.asList("git", "-c",
+                "user.name=Test", "-c", "user.email=test@example.com", "-c",
+                "commit.gpgsign=false"));
+        command.addAll(Arrays.asList(args));
+        Process proc = new ProcessBuilder(command).directory(dir.toFile())
+                .redirectErrorStream(true).start();
+        String output = new String(proc.getInputStream().readAllBytes(), UTF_8);
+        assertEquals(0, proc.waitFor(), () -> command + ": " + output);
+    }
+}
@@ -22,7 +22,6 @@ import com.telenav.cactus.maven.model.PomVersion;
 import com.telenav.cactus.maven.model.internal.PomFile;
 import com.telenav.cactus.maven.model.resolver.Poms;
 import com.telenav.cactus.maven.xml.AbstractXMLUpdater;
-import com.telenav.cactus.maven.xml.XMLReplacer;
 import com.telenav.cactus.maven.xml.XMLTextContentReplacement;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -34,7 +33,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
-import org.w3c.dom.Document;
 
 import static java.util.Collections.emptySet;
 
@@ -71,7 +69,6 @@ public class PropertyHomogenizer
         {
             return emptySet();
         }
-        Set<Path> result = new HashSet<>();
         List<AbstractXMLUpdater> replacements = new ArrayList<>();
         for (Map.Entry<Pom, PropertyChange<?, PomVersion>> e : changes
                 .entrySet())
@@ -82,26 +79,7 @@ public class PropertyHomogenizer
                     "/project/properties/" + e.getValue().propertyName(), e
                     .getValue().newValue().text()));
         }
-        AbstractXMLUpdater.openAll(replacements, () ->
-        {
-            for (AbstractXMLUpdater rep : replacements)
-            {
-                Document doc = rep.replace();
-                if (doc != null)
-                {
-                    if (!pretend)
-                    {
-                        XMLReplacer.writeXML(doc, rep.path());
-                    }
-                    log.accept((pretend
-                                ? "(pretend) "
-                                : "") + " Wrote " + rep.path());
-                    result.add(rep.path());
-                }
-            }
-            return null;
-        });
-        return result;
+        return AbstractXMLUpdater.applyAll(replacements, pretend, log);
     }
 
     private void collectProperties()
@@ -18,6 +18,7 @@
 package com.telenav.cactus.maven.refactoring;
 
 import com.mastfrog.function.state.Bool;
+import com.mastfrog.function.throwing.ThrowingRunnable;
 import com.mastfrog.util.preconditions.Exceptions;
 import com.telenav.cactus.maven.model.ArtifactId;
 import com.telenav.cactus.maven.model.GroupId;
@@ -52,10 +53,9 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Consumer;
-import org.w3c.dom.Document;
 
+import static com.mastfrog.util.preconditions.Checks.greaterThanZero;
 import static com.mastfrog.util.preconditions.Checks.notNull;
-import static com.telenav.cactus.maven.xml.XMLReplacer.writeXML;
 import static java.util.Collections.emptySet;
 
 /**
@@ -89,6 +89,7 @@ public class VersionReplacementFinder
     private VersionMismatchPolicy versionMismatchPolicy
             = VersionMismatchPolicyOutcome.ABORT;
     private boolean pretend;
+    private int parallelism = 1;
     private VersionUpdateFilter filter;
     private boolean needResolve = true;
     private boolean bumpAlreadyPublishedPoms;
@@ -127,6 +128,18 @@ public class VersionReplacementFinder
         return this;
     }
 
+    /**
+     * Set the number of files to rewrite concurrently.
+     *
+     * @param parallelism A number of threads, greater than zero
+     * @return this
+     */
+    public VersionReplacementFinder parallelism(int parallelism)
+    {
+        this.parallelism = greaterThanZero("parallelism", parallelism);
+        return this;
+    }
+
     public VersionReplacementFinder withFilter(VersionUpdateFilter filter)
     {
         if (!needResolve)
@@ -370,6 +383,22 @@ public class VersionReplacementFinder
     }
 
     public Set<Path> go(Consumer<String> msgs) throws Exception
+    {
+        return go(msgs, null);
+    }
+
+    /**
+     * Rewrite pom files, passing a task which restores the original content
+     * of each file written to the passed consumer, which is compatible with
+     * <code>Rollback.addRollbackTask()</code>.
+     *
+     * @param msgs Receives log messages
+     * @param rollbackTasks Receives rollback tasks, or null
+     * @return The set of files rewritten
+     * @throws Exception If something goes wrong
+     */
+    public Set<Path> go(Consumer<String> msgs,
+            Consumer<? super ThrowingRunnable> rollbackTasks) throws Exception
     {
         List<AbstractXMLUpdater> replacers = new ArrayList<>(xmlUpdaters());
         // Ensure a consistent order for the sanity of anyone reading a log
@@ -377,41 +406,10 @@ public class VersionReplacementFinder
         Collections.sort(replacers);
         try
         {
-            // Preload Document instances for all of the poms, so each document
-            // change operates against any earlier changes
-            return AbstractXMLUpdater.openAll(replacers, () ->
-            {
-                Set<Path> result = new HashSet<>();
-                Map<Path, Document> docForPath = new HashMap<>();
-                for (AbstractXMLUpdater rep : replacers)
-                {
-                    Document changed = rep.replace();
-                    if (changed != null)
-                    {
-                        Document old = docForPath.get(rep.path());
-                        if (old != changed && old != null)
-                        {
-                            throw new IllegalStateException(
-                                    "Context did not hold - " + old + " vs "
-                                    + changed + " for " + rep.path());
-                        }
-                        msgs.accept(" CHANGE: " + rep);
-                        docForPath.put(rep.path(), changed);
-                    }
-                }
-                for (Map.Entry<Path, Document> e : docForPath.entrySet())
-                {
-                    msgs.accept("Rewrite " + e.getKey() + (pretend
-                                                           ? " (pretend)"
-                                                           : ""));
-                    if (!pretend)
-                    {
-                        writeXML(e.getValue(), e.getKey());
-                    }
-                    result.add(e.getKey());
-                }
-                return result;
-            });
+            // Applies changes as patches to the text of each file where
+            // possible, and otherwise edits and rewrites the document
+            return AbstractXMLUpdater.applyAll(replacers, pretend, msgs,
+                    parallelism, rollbackTasks);
         }
         finally
         {
@@ -17,9 +17,13 @@
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 package com.telenav.cactus.maven.xml;
 
+import com.mastfrog.function.throwing.ThrowingRunnable;
 import com.mastfrog.function.throwing.ThrowingSupplier;
+import com.mastfrog.util.preconditions.Exceptions;
+import com.telenav.cactus.maven.xml.XMLPatcher.CannotPatchException;
 import org.w3c.dom.Document;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -29,9 +33,14 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static com.mastfrog.util.preconditions.Checks.notNull;
+import static com.telenav.cactus.maven.xml.XMLReplacer.writeAtomically;
 import static com.telenav.cactus.maven.xml.XMLReplacer.writeXML;
 import static java.util.Collections.sort;
 
@@ -43,6 +52,7 @@ import static java.util.Collections.sort;
 public abstract class AbstractXMLUpdater implements
         Comparable<AbstractXMLUpdater>
 {
+    private static final AtomicInteger THREAD_IDS = new AtomicInteger();
     /**
      * Ensures that the same Document instance is used by all
      * XMLTextContentReplacement instances over the same file within the
@@ -96,6 +106,23 @@ public abstract class AbstractXMLUpdater implements
      */
     public abstract Document replace() throws Exception;
 
+    /**
+     * Perform the change as a patch to the original text of the file, which
+     * avoids holding a DOM in memory and rewriting the entire file. The
+     * default implementation cannot, and throws CannotPatchException, in which
+     * case replace() is used.
+     *
+     * @param patcher A patcher for the file
+     * @return true if the text was changed
+     * @throws CannotPatchException If the change cannot be applied as a patch
+     * @throws Exception If something goes wrong
+     */
+    protected boolean patch(XMLPatcher patcher) throws Exception
+    {
+        throw new CannotPatchException(getClass().getSimpleName()
+                + " does not support patching");
+    }
+
     /**
      * Implements comparable just so these can be logged in a consistent order.
      *
@@ -133,62 +160,269 @@ public abstract class AbstractXMLUpdater implements
     }
 
     /**
-     * Apply a collection of xml updaters to the files they are concerned with.
+     * Apply a collection of xml updaters to the files they are concerned with,
+     * one file at a time.
      *
-     * @param replacers
-     * @param pretend
-     * @param msgs
-     * @return
-     * @throws Exception
+     * @param changes The updaters
+     * @param pretend If true, compute changes but do not write any files
+     * @param msgs Receives log messages
+     * @return The set of files that were (or in pretend mode, would have
+     * been) rewritten
+     * @throws Exception If something goes wrong
      */
     public static Set<Path> applyAll(
             Collection<? extends AbstractXMLUpdater> changes,
             boolean pretend, Consumer<String> msgs) throws Exception
+    {
+        return applyAll(changes, pretend, msgs, 1, null);
+    }
+
+    /**
+     * Apply a collection of xml updaters to the files they are concerned with.
+     * Updaters are grouped by file, and each group is applied and written
+     * independently, on up to <code>parallelism</code> threads. Where every
+     * updater for a file supports it, the changes are applied as patches to
+     * the file's text; otherwise the file's document is loaded, modified and
+     * written. Files are written atomically, by writing a temporary file and
+     * renaming it over the original.
+     * <p>
+     * If a rollback consumer is passed, it receives a task for each file
+     * written, which restores its original content; it is compatible with
+     * <code>Rollback.addRollbackTask()</code>. Tasks are passed for every file
+     * that was written even if writing some other file failed, before the
+     * failure is rethrown. Log messages and rollback tasks are delivered on
+     * the calling thread, in file order.
+     * </p>
+     *
+     * @param changes The updaters
+     * @param pretend If true, compute changes but do not write any files
+     * @param msgs Receives log messages
+     * @param parallelism The maximum number of files to process concurrently
+     * @param rollbackTasks Receives tasks which restore the original content
+     * of each file written, or null
+     * @return The set of files that were (or in pretend mode, would have
+     * been) rewritten
+     * @throws Exception If something goes wrong
+     */
+    public static Set<Path> applyAll(
+            Collection<? extends AbstractXMLUpdater> changes,
+            boolean pretend, Consumer<String> msgs, int parallelism,
+            Consumer<? super ThrowingRunnable> rollbackTasks) throws Exception
     {
         List<AbstractXMLUpdater> replacers = new ArrayList<>(changes);
         // Sort them so we work on one file at a time
         sort(replacers);
-        // Preload Document instances for all of the poms, so each document
-        // change operates against any earlier changes
-        return AbstractXMLUpdater.openAll(replacers, () ->
-        {
-            Set<Path> result = new HashSet<>();
-            Map<Path, Document> docForPath = new LinkedHashMap<>();
-            // Group by file
-            for (AbstractXMLUpdater rep : replacers)
+        Map<Path, List<AbstractXMLUpdater>> byFile = new LinkedHashMap<>();
+        for (AbstractXMLUpdater rep : replacers)
+        {
+            byFile.computeIfAbsent(rep.path(), p -> new ArrayList<>())
+                    .add(rep);
+        }
+        List<FileChanges> files = new ArrayList<>(byFile.size());
+        byFile.forEach((path, reps) -> files.add(new FileChanges(path, reps,
+                pretend, rollbackTasks != null)));
+        int threads = Math.min(Math.max(1, parallelism), files.size());
+        if (threads <= 1)
+        {
+            files.forEach(FileChanges::run);
+        }
+        else
+        {
+            ExecutorService pool = Executors.newFixedThreadPool(threads,
+                    AbstractXMLUpdater::newThread);
+            try
             {
-                Document changed = rep.replace();
-                if (changed != null)
+                List<Future<?>> futures = new ArrayList<>(files.size());
+                for (FileChanges file : files)
+                {
+                    futures.add(pool.submit(file));
+                }
+                for (Future<?> f : futures)
                 {
-                    Document old = docForPath.get(rep.path());
-                    // Do a sanity check in case openAll() has been broken - 
-                    // XMLFile should hold the same document instance the entire
-                    // time we're in here, so each edit is applied against the
-                    // previous one and we don't save and reload over and over
-                    if (old != changed && old != null)
+                    // FileChanges catches its own failures
+                    f.get();
+                }
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        Set<Path> result = new HashSet<>();
+        Throwable failure = null;
+        for (FileChanges file : files)
+        {
+            file.messages.forEach(msgs);
+            if (file.rewritten)
+            {
+                result.add(file.path);
+            }
+            if (file.rollback != null)
+            {
+                rollbackTasks.accept(file.rollback);
+            }
+            if (file.failure != null)
+            {
+                if (failure == null)
+                {
+                    failure = file.failure;
+                }
+                else
+                {
+                    failure.addSuppressed(file.failure);
+                }
+            }
+        }
+        if (failure != null)
+        {
+            return Exceptions.chuck(failure);
+        }
+        return result;
+    }
+
+    private static Thread newThread(Runnable run)
+    {
+        // Equivalent to cactus-util's DaemonThreadFactory, which this
+        // module cannot use, since it must remain loadable on JDK 8
+        Thread result = new Thread(run, "cactus-xml-" + THREAD_IDS
+                .incrementAndGet());
+        result.setDaemon(true);
+        result.setContextClassLoader(Thread.currentThread()
+                .getContextClassLoader());
+        return result;
+    }
+
+    /**
+     * Applies and writes all of the changes to one file, buffering log
+     * messages so they can be emitted in a predictable order.
+     */
+    private static final class FileChanges implements Runnable
+    {
+        private final Path path;
+        private final List<AbstractXMLUpdater> replacers;
+        private final boolean pretend;
+        private final boolean keepOriginal;
+        private final List<String> messages = new ArrayList<>();
+        private boolean rewritten;
+        private RestoreFile rollback;
+        private Throwable failure;
+
+        FileChanges(Path path, List<AbstractXMLUpdater> replacers,
+                boolean pretend, boolean keepOriginal)
+        {
+            this.path = path;
+            this.replacers = replacers;
+            this.pretend = pretend;
+            this.keepOriginal = keepOriginal;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                byte[] original = Files.readAllBytes(path);
+                if (patch(original) || applyToDocument())
+                {
+                    rewritten = true;
+                    if (!pretend && keepOriginal)
                     {
-                        throw new AssertionError(
-                                "Context did not hold - " + old + " vs "
-                                + changed + " for " + rep.path());
+                        rollback = new RestoreFile(path, original);
                     }
-                    msgs.accept(" Apply: " + rep);
-                    docForPath.put(rep.path(), changed);
+                    messages.add((pretend
+                                  ? "(pretend) "
+                                  : "") + "Rewrote " + path);
                 }
             }
-            String mode = (pretend
-                           ? "(pretend) "
-                           : "");
-            // Apply 
-            for (Map.Entry<Path, Document> e : docForPath.entrySet())
+            catch (Exception | Error e)
             {
-                if (!pretend)
+                failure = e;
+            }
+        }
+
+        private boolean patch(byte[] original) throws Exception
+        {
+            try
+            {
+                XMLPatcher patcher = XMLPatcher.of(path, original);
+                for (AbstractXMLUpdater rep : replacers)
+                {
+                    if (rep.patch(patcher))
+                    {
+                        messages.add(" Apply: " + rep);
+                    }
+                }
+                if (patcher.isModified() && !pretend)
                 {
-                    writeXML(e.getValue(), e.getKey());
+                    patcher.write();
                 }
-                result.add(e.getKey());
-                msgs.accept(mode + "Rewrote " + e.getKey());
+                return patcher.isModified();
             }
-            return result;
-        });
+            catch (CannotPatchException ex)
+            {
+                messages.clear();
+                return false;
+            }
+        }
+
+        private boolean applyToDocument() throws Exception
+        {
+            // The document held by inContext() is shared by all XMLFile
+            // instances for a path, so each change applies on top of the
+            // previous ones and the file is written once
+            return replacers.get(0).in.inContext(doc ->
+            {
+                Document result = null;
+                for (AbstractXMLUpdater rep : replacers)
+                {
+                    Document changed = rep.replace();
+                    if (changed != null)
+                    {
+                        // Do a sanity check in case the context has been
+                        // broken
+                        if (result != null && result != changed)
+                        {
+                            throw new AssertionError(
+                                    "Context did not hold - " + result
+                                    + " vs " + changed + " for " + path);
+                        }
+                        messages.add(" Apply: " + rep);
+                        result = changed;
+                    }
+                }
+                if (result != null && !pretend)
+                {
+                    writeXML(result, path);
+                }
+                return result != null;
+            });
+        }
+    }
+
+    /**
+     * Rollback task which restores the original content of a file.
+     */
+    private static final class RestoreFile implements ThrowingRunnable
+    {
+        private final Path path;
+        private final byte[] original;
+
+        RestoreFile(Path path, byte[] original)
+        {
+            this.path = path;
+            this.original = original;
+        }
+
+        @Override
+        public void run() throws Exception
+        {
+            writeAtomically(path, original);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "restore " + path;
+        }
     }
 }
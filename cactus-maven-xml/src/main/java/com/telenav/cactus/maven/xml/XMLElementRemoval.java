@@ -62,6 +62,12 @@ public final class XMLElementRemoval extends AbstractXMLUpdater
         });
     }
 
+    @Override
+    protected boolean patch(XMLPatcher patcher) throws Exception
+    {
+        return patcher.removeElement(query);
+    }
+
     @Override
     public int hashCode()
     {
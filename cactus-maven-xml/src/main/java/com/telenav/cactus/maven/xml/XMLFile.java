@@ -28,11 +28,16 @@ import com.mastfrog.function.throwing.ThrowingSupplier;
 import com.mastfrog.function.throwing.ThrowingTriConsumer;
 import com.mastfrog.function.throwing.ThrowingTriFunction;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -47,6 +52,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import static com.mastfrog.util.preconditions.Checks.notNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Wraps a Path in logic which can read an XML document and perform queries on
@@ -60,7 +66,28 @@ public class XMLFile
             .newInstance();
     protected static final ThreadLocal<XPath> XPATH
             = ThreadLocal.withInitial(() -> XPATH_FACTORY.newXPath());
-    protected final ThreadLocal<Document> docContext = new ThreadLocal<>();
+    private static final int MAX_CACHED_EXPRESSIONS = 256;
+    private static final int MAX_CACHED_DOCUMENTS = 64;
+    // Neither XPathExpression nor DocumentBuilder are thread-safe, and DOM
+    // trees are not safe for concurrent reads either (node lists and deferred
+    // nodes are lazily materialized), so all of these are per-thread
+    private static final ThreadLocal<Map<String, XPathExpression>> EXPRESSIONS
+            = ThreadLocal.withInitial(() -> lru(MAX_CACHED_EXPRESSIONS));
+    private static final ThreadLocal<Map<Path, CachedDocument>> DOCUMENTS
+            = ThreadLocal.withInitial(() -> lru(MAX_CACHED_DOCUMENTS));
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY
+            = DocumentBuilderFactory.newInstance();
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER
+            = new ThreadLocal<>();
+    // Incremented whenever we write an XML file, so a rewrite that leaves the
+    // size and (coarse-grained) timestamp of a file unchanged cannot result
+    // in a stale cached document
+    private static final AtomicInteger WRITES = new AtomicInteger();
+    // Keyed by path rather than held per-instance, so that any XMLFile for a
+    // given file sees the same document inside a context, and callers need
+    // not take pains to use a single instance per file
+    private static final ThreadLocal<Map<Path, Document>> DOC_CONTEXT
+            = ThreadLocal.withInitial(HashMap::new);
     private final Path path;
 
     public XMLFile(Path path)
@@ -71,7 +98,9 @@ public class XMLFile
     /**
      * Get the document. If inside the closure of one of the inContext()
      * methods, the returned document will be held until exit of that context,
-     * so changes can be aggregated.
+     * so changes can be aggregated. Otherwise, the returned document may be
+     * shared with other callers on the same thread until the file changes, and
+     * must not be modified.
      *
      * @return A document
      * @throws ParserConfigurationException
@@ -81,17 +110,99 @@ public class XMLFile
     public Document document() throws ParserConfigurationException,
             SAXException, IOException
     {
-        Document result = docContext.get();
+        Document result = DOC_CONTEXT.get().get(path);
         if (result == null)
         {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory
-                    .newInstance();
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            result = db.parse(path.toFile());
+            result = cachedDocument();
         }
         return result;
     }
 
+    /**
+     * Get a parsed document for this file, reusing one parsed earlier on the
+     * current thread if the file's timestamp and size have not changed since.
+     * The result is shared, so callers must not modify it - the inContext()
+     * methods hand out a private copy for that.
+     */
+    private Document cachedDocument() throws ParserConfigurationException,
+            SAXException, IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes(path,
+                BasicFileAttributes.class);
+        Map<Path, CachedDocument> cache = DOCUMENTS.get();
+        CachedDocument cached = cache.get(path);
+        if (cached != null && cached.isValid(attrs))
+        {
+            return cached.document;
+        }
+        Document result = documentBuilder().parse(path.toFile());
+        cache.put(path, new CachedDocument(result, attrs));
+        return result;
+    }
+
+    private static DocumentBuilder documentBuilder() throws ParserConfigurationException
+    {
+        DocumentBuilder result = DOCUMENT_BUILDER.get();
+        if (result == null)
+        {
+            // DocumentBuilderFactory is not guaranteed to be thread-safe
+            synchronized (DOCUMENT_BUILDER_FACTORY)
+            {
+                result = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+            }
+            DOCUMENT_BUILDER.set(result);
+        }
+        else
+        {
+            result.reset();
+        }
+        return result;
+    }
+
+    /**
+     * Called when an XML file has been written, to invalidate any cached
+     * documents.
+     */
+    static void written()
+    {
+        WRITES.incrementAndGet();
+    }
+
+    private static <K, V> Map<K, V> lru(int max)
+    {
+        return new LinkedHashMap<K, V>(max, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                return size() > max;
+            }
+        };
+    }
+
+    private static final class CachedDocument
+    {
+        private final Document document;
+        private final long lastModified;
+        private final long size;
+        private final int writes;
+
+        CachedDocument(Document document, BasicFileAttributes attrs)
+        {
+            this.document = document;
+            this.lastModified = attrs.lastModifiedTime().to(NANOSECONDS);
+            this.size = attrs.size();
+            this.writes = WRITES.get();
+        }
+
+        boolean isValid(BasicFileAttributes attrs)
+        {
+            return writes == WRITES.get()
+                    && size == attrs.size()
+                    && lastModified == attrs.lastModifiedTime().to(NANOSECONDS);
+        }
+    }
+
     protected static Map<String, String> toStringMap(Map<String, Node> m)
     {
         Map<String, String> result = new TreeMap<>();
@@ -114,12 +225,15 @@ public class XMLFile
 
     public final <T> T inContext(ThrowingFunction<Document, T> supp) throws Exception
     {
-        Document oldDoc = docContext.get();
+        Map<Path, Document> context = DOC_CONTEXT.get();
+        Document oldDoc = context.get(path);
         Document doc;
         if (oldDoc == null)
         {
-            doc = document();
-            docContext.set(doc);
+            // Code running in a context may modify the document, so it gets
+            // its own copy rather than the shared cached instance
+            doc = (Document) cachedDocument().cloneNode(true);
+            context.put(path, doc);
         }
         else
         {
@@ -133,7 +247,7 @@ public class XMLFile
         {
             if (oldDoc == null)
             {
-                docContext.remove();
+                context.remove(path);
             }
         }
     }
@@ -183,10 +297,8 @@ public class XMLFile
 
     public final ThrowingOptional<Node> nodeQuery(String query) throws XPathExpressionException, ParserConfigurationException, SAXException, IOException
     {
-        XPath xpath = xpath();
         Document doc = document();
-        XPathExpression findPackaging = xpath.compile(query);
-        Node result = (Node) findPackaging.evaluate(doc, XPathConstants.NODE);
+        Node result = (Node) compile(query).evaluate(doc, XPathConstants.NODE);
         return ThrowingOptional.ofNullable(result);
     }
 
@@ -279,10 +391,8 @@ public class XMLFile
 
     public final ThrowingOptional<NodeList> nodesQuery(String query) throws XPathExpressionException, ParserConfigurationException, SAXException, IOException
     {
-        XPath xpath = xpath();
         Document doc = document();
-        XPathExpression findPackaging = xpath.compile(query);
-        NodeList result = (NodeList) findPackaging.evaluate(doc,
+        NodeList result = (NodeList) compile(query).evaluate(doc,
                 XPathConstants.NODESET);
         if (result == null || result.getLength() == 0)
         {
@@ -296,6 +406,26 @@ public class XMLFile
         return XPATH.get();
     }
 
+    /**
+     * Get a compiled XPath expression for the passed query, reusing one
+     * compiled earlier on the current thread if possible.
+     *
+     * @param query An XPath query
+     * @return An expression
+     * @throws XPathExpressionException If the query is invalid
+     */
+    protected static XPathExpression compile(String query) throws XPathExpressionException
+    {
+        Map<String, XPathExpression> cache = EXPRESSIONS.get();
+        XPathExpression result = cache.get(query);
+        if (result == null)
+        {
+            result = xpath().compile(query);
+            cache.put(query, result);
+        }
+        return result;
+    }
+
     /**
      * Get the file represented by this XMLFile.
      *
@@ -0,0 +1,622 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.xml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Edits an XML file by patching the original text at the offsets of the
+ * elements being changed, rather than parsing it into a DOM and serializing
+ * the whole document again. Everything outside the edited ranges - formatting,
+ * comments, attribute quoting, the XML declaration - is left byte-for-byte
+ * identical, and only one file's text needs to be held in memory at a time.
+ * <p>
+ * Queries are limited to simple absolute element paths such as
+ * <code>/project/parent/version</code>, and edited elements must contain
+ * nothing but character data and the predefined or numeric entities. Anything
+ * else - other XPath constructs, non UTF-8 encodings, DTDs, CDATA or markup
+ * inside an edited element - results in a CannotPatchException, and the
+ * caller should fall back to editing the DOM.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+public final class XMLPatcher
+{
+    private static final Pattern SIMPLE_PATH
+            = Pattern.compile("(?:/[^/\\[\\]()@*=|:'\"\\s]+)+");
+    private static final Pattern ENCODING
+            = Pattern.compile("encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+    private final Path path;
+    private final String original;
+    private String text;
+    private Map<String, List<Element>> index;
+
+    private XMLPatcher(Path path, String text)
+    {
+        this.path = path;
+        this.original = text;
+        this.text = text;
+    }
+
+    /**
+     * Load a file to patch.
+     *
+     * @param path A file
+     * @return A patcher
+     * @throws IOException If the file cannot be read
+     * @throws CannotPatchException If the file is not UTF-8 or cannot be
+     * losslessly decoded
+     */
+    public static XMLPatcher load(Path path) throws IOException,
+            CannotPatchException
+    {
+        return of(path, Files.readAllBytes(notNull("path", path)));
+    }
+
+    /**
+     * Create a patcher for the passed content of a file.
+     *
+     * @param path A file
+     * @param bytes The content of the file
+     * @return A patcher
+     * @throws CannotPatchException If the content is not UTF-8 or cannot be
+     * losslessly decoded
+     */
+    public static XMLPatcher of(Path path, byte[] bytes)
+            throws CannotPatchException
+    {
+        notNull("path", path);
+        String text = new String(bytes, UTF_8);
+        if (!Arrays.equals(bytes, text.getBytes(UTF_8)))
+        {
+            throw new CannotPatchException("Not valid UTF-8: " + path);
+        }
+        if (text.startsWith("<?xml"))
+        {
+            int end = text.indexOf("?>");
+            Matcher m = ENCODING.matcher(end < 0
+                                         ? text
+                                         : text.substring(0, end));
+            if (m.find() && !"utf-8".equalsIgnoreCase(m.group(1)))
+            {
+                throw new CannotPatchException("Encoding " + m.group(1)
+                        + " in " + path);
+            }
+        }
+        return new XMLPatcher(path, text);
+    }
+
+    /**
+     * The file being patched.
+     *
+     * @return A path
+     */
+    public Path path()
+    {
+        return path;
+    }
+
+    /**
+     * Get the current, possibly patched, text of the file.
+     *
+     * @return The text
+     */
+    public String text()
+    {
+        return text;
+    }
+
+    /**
+     * Determine if any patch has changed the text.
+     *
+     * @return true if the text differs from that of the file
+     */
+    public boolean isModified()
+    {
+        return !original.equals(text);
+    }
+
+    /**
+     * Write the patched text back to the file atomically, if it was modified.
+     *
+     * @return true if the file was written
+     * @throws IOException If something goes wrong
+     */
+    public boolean write() throws IOException
+    {
+        if (!isModified())
+        {
+            return false;
+        }
+        XMLReplacer.writeAtomically(path, text.getBytes(UTF_8));
+        return true;
+    }
+
+    /**
+     * Replace the text content of the first element matching the query, as
+     * XMLTextContentReplacement does.
+     *
+     * @param query A simple element path
+     * @param newValue The new text, or null to replace the element with an
+     * empty, self-closing one
+     * @return true if the text was changed
+     * @throws CannotPatchException If the query or element is not supported
+     */
+    public boolean replaceText(String query, String newValue)
+            throws CannotPatchException
+    {
+        Element el = first(query);
+        if (el == null)
+        {
+            return false;
+        }
+        if (newValue == null)
+        {
+            splice(el.start, el.end, "<" + el.name + "/>");
+            return true;
+        }
+        if (el.hasMarkup)
+        {
+            throw new CannotPatchException(query + " contains markup in "
+                    + path);
+        }
+        String current = el.selfClosing
+                         ? ""
+                         : decode(text.substring(el.contentStart,
+                                 el.contentEnd));
+        if (newValue.equals(current.trim()))
+        {
+            return false;
+        }
+        if (el.selfClosing)
+        {
+            String startTag = text.substring(el.start, el.end - 2);
+            splice(el.start, el.end, trimTrailing(startTag) + ">"
+                    + escape(newValue) + "</" + el.name + ">");
+        }
+        else
+        {
+            splice(el.contentStart, el.contentEnd, escape(newValue));
+        }
+        return true;
+    }
+
+    /**
+     * Insert a new element containing the passed text after the first
+     * element matching the query, preceded by the passed whitespace, as
+     * XMLVersionElementAdder does. If the matched element is the last node in
+     * its parent, the new element is inserted before it instead.
+     *
+     * @param query A simple element path
+     * @param indent Whitespace to precede the new element
+     * @param name The name of the new element
+     * @param value The text of the new element
+     * @return true if the element was inserted
+     * @throws CannotPatchException If the query is not supported
+     */
+    public boolean insertElementAfter(String query, String indent, String name,
+            String value) throws CannotPatchException
+    {
+        Element el = first(query);
+        if (el == null)
+        {
+            return false;
+        }
+        String insertion = indent + "<" + name + ">" + escape(value)
+                + "</" + name + ">";
+        if (text.startsWith("</", el.end))
+        {
+            splice(el.start, el.start, insertion);
+        }
+        else
+        {
+            splice(el.end, el.end, insertion);
+        }
+        return true;
+    }
+
+    /**
+     * Remove the first element matching the query, along with any
+     * whitespace-only text that follows it, as XMLElementRemoval does.
+     *
+     * @param query A simple element path
+     * @return true if an element was removed
+     * @throws CannotPatchException If the query is not supported
+     */
+    public boolean removeElement(String query) throws CannotPatchException
+    {
+        Element el = first(query);
+        if (el == null)
+        {
+            return false;
+        }
+        int end = el.end;
+        int nextMarkup = text.indexOf('<', end);
+        if (nextMarkup < 0)
+        {
+            nextMarkup = text.length();
+        }
+        if (isWhitespace(end, nextMarkup))
+        {
+            end = nextMarkup;
+        }
+        splice(el.start, end, "");
+        return true;
+    }
+
+    private void splice(int start, int end, String replacement)
+    {
+        text = text.substring(0, start) + replacement + text.substring(end);
+        index = null;
+    }
+
+    private Element first(String query) throws CannotPatchException
+    {
+        if (!SIMPLE_PATH.matcher(notNull("query", query)).matches())
+        {
+            throw new CannotPatchException("Not a simple path: " + query);
+        }
+        List<Element> result = index().get(query);
+        return result == null || result.isEmpty()
+               ? null
+               : result.get(0);
+    }
+
+    private Map<String, List<Element>> index() throws CannotPatchException
+    {
+        if (index == null)
+        {
+            index = scan();
+        }
+        return index;
+    }
+
+    /**
+     * Make one pass over the text, recording the offsets of every element by
+     * its path.
+     */
+    private Map<String, List<Element>> scan() throws CannotPatchException
+    {
+        Map<String, List<Element>> result = new HashMap<>();
+        List<Element> stack = new ArrayList<>();
+        int length = text.length();
+        int pos = 0;
+        while (pos < length)
+        {
+            int lt = text.indexOf('<', pos);
+            if (lt < 0)
+            {
+                break;
+            }
+            if (text.startsWith("<!--", lt))
+            {
+                pos = skipPast(lt, "-->");
+                markupInside(stack);
+            }
+            else if (text.startsWith("<?", lt))
+            {
+                pos = skipPast(lt, "?>");
+                markupInside(stack);
+            }
+            else if (text.startsWith("<![CDATA[", lt))
+            {
+                pos = skipPast(lt, "]]>");
+                markupInside(stack);
+            }
+            else if (text.startsWith("<!", lt))
+            {
+                throw new CannotPatchException("DTD or unsupported markup at "
+                        + lt + " in " + path);
+            }
+            else if (text.startsWith("</", lt))
+            {
+                int gt = text.indexOf('>', lt);
+                if (gt < 0 || stack.isEmpty())
+                {
+                    throw new CannotPatchException("Unbalanced end tag at "
+                            + lt + " in " + path);
+                }
+                Element el = stack.remove(stack.size() - 1);
+                if (!el.name.equals(text.substring(lt + 2, gt).trim()))
+                {
+                    throw new CannotPatchException("Mismatched end tag at "
+                            + lt + " in " + path);
+                }
+                el.contentEnd = lt;
+                el.end = gt + 1;
+                pos = gt + 1;
+            }
+            else
+            {
+                markupInside(stack);
+                int gt = endOfTag(lt);
+                String name = tagName(lt);
+                String elementPath = (stack.isEmpty()
+                                      ? ""
+                                      : stack.get(stack.size() - 1).path)
+                        + "/" + name;
+                Element el = new Element(name, elementPath, lt);
+                result.computeIfAbsent(elementPath, p -> new ArrayList<>(2))
+                        .add(el);
+                if (text.charAt(gt - 1) == '/')
+                {
+                    el.selfClosing = true;
+                    el.end = gt + 1;
+                }
+                else
+                {
+                    el.contentStart = gt + 1;
+                    stack.add(el);
+                }
+                pos = gt + 1;
+            }
+        }
+        if (!stack.isEmpty())
+        {
+            throw new CannotPatchException("Unclosed element "
+                    + stack.get(stack.size() - 1).path + " in " + path);
+        }
+        return result;
+    }
+
+    private static void markupInside(List<Element> stack)
+    {
+        if (!stack.isEmpty())
+        {
+            stack.get(stack.size() - 1).hasMarkup = true;
+        }
+    }
+
+    private int skipPast(int from, String terminator) throws CannotPatchException
+    {
+        int ix = text.indexOf(terminator, from);
+        if (ix < 0)
+        {
+            throw new CannotPatchException("Unterminated markup at " + from
+                    + " in " + path);
+        }
+        return ix + terminator.length();
+    }
+
+    private int endOfTag(int lt) throws CannotPatchException
+    {
+        char quote = 0;
+        for (int i = lt + 1; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if (quote != 0)
+            {
+                if (c == quote)
+                {
+                    quote = 0;
+                }
+            }
+            else if (c == '"' || c == '\'')
+            {
+                quote = c;
+            }
+            else if (c == '>')
+            {
+                return i;
+            }
+        }
+        throw new CannotPatchException("Unterminated tag at " + lt + " in "
+                + path);
+    }
+
+    private String tagName(int lt) throws CannotPatchException
+    {
+        int end = lt + 1;
+        while (end < text.length())
+        {
+            char c = text.charAt(end);
+            if (Character.isWhitespace(c) || c == '/' || c == '>')
+            {
+                break;
+            }
+            end++;
+        }
+        if (end == lt + 1)
+        {
+            throw new CannotPatchException("Empty tag name at " + lt + " in "
+                    + path);
+        }
+        return text.substring(lt + 1, end);
+    }
+
+    private boolean isWhitespace(int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (!Character.isWhitespace(text.charAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String trimTrailing(String s)
+    {
+        int end = s.length();
+        while (end > 0 && Character.isWhitespace(s.charAt(end - 1)))
+        {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    private String decode(String content) throws CannotPatchException
+    {
+        if (content.indexOf('&') < 0)
+        {
+            return content;
+        }
+        StringBuilder sb = new StringBuilder(content.length());
+        for (int i = 0; i < content.length(); i++)
+        {
+            char c = content.charAt(i);
+            if (c != '&')
+            {
+                sb.append(c);
+                continue;
+            }
+            int semi = content.indexOf(';', i);
+            if (semi < 0)
+            {
+                throw new CannotPatchException("Bad entity in " + path);
+            }
+            String entity = content.substring(i + 1, semi);
+            switch (entity)
+            {
+                case "lt":
+                    sb.append('<');
+                    break;
+                case "gt":
+                    sb.append('>');
+                    break;
+                case "amp":
+                    sb.append('&');
+                    break;
+                case "quot":
+                    sb.append('"');
+                    break;
+                case "apos":
+                    sb.append('\'');
+                    break;
+                default:
+                    sb.appendCodePoint(characterReference(entity));
+            }
+            i = semi;
+        }
+        return sb.toString();
+    }
+
+    private int characterReference(String entity) throws CannotPatchException
+    {
+        try
+        {
+            if (entity.startsWith("#x"))
+            {
+                return Integer.parseInt(entity.substring(2), 16);
+            }
+            else if (entity.startsWith("#"))
+            {
+                return Integer.parseInt(entity.substring(1));
+            }
+        }
+        catch (NumberFormatException ex)
+        {
+            // fall through
+        }
+        throw new CannotPatchException("Unsupported entity &" + entity
+                + "; in " + path);
+    }
+
+    private static String escape(String value)
+    {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++)
+        {
+            String rep;
+            switch (value.charAt(i))
+            {
+                case '&':
+                    rep = "&amp;";
+                    break;
+                case '<':
+                    rep = "&lt;";
+                    break;
+                case '>':
+                    rep = "&gt;";
+                    break;
+                default:
+                    rep = null;
+            }
+            if (rep != null && sb == null)
+            {
+                sb = new StringBuilder(value.length() + 8);
+                sb.append(value, 0, i);
+            }
+            if (sb != null)
+            {
+                if (rep != null)
+                {
+                    sb.append(rep);
+                }
+                else
+                {
+                    sb.append(value.charAt(i));
+                }
+            }
+        }
+        return sb == null
+               ? value
+               : sb.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return path.toString();
+    }
+
+    private static final class Element
+    {
+        private final String name;
+        private final String path;
+        private final int start;
+        private int contentStart;
+        private int contentEnd;
+        private int end;
+        private boolean selfClosing;
+        private boolean hasMarkup;
+
+        Element(String name, String path, int start)
+        {
+            this.name = name;
+            this.path = path;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Thrown when a change cannot be expressed as a patch to the text of a
+     * file, and should be applied to the DOM instead.
+     */
+    public static final class CannotPatchException extends Exception
+    {
+        public CannotPatchException(String message)
+        {
+            super(message);
+        }
+    }
+}
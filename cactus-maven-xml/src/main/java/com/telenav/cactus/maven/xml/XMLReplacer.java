@@ -18,8 +18,12 @@
 package com.telenav.cactus.maven.xml;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -28,6 +32,9 @@ import javax.xml.transform.stream.StreamResult;
 import org.w3c.dom.Document;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
 import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
 
@@ -64,7 +71,85 @@ public final class XMLReplacer
             oldContent = new String(Files.readAllBytes(path), UTF_8);
         }
         munge = restoreOriginalHead(oldContent, munge);
-        Files.write(path, munge.getBytes(UTF_8), WRITE, TRUNCATE_EXISTING);
+        writeAtomically(path, munge.getBytes(UTF_8));
+    }
+
+    /**
+     * Replace the content of a file by writing a temporary file alongside it
+     * and renaming it over the original, so a failure or a concurrent reader
+     * never sees a partially written file.
+     *
+     * @param path A file
+     * @param bytes The new content
+     * @throws IOException If something goes wrong
+     */
+    static void writeAtomically(Path path, byte[] bytes) throws IOException
+    {
+        Path dir = path.toAbsolutePath().getParent();
+        if (Files.isSymbolicLink(path) || dir == null)
+        {
+            // Renaming over a link would replace the link, not its target
+            Files.write(path, bytes, WRITE, TRUNCATE_EXISTING, CREATE);
+            XMLFile.written();
+            return;
+        }
+        Path temp = createTempFile(dir, path.getFileName().toString());
+        try
+        {
+            copyPermissions(path, temp);
+            Files.write(temp, bytes, WRITE, TRUNCATE_EXISTING);
+            try
+            {
+                Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp, path, REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+            XMLFile.written();
+        }
+    }
+
+    private static Path createTempFile(Path dir, String name)
+            throws IOException
+    {
+        // Not Files.createTempFile(), which creates files readable only by
+        // their owner - a newly created pom should get the same mode as any
+        // other new file
+        for (;;)
+        {
+            Path result = dir.resolve("." + name + "."
+                    + Long.toHexString(ThreadLocalRandom.current().nextLong()
+                            & Long.MAX_VALUE) + ".tmp");
+            try
+            {
+                return Files.createFile(result);
+            }
+            catch (FileAlreadyExistsException ex)
+            {
+                // try another name
+            }
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to)
+    {
+        try
+        {
+            if (Files.exists(from))
+            {
+                Files.setPosixFilePermissions(to, Files
+                        .getPosixFilePermissions(from));
+            }
+        }
+        catch (IOException | UnsupportedOperationException ex)
+        {
+            // Not a POSIX filesystem - nothing to do
+        }
     }
 
     private static String restoreOriginalHead(String orig, String mangled)
@@ -89,6 +89,12 @@ public final class XMLTextContentReplacement extends AbstractXMLUpdater
         });
     }
 
+    @Override
+    protected boolean patch(XMLPatcher patcher) throws Exception
+    {
+        return patcher.replaceText(xslQuery, newValue);
+    }
+
     @Override
     public int hashCode()
     {
@@ -64,6 +64,13 @@ public class XMLVersionElementAdder extends AbstractXMLUpdater
         });
     }
 
+    @Override
+    protected boolean patch(XMLPatcher patcher) throws Exception
+    {
+        return patcher.insertElementAfter("/project/artifactId", "\n    ",
+                "version", version);
+    }
+
     @Override
     public String toString()
     {
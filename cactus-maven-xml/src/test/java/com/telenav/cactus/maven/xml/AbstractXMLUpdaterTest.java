@@ -0,0 +1,240 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.xml;
+
+import com.mastfrog.function.throwing.ThrowingRunnable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class AbstractXMLUpdaterTest
+{
+    private static final int FILES = 12;
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testParallelApplyMatchesSequential() throws Exception
+    {
+        Map<Path, byte[]> sequential = createPoms(dir.resolve("sequential"));
+        Map<Path, byte[]> parallel = createPoms(dir.resolve("parallel"));
+        List<String> sequentialMessages = new ArrayList<>();
+        List<String> parallelMessages = new ArrayList<>();
+
+        Set<Path> sequentialResult = AbstractXMLUpdater.applyAll(
+                updaters(sequential.keySet()), false, sequentialMessages::add);
+        Set<Path> parallelResult = AbstractXMLUpdater.applyAll(
+                updaters(parallel.keySet()), false, parallelMessages::add, 4,
+                null);
+
+        assertEquals(FILES, sequentialResult.size());
+        assertEquals(relative(sequentialResult, "sequential"),
+                relative(parallelResult, "parallel"));
+        assertEquals(sequentialMessages.toString().replace("sequential",
+                "parallel"), parallelMessages.toString());
+        for (Path p : sequential.keySet())
+        {
+            Path other = dir.resolve("parallel").resolve(p.getFileName());
+            assertArrayEquals(Files.readAllBytes(p), Files.readAllBytes(other),
+                    p.toString());
+        }
+    }
+
+    @Test
+    public void testFailureStillYieldsRollbackForFilesWritten()
+            throws Exception
+    {
+        Map<Path, byte[]> poms = createPoms(dir);
+        // Unclosed, so neither patching nor parsing it can succeed
+        Path broken = dir.resolve("pom-05.xml");
+        Files.write(broken, "<project><version>1.0</version>"
+                .getBytes(UTF_8));
+        poms.put(broken, Files.readAllBytes(broken));
+
+        List<ThrowingRunnable> rollback = new ArrayList<>();
+        assertThrows(Exception.class, () -> AbstractXMLUpdater.applyAll(
+                updaters(poms.keySet()), false, msg ->
+        {
+        }, 4, rollback::add));
+        assertEquals(FILES - 1, rollback.size(), rollback::toString);
+        for (Path p : poms.keySet())
+        {
+            if (!p.equals(broken))
+            {
+                assertTrue(new String(Files.readAllBytes(p), UTF_8)
+                        .contains("<version>2.0</version>"), p::toString);
+            }
+        }
+        for (ThrowingRunnable r : rollback)
+        {
+            r.run();
+        }
+        for (Map.Entry<Path, byte[]> e : poms.entrySet())
+        {
+            assertArrayEquals(e.getValue(), Files.readAllBytes(e.getKey()),
+                    e.getKey().toString());
+        }
+    }
+
+    @Test
+    public void testPretendWritesNothing() throws Exception
+    {
+        Map<Path, byte[]> poms = createPoms(dir);
+        Map<Path, FileTime> timestamps = new LinkedHashMap<>();
+        for (Path p : poms.keySet())
+        {
+            timestamps.put(p, Files.getLastModifiedTime(p));
+        }
+        List<String> messages = new ArrayList<>();
+        List<ThrowingRunnable> rollback = new ArrayList<>();
+        Set<Path> result = AbstractXMLUpdater.applyAll(updaters(poms
+                .keySet()), true, messages::add, 4, rollback::add);
+
+        assertEquals(poms.keySet(), result);
+        assertTrue(rollback.isEmpty(), rollback::toString);
+        assertTrue(messages.contains("(pretend) Rewrote " + dir.resolve(
+                "pom-00.xml")), messages::toString);
+        for (Map.Entry<Path, byte[]> e : poms.entrySet())
+        {
+            assertArrayEquals(e.getValue(), Files.readAllBytes(e.getKey()));
+            assertEquals(timestamps.get(e.getKey()), Files.getLastModifiedTime(
+                    e.getKey()));
+        }
+        try ( Stream<Path> files = Files.list(dir))
+        {
+            assertEquals(FILES, files.count(), "Temporary files left behind");
+        }
+    }
+
+    @Test
+    public void testAtomicWritePreservesPermissions() throws Exception
+    {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews()
+                .contains("posix"));
+        Path file = dir.resolve("pom.xml");
+        Files.write(file, pom(1).getBytes(UTF_8));
+        Set<PosixFilePermission> perms = PosixFilePermissions.fromString(
+                "rwxrw-r--");
+        Files.setPosixFilePermissions(file, perms);
+
+        XMLReplacer.writeAtomically(file, pom(2).getBytes(UTF_8));
+
+        assertEquals(pom(2), new String(Files.readAllBytes(file), UTF_8));
+        assertEquals(perms, Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    public void testAtomicWriteOfNewFileUsesDefaultPermissions()
+            throws Exception
+    {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews()
+                .contains("posix"));
+        // Whatever the umask gives an ordinary new file
+        Path plain = dir.resolve("plain.xml");
+        Files.write(plain, pom(1).getBytes(UTF_8));
+        Path file = dir.resolve("pom.xml");
+
+        XMLReplacer.writeAtomically(file, pom(1).getBytes(UTF_8));
+
+        assertEquals(pom(1), new String(Files.readAllBytes(file), UTF_8));
+        assertEquals(Files.getPosixFilePermissions(plain), Files
+                .getPosixFilePermissions(file));
+        try (Stream<Path> files = Files.list(dir))
+        {
+            assertEquals(2, files.count(), "Temp file left behind");
+        }
+    }
+
+    private static List<AbstractXMLUpdater> updaters(Set<Path> files)
+    {
+        List<AbstractXMLUpdater> result = new ArrayList<>();
+        for (Path p : files)
+        {
+            XMLFile xml = new XMLFile(p);
+            result.add(new XMLTextContentReplacement(xml, "/project/version",
+                    "2.0"));
+            result.add(new XMLTextContentReplacement(xml,
+                    "/project/properties/foo.version", "3.0"));
+        }
+        return result;
+    }
+
+    private static Set<String> relative(Set<Path> paths, String folder)
+    {
+        Set<String> result = new TreeSet<>();
+        for (Path p : paths)
+        {
+            assertEquals(folder, p.getParent().getFileName().toString());
+            result.add(p.getFileName().toString());
+        }
+        return result;
+    }
+
+    private static Map<Path, byte[]> createPoms(Path folder) throws IOException
+    {
+        Files.createDirectories(folder);
+        Map<Path, byte[]> result = new LinkedHashMap<>();
+        for (int i = 0; i < FILES; i++)
+        {
+            Path file = folder.resolve(String.format("pom-%02d.xml", i));
+            byte[] bytes = pom(i).getBytes(UTF_8);
+            Files.write(file, bytes);
+            result.put(file, bytes);
+        }
+        return result;
+    }
+
+    private static String pom(int index)
+    {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project>\n"
+                + "    <artifactId>thing-" + index + "</artifactId>\n"
+                + "    <version>1.0</version>\n"
+                + "    <properties>\n"
+                + (index % 3 == 0
+                   // Some files take the DOM path
+                   ? "        <foo.version><!-- c -->1.0</foo.version>\n"
+                   : "        <foo.version>1.0</foo.version>\n")
+                + "    </properties>\n"
+                + "</project>\n";
+    }
+}
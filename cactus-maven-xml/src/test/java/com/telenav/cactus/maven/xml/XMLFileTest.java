@@ -0,0 +1,146 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.xml;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class XMLFileTest
+{
+    private static final String POM = "<project>\n"
+            + "    <version>1.0</version>\n"
+            + "</project>\n";
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testUnchangedFileIsParsedOnce() throws Exception
+    {
+        XMLFile file = new XMLFile(write("pom.xml"));
+        Document doc = file.document();
+        assertSame(doc, file.document());
+        assertSame(doc, new XMLFile(file.path()).document());
+    }
+
+    @Test
+    public void testRewriteOnSameThreadIsSeen() throws Exception
+    {
+        Path path = write("pom.xml");
+        XMLFile file = new XMLFile(path);
+        assertEquals("1.0", version(file));
+
+        // Same size; put the timestamp back as a file system with coarse
+        // timestamps would
+        XMLPatcher patcher = XMLPatcher.load(path);
+        patcher.replaceText("/project/version", "2.0");
+        rewriteKeepingTimestamp(path, patcher);
+        assertEquals("2.0", version(file));
+
+        // And through the DOM
+        XMLReplacer.writeXML(file.inContext(doc ->
+        {
+            doc.getDocumentElement().getElementsByTagName("version").item(0)
+                    .setTextContent("3.0");
+            return doc;
+        }), path);
+        assertEquals("3.0", version(file));
+    }
+
+    @Test
+    public void testRewriteOnAnotherThreadIsSeen() throws Exception
+    {
+        Path path = write("pom.xml");
+        XMLFile file = new XMLFile(path);
+        Document before = file.document();
+        assertEquals("1.0", version(file));
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try
+        {
+            other.submit(() ->
+            {
+                XMLFile otherFile = new XMLFile(path);
+                // Populate the other thread's cache too
+                assertEquals("1.0", version(otherFile));
+                XMLPatcher patcher = XMLPatcher.load(path);
+                patcher.replaceText("/project/version", "2.0");
+                rewriteKeepingTimestamp(path, patcher);
+                assertEquals("2.0", version(otherFile));
+                return null;
+            }).get();
+        }
+        finally
+        {
+            other.shutdown();
+        }
+        assertEquals("2.0", version(file));
+        assertNotSame(before, file.document());
+    }
+
+    @Test
+    public void testModificationInContextDoesNotLeakIntoCache()
+            throws Exception
+    {
+        XMLFile file = new XMLFile(write("pom.xml"));
+        assertEquals("1.0", version(file));
+        file.inContextRun(() ->
+        {
+            new XMLTextContentReplacement(file, "/project/version", "2.0")
+                    .replace();
+            assertEquals("2.0", version(file));
+        });
+        assertEquals("1.0", version(file));
+    }
+
+    private static void rewriteKeepingTimestamp(Path path,
+            XMLPatcher patcher) throws Exception
+    {
+        FileTime time = Files.getLastModifiedTime(path);
+        long size = Files.size(path);
+        patcher.write();
+        Files.setLastModifiedTime(path, time);
+        assertEquals(size, Files.size(path));
+    }
+
+    private static String version(XMLFile file) throws Exception
+    {
+        return file.nodeText("/project/version").get();
+    }
+
+    private Path write(String name) throws Exception
+    {
+        Path result = dir.resolve(name);
+        Files.write(result, POM.getBytes(UTF_8));
+        return result;
+    }
+}
@@ -0,0 +1,315 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.maven.xml;
+
+import com.telenav.cactus.maven.xml.XMLPatcher.CannotPatchException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class XMLPatcherTest
+{
+    private static final Path PATH = Paths.get("pom.xml");
+    private static final String POM
+            = "<?xml version='1.0' encoding=\"UTF-8\"?>\n"
+            + "<!-- A header comment  -->\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"\n"
+            + "         xmlns:xsi = 'http://www.w3.org/2001/XMLSchema-instance'>\n"
+            + "    <modelVersion>4.0.0</modelVersion>\n"
+            + "    <parent>\n"
+            + "        <groupId>com.foo</groupId>\n"
+            + "        <artifactId>foo-parent</artifactId>\n"
+            + "        <version>1.0</version>\n"
+            + "    </parent>\n"
+            + "    <artifactId>foo</artifactId>\n"
+            + "    <version>1.0</version>\n"
+            + "    <name>Foo &amp; Bar</name>\n"
+            + "    <description><![CDATA[Some <b>markup</b>]]></description>\n"
+            + "    <properties>\n"
+            + "        <!-- a comment -->\n"
+            + "        <foo.version>1.0</foo.version>\n"
+            + "        <bar.version/>\n"
+            + "        <baz.version\t/>\n"
+            + "    </properties>\n"
+            + "</project>\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReplaceText() throws Exception
+    {
+        XMLPatcher patcher = patcher(POM);
+        assertFalse(patcher.replaceText("/project/version", "1.0"));
+        assertFalse(patcher.isModified());
+        assertTrue(patcher.replaceText("/project/version", "2.0"));
+        assertTrue(patcher.isModified());
+        // Only the first match for a path, and only that element, changes
+        assertEquals(POM.replace("    <version>1.0</version>\n    <name>",
+                "    <version>2.0</version>\n    <name>"), patcher.text());
+        assertTrue(patcher.replaceText("/project/parent/version", "1.1"));
+        assertTrue(patcher.text().contains(
+                "<version>1.1</version>\n    </parent>"));
+        assertFalse(patcher.replaceText("/project/nothing", "x"));
+    }
+
+    @Test
+    public void testReplaceTextOfSelfClosingElement() throws Exception
+    {
+        XMLPatcher patcher = patcher(POM);
+        assertTrue(patcher.replaceText("/project/properties/bar.version",
+                "3.0"));
+        assertTrue(patcher.replaceText("/project/properties/baz.version",
+                "4.0"));
+        assertEquals(POM
+                .replace("<bar.version/>", "<bar.version>3.0</bar.version>")
+                .replace("<baz.version\t/>", "<baz.version>4.0</baz.version>"),
+                patcher.text());
+    }
+
+    @Test
+    public void testReplaceTextWithEntities() throws Exception
+    {
+        XMLPatcher patcher = patcher(POM);
+        // Compared against the decoded text, as with the DOM
+        assertFalse(patcher.replaceText("/project/name", "Foo & Bar"));
+        assertTrue(patcher.replaceText("/project/name", "Foo <&> Bar"));
+        assertEquals(POM.replace("Foo &amp; Bar", "Foo &lt;&amp;&gt; Bar"),
+                patcher.text());
+
+        patcher = patcher("<project><name>&#x41;&#66;</name></project>");
+        assertFalse(patcher.replaceText("/project/name", "AB"));
+    }
+
+    @Test
+    public void testReplaceTextWithNullMakesSelfClosingElement()
+            throws Exception
+    {
+        XMLPatcher patcher = patcher(POM);
+        assertTrue(patcher.replaceText("/project/properties/foo.version",
+                null));
+        assertEquals(POM.replace("<foo.version>1.0</foo.version>",
+                "<foo.version/>"), patcher.text());
+    }
+
+    @Test
+    public void testInsertElementAfter() throws Exception
+    {
+        XMLPatcher patcher = patcher(POM);
+        assertTrue(patcher.insertElementAfter("/project/artifactId", "\n    ",
+                "packaging", "pom"));
+        assertEquals(POM.replace("<artifactId>foo</artifactId>",
+                "<artifactId>foo</artifactId>\n    <packaging>pom</packaging>"),
+                patcher.text());
+        assertFalse(patcher.insertElementAfter("/project/nothing", "",
+                "x", "y"));
+    }
+
+    @Test
+    public void testInsertElementAfterLastChild() throws Exception
+    {
+        // As XMLVersionElementAdder does with the DOM, if there is no
+        // following node, the element goes before the anchor
+        XMLPatcher patcher = patcher(
+                "<project><artifactId>foo</artifactId></project>");
+        assertTrue(patcher.insertElementAfter("/project/artifactId", "\n    ",
+                "version", "1 & 2"));
+        assertEquals("<project>\n    <version>1 &amp; 2</version>"
+                + "<artifactId>foo</artifactId></project>", patcher.text());
+    }
+
+    @Test
+    public void testRemoveElement() throws Exception
+    {
+        XMLPatcher patcher = patcher(POM);
+        assertTrue(patcher.removeElement("/project/parent"));
+        assertEquals(POM.replace("<parent>\n"
+                + "        <groupId>com.foo</groupId>\n"
+                + "        <artifactId>foo-parent</artifactId>\n"
+                + "        <version>1.0</version>\n"
+                + "    </parent>\n    ", ""), patcher.text());
+        assertFalse(patcher.removeElement("/project/parent"));
+
+        patcher = patcher("<a><b>1</b><c>2</c>text</a>");
+        assertTrue(patcher.removeElement("/a/b"));
+        assertTrue(patcher.removeElement("/a/c"));
+        // Non-whitespace text following an element is kept
+        assertEquals("<a>text</a>", patcher.text());
+    }
+
+    @Test
+    public void testUnsupportedContentCannotBePatched() throws Exception
+    {
+        // CDATA
+        assertThrows(CannotPatchException.class, ()
+                -> patcher(POM).replaceText("/project/description", "x"));
+        // Comments and child elements
+        assertThrows(CannotPatchException.class, ()
+                -> patcher(POM).replaceText("/project/properties", "x"));
+        assertThrows(CannotPatchException.class, ()
+                -> patcher(POM).replaceText("/project/parent", "x"));
+        // But elements alongside them are fine
+        assertTrue(patcher(POM).replaceText("/project/properties/foo.version",
+                "2.0"));
+        // DTDs
+        assertThrows(CannotPatchException.class, () -> patcher(
+                "<!DOCTYPE project [<!ENTITY v \"1.0\">]>\n"
+                + "<project><version>&v;</version></project>")
+                .replaceText("/project/version", "2.0"));
+        // Other encodings
+        assertThrows(CannotPatchException.class, () -> XMLPatcher.of(PATH,
+                ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"
+                        + "<project><name>café</name></project>")
+                        .getBytes(ISO_8859_1)));
+        assertThrows(CannotPatchException.class, () -> XMLPatcher.of(PATH,
+                "<project><name>café</name></project>"
+                        .getBytes(ISO_8859_1)));
+        // Anything but a simple element path
+        for (String query : asList("//version", "/project/version/text()",
+                "/project/*", "/project/dependencies/dependency[1]/version",
+                "/project/@xmlns", "project/version"))
+        {
+            assertThrows(CannotPatchException.class, ()
+                    -> patcher(POM).replaceText(query, "x"), query);
+        }
+    }
+
+    @Test
+    public void testBytesOutsideEditsAreUnchanged() throws Exception
+    {
+        // Odd spacing, quoting, CRLF line endings and non-ASCII text would
+        // all be normalized by a round trip through the DOM
+        String original = POM.replace("\n", "\r\n").replace("Foo &amp; Bar",
+                "Föö &amp; Bär 🌵");
+        Path file = dir.resolve("pom.xml");
+        Files.write(file, original.getBytes(UTF_8));
+        XMLPatcher patcher = XMLPatcher.load(file);
+        assertTrue(patcher.replaceText("/project/parent/version", "1.5"));
+        assertTrue(patcher.removeElement("/project/properties/bar.version"));
+        assertTrue(patcher.write());
+        String expected = original
+                .replace("<version>1.0</version>\r\n    </parent>",
+                        "<version>1.5</version>\r\n    </parent>")
+                .replace("<bar.version/>\r\n        ", "");
+        assertArrayEquals(expected.getBytes(UTF_8), Files.readAllBytes(file));
+        assertFalse(XMLPatcher.load(file).write());
+    }
+
+    @Test
+    public void testPatchingMatchesEditingTheDocument() throws Exception
+    {
+        Path patched = dir.resolve("patched").resolve("pom.xml");
+        Path viaDom = dir.resolve("dom").resolve("pom.xml");
+        for (Path p : asList(patched, viaDom))
+        {
+            Files.createDirectories(p.getParent());
+            Files.write(p, POM.getBytes(UTF_8));
+        }
+        List<AbstractXMLUpdater> patches = updaters(patched);
+        List<AbstractXMLUpdater> domEdits = new ArrayList<>();
+        for (AbstractXMLUpdater up : updaters(viaDom))
+        {
+            domEdits.add(new DocumentOnly(up));
+        }
+        List<String> messages = new ArrayList<>();
+        AbstractXMLUpdater.applyAll(patches, false, messages::add);
+        AbstractXMLUpdater.applyAll(domEdits, false, messages::add);
+
+        String patchedText = new String(Files.readAllBytes(patched), UTF_8);
+        String domText = new String(Files.readAllBytes(viaDom), UTF_8);
+        // The patch leaves everything else alone, where the DOM does not
+        assertTrue(patchedText.contains("<baz.version\t/>"), patchedText);
+        assertFalse(domText.contains("<baz.version\t/>"), domText);
+        assertTrue(parse(patched).isEqualNode(parse(viaDom)),
+                () -> "Patched:\n" + patchedText + "\nvs DOM:\n" + domText);
+    }
+
+    private static List<AbstractXMLUpdater> updaters(Path file)
+    {
+        XMLFile xml = new XMLFile(file);
+        return asList(
+                new XMLTextContentReplacement(xml, "/project/version", "2.0"),
+                new XMLTextContentReplacement(xml, "/project/name",
+                        "Foo <&> Bar"),
+                new XMLTextContentReplacement(xml,
+                        "/project/properties/foo.version", null),
+                new XMLTextContentReplacement(xml,
+                        "/project/properties/bar.version", "3.0"),
+                new XMLElementRemoval(xml, "/project/parent"),
+                new XMLVersionElementAdder(xml, "2.0"));
+    }
+
+    private static Document parse(Path file) throws Exception
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setCoalescing(true);
+        Document result = factory.newDocumentBuilder().parse(file.toFile());
+        result.normalizeDocument();
+        return result;
+    }
+
+    private static XMLPatcher patcher(String text) throws CannotPatchException
+    {
+        return XMLPatcher.of(PATH, text.getBytes(UTF_8));
+    }
+
+    /**
+     * Forces an updater's change to be made through the DOM.
+     */
+    private static final class DocumentOnly extends AbstractXMLUpdater
+    {
+        private final AbstractXMLUpdater delegate;
+
+        DocumentOnly(AbstractXMLUpdater delegate)
+        {
+            super(delegate.in);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Document replace() throws Exception
+        {
+            return delegate.replace();
+        }
+
+        @Override
+        public String toString()
+        {
+            return delegate.toString();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.process;
+
+import com.zaxxer.nuprocess.NuProcess;
+import com.zaxxer.nuprocess.NuProcessBuilder;
+import com.zaxxer.nuprocess.NuProcessHandler;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A long-lived process which is spoken to over its standard input and answers
+ * on its standard output, one response per request, in order - such as
+ * <code>git cat-file --batch</code>. Used to avoid paying for a fork and exec
+ * for each of many small queries against the same program.
+ * <p>
+ * Requests are written with a trailing newline; each is paired with a
+ * {@link ResponseReader} which is fed the accumulated output until it
+ * recognizes a complete response. Standard error is discarded.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+public final class InteractiveProcess implements NuProcessHandler,
+                                                 AutoCloseable
+{
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private final Deque<PendingRequest<?>> pending = new ArrayDeque<>();
+    private ByteBuffer output = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private volatile long lastUsed = currentTimeMillis();
+    private NuProcess process;
+    private boolean exited;
+    private final String name;
+
+    private InteractiveProcess(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Parses one response from process output.
+     *
+     * @param <T> The response type
+     */
+    public interface ResponseReader<T>
+    {
+        /**
+         * Attempt to read one complete response from the passed buffer,
+         * starting at its position. If the buffer does not yet contain a
+         * complete response, return null - the buffer's position is ignored
+         * in that case, and the reader will be called again with the same
+         * bytes and more once more output arrives. If a response is read, the
+         * buffer's position must be left at the first byte after it.
+         *
+         * @param buffer Output from the process
+         * @return A non-null result, or null if more output is needed
+         */
+        T read(ByteBuffer buffer);
+
+        /**
+         * A reader for a single line of output, with the trailing newline
+         * removed.
+         *
+         * @return A reader
+         */
+        static ResponseReader<String> line()
+        {
+            return buffer ->
+            {
+                for (int i = buffer.position(); i < buffer.limit(); i++)
+                {
+                    if (buffer.get(i) == '\n')
+                    {
+                        byte[] bytes = new byte[i - buffer.position()];
+                        buffer.get(bytes);
+                        buffer.get(); // the newline
+                        return new String(bytes, UTF_8);
+                    }
+                }
+                return null;
+            };
+        }
+    }
+
+    /**
+     * Launch a process.
+     *
+     * @param workingDir The working directory
+     * @param commandLine The executable and its arguments
+     * @param environment Any environment variables to add
+     * @return A running process
+     * @throws IOException if the process cannot be started
+     */
+    public static InteractiveProcess start(Path workingDir,
+            List<String> commandLine, Map<String, String> environment)
+            throws IOException
+    {
+        InteractiveProcess result = new InteractiveProcess(String.join(" ",
+                commandLine) + " (in " + workingDir + ")");
+        NuProcessBuilder bldr = new NuProcessBuilder(new ArrayList<>(
+                commandLine));
+        bldr.setCwd(notNull("workingDir", workingDir));
+        bldr.environment().putAll(environment);
+        bldr.setProcessListener(result);
+        if (bldr.start() == null)
+        {
+            throw new IOException("Could not launch " + result.name);
+        }
+        return result;
+    }
+
+    /**
+     * Send a request to the process.
+     *
+     * @param <T> The response type
+     * @param request A request, which must not contain a newline
+     * @param reader Reads the response
+     * @return A future which is completed with the response, or
+     * exceptionally if the process exits first
+     */
+    public <T> CompletableFuture<T> request(String request,
+            ResponseReader<T> reader)
+    {
+        if (request.indexOf('\n') >= 0)
+        {
+            throw new IllegalArgumentException("Request may not contain "
+                    + "a newline: '" + request + "'");
+        }
+        lastUsed = currentTimeMillis();
+        PendingRequest<T> req = new PendingRequest<>(notNull("reader", reader));
+        byte[] bytes = (request + "\n").getBytes(UTF_8);
+        synchronized (this)
+        {
+            if (exited || process == null)
+            {
+                req.future.completeExceptionally(new IOException(
+                        "Process exited: " + name));
+                return req.future;
+            }
+            // Enqueue and write under the same lock, so responses are
+            // matched to requests in the order they were written
+            pending.add(req);
+            process.writeStdin(ByteBuffer.wrap(bytes));
+        }
+        return req.future;
+    }
+
+    /**
+     * Determine if the process is still running.
+     *
+     * @return true if it is running
+     */
+    public synchronized boolean isAlive()
+    {
+        return !exited && process != null && process.isRunning();
+    }
+
+    /**
+     * Get the number of milliseconds since the last request.
+     *
+     * @return The idle time
+     */
+    public long idleMillis()
+    {
+        return currentTimeMillis() - lastUsed;
+    }
+
+    /**
+     * Close the process' standard input, which programs like this treat as a
+     * request to exit, and fail any requests that have not been answered.
+     */
+    @Override
+    public void close()
+    {
+        NuProcess proc;
+        synchronized (this)
+        {
+            proc = process;
+        }
+        if (proc != null && proc.isRunning())
+        {
+            proc.closeStdin(false);
+        }
+    }
+
+    @Override
+    public void onPreStart(NuProcess np)
+    {
+        synchronized (this)
+        {
+            process = np;
+        }
+    }
+
+    @Override
+    public void onStart(NuProcess np)
+    {
+        synchronized (this)
+        {
+            process = np;
+        }
+    }
+
+    @Override
+    public void onExit(int exitCode)
+    {
+        List<PendingRequest<?>> orphans;
+        synchronized (this)
+        {
+            exited = true;
+            orphans = new ArrayList<>(pending);
+            pending.clear();
+        }
+        IOException ex = new IOException("Process exited with " + exitCode
+                + ": " + name);
+        orphans.forEach(req -> req.future.completeExceptionally(ex));
+    }
+
+    @Override
+    public void onStdout(ByteBuffer buffer, boolean closed)
+    {
+        List<Runnable> completions = new ArrayList<>(2);
+        synchronized (this)
+        {
+            if (buffer.remaining() > output.remaining())
+            {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(
+                        output.capacity() * 2, output.position() + buffer
+                        .remaining()));
+                output.flip();
+                larger.put(output);
+                output = larger;
+            }
+            output.put(buffer);
+            output.flip();
+            while (!pending.isEmpty() && output.hasRemaining())
+            {
+                int start = output.position();
+                if (!pending.peek().tryRead(output, completions))
+                {
+                    output.position(start);
+                    break;
+                }
+                pending.poll();
+            }
+            output.compact();
+        }
+        // Complete futures outside the lock, so dependent stages cannot
+        // deadlock against the process' I/O thread
+        completions.forEach(Runnable::run);
+    }
+
+    @Override
+    public void onStderr(ByteBuffer buffer, boolean closed)
+    {
+        buffer.position(buffer.limit());
+    }
+
+    @Override
+    public boolean onStdinReady(ByteBuffer buffer)
+    {
+        // We only use writeStdin()
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+
+    private static final class PendingRequest<T>
+    {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final ResponseReader<T> reader;
+
+        PendingRequest(ResponseReader<T> reader)
+        {
+            this.reader = reader;
+        }
+
+        boolean tryRead(ByteBuffer buffer, List<Runnable> completions)
+        {
+            T result;
+            try
+            {
+                result = reader.read(buffer);
+            }
+            catch (RuntimeException ex)
+            {
+                completions.add(() -> future.completeExceptionally(ex));
+                // We cannot know where the response ends; give up on the rest
+                buffer.position(buffer.limit());
+                return true;
+            }
+            if (result == null)
+            {
+                return false;
+            }
+            completions.add(() -> future.complete(result));
+            return true;
+        }
+    }
+}
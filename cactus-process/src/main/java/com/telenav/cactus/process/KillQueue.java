@@ -20,18 +20,22 @@ package com.telenav.cactus.process;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.time.Duration;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
-import static java.lang.Math.max;
-import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * Kills processes that persist longer than a per-process timeout.
+ * <p>
+ * Each timeout is a cancellable task on a single timer thread; when a process
+ * exits on its own, its task is removed from the timer immediately, rather
+ * than lingering until its deadline, so the cost of enqueueing stays
+ * proportional to the number of processes actually still running.
+ * </p>
  *
  * @author Tim Boudreau
  */
@@ -39,8 +43,9 @@ final class KillQueue
 {
 
     private static final KillQueue INSTANCE = new KillQueue();
-    private final DelayQueue<KillQueueEntry> toKill = new DelayQueue<>();
+    private final ScheduledThreadPoolExecutor timer;
     private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicInteger watched = new AtomicInteger();
     // So tests can verify processes get killed
     static Consumer<ProcessControl<?, ?>> VERIFIER = ignored ->
     {
@@ -48,6 +53,17 @@ final class KillQueue
 
     private KillQueue()
     {
+        timer = new ScheduledThreadPoolExecutor(1, run ->
+        {
+            Thread killThread = new Thread(run, "Process timeout killer");
+            killThread.setPriority(Thread.NORM_PRIORITY - 1);
+            killThread.setDaemon(true);
+            return killThread;
+        });
+        // Cancelled entries are removed from the queue, rather than
+        // waiting for their deadline to be discarded
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
     }
 
     static void enqueue(Duration after, ProcessControl<?, ?> ctrl)
@@ -60,101 +76,83 @@ final class KillQueue
         return INSTANCE.started.get();
     }
 
-    private void _enqueue(Duration after, ProcessControl<?, ?> ctrl)
+    /**
+     * The number of processes which have a pending timeout and have not yet
+     * exited.
+     *
+     * @return A count
+     */
+    static int watchedProcesses()
     {
-        long expires = currentTimeMillis() + after.toMillis();
-        toKill.offer(new KillQueueEntry(ctrl, expires));
-        if (started.compareAndSet(false, true))
-        {
-            Thread killThread = new Thread(this::killLoop,
-                    "Process timeout killer");
-            killThread.setPriority(Thread.NORM_PRIORITY - 1);
-            killThread.setDaemon(true);
-            killThread.start();
-        }
+        return INSTANCE.watched.get();
     }
 
-    private void killLoop()
+    private void _enqueue(Duration after, ProcessControl<?, ?> ctrl)
     {
-        // Note, while a DelayQueue would be appropriate here, that would not
-        // let us wake up more frequently and prune exited processes
-        try
-        {
-            for (;;)
-            {
-                try
-                {
-                    toKill.take().kill();
-                }
-                catch (Exception | Error ex)
-                {
-                    if (!(ex instanceof InterruptedException))
-                    {
-                        // Hmm, is this still ever used with the removal of
-                        // Thread.stop()?
-                        if (ex instanceof ThreadDeath)
-                        {
-                            throw ((ThreadDeath) ex);
-                        }
-                        ex.printStackTrace();;
-                    }
-                }
-            }
-        }
-        finally
-        {
-            // If we did exit for some unusual reason, the next call
-            // to enqueue will start a new kill thread.
-            started.set(false);
-        }
+        started.set(true);
+        KillQueueEntry entry = new KillQueueEntry(ctrl);
+        watched.incrementAndGet();
+        entry.future = timer.schedule(entry, after.toMillis(), MILLISECONDS);
+        // Must be attached after the future is assigned, since this
+        // completes synchronously if the process has already exited
+        ctrl.onExit().whenComplete((ignored, thrown) -> entry.cancel());
     }
 
-    private final class KillQueueEntry implements Delayed
+    private final class KillQueueEntry implements Runnable
     {
         private final Reference<ProcessControl<?, ?>> processRef;
-        private final long expiresAt;
+        private final AtomicBoolean done = new AtomicBoolean();
+        volatile ScheduledFuture<?> future;
 
-        public KillQueueEntry(
-                ProcessControl<?, ?> process, long expiresAt)
+        KillQueueEntry(ProcessControl<?, ?> process)
         {
             this.processRef = new WeakReference<>(process);
-            this.expiresAt = expiresAt;
-        }
-
-        boolean isDead()
-        {
-            return processRef.get() == null;
         }
 
-        boolean kill()
+        private boolean markDone()
         {
-            ProcessControl<?, ?> process = processRef.get();
-            if (process != null)
+            if (done.compareAndSet(false, true))
             {
-                VERIFIER.accept(process);
-                return process.kill();
+                watched.decrementAndGet();
+                return true;
             }
             return false;
         }
 
-        @Override
-        public long getDelay(TimeUnit unit)
+        void cancel()
         {
-            if (isDead())
+            if (markDone())
             {
-                return 0;
+                ScheduledFuture<?> fut = future;
+                if (fut != null)
+                {
+                    fut.cancel(false);
+                }
             }
-            return unit.convert(max(0, expiresAt - currentTimeMillis()),
-                    MILLISECONDS);
         }
 
         @Override
-        public int compareTo(Delayed o)
+        public void run()
         {
-            // Why oh why does Delayed not add a default method for this?
-            return Long
-                    .compare(getDelay(MILLISECONDS), o.getDelay(MILLISECONDS));
+            if (!markDone())
+            {
+                return;
+            }
+            try
+            {
+                ProcessControl<?, ?> process = processRef.get();
+                if (process != null)
+                {
+                    VERIFIER.accept(process);
+                    process.kill();
+                }
+            }
+            catch (Exception | Error ex)
+            {
+                // An exception thrown here would be swallowed by the
+                // executor, so make sure it is seen
+                ex.printStackTrace();
+            }
         }
     }
-
 }
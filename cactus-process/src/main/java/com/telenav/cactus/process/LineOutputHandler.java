@@ -0,0 +1,123 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.process;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An output handler which passes each line of output to a predicate as it
+ * arrives, rather than accumulating the whole of the output and parsing it
+ * once the process exits. If the predicate returns false, the process is
+ * killed and no further lines are delivered.
+ * <p>
+ * Lines are not retained, so <code>result()</code> always returns the empty
+ * string. Lines are split on newline bytes before decoding, which is safe
+ * for UTF-8, where a newline byte can never occur inside a multi-byte
+ * character.
+ * </p>
+ *
+ * @author Tim Boudreau
+ */
+public final class LineOutputHandler implements StringOutputHandler
+{
+    private final Predicate<String> lineConsumer;
+    private byte[] partial = new byte[256];
+    private int partialLength;
+    private boolean stopped;
+
+    public LineOutputHandler(Predicate<String> lineConsumer)
+    {
+        this.lineConsumer = notNull("lineConsumer", lineConsumer);
+    }
+
+    /**
+     * Determine if the consumer asked to stop before the output ended.
+     *
+     * @return true if the process was stopped early
+     */
+    public synchronized boolean isStopped()
+    {
+        return stopped;
+    }
+
+    @Override
+    public synchronized void onOutput(ProcessControl<?, ?> process,
+            ByteBuffer output, boolean closed)
+    {
+        if (stopped)
+        {
+            output.position(output.limit());
+            return;
+        }
+        while (output.hasRemaining())
+        {
+            byte b = output.get();
+            if (b == '\n')
+            {
+                if (!emit())
+                {
+                    stop(process, output);
+                    return;
+                }
+            }
+            else
+            {
+                if (partialLength == partial.length)
+                {
+                    partial = Arrays.copyOf(partial, partial.length * 2);
+                }
+                partial[partialLength++] = b;
+            }
+        }
+        if (closed && partialLength > 0 && !emit())
+        {
+            stop(process, output);
+        }
+    }
+
+    private boolean emit()
+    {
+        String line = new String(partial, 0, partialLength, UTF_8);
+        partialLength = 0;
+        return lineConsumer.test(line);
+    }
+
+    private void stop(ProcessControl<?, ?> process, ByteBuffer output)
+    {
+        stopped = true;
+        output.position(output.limit());
+        process.kill();
+    }
+
+    @Override
+    public String result()
+    {
+        return "";
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LineOutputHandler(" + lineConsumer + ")";
+    }
+}
@@ -60,6 +60,18 @@ public interface ProcessControl<O, E>
         return -1;
     }
 
+    /**
+     * Get the number of processes which were passed to
+     * <code>killAfter()</code> and are still running - a diagnostic for
+     * detecting leaked or hung processes.
+     *
+     * @return A count
+     */
+    public static int processesAwaitingTimeout()
+    {
+        return KillQueue.watchedProcesses();
+    }
+
     public static <O, E> ProcessControl<O, E> failure(Exception thrown)
     {
         return new FailedProcessControl<>(thrown);
@@ -88,6 +100,27 @@ public interface ProcessControl<O, E>
         return result;
     }
 
+    /**
+     * Create a new ProcessControl that uses the passed handlers for output,
+     * attaching it to the passed NuProcessBuilder.
+     *
+     * @param <O> The output type
+     * @param <E> The error type
+     * @param bldr A builder
+     * @param stdout The output handler
+     * @param stderr The error handler
+     * @return A ProcessControl
+     */
+    public static <O, E> ProcessControl<O, E> create(NuProcessBuilder bldr,
+            OutputHandler<O> stdout, OutputHandler<E> stderr)
+    {
+        notNull("bldr", bldr);
+        ProcessCallback<O, E> result = ProcessCallback.create(
+                notNull("stdout", stdout), notNull("stderr", stderr));
+        bldr.setProcessListener(result);
+        return result;
+    }
+
     /**
      * Replaces the StandardInputHandler with one which will kill the process if
      * it requests input - this is useful which invoking command-line
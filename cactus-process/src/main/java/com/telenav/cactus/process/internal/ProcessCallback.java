@@ -200,15 +200,12 @@ public final class ProcessCallback<O, E> implements NuProcessHandler,
         }
         if (proc.isRunning())
         {
-            try
-            {
-                proc.destroy(true);
-                return true;
-            }
-            finally
-            {
-                getAndUpdateState(old -> old.killed());
-            }
+            // Mark the state killed before destroying the process, so that
+            // if onExit() is called before destroy() returns, listeners are
+            // notified with the killed state
+            getAndUpdateState(old -> old.killed());
+            proc.destroy(true);
+            return true;
         }
         return false;
     }
@@ -235,15 +232,12 @@ public final class ProcessCallback<O, E> implements NuProcessHandler,
     public void listen(ProcessListener l)
     {
         listeners.push(l);
+        // A killed process has not necessarily exited yet - if not, onExit()
+        // will notify the listener when it does
         ProcessState state = state();
-        int code = state.wasKilled()
-                   ? Integer.MAX_VALUE
-                   : state.isExited()
-                     ? state.exitCode()
-                     : -1;
-        if (code >= 0)
+        if (state.isExited())
         {
-            notifyListeners(code);
+            notifyListeners(state.exitCode());
         }
     }
 
@@ -282,7 +276,9 @@ public final class ProcessCallback<O, E> implements NuProcessHandler,
     {
         ProcessState old = getAndUpdateState(oldState
                 -> oldState.withExitCode(exit));
-        if (old.exitCode() == 0 && old.isRunning())
+        // The process may exit while still in the STARTING state, if it
+        // was killed very early; listeners still need to hear about it
+        if (old.exitCode() == 0 && !old.isExited())
         {
             notifyListeners(exit);
             latch.countDown();
@@ -311,7 +307,11 @@ public final class ProcessCallback<O, E> implements NuProcessHandler,
         {
             np.destroy(true);
         }
-        boolean wantWrite = updateAndGetState(old -> old.toState(RUNNING))
+        // A process killed from an output callback can exit before we get
+        // here - do not resurrect it
+        boolean wantWrite = updateAndGetState(old -> old.isExited()
+                                                     ? old
+                                                     : old.toState(RUNNING))
                 .wantsInput();
         if (wantWrite)
         {
@@ -0,0 +1,75 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.process;
+
+import com.telenav.cactus.process.InteractiveProcess.ResponseReader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class InteractiveProcessTest
+{
+    @Test
+    public void testResponsesArePairedWithRequests() throws Exception
+    {
+        try ( InteractiveProcess proc = InteractiveProcess.start(Paths.get(
+                System.getProperty("java.io.tmpdir")), asList("cat"),
+                Collections.emptyMap()))
+        {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+            {
+                futures.add(proc.request("line-" + i, ResponseReader.line()));
+            }
+            for (int i = 0; i < futures.size(); i++)
+            {
+                assertEquals("line-" + i, futures.get(i).get(10,
+                        TimeUnit.SECONDS));
+            }
+            assertTrue(proc.isAlive());
+        }
+    }
+
+    @Test
+    public void testPendingRequestsFailOnExit() throws Exception
+    {
+        InteractiveProcess proc = InteractiveProcess.start(Paths.get(System
+                .getProperty("java.io.tmpdir")), asList("true"),
+                Collections.emptyMap());
+        for (int i = 0; i < 100 && proc.isAlive(); i++)
+        {
+            Thread.sleep(20);
+        }
+        CompletableFuture<String> fut = proc.request("x", ResponseReader
+                .line());
+        assertThrows(ExecutionException.class, () -> fut.get(10,
+                TimeUnit.SECONDS));
+    }
+}
@@ -52,4 +52,17 @@ public class KillQueueTest
         assertFalse(proc.isRunning());
     }
 
+    @Test
+    public void testExitedProcessesAreNoLongerWatched() throws InterruptedException
+    {
+        int before = KillQueue.watchedProcesses();
+        NuProcessBuilder nu = new NuProcessBuilder("true");
+        ProcessControl<String, String> ctrl = ProcessControl.create(nu)
+                .killAfter(Duration.ofMinutes(10));
+        assertEquals(before + 1, KillQueue.watchedProcesses());
+        nu.start();
+        ctrl.await(Duration.ofSeconds(20));
+        assertEquals(0, ctrl.state().exitCode());
+        assertEquals(before, KillQueue.watchedProcesses());
+    }
 }
@@ -0,0 +1,65 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.mastfrog.util.preconditions.Checks.notNull;
+
+/**
+ * Thread factory for the short-lived pools mojos use to run work concurrently,
+ * which creates daemon threads, so a pool that is not shut down cannot keep
+ * Maven from exiting, and which gives each thread the context classloader of
+ * the thread that creates it, so work run in the pool resolves classes through
+ * the same (Maven plugin) classloader as the code that submitted it.
+ *
+ * @author Tim Boudreau
+ */
+public final class DaemonThreadFactory implements ThreadFactory
+{
+    private final AtomicInteger ids = new AtomicInteger();
+    private final String prefix;
+
+    /**
+     * Create a thread factory.
+     *
+     * @param prefix The prefix for thread names, which will be followed by a
+     * hyphen and a number
+     */
+    public DaemonThreadFactory(String prefix)
+    {
+        this.prefix = notNull("prefix", prefix);
+    }
+
+    @Override
+    public Thread newThread(Runnable run)
+    {
+        Thread result = new Thread(run, prefix + "-" + ids.incrementAndGet());
+        result.setDaemon(true);
+        result.setContextClassLoader(Thread.currentThread()
+                .getContextClassLoader());
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DaemonThreadFactory(" + prefix + ")";
+    }
+}
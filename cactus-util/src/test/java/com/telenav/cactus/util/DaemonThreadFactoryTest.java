@@ -0,0 +1,60 @@
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+//
+// © 2011-2022 Telenav, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+package com.telenav.cactus.util;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class DaemonThreadFactoryTest
+{
+    @Test
+    public void testThreadsAreNamedDaemonsWithCreatorsClassLoader()
+    {
+        DaemonThreadFactory factory = new DaemonThreadFactory("test-pool");
+        Thread current = Thread.currentThread();
+        ClassLoader old = current.getContextClassLoader();
+        ClassLoader ldr = new URLClassLoader(new URL[0], old);
+        current.setContextClassLoader(ldr);
+        try
+        {
+            Thread first = factory.newThread(() ->
+            {
+            });
+            Thread second = factory.newThread(() ->
+            {
+            });
+            assertTrue(first.isDaemon());
+            assertEquals("test-pool-1", first.getName());
+            assertEquals("test-pool-2", second.getName());
+            assertSame(ldr, first.getContextClassLoader());
+        }
+        finally
+        {
+            current.setContextClassLoader(old);
+        }
+    }
+}